@@ -0,0 +1,150 @@
+package com.brcolow.candlefx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses numbers directly from ASCII-encoded bytes (such as the lines of a memory-mapped raw trade data file), or
+ * from decimal text (such as the prices and sizes of a websocket feed), without creating any Strings.
+ *
+ * @author Michael Ennen
+ */
+final class AsciiNumbers {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18,
+            1e19, 1e20, 1e21, 1e22
+    };
+
+    private AsciiNumbers() {}
+
+    /**
+     * Parses the bytes in the range {@code [from, to)} of the given buffer as a (possibly signed) decimal int.
+     *
+     * @throws NumberFormatException if the bytes are not a valid int
+     */
+    static int parseInt(ByteBuffer buffer, int from, int to) {
+        boolean negative = from < to && buffer.get(from) == '-';
+        int i = negative || (from < to && buffer.get(from) == '+') ? from + 1 : from;
+        if (i == to) {
+            throw new NumberFormatException("not an int: \"" + toString(buffer, from, to) + "\"");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("not an int: \"" + toString(buffer, from, to) + "\"");
+            }
+            value = (value * 10) + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("int out of range: \"" + toString(buffer, from, to) + "\"");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("int out of range: \"" + toString(buffer, from, to) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the bytes in the range {@code [from, to)} of the given buffer as a decimal double. Plain decimals with
+     * up to 15 significant digits (such as prices and amounts) are parsed without allocating, with the same result
+     * as {@link Double#parseDouble(String)}; anything else is handed to it.
+     *
+     * @throws NumberFormatException if the bytes are not a valid double
+     */
+    static double parseDouble(ByteBuffer buffer, int from, int to) {
+        boolean negative = from < to && buffer.get(from) == '-';
+        int i = negative || (from < to && buffer.get(from) == '+') ? from + 1 : from;
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                }
+                mantissa = (mantissa * 10) + (b - '0');
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+                if (significantDigits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+                    return Double.parseDouble(toString(buffer, from, to));
+                }
+            } else {
+                // An exponent, or not a number at all.
+                return Double.parseDouble(toString(buffer, from, to));
+            }
+        }
+        if (!seenDigit) {
+            throw new NumberFormatException("not a double: \"" + toString(buffer, from, to) + "\"");
+        }
+        // Both the mantissa and the power of ten are exact doubles, so the (correctly rounded) quotient is the
+        // closest double to the decimal.
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns the number of digits after the decimal point of the given decimal, or 0 if it has no decimal point.
+     */
+    static int scaleOf(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '.') {
+                return text.length() - i - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parses the given (possibly signed) plain decimal, such as {@code "10432.17"}, as its unscaled value (here
+     * {@code 1043217}), whose scale is given by {@link #scaleOf(CharSequence)}. The decimal must not have more than
+     * 18 digits, so that its unscaled value always fits in a long, nor more fractional digits than
+     * {@link FastMoney.Utils#MAX_ALLOWED_PRECISION}.
+     *
+     * @throws NumberFormatException if the text is not such a decimal
+     */
+    static long parseUnscaled(CharSequence text) {
+        int length = text.length();
+        boolean negative = length > 0 && text.charAt(0) == '-';
+        int i = negative || (length > 0 && text.charAt(0) == '+') ? 1 : 0;
+        long value = 0;
+        int digits = 0;
+        int pointIndex = -1;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && pointIndex == -1) {
+                pointIndex = i;
+            } else if (c >= '0' && c <= '9') {
+                if (++digits > 18) {
+                    throw new NumberFormatException("decimal has more than 18 digits: \"" + text + "\"");
+                }
+                value = (value * 10) + (c - '0');
+            } else {
+                throw new NumberFormatException("not a plain decimal: \"" + text + "\"");
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("not a plain decimal: \"" + text + "\"");
+        }
+        if (pointIndex != -1 && length - pointIndex - 1 > FastMoney.Utils.MAX_ALLOWED_PRECISION) {
+            throw new NumberFormatException("decimal has more than " + FastMoney.Utils.MAX_ALLOWED_PRECISION +
+                    " fractional digits: \"" + text + "\"");
+        }
+        return negative ? -value : value;
+    }
+
+    static String toString(ByteBuffer buffer, int from, int to) {
+        StringBuilder stringBuilder = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            stringBuilder.append((char) (buffer.get(i) & 0xFF));
+        }
+        return stringBuilder.toString();
+    }
+}
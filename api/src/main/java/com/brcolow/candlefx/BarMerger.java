@@ -0,0 +1,93 @@
+package com.brcolow.candlefx;
+
+import java.util.Objects;
+
+/**
+ * Merges consecutive candles into the level-of-detail bars that a {@link CandleStickChart} draws when it has been
+ * zoomed out past the minimum candle width (see {@link ZoomLevel#getCandlesPerBar()}). Each bar summarizes the
+ * candles that land in it: it opens at the open of its oldest candle, closes at the close of its newest candle,
+ * its high (low) is the highest high (lowest low) of its candles and its volume is the average volume of its
+ * candles, so that it is on the same scale as the volume axis.
+ *
+ * <p>The candles are added from newest to oldest, by the column (counting from the right edge of the chart) they
+ * would be drawn in, and the candles in columns {@code [barIndex * candlesPerBar, (barIndex + 1) * candlesPerBar)}
+ * are merged into the bar with index {@code barIndex}. A bar is passed to the {@link BarConsumer} once a candle of
+ * another bar is added, or when the merger is {@link #finish() finished}.
+ *
+ * <p>A {@code BarMerger} is not thread-safe.
+ *
+ * @author Michael Ennen
+ */
+public final class BarMerger {
+    private final int candlesPerBar;
+    private final BarConsumer barConsumer;
+    /**
+     * The index of the bar the candles are currently being merged into. The newest overscan bars are drawn in
+     * negative columns, so no bar is marked with the smallest int.
+     */
+    private int barIndex = Integer.MIN_VALUE;
+    private double barOpen;
+    private double barClose;
+    private double barHigh;
+    private double barLow;
+    private double barVolume;
+    private int barNumCandles;
+    private boolean barIsPlaceHolder;
+
+    public BarMerger(int candlesPerBar, BarConsumer barConsumer) {
+        if (candlesPerBar <= 0) {
+            throw new IllegalArgumentException("candlesPerBar must be positive but was: " + candlesPerBar);
+        }
+        this.candlesPerBar = candlesPerBar;
+        this.barConsumer = Objects.requireNonNull(barConsumer, "barConsumer must not be null");
+    }
+
+    /**
+     * Adds the candle drawn in the given column, which must be the column after that of the previously added candle.
+     */
+    public void add(int column, double openPrice, double closePrice, double highPrice, double lowPrice,
+                    double volume, boolean placeHolder) {
+        // The candles are visited from newest to oldest, so the first candle of a bar gives its close and the last
+        // one its open.
+        if (Math.floorDiv(column, candlesPerBar) != barIndex) {
+            finish();
+            barIndex = Math.floorDiv(column, candlesPerBar);
+            barClose = closePrice;
+            barHigh = highPrice;
+            barLow = lowPrice;
+            barVolume = 0;
+            barNumCandles = 0;
+            barIsPlaceHolder = true;
+        }
+        barOpen = openPrice;
+        barHigh = Math.max(barHigh, highPrice);
+        barLow = Math.min(barLow, lowPrice);
+        barVolume += volume;
+        barNumCandles++;
+        barIsPlaceHolder &= placeHolder;
+    }
+
+    /**
+     * Passes the bar the candles are currently being merged into (if any) to the {@link BarConsumer}.
+     */
+    public void finish() {
+        if (barIndex != Integer.MIN_VALUE) {
+            barConsumer.acceptBar(barIndex, barOpen, barClose, barHigh, barLow, barVolume / barNumCandles,
+                    barIsPlaceHolder);
+            barIndex = Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Accepts the merged level-of-detail bars.
+     */
+    @FunctionalInterface
+    public interface BarConsumer {
+        /**
+         * @param volume the average volume of the candles of the bar
+         * @param placeHolder true if every candle of the bar is a placeholder candle
+         */
+        void acceptBar(int barIndex, double openPrice, double closePrice, double highPrice, double lowPrice,
+                       double volume, boolean placeHolder);
+    }
+}
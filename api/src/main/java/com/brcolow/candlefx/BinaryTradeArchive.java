@@ -0,0 +1,196 @@
+package com.brcolow.candlefx;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A read-only, memory-mapped archive of historical trades stored in a fixed-width binary format: each trade is a
+ * 20 byte record consisting of an int timestamp (in seconds since the epoch), a double price and a double amount,
+ * and the records are in ascending order by timestamp. Because every record has the same width the trade at any
+ * index can be read in constant time, and the trades in any time range can be found by binary search - no parsing
+ * is needed at all.
+ *
+ * <p>An archive is created, once, from a raw trade data CSV file (such as the exchange dumps read by
+ * {@link ReverseRawTradeDataProcessor}) by {@link #convert(Path, Path)}.
+ *
+ * <p>Archives larger than 2GB are mapped in several segments (each holding a whole number of records).
+ *
+ * @author Michael Ennen
+ */
+public final class BinaryTradeArchive implements Closeable {
+    private static final int RECORD_BYTES = Integer.BYTES + (2 * Double.BYTES);
+    private static final int RECORDS_PER_SEGMENT = Integer.MAX_VALUE / RECORD_BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private BinaryTradeArchive(Path path, FileChannel channel, MappedByteBuffer[] segments, long size) {
+        this.path = path;
+        this.channel = channel;
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /**
+     * Converts the given raw trade data CSV file, where each line is "timestamp,price,amount" and the lines are in
+     * ascending order by timestamp, into a binary trade archive.
+     *
+     * @return the number of trades converted
+     * @throws IllegalArgumentException if the raw trade data is malformed or not in ascending order
+     */
+    public static long convert(Path rawTradeData, Path archive) throws IOException {
+        Objects.requireNonNull(rawTradeData, "rawTradeData must not be null");
+        Objects.requireNonNull(archive, "archive must not be null");
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(rawTradeData, StandardCharsets.UTF_8);
+             FileChannel out = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 4096);
+            int previousTimestamp = Integer.MIN_VALUE;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] commaSplitLine = line.split(",");
+                if (commaSplitLine.length != 3) {
+                    throw new IllegalArgumentException("raw trade data malformed at line " + (count + 1) + ": " +
+                            line);
+                }
+                int timestamp = Integer.parseInt(commaSplitLine[0]);
+                if (timestamp < previousTimestamp) {
+                    throw new IllegalArgumentException("raw trade data must be in ascending order by timestamp " +
+                            "but line " + (count + 1) + " is not: " + line);
+                }
+                previousTimestamp = timestamp;
+
+                if (buffer.remaining() < RECORD_BYTES) {
+                    buffer.flip();
+                    writeFully(out, buffer);
+                    buffer.clear();
+                }
+                buffer.putInt(timestamp)
+                        .putDouble(Double.parseDouble(commaSplitLine[1]))
+                        .putDouble(Double.parseDouble(commaSplitLine[2]));
+                count++;
+            }
+            buffer.flip();
+            writeFully(out, buffer);
+        }
+        return count;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Memory-maps the binary trade archive at the given path.
+     *
+     * @throws IOException if the file could not be mapped or its size is not a whole number of records
+     */
+    public static BinaryTradeArchive open(Path archive) throws IOException {
+        Objects.requireNonNull(archive, "archive must not be null");
+        FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize % RECORD_BYTES != 0) {
+                throw new IOException("size of binary trade archive " + archive + " (" + fileSize + " bytes) " +
+                        "is not a whole number of " + RECORD_BYTES + " byte records");
+            }
+            long size = fileSize / RECORD_BYTES;
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + RECORDS_PER_SEGMENT - 1) /
+                    RECORDS_PER_SEGMENT)];
+            for (int i = 0; i < segments.length; i++) {
+                long from = (long) i * RECORDS_PER_SEGMENT * RECORD_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, from,
+                        Math.min((long) RECORDS_PER_SEGMENT * RECORD_BYTES, fileSize - from));
+            }
+            return new BinaryTradeArchive(archive, channel, segments, size);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the number of trades in this archive
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getTimestamp(long index) {
+        checkIndex(index);
+        return segment(index).getInt(offset(index));
+    }
+
+    public double getPrice(long index) {
+        checkIndex(index);
+        return segment(index).getDouble(offset(index) + Integer.BYTES);
+    }
+
+    public double getAmount(long index) {
+        checkIndex(index);
+        return segment(index).getDouble(offset(index) + Integer.BYTES + Double.BYTES);
+    }
+
+    /**
+     * Returns the index of the first trade whose timestamp is {@literal >=} the given {@code timestamp}, which is
+     * {@link #size()} if there is no such trade.
+     */
+    public long lowerBound(int timestamp) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (segment(mid).getInt(offset(mid)) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index / RECORDS_PER_SEGMENT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BinaryTradeArchive [path = %s, size = %d]", path, size);
+    }
+}
@@ -0,0 +1,158 @@
+package com.brcolow.candlefx;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javafx.beans.property.SimpleIntegerProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@code CandleDataSupplier} that caches the pages supplied by another (usually network-backed)
+ * {@code CandleDataSupplier} on disk, in a {@link CandleFileCache} per exchange, trade pair and candle duration.
+ * A page whose whole time range has been cached before is served from the cache, and only pages that are not (the
+ * newest page, which is always ahead of the cache, and any gaps in it) are requested from the delegate supplier and
+ * then cached.
+ *
+ * <p>Only complete candles are cached - the current in-progress candle (and anything after it) never is.
+ *
+ * <p>If the cache file can not be opened, or reading or writing it fails, every page is simply requested from the
+ * delegate supplier.
+ *
+ * <p>The cache files stay open (shared by every supplier of the same candles) until {@link #closeCaches()} is
+ * called, which applications should do when they are stopped.
+ *
+ * @author Michael Ennen
+ */
+public class CachingCandleDataSupplier extends CandleDataSupplier {
+    /**
+     * The open caches, by the path of their file, so that every supplier of the same candles shares one cache.
+     */
+    private static final Map<Path, CandleFileCache> OPEN_CACHES = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(CachingCandleDataSupplier.class);
+
+    private final CandleDataSupplier delegate;
+    private final Path cacheFile;
+    private boolean cacheUnavailable;
+
+    /**
+     * Creates a new {@code CachingCandleDataSupplier}.
+     *
+     * @param delegate the supplier that supplies the pages that are not cached
+     * @param cacheDirectory the directory the cache files are stored in
+     * @param exchangeName the name of the exchange the candles are from, which is part of the cache file name
+     */
+    public CachingCandleDataSupplier(CandleDataSupplier delegate, Path cacheDirectory, String exchangeName) {
+        super(Objects.requireNonNull(delegate, "delegate must not be null").numCandles, delegate.secondsPerCandle,
+                delegate.tradePair, new SimpleIntegerProperty(-1));
+        Objects.requireNonNull(cacheDirectory, "cacheDirectory must not be null");
+        Objects.requireNonNull(exchangeName, "exchangeName must not be null");
+        this.delegate = delegate;
+        cacheFile = cacheDirectory.resolve(String.format("%s-%s-%d.candles", exchangeName, tradePair.toString('-'),
+                secondsPerCandle)).toAbsolutePath();
+    }
+
+    @Override
+    public Set<Integer> getSupportedGranularities() {
+        return delegate.getSupportedGranularities();
+    }
+
+    @Override
+    public Future<List<CandleData>> get() {
+        // Only candles that have closed by now are complete.
+        int completeTill = Math.floorDiv((int) Instant.now().getEpochSecond(), secondsPerCandle) * secondsPerCandle;
+        if (endTime.get() == -1) {
+            endTime.set(completeTill);
+        }
+        int pageEndTime = endTime.get();
+        int pageStartTime = pageEndTime - (numCandles * secondsPerCandle);
+        endTime.set(pageStartTime);
+
+        CandleFileCache candleFileCache = getCache();
+        if (candleFileCache != null && candleFileCache.isCovered(pageStartTime, pageEndTime)) {
+            try {
+                return CompletableFuture.completedFuture(candleFileCache.get(pageStartTime, pageEndTime));
+            } catch (IOException ex) {
+                logger.error("could not read candle cache: " + candleFileCache, ex);
+            }
+        }
+
+        delegate.endTime.set(pageEndTime);
+        return toCompletableFuture(delegate.get()).thenApply(candleData -> {
+            // The delegate moves its end time back to the start of the page it supplied.
+            int suppliedFrom = Math.min(delegate.endTime.get(), pageStartTime);
+            int suppliedTill = Math.min(pageEndTime, completeTill);
+            if (candleFileCache != null && !candleData.isEmpty() && suppliedFrom < suppliedTill) {
+                try {
+                    candleFileCache.append(suppliedFrom, suppliedTill, candleData);
+                } catch (IOException ex) {
+                    logger.error("could not write to candle cache: " + candleFileCache, ex);
+                }
+            }
+            return candleData;
+        });
+    }
+
+    /**
+     * @return the open cache of this supplier's candles, opening it if it is not open (yet, or again after
+     * {@link #closeCaches()}), or {@code null} if it can not be opened
+     */
+    private synchronized CandleFileCache getCache() {
+        if (cacheUnavailable) {
+            return null;
+        }
+        try {
+            return OPEN_CACHES.computeIfAbsent(cacheFile, path -> {
+                try {
+                    return CandleFileCache.open(path, secondsPerCandle);
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+        } catch (IllegalStateException ex) {
+            logger.error("could not open candle cache: " + cacheFile + ", candles will not be cached", ex);
+            cacheUnavailable = true;
+            return null;
+        }
+    }
+
+    /**
+     * Closes the cache files of every {@code CachingCandleDataSupplier}. A supplier that supplies another page
+     * afterwards opens its cache file again. A page that is being read from or written to a cache while it is closed
+     * is requested from the delegate supplier (and not cached).
+     */
+    public static void closeCaches() {
+        for (Path cacheFile : OPEN_CACHES.keySet()) {
+            CandleFileCache cache = OPEN_CACHES.remove(cacheFile);
+            if (cache != null) {
+                try {
+                    cache.close();
+                } catch (IOException ex) {
+                    logger.error("could not close candle cache: " + cache, ex);
+                }
+            }
+        }
+    }
+
+    private static CompletableFuture<List<CandleData>> toCompletableFuture(Future<List<CandleData>> future) {
+        if (future instanceof CompletableFuture) {
+            return (CompletableFuture<List<CandleData>>) future;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return future.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package com.brcolow.candlefx;
+
+/**
+ * Accumulates the trades of a single candle duration into open, high, low and close prices, volume, average price
+ * and volume-weighted average price using constant space, no matter how many trades there are.
+ *
+ * <p>Accumulators for the same candle can be {@link #merge(CandleAccumulator) merged}, and merging is associative
+ * (and commutative), so the trades of a candle can be accumulated in any number of parts - for example by
+ * different threads each aggregating a different part of a trade file - and then merged in any order. To make that
+ * possible each trade is accepted with its timestamp and a sequence number (such as its position in the trade
+ * file) and the open (close) price is the price of the trade with the earliest (latest) timestamp and sequence
+ * number, regardless of the order the trades were accepted in.
+ *
+ * @author Michael Ennen
+ */
+public final class CandleAccumulator {
+    private final int openTime;
+    private int firstTimestamp = Integer.MAX_VALUE;
+    private long firstSequence = Long.MAX_VALUE;
+    private int lastTimestamp = Integer.MIN_VALUE;
+    private long lastSequence = Long.MIN_VALUE;
+    private double openPrice;
+    private double closePrice;
+    private double highPrice = Double.NEGATIVE_INFINITY;
+    private double lowPrice = Double.POSITIVE_INFINITY;
+    private double volume;
+    private double priceTotal;
+    private double volumeWeightedPriceTotal;
+    private long tradeCount;
+
+    public CandleAccumulator(int openTime) {
+        this.openTime = openTime;
+    }
+
+    public int getOpenTime() {
+        return openTime;
+    }
+
+    public long getTradeCount() {
+        return tradeCount;
+    }
+
+    public boolean isEmpty() {
+        return tradeCount == 0;
+    }
+
+    /**
+     * Accumulates a trade.
+     *
+     * @param timestamp the time of the trade
+     * @param sequence orders trades with the same timestamp
+     * @param price the price of the trade
+     * @param amount the amount traded
+     */
+    public void accept(int timestamp, long sequence, double price, double amount) {
+        if (isBefore(timestamp, sequence, firstTimestamp, firstSequence)) {
+            firstTimestamp = timestamp;
+            firstSequence = sequence;
+            openPrice = price;
+        }
+        if (!isBefore(timestamp, sequence, lastTimestamp, lastSequence)) {
+            lastTimestamp = timestamp;
+            lastSequence = sequence;
+            closePrice = price;
+        }
+        highPrice = Math.max(highPrice, price);
+        lowPrice = Math.min(lowPrice, price);
+        volume += amount;
+        priceTotal += price;
+        volumeWeightedPriceTotal += price * amount;
+        tradeCount++;
+    }
+
+    /**
+     * Merges the trades accumulated by {@code other}, which must be for the same candle, into this accumulator.
+     *
+     * @return this accumulator
+     */
+    public CandleAccumulator merge(CandleAccumulator other) {
+        if (other.openTime != openTime) {
+            throw new IllegalArgumentException("can not merge the accumulator of candle " + other.openTime +
+                    " into the accumulator of candle " + openTime);
+        }
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isBefore(other.firstTimestamp, other.firstSequence, firstTimestamp, firstSequence)) {
+            firstTimestamp = other.firstTimestamp;
+            firstSequence = other.firstSequence;
+            openPrice = other.openPrice;
+        }
+        if (!isBefore(other.lastTimestamp, other.lastSequence, lastTimestamp, lastSequence)) {
+            lastTimestamp = other.lastTimestamp;
+            lastSequence = other.lastSequence;
+            closePrice = other.closePrice;
+        }
+        highPrice = Math.max(highPrice, other.highPrice);
+        lowPrice = Math.min(lowPrice, other.lowPrice);
+        volume += other.volume;
+        priceTotal += other.priceTotal;
+        volumeWeightedPriceTotal += other.volumeWeightedPriceTotal;
+        tradeCount += other.tradeCount;
+        return this;
+    }
+
+    private static boolean isBefore(int timestamp, long sequence, int otherTimestamp, long otherSequence) {
+        return timestamp < otherTimestamp || (timestamp == otherTimestamp && sequence < otherSequence);
+    }
+
+    /**
+     * @throws IllegalStateException if no trades have been accumulated
+     */
+    public CandleData toCandleData() {
+        if (isEmpty()) {
+            throw new IllegalStateException("no trades have been accumulated for candle: " + openTime);
+        }
+        return new CandleData(openPrice, closePrice, highPrice, lowPrice, openTime, volume, priceTotal / tradeCount,
+                volume == 0 ? 0 : volumeWeightedPriceTotal / volume, false);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CandleAccumulator [openTime = %d, tradeCount = %d, openPrice = %f, closePrice = %f, " +
+                "highPrice = %f, lowPrice = %f, volume = %f]", openTime, tradeCount, openPrice, closePrice, highPrice,
+                lowPrice, volume);
+    }
+}
@@ -2,8 +2,10 @@ package com.brcolow.candlefx;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -12,11 +14,23 @@ import org.slf4j.LoggerFactory;
 /**
  * Pages new candle data in chronological order to a {@code CandleStickChart} on-demand.
  *
+ * <p>Each supplied page is older than the one before it, so page requests are never run concurrently - every
+ * request is chained after the previous one. Besides the pages that are fetched because the chart needs them right
+ * away, pages can be prefetched in the background (see {@link #prefetch(int, double)}) according to a
+ * {@link PagePrefetchPolicy} so that panning back in time does not have to wait for them.
+ *
  * @author Michael Ennen
  */
 public class CandleDataPager {
     private final CandleDataSupplier candleDataSupplier;
     private final CandleDataPreProcessor candleDataPreProcessor;
+    private final AtomicInteger pagesInFlight = new AtomicInteger();
+    private volatile PagePrefetchPolicy prefetchPolicy = PagePrefetchPolicy.DEFAULT;
+    private volatile ChartMetrics metrics = ChartMetrics.NONE;
+    /**
+     * Completes once the most recently requested page has been passed to the chart.
+     */
+    private CompletableFuture<Void> lastPage = CompletableFuture.completedFuture(null);
     private static final Logger logger = LoggerFactory.getLogger(CandleDataPager.class);
 
     public CandleDataPager(CandleStickChart candleStickChart, CandleDataSupplier candleDataSupplier) {
@@ -34,6 +48,72 @@ public class CandleDataPager {
         return candleDataPreProcessor;
     }
 
+    public PagePrefetchPolicy getPrefetchPolicy() {
+        return prefetchPolicy;
+    }
+
+    public void setPrefetchPolicy(PagePrefetchPolicy prefetchPolicy) {
+        this.prefetchPolicy = Objects.requireNonNull(prefetchPolicy, "prefetchPolicy must not be null");
+    }
+
+    public void setMetrics(ChartMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+    }
+
+    /**
+     * @return the number of page requests that are currently outstanding
+     */
+    public int getPagesInFlight() {
+        return pagesInFlight.get();
+    }
+
+    /**
+     * Requests the next page of candle data, after every page that has already been requested.
+     *
+     * @return a future that completes once the page has been passed to the chart
+     */
+    public synchronized CompletableFuture<Void> fetchPage() {
+        pagesInFlight.incrementAndGet();
+        lastPage = lastPage.exceptionally(throwable -> null)
+                .thenCompose(ignored -> {
+                    long start = System.nanoTime();
+                    return CompletableFuture.supplyAsync(candleDataSupplier)
+                            .thenAccept(candleDataPreProcessor)
+                            .thenRun(() -> metrics.recordPageFetch(System.nanoTime() - start));
+                })
+                .whenComplete((result, throwable) -> {
+                    pagesInFlight.decrementAndGet();
+                    if (throwable != null) {
+                        logger.error("exception during fetching candle data page: ", throwable);
+                    }
+                });
+        return lastPage;
+    }
+
+    /**
+     * Waits for the next page of candle data: if pages have already been requested (for example by
+     * prefetching) this waits for them instead of requesting another one.
+     *
+     * @return a future that completes once the page has been passed to the chart
+     */
+    public synchronized CompletableFuture<Void> awaitPage() {
+        return pagesInFlight.get() > 0 ? lastPage : fetchPage();
+    }
+
+    /**
+     * Requests as many pages ahead of the chart's viewport as the prefetch policy calls for.
+     *
+     * @param candlesAhead the number of candles that have already been fetched to the left of the viewport
+     * @param candlesPerSecond the velocity at which the viewport is being panned back in time
+     */
+    public synchronized void prefetch(int candlesAhead, double candlesPerSecond) {
+        int pages = prefetchPolicy.getPagesToFetch(candlesAhead, candlesPerSecond,
+                candleDataSupplier.numCandles, pagesInFlight.get());
+        for (int i = 0; i < pages; i++) {
+            fetchPage();
+        }
+    }
+
     private static class CandleDataPreProcessor implements Consumer<Future<List<CandleData>>> {
         private final CandleStickChart candleStickChart;
         private boolean hitFirstNonPlaceHolder;
@@ -0,0 +1,283 @@
+package com.brcolow.candlefx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A cache of candles (of a single duration) that is persisted in a compact, append-only binary file.
+ *
+ * <p>The file starts with a header (a magic number, the format version and the candle duration) which is followed
+ * by blocks, one for every page of candles that has been stored. A block records the time range
+ * {@code [fromTime, toTime)} the page covers, followed by its candles as fixed-size records:
+ *
+ * <pre>
+ * header: int magic, int version, int secondsPerCandle
+ * block:  int fromTime, int toTime, int count, count * (int openTime, 7 * double, byte placeHolder)
+ * </pre>
+ *
+ * <p>Nothing in the file is ever rewritten - a candle that is stored again (for example after being re-fetched) is
+ * simply appended and supersedes the older copy. When the cache is opened, the blocks are scanned once to build a
+ * time index: the file offset of the newest copy of every candle (by open time) and the union of the time ranges
+ * that are covered. A block that was only partially written (because the application was killed while writing
+ * it) is discarded.
+ *
+ * <p>A {@code CandleFileCache} is safe for use by multiple threads.
+ *
+ * @author Michael Ennen
+ */
+public final class CandleFileCache implements Closeable {
+    private static final int MAGIC = 0x43465843; // "CFXC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int BLOCK_HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int RECORD_BYTES = Integer.BYTES + (7 * Double.BYTES) + 1;
+
+    private final Path path;
+    private final int secondsPerCandle;
+    private final FileChannel channel;
+    /**
+     * The file offset of the record of the newest copy of each candle, by open time.
+     */
+    private final NavigableMap<Integer, Long> index = new TreeMap<>();
+    /**
+     * The disjoint (and non-adjacent) time ranges that are covered by the stored blocks, from start to end.
+     */
+    private final NavigableMap<Integer, Integer> coverage = new TreeMap<>();
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_BYTES);
+    private long size;
+
+    private CandleFileCache(Path path, int secondsPerCandle, FileChannel channel) {
+        this.path = path;
+        this.secondsPerCandle = secondsPerCandle;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the cache file at the given path, creating it if it does not exist.
+     *
+     * @throws IOException if the file could not be read or created, or it is not a cache file of candles with the
+     * given duration
+     */
+    public static CandleFileCache open(Path path, int secondsPerCandle) throws IOException {
+        Objects.requireNonNull(path, "path must not be null");
+        if (secondsPerCandle <= 0) {
+            throw new IllegalArgumentException("secondsPerCandle must be positive but was: " + secondsPerCandle);
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        CandleFileCache cache = new CandleFileCache(path, secondsPerCandle, channel);
+        try {
+            cache.load();
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        return cache;
+    }
+
+    private void load() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(secondsPerCandle).flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            size = HEADER_BYTES;
+            return;
+        }
+
+        ByteBuffer header = readFully(ByteBuffer.allocate(HEADER_BYTES), 0);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("not a candle cache file (or an unsupported version): " + path);
+        }
+        int fileSecondsPerCandle = header.getInt();
+        if (fileSecondsPerCandle != secondsPerCandle) {
+            throw new IOException("candle cache file " + path + " is for candles of " + fileSecondsPerCandle +
+                    " seconds, not " + secondsPerCandle);
+        }
+
+        long position = HEADER_BYTES;
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        ByteBuffer openTime = ByteBuffer.allocate(Integer.BYTES);
+        while (position + BLOCK_HEADER_BYTES <= fileSize) {
+            readFully(blockHeader.clear(), position);
+            int fromTime = blockHeader.getInt();
+            int toTime = blockHeader.getInt();
+            int count = blockHeader.getInt();
+            long blockEnd = position + BLOCK_HEADER_BYTES + ((long) count * RECORD_BYTES);
+            if (count < 0 || blockEnd > fileSize) {
+                break;
+            }
+            for (long record = position + BLOCK_HEADER_BYTES; record < blockEnd; record += RECORD_BYTES) {
+                index.put(readFully(openTime.clear(), record).getInt(), record);
+            }
+            addCoverage(fromTime, toTime);
+            position = blockEnd;
+        }
+        if (position != fileSize) {
+            // The last block was only partially written, so it is discarded.
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    public int getSecondsPerCandle() {
+        return secondsPerCandle;
+    }
+
+    /**
+     * @return whether or not the stored blocks cover the whole time range {@code [fromTime, toTime)}
+     */
+    public synchronized boolean isCovered(int fromTime, int toTime) {
+        if (fromTime >= toTime) {
+            return true;
+        }
+        Map.Entry<Integer, Integer> range = coverage.floorEntry(fromTime);
+        return range != null && range.getValue() >= toTime;
+    }
+
+    /**
+     * Returns the stored candles that open in the time range {@code [fromTime, toTime)}, in ascending order by open
+     * time. Durations that are covered but that have no stored candle had no trading activity.
+     */
+    public synchronized List<CandleData> get(int fromTime, int toTime) throws IOException {
+        if (fromTime >= toTime) {
+            return new ArrayList<>();
+        }
+        NavigableMap<Integer, Long> records = index.subMap(fromTime, true, toTime, false);
+        List<CandleData> candleData = new ArrayList<>(records.size());
+        for (long offset : records.values()) {
+            ByteBuffer record = readFully(recordBuffer.clear(), offset);
+            candleData.add(readRecord(record));
+        }
+        return candleData;
+    }
+
+    /**
+     * Appends a block covering the time range {@code [fromTime, toTime)} that contains the given candles. Candles
+     * that do not open within that range are not stored.
+     */
+    public synchronized void append(int fromTime, int toTime, List<CandleData> candleData) throws IOException {
+        Objects.requireNonNull(candleData, "candleData must not be null");
+        if (fromTime >= toTime) {
+            throw new IllegalArgumentException("fromTime (" + fromTime + ") must be before toTime (" + toTime + ")");
+        }
+        List<CandleData> inRange = new ArrayList<>(candleData.size());
+        for (CandleData candleDatum : candleData) {
+            if (candleDatum.getOpenTime() >= fromTime && candleDatum.getOpenTime() < toTime) {
+                inRange.add(candleDatum);
+            }
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + (inRange.size() * RECORD_BYTES));
+        block.putInt(fromTime).putInt(toTime).putInt(inRange.size());
+        for (CandleData candleDatum : inRange) {
+            writeRecord(block, candleDatum);
+        }
+        block.flip();
+        long blockStart = size;
+        writeFully(block, blockStart);
+        size += block.limit();
+
+        long record = blockStart + BLOCK_HEADER_BYTES;
+        for (CandleData candleDatum : inRange) {
+            index.put(candleDatum.getOpenTime(), record);
+            record += RECORD_BYTES;
+        }
+        addCoverage(fromTime, toTime);
+    }
+
+    /**
+     * @return the size of the cache file in bytes
+     */
+    public synchronized long getFileSize() {
+        return size;
+    }
+
+    private void addCoverage(int fromTime, int toTime) {
+        if (fromTime >= toTime) {
+            return;
+        }
+        int start = fromTime;
+        int end = toTime;
+        Map.Entry<Integer, Integer> before = coverage.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        // Merge every range that starts within (or right after) the new one.
+        Map.Entry<Integer, Integer> after;
+        while ((after = coverage.ceilingEntry(start)) != null && after.getKey() <= end) {
+            end = Math.max(end, after.getValue());
+            coverage.remove(after.getKey());
+        }
+        coverage.put(start, end);
+    }
+
+    private static void writeRecord(ByteBuffer buffer, CandleData candleData) {
+        buffer.putInt(candleData.getOpenTime())
+                .putDouble(candleData.getOpenPrice())
+                .putDouble(candleData.getClosePrice())
+                .putDouble(candleData.getHighPrice())
+                .putDouble(candleData.getLowPrice())
+                .putDouble(candleData.getVolume())
+                .putDouble(candleData.getAveragePrice())
+                .putDouble(candleData.getVolumeWeightedAveragePrice())
+                .put((byte) (candleData.isPlaceHolder() ? 1 : 0));
+    }
+
+    private static CandleData readRecord(ByteBuffer buffer) {
+        int openTime = buffer.getInt();
+        double openPrice = buffer.getDouble();
+        double closePrice = buffer.getDouble();
+        double highPrice = buffer.getDouble();
+        double lowPrice = buffer.getDouble();
+        double volume = buffer.getDouble();
+        double averagePrice = buffer.getDouble();
+        double volumeWeightedAveragePrice = buffer.getDouble();
+        boolean placeHolder = buffer.get() != 0;
+        return new CandleData(openPrice, closePrice, highPrice, lowPrice, openTime, volume, averagePrice,
+                volumeWeightedAveragePrice, placeHolder);
+    }
+
+    private ByteBuffer readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of candle cache file: " + path);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CandleFileCache [path = %s, secondsPerCandle = %d, candles = %d, size = %d]", path,
+                secondsPerCandle, index.size(), size);
+    }
+}
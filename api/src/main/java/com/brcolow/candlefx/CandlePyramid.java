@@ -0,0 +1,239 @@
+package com.brcolow.candlefx;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A base {@link CandleSeries} together with series of coarser granularities (for example 5 minute, 15 minute,
+ * 1 hour, 6 hour and 1 day candles derived from 1 minute candles) that are rolled up from it. Every granularity of
+ * the pyramid must be a whole multiple of the base granularity so that each derived candle covers a whole number of
+ * base candles.
+ *
+ * <p>Whenever base candles are put into the pyramid (a page of historical candles or a single live-synced
+ * candle) only the derived candles that contain them are re-aggregated, so the derived series are always in sync
+ * with the base series. This allows switching the granularity of a chart to be served from memory instead of
+ * refetching all of the candle data from the exchange.
+ *
+ * <p>A derived candle is aggregated from the (non-placeholder) base candles it covers: its open price is the open
+ * price of the first of them, its close price the close price of the last, its high (low) price the highest (lowest)
+ * of their high (low) prices and its volume the sum of their volumes. If it only covers placeholders then it is a
+ * placeholder too.
+ *
+ * <p>Derived candles are aligned to whole multiples of their duration since the epoch (so that, for example, daily
+ * candles open at midnight UTC), which is how exchanges align the candles they supply.
+ *
+ * @author Michael Ennen
+ */
+public class CandlePyramid {
+    private final CandleSeries base;
+    private final Map<Integer, CandleSeries> derived;
+
+    /**
+     * Creates a new {@code CandlePyramid}.
+     *
+     * @param baseSecondsPerCandle the duration in seconds of the base candles
+     * @param granularities the candle durations (in seconds) to derive from the base candles, those that are not a
+     * whole multiple of (and greater than) {@code baseSecondsPerCandle} are ignored
+     */
+    public CandlePyramid(int baseSecondsPerCandle, Collection<Integer> granularities) {
+        Objects.requireNonNull(granularities, "granularities must not be null");
+        base = new CandleSeries(baseSecondsPerCandle);
+        derived = new TreeMap<>();
+        for (int secondsPerCandle : granularities) {
+            if (secondsPerCandle > baseSecondsPerCandle && secondsPerCandle % baseSecondsPerCandle == 0) {
+                derived.put(secondsPerCandle, new CandleSeries(secondsPerCandle));
+            }
+        }
+    }
+
+    public int getBaseSecondsPerCandle() {
+        return base.getSecondsPerCandle();
+    }
+
+    /**
+     * @return the candle durations (in seconds), in ascending order, that are derived from the base candles
+     */
+    public Collection<Integer> getDerivedGranularities() {
+        return Collections.unmodifiableCollection(derived.keySet());
+    }
+
+    /**
+     * @return whether or not candles with the given duration are derived from the base candles
+     */
+    public boolean isDerived(int secondsPerCandle) {
+        return derived.containsKey(secondsPerCandle);
+    }
+
+    /**
+     * Returns the series of candles with the given duration, which is either the base series or one of the derived
+     * series. The returned series must not be modified directly, as it would no longer be in sync with the rest of
+     * the pyramid.
+     *
+     * @throws IllegalArgumentException if {@code secondsPerCandle} is neither the base granularity nor a derived one
+     */
+    public CandleSeries getSeries(int secondsPerCandle) {
+        if (secondsPerCandle == base.getSecondsPerCandle()) {
+            return base;
+        }
+        CandleSeries series = derived.get(secondsPerCandle);
+        if (series == null) {
+            throw new IllegalArgumentException("secondsPerCandle (" + secondsPerCandle + ") is not a granularity " +
+                    "of this pyramid (base: " + base.getSecondsPerCandle() + ", derived: " + derived.keySet() + ")");
+        }
+        return series;
+    }
+
+    /**
+     * Puts the given base candle into the base series and re-aggregates the derived candles that contain it.
+     *
+     * @see CandleSeries#put(CandleData)
+     */
+    public synchronized void put(CandleData candleData) {
+        Objects.requireNonNull(candleData, "candleData must not be null");
+        base.put(candleData);
+        rollUp(candleData.getOpenTime(), candleData.getOpenTime() + base.getSecondsPerCandle());
+    }
+
+    /**
+     * Puts all of the given base candles, which must be in ascending order by open time, into the base series and
+     * re-aggregates the derived candles that contain them.
+     *
+     * @see CandleSeries#putAll(List)
+     */
+    public synchronized void putAll(List<CandleData> candleData) {
+        Objects.requireNonNull(candleData, "candleData must not be null");
+        if (candleData.isEmpty()) {
+            return;
+        }
+        int toTime = candleData.get(candleData.size() - 1).getOpenTime() + base.getSecondsPerCandle();
+        if (!base.isEmpty() && base.getFirstOpenTime() >= toTime) {
+            // Prepending a page re-prices the placeholders between it and the old first candle, so the derived
+            // candles up to (and including) the one containing the old first candle are rolled up again too.
+            toTime = base.getFirstOpenTime() + 1;
+        }
+        base.putAll(candleData);
+        rollUp(candleData.get(0).getOpenTime(), toTime);
+    }
+
+    /**
+     * Returns the derived candles of the given duration that are complete, in ascending order by open time, that
+     * open in the range {@code [fromTime, toTime)}. A derived candle is complete if the base series covers its whole
+     * duration.
+     *
+     * @return the complete candles or {@code null} if the base series does not cover the whole range
+     */
+    public synchronized List<CandleData> getCompleteCandles(int secondsPerCandle, int fromTime, int toTime) {
+        if (!isDerived(secondsPerCandle)) {
+            throw new IllegalArgumentException("secondsPerCandle (" + secondsPerCandle + ") is not a derived " +
+                    "granularity of this pyramid: " + derived.keySet());
+        }
+        if (fromTime % secondsPerCandle != 0 || toTime % secondsPerCandle != 0) {
+            throw new IllegalArgumentException("fromTime (" + fromTime + ") and toTime (" + toTime + ") must be " +
+                    "aligned to secondsPerCandle: " + secondsPerCandle);
+        }
+        if (base.isEmpty() || fromTime < base.getFirstOpenTime() ||
+                toTime > base.getLastOpenTime() + base.getSecondsPerCandle()) {
+            return null;
+        }
+        CandleSeries series = derived.get(secondsPerCandle);
+        return series.subList(series.floorIndex(fromTime), series.floorIndex(toTime));
+    }
+
+    /**
+     * Returns the newest complete derived candles of the given duration, in ascending order by open time, that open
+     * in the range {@code [fromTime, toTime)}: if the base series covers the end of the range, these are the complete
+     * candles from the start of the range (or, if the base series does not reach back that far, from the oldest
+     * derived candle it covers the whole duration of) to the end of the range.
+     *
+     * @return the complete candles, which are empty if the base series does not cover the end of the range
+     */
+    public synchronized List<CandleData> getNewestCompleteCandles(int secondsPerCandle, int fromTime, int toTime) {
+        if (!isDerived(secondsPerCandle)) {
+            throw new IllegalArgumentException("secondsPerCandle (" + secondsPerCandle + ") is not a derived " +
+                    "granularity of this pyramid: " + derived.keySet());
+        }
+        if (fromTime % secondsPerCandle != 0 || toTime % secondsPerCandle != 0) {
+            throw new IllegalArgumentException("fromTime (" + fromTime + ") and toTime (" + toTime + ") must be " +
+                    "aligned to secondsPerCandle: " + secondsPerCandle);
+        }
+        if (base.isEmpty() || toTime > base.getLastOpenTime() + base.getSecondsPerCandle()) {
+            return List.of();
+        }
+        int firstCompleteOpenTime = Math.floorDiv(base.getFirstOpenTime() + secondsPerCandle - 1, secondsPerCandle) *
+                secondsPerCandle;
+        int completeFromTime = Math.max(fromTime, firstCompleteOpenTime);
+        if (completeFromTime >= toTime) {
+            return List.of();
+        }
+        CandleSeries series = derived.get(secondsPerCandle);
+        return series.subList(series.floorIndex(completeFromTime), series.floorIndex(toTime));
+    }
+
+    /**
+     * Re-aggregates every derived candle that overlaps the base candles in the time range
+     * {@code [fromTime, toTime)}.
+     */
+    private void rollUp(int fromTime, int toTime) {
+        for (CandleSeries series : derived.values()) {
+            int secondsPerCandle = series.getSecondsPerCandle();
+            List<CandleData> rolledUp = new ArrayList<>();
+            for (int openTime = Math.floorDiv(fromTime, secondsPerCandle) * secondsPerCandle; openTime < toTime;
+                 openTime += secondsPerCandle) {
+                rolledUp.add(aggregate(openTime, secondsPerCandle));
+            }
+            if (rolledUp.size() == 1) {
+                series.put(rolledUp.get(0));
+            } else {
+                series.putAll(rolledUp);
+            }
+        }
+    }
+
+    /**
+     * Aggregates the base candles that fall within the derived candle with the given open time and duration.
+     */
+    private CandleData aggregate(int openTime, int secondsPerCandle) {
+        int fromIndex = Math.max(0, base.floorIndex(openTime));
+        int toIndex = Math.min(base.size(), base.floorIndex(openTime + secondsPerCandle));
+
+        double openPrice = 0;
+        double closePrice = 0;
+        double highPrice = Double.NEGATIVE_INFINITY;
+        double lowPrice = Double.POSITIVE_INFINITY;
+        double volume = 0;
+        double volumeWeightedPrice = 0;
+        boolean placeHolder = true;
+        for (int i = fromIndex; i < toIndex; i++) {
+            if (base.isPlaceHolder(i)) {
+                continue;
+            }
+            if (placeHolder) {
+                openPrice = base.getOpenPrice(i);
+                placeHolder = false;
+            }
+            closePrice = base.getClosePrice(i);
+            highPrice = Math.max(highPrice, base.getHighPrice(i));
+            lowPrice = Math.min(lowPrice, base.getLowPrice(i));
+            volume += base.getVolume(i);
+            volumeWeightedPrice += base.getVolumeWeightedAveragePrice(i) * base.getVolume(i);
+        }
+
+        if (placeHolder) {
+            // Placeholders are priced at the close of the candle before them, as are the base placeholders.
+            double price = base.getClosePrice(Math.max(0, Math.min(fromIndex, base.size() - 1)));
+            return new CandleData(price, price, price, price, openTime, 0, 0, 0, true);
+        }
+        return new CandleData(openPrice, closePrice, highPrice, lowPrice, openTime, volume,
+                (highPrice + lowPrice) / 2, volume == 0 ? 0 : volumeWeightedPrice / volume, false);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CandlePyramid [base = %s, derivedGranularities = %s]", base, derived.keySet());
+    }
+}
@@ -0,0 +1,90 @@
+package com.brcolow.candlefx;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * Supplies pages of candle data that are derived, in memory, from the base candles of a {@link CandlePyramid}.
+ * Pages are served from the pyramid for as long as it holds complete candles for them. The page the pyramid runs
+ * out in is made up of the pyramid's (newest) complete candles and, for the older rest of the page, a page of the
+ * given fallback supplier (normally the one obtained from {@link Exchange#getCandleDataSupplier(int, TradePair)})
+ * that ends right where the pyramid's candles start. Every page after that (that is, once the user has paged back
+ * in time past the data the pyramid holds) is supplied by the fallback supplier.
+ *
+ * <p>Like the pages supplied by an exchange, the first page ends right before the current in-progress candle.
+ *
+ * @author Michael Ennen
+ */
+public class CandlePyramidDataSupplier extends CandleDataSupplier {
+    private final CandlePyramid candlePyramid;
+    private final CandleDataSupplier fallbackSupplier;
+    private boolean pyramidExhausted;
+
+    public CandlePyramidDataSupplier(CandlePyramid candlePyramid, CandleDataSupplier fallbackSupplier) {
+        super(Objects.requireNonNull(fallbackSupplier, "fallbackSupplier must not be null").numCandles,
+                fallbackSupplier.secondsPerCandle, fallbackSupplier.tradePair, new SimpleIntegerProperty(-1));
+        Objects.requireNonNull(candlePyramid, "candlePyramid must not be null");
+        if (!candlePyramid.isDerived(secondsPerCandle)) {
+            throw new IllegalArgumentException("secondsPerCandle (" + secondsPerCandle + ") is not derived by " +
+                    "candlePyramid: " + candlePyramid);
+        }
+        this.candlePyramid = candlePyramid;
+        this.fallbackSupplier = fallbackSupplier;
+    }
+
+    @Override
+    public Set<Integer> getSupportedGranularities() {
+        return fallbackSupplier.getSupportedGranularities();
+    }
+
+    @Override
+    public Future<List<CandleData>> get() {
+        if (pyramidExhausted) {
+            return fallbackSupplier.get();
+        }
+
+        if (endTime.get() == -1) {
+            int now = (int) Instant.now().getEpochSecond();
+            endTime.set(Math.floorDiv(now, secondsPerCandle) * secondsPerCandle);
+        }
+
+        int pageStartTime = endTime.get() - (numCandles * secondsPerCandle);
+        List<CandleData> candleData = candlePyramid.getNewestCompleteCandles(secondsPerCandle, pageStartTime,
+                endTime.get());
+        if (candleData.size() == numCandles) {
+            endTime.set(pageStartTime);
+            return CompletableFuture.completedFuture(candleData);
+        }
+
+        // The pyramid does not hold the whole page, so the rest of this page (and all that follow) come from the
+        // fallback, starting right where the pyramid's candles start.
+        pyramidExhausted = true;
+        fallbackSupplier.endTime.set(endTime.get() - (candleData.size() * secondsPerCandle));
+        Future<List<CandleData>> olderCandleData = fallbackSupplier.get();
+        if (candleData.isEmpty()) {
+            return olderCandleData;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            List<CandleData> page;
+            try {
+                page = new ArrayList<>(olderCandleData.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            } catch (ExecutionException ex) {
+                throw new CompletionException(ex.getCause());
+            }
+            page.addAll(candleData);
+            return page;
+        });
+    }
+}
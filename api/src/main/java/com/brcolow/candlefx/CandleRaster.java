@@ -0,0 +1,217 @@
+package com.brcolow.candlefx;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+/**
+ * A frame of the historical candle layer of a {@link CandleStickChart} rasterized in software, into an array of
+ * premultiplied ARGB pixels, as an alternative to replaying the {@link CandleShapes} as vector paths. Every shape a
+ * candle chart draws is an axis-aligned rectangle (or a ring around one), so at small candle widths, where a candle
+ * is only a few pixels wide, filling the pixels directly is much cheaper than having Prism tessellate and
+ * rasterize thousands of tiny paths. The edges of the shapes are snapped to whole pixels rather than anti-aliased,
+ * which is not noticeable at those widths.
+ *
+ * <p>The canvas is split into vertical strips which are rasterized in parallel (see
+ * {@link #rasterize(CandleShapes, FrameGeometry, ForkJoinPool)}). Each strip only writes the pixels inside of it, so
+ * the strips need no synchronization. Once it has been rasterized, the frame is pushed to a {@link WritableImage}
+ * with one {@code PixelWriter.setPixels} call (see {@link #writeTo(WritableImage)}).
+ *
+ * @author Michael Ennen
+ */
+final class CandleRaster {
+    /**
+     * The widest strip of the canvas that is rasterized by one task.
+     */
+    static final int STRIP_WIDTH = 128;
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    CandleRaster(int width, int height) {
+        if (width < 0) {
+            throw new IllegalArgumentException("width must not be negative but was: " + width);
+        }
+        if (height < 0) {
+            throw new IllegalArgumentException("height must not be negative but was: " + height);
+        }
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+    }
+
+    /**
+     * Rasterizes the given shapes into a new raster the size of the canvas of the given geometry, one strip per task
+     * of the given pool.
+     */
+    static CandleRaster rasterize(CandleShapes shapes, FrameGeometry geometry, ForkJoinPool pool) {
+        Objects.requireNonNull(shapes, "shapes must not be null");
+        Objects.requireNonNull(geometry, "geometry must not be null");
+        Objects.requireNonNull(pool, "pool must not be null");
+        CandleRaster raster = new CandleRaster((int) Math.ceil(geometry.getCanvasWidth()),
+                (int) Math.ceil(geometry.getCanvasHeight()));
+        if (raster.width > 0 && raster.height > 0) {
+            pool.invoke(new RasterizeTask(shapes, geometry, raster, 0, raster.width));
+        }
+        return raster;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the premultiplied ARGB color of the pixel at {@code (x, y)}
+     */
+    int getPixel(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("x: " + x + ", y: " + y + ", width: " + width + ", height: " + height);
+        }
+        return pixels[(y * width) + x];
+    }
+
+    /**
+     * Writes the pixels of this raster into the top-left corner of the given image, which must be at least as large
+     * as this raster. This must be called on the JavaFX application thread if the image is being displayed.
+     */
+    void writeTo(WritableImage image) {
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+    }
+
+    /**
+     * Composites the given (premultiplied ARGB) color over the pixels of the rectangle {@code [x0, x1) x [y0, y1)},
+     * clipped to the strip {@code [clipX0, clipX1)}. The edges are rounded to the nearest pixel boundary.
+     */
+    void fillRect(double x0, double y0, double x1, double y1, int color, int clipX0, int clipX1) {
+        int left = Math.max(clipX0, round(Math.min(x0, x1)));
+        int right = Math.min(clipX1, round(Math.max(x0, x1)));
+        int top = Math.max(0, round(Math.min(y0, y1)));
+        int bottom = Math.min(height, round(Math.max(y0, y1)));
+        for (int y = top; y < bottom; y++) {
+            blendSpan(y * width, left, right, color);
+        }
+    }
+
+    /**
+     * Composites the given color over the pixels of the border of the rectangle at {@code (x, y)} of the given size,
+     * stroked with the given line width (which, as with {@code GraphicsContext.stroke()}, is centered on the edges of
+     * the rectangle), clipped to the strip {@code [clipX0, clipX1)}.
+     */
+    void strokeRect(double x, double y, double rectWidth, double rectHeight, double lineWidth, int color,
+                    int clipX0, int clipX1) {
+        double halfLineWidth = lineWidth * 0.5;
+        double minX = Math.min(x, x + rectWidth);
+        double maxX = Math.max(x, x + rectWidth);
+        double minY = Math.min(y, y + rectHeight);
+        double maxY = Math.max(y, y + rectHeight);
+        int outerLeft = round(minX - halfLineWidth);
+        int outerRight = round(maxX + halfLineWidth);
+        int innerLeft = Math.min(outerRight, round(minX + halfLineWidth));
+        int innerRight = Math.max(innerLeft, round(maxX - halfLineWidth));
+        int outerTop = round(minY - halfLineWidth);
+        int outerBottom = round(maxY + halfLineWidth);
+        int innerTop = Math.min(outerBottom, round(minY + halfLineWidth));
+        int innerBottom = Math.max(innerTop, round(maxY - halfLineWidth));
+        int left = Math.max(clipX0, outerLeft);
+        int right = Math.min(clipX1, outerRight);
+        for (int row = Math.max(0, outerTop); row < Math.min(height, outerBottom); row++) {
+            int rowOffset = row * width;
+            if (row < innerTop || row >= innerBottom) {
+                blendSpan(rowOffset, left, right, color);
+            } else {
+                blendSpan(rowOffset, left, Math.min(right, innerLeft), color);
+                blendSpan(rowOffset, Math.max(left, innerRight), right, color);
+            }
+        }
+    }
+
+    private void blendSpan(int rowOffset, int from, int to, int color) {
+        int alpha = color >>> 24;
+        if (alpha == 0xFF) {
+            for (int i = rowOffset + from; i < rowOffset + to; i++) {
+                pixels[i] = color;
+            }
+            return;
+        }
+        // Source-over with premultiplied colors: dst = src + dst * (1 - srcAlpha), for each channel.
+        int inverseAlpha = 0xFF - alpha;
+        for (int i = rowOffset + from; i < rowOffset + to; i++) {
+            int dst = pixels[i];
+            int a = alpha + div255((dst >>> 24) * inverseAlpha);
+            int r = ((color >> 16) & 0xFF) + div255(((dst >> 16) & 0xFF) * inverseAlpha);
+            int g = ((color >> 8) & 0xFF) + div255(((dst >> 8) & 0xFF) * inverseAlpha);
+            int b = (color & 0xFF) + div255((dst & 0xFF) * inverseAlpha);
+            pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * @return {@code value / 255}, rounded, for values in {@code [0, 255 * 255]}
+     */
+    private static int div255(int value) {
+        int rounded = value + 128;
+        return (rounded + (rounded >> 8)) >> 8;
+    }
+
+    private static int round(double value) {
+        return (int) Math.floor(value + 0.5);
+    }
+
+    /**
+     * @return the given color as a premultiplied ARGB int
+     * @throws IllegalArgumentException if the given paint is not a {@link Color}
+     */
+    static int toArgbPre(Paint paint) {
+        if (!(paint instanceof Color)) {
+            throw new IllegalArgumentException("only a Color can be rasterized but was: " + paint);
+        }
+        Color color = (Color) paint;
+        double opacity = color.getOpacity();
+        int a = (int) Math.round(opacity * 255);
+        int r = (int) Math.round(color.getRed() * opacity * 255);
+        int g = (int) Math.round(color.getGreen() * opacity * 255);
+        int b = (int) Math.round(color.getBlue() * opacity * 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Rasterizes the strip {@code [fromX, toX)} of the canvas, splitting it in two until it is no wider than
+     * {@link #STRIP_WIDTH}.
+     */
+    private static final class RasterizeTask extends RecursiveAction {
+        private final CandleShapes shapes;
+        private final FrameGeometry geometry;
+        private final CandleRaster raster;
+        private final int fromX;
+        private final int toX;
+
+        RasterizeTask(CandleShapes shapes, FrameGeometry geometry, CandleRaster raster, int fromX, int toX) {
+            this.shapes = shapes;
+            this.geometry = geometry;
+            this.raster = raster;
+            this.fromX = fromX;
+            this.toX = toX;
+        }
+
+        @Override
+        protected void compute() {
+            if (toX - fromX <= STRIP_WIDTH) {
+                shapes.rasterize(raster, geometry, fromX, toX);
+                return;
+            }
+            int middleX = (fromX + toX) >>> 1;
+            invokeAll(new RasterizeTask(shapes, geometry, raster, fromX, middleX),
+                    new RasterizeTask(shapes, geometry, raster, middleX, toX));
+        }
+    }
+}
@@ -0,0 +1,557 @@
+package com.brcolow.candlefx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A time-ordered series of evenly spaced candles that stores each candle field in its own primitive array
+ * (column) rather than as individual {@code CandleData} objects. Because successive candles are exactly
+ * {@code secondsPerCandle} apart, the open time of a candle is never stored - it is derived from its index
+ * (and vice-versa) in constant time:
+ *
+ * <pre>{@code
+ * openTime = firstOpenTime + (index * secondsPerCandle)
+ * }</pre>
+ *
+ * <p>The series can grow in both directions - older pages of candle data are prepended as the user pans back in
+ * time and live-synced candles are appended (or overwritten in-place) at the end. If a candle is added that is not
+ * adjacent to the current series then the gap between them is filled with placeholder candles (that is, durations
+ * in which no trading activity occurred).
+ *
+ * <p>The series also maintains a {@link RangeExtremaIndex} over the high/low prices and the volumes of its candles
+ * so that the extrema for any range of candles (such as the range of candles currently visible on a chart) can be
+ * obtained in {@literal O(log n)} time, no matter the size of the range.
+ *
+ * <p>A {@code CandleSeries} is safe for use by multiple threads. Reads of a single field are lock-free in the
+ * common case (they only fall back to acquiring a read lock if they race with a writer).
+ *
+ * @author Michael Ennen
+ */
+public class CandleSeries {
+    private static final int OPEN = 0;
+    private static final int CLOSE = 1;
+    private static final int HIGH = 2;
+    private static final int LOW = 3;
+    private static final int VOLUME = 4;
+    private static final int AVERAGE = 5;
+    private static final int VWAP = 6;
+    private static final int NUM_COLUMNS = 7;
+    private static final int INITIAL_CAPACITY = 512;
+
+    private final int secondsPerCandle;
+    private final StampedLock lock = new StampedLock();
+    private double[][] columns;
+    private boolean[] placeHolders;
+    /**
+     * The array index of the candle at (logical) index 0. Room is kept on both sides of the stored candles so
+     * that prepending a page of older candles does not always require copying the entire series.
+     */
+    private int head;
+    private int size;
+    private int firstOpenTime;
+    private RangeExtremaIndex priceExtrema;
+    private RangeExtremaIndex volumeExtrema;
+    /**
+     * Whether or not the extrema indices need to be rebuilt. Single candles (such as the live-synced in-progress
+     * candle) are indexed incrementally as they are put, but a page of candles (or growing the columns) marks the
+     * indices stale so that they are rebuilt lazily (on the next query) and the page is indexed only once.
+     */
+    private boolean extremaStale = true;
+
+    public CandleSeries(int secondsPerCandle) {
+        this(secondsPerCandle, INITIAL_CAPACITY);
+    }
+
+    public CandleSeries(int secondsPerCandle, int initialCapacity) {
+        if (secondsPerCandle <= 0) {
+            throw new IllegalArgumentException("secondsPerCandle must be positive but was: " + secondsPerCandle);
+        }
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be positive but was: " + initialCapacity);
+        }
+        this.secondsPerCandle = secondsPerCandle;
+        columns = new double[NUM_COLUMNS][initialCapacity];
+        placeHolders = new boolean[initialCapacity];
+        head = initialCapacity / 2;
+    }
+
+    public int getSecondsPerCandle() {
+        return secondsPerCandle;
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the open time of the oldest candle in this series
+     * @throws IllegalStateException if this series is empty
+     */
+    public int getFirstOpenTime() {
+        long stamp = lock.readLock();
+        try {
+            checkNotEmpty();
+            return firstOpenTime;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the open time of the newest candle in this series
+     * @throws IllegalStateException if this series is empty
+     */
+    public int getLastOpenTime() {
+        long stamp = lock.readLock();
+        try {
+            checkNotEmpty();
+            return firstOpenTime + ((size - 1) * secondsPerCandle);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the index of the candle whose duration contains the given {@code time} (that is, the candle with
+     * open time {@literal <=} {@code time} {@literal <} open time + secondsPerCandle). The returned index is
+     * <em>not</em> clamped to the bounds of this series, so it may be negative (if {@code time} is before the first
+     * candle) or {@literal >=} {@link #size()} (if {@code time} is after the last candle).
+     *
+     * @throws IllegalStateException if this series is empty
+     */
+    public int floorIndex(int time) {
+        return Math.floorDiv(time - getFirstOpenTime(), secondsPerCandle);
+    }
+
+    public int getOpenTime(int index) {
+        long stamp = lock.readLock();
+        try {
+            checkIndex(index);
+            return firstOpenTime + (index * secondsPerCandle);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public double getOpenPrice(int index) {
+        return read(OPEN, index);
+    }
+
+    public double getClosePrice(int index) {
+        return read(CLOSE, index);
+    }
+
+    public double getHighPrice(int index) {
+        return read(HIGH, index);
+    }
+
+    public double getLowPrice(int index) {
+        return read(LOW, index);
+    }
+
+    public double getVolume(int index) {
+        return read(VOLUME, index);
+    }
+
+    public double getAveragePrice(int index) {
+        return read(AVERAGE, index);
+    }
+
+    public double getVolumeWeightedAveragePrice(int index) {
+        return read(VWAP, index);
+    }
+
+    public boolean isPlaceHolder(int index) {
+        long stamp = lock.tryOptimisticRead();
+        boolean[] placeHolderColumn = placeHolders;
+        int slot = head + index;
+        if (index >= 0 && index < size && slot < placeHolderColumn.length) {
+            boolean result = placeHolderColumn[slot];
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            checkIndex(index);
+            return placeHolders[head + index];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Creates a new {@code CandleData} from the candle at the given {@code index}. As this allocates, it should be
+     * avoided on hot paths in favor of the primitive accessors (such as {@link #getHighPrice(int)}).
+     */
+    public CandleData get(int index) {
+        long stamp = lock.readLock();
+        try {
+            checkIndex(index);
+            return toCandleData(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Creates a list of {@code CandleData} (in ascending order by open time) from the candles in the range
+     * {@code [fromIndex, toIndex)}.
+     */
+    public List<CandleData> subList(int fromIndex, int toIndex) {
+        long stamp = lock.readLock();
+        try {
+            checkRange(fromIndex, toIndex);
+            List<CandleData> result = new ArrayList<>(toIndex - fromIndex);
+            for (int i = fromIndex; i < toIndex; i++) {
+                result.add(toCandleData(i));
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the open, close, high and low prices, the volumes and the placeholder flags of the candles in the range
+     * {@code [fromIndex, toIndex)} into the start of the given arrays. Unlike reading the candles one field at a
+     * time, the copy is a consistent snapshot of the range: no candle can be put while it is being taken.
+     */
+    public void copyRange(int fromIndex, int toIndex, double[] openPrices, double[] closePrices, double[] highPrices,
+                          double[] lowPrices, double[] volumes, boolean[] placeHolders) {
+        long stamp = lock.readLock();
+        try {
+            checkRange(fromIndex, toIndex);
+            int length = toIndex - fromIndex;
+            System.arraycopy(columns[OPEN], head + fromIndex, openPrices, 0, length);
+            System.arraycopy(columns[CLOSE], head + fromIndex, closePrices, 0, length);
+            System.arraycopy(columns[HIGH], head + fromIndex, highPrices, 0, length);
+            System.arraycopy(columns[LOW], head + fromIndex, lowPrices, 0, length);
+            System.arraycopy(columns[VOLUME], head + fromIndex, volumes, 0, length);
+            System.arraycopy(this.placeHolders, head + fromIndex, placeHolders, 0, length);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Creates a list of {@code CandleData} (in ascending order by open time) for every candle in this series.
+     */
+    public List<CandleData> toList() {
+        long stamp = lock.readLock();
+        try {
+            List<CandleData> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(toCandleData(i));
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the extrema of the prices of the candles in the range {@code [fromIndex, toIndex)}, that is, the lowest
+     * low price and the highest high price of those candles.
+     */
+    public Extrema<Double> getPriceExtrema(int fromIndex, int toIndex) {
+        long stamp = lockForExtrema();
+        try {
+            checkRange(fromIndex, toIndex);
+            return new Extrema<>(priceExtrema.getMin(head + fromIndex, head + toIndex),
+                    priceExtrema.getMax(head + fromIndex, head + toIndex));
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    /**
+     * Returns the extrema of the volumes of the candles in the range {@code [fromIndex, toIndex)}.
+     */
+    public Extrema<Double> getVolumeExtrema(int fromIndex, int toIndex) {
+        long stamp = lockForExtrema();
+        try {
+            checkRange(fromIndex, toIndex);
+            return new Extrema<>(volumeExtrema.getMin(head + fromIndex, head + toIndex),
+                    volumeExtrema.getMax(head + fromIndex, head + toIndex));
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    /**
+     * Acquires a lock under which the extrema indices are up-to-date. This is a read lock unless the indices need to
+     * be rebuilt first, in which case it is a write lock.
+     */
+    private long lockForExtrema() {
+        long stamp = lock.readLock();
+        if (!extremaStale) {
+            return stamp;
+        }
+
+        long writeStamp = lock.tryConvertToWriteLock(stamp);
+        if (writeStamp == 0L) {
+            lock.unlockRead(stamp);
+            writeStamp = lock.writeLock();
+        }
+        if (extremaStale) {
+            int capacity = placeHolders.length;
+            if (priceExtrema == null || priceExtrema.getCapacity() != capacity) {
+                priceExtrema = new RangeExtremaIndex(capacity);
+                volumeExtrema = new RangeExtremaIndex(capacity);
+            }
+            priceExtrema.build(columns[LOW], columns[HIGH], head, head + size);
+            volumeExtrema.build(columns[VOLUME], columns[VOLUME], head, head + size);
+            extremaStale = false;
+        }
+        return writeStamp;
+    }
+
+    /**
+     * Puts the given candle into this series. If a candle with the same open time already exists it is overwritten,
+     * otherwise the candle is prepended or appended (filling any gap between it and the existing candles with
+     * placeholder candles).
+     *
+     * @throws IllegalArgumentException if the open time of {@code candleData} is not aligned with the existing
+     * candles (that is, it is not a whole number of candle durations away from them)
+     */
+    public void put(CandleData candleData) {
+        Objects.requireNonNull(candleData, "candleData must not be null");
+        long stamp = lock.writeLock();
+        try {
+            put0(candleData);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Puts all of the given candles, which must be in ascending order by open time, into this series.
+     *
+     * @see #put(CandleData)
+     */
+    public void putAll(List<CandleData> candleData) {
+        Objects.requireNonNull(candleData, "candleData must not be null");
+        if (candleData.isEmpty()) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            extremaStale = true;
+            boolean prepending = size != 0;
+            int originalFirstOpenTime = firstOpenTime;
+            if (size == 0) {
+                put0(candleData.get(0));
+            }
+            // Make room for the whole page up-front so that it is copied at most once.
+            int fromIndex = checkAligned(candleData.get(0).getOpenTime());
+            int toIndex = checkAligned(candleData.get(candleData.size() - 1).getOpenTime());
+            ensureCapacity(Math.max(0, -fromIndex), Math.max(0, toIndex - (size - 1)));
+
+            CandleData previous = null;
+            for (CandleData candleDatum : candleData) {
+                put0(candleDatum);
+                if (prepending && previous != null) {
+                    repricePrependedGap(previous, candleDatum.getOpenTime(), originalFirstOpenTime);
+                }
+                previous = candleDatum;
+            }
+            if (prepending) {
+                repricePrependedGap(previous, originalFirstOpenTime, originalFirstOpenTime);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void put0(CandleData candleData) {
+        if (size == 0) {
+            firstOpenTime = candleData.getOpenTime();
+            size = 1;
+            write(0, candleData);
+            updateExtrema(0, 1);
+            return;
+        }
+
+        int index = checkAligned(candleData.getOpenTime());
+        if (index < 0) {
+            ensureCapacity(-index, 0);
+            head += index;
+            size -= index;
+            firstOpenTime = candleData.getOpenTime();
+            write(0, candleData);
+            fillWithPlaceHolders(1, -index, candleData.getClosePrice());
+            updateExtrema(0, -index);
+        } else if (index >= size) {
+            int oldSize = size;
+            ensureCapacity(0, (index - size) + 1);
+            size = index + 1;
+            fillWithPlaceHolders(oldSize, index, columns[CLOSE][head + oldSize - 1]);
+            write(index, candleData);
+            updateExtrema(oldSize, size);
+        } else {
+            write(index, candleData);
+            updateExtrema(index, index + 1);
+        }
+    }
+
+    /**
+     * Updates the extrema indices for the (just written) candles in the range {@code [fromIndex, toIndex)} in
+     * {@literal O(log n)} time per candle. Nothing needs to be done if the indices are going to be rebuilt anyway.
+     */
+    private void updateExtrema(int fromIndex, int toIndex) {
+        if (extremaStale) {
+            return;
+        }
+        for (int slot = head + fromIndex; slot < head + toIndex; slot++) {
+            priceExtrema.set(slot, columns[LOW][slot], columns[HIGH][slot]);
+            volumeExtrema.set(slot, columns[VOLUME][slot], columns[VOLUME][slot]);
+        }
+    }
+
+    /**
+     * Prepending the first candle of a page fills everything up to the old first candle with placeholders priced
+     * at <em>its</em> close, so the placeholders after {@code previous} (up to {@code nextOpenTime}, but never
+     * past the candles that were already in the series) are re-priced at the close of {@code previous}.
+     */
+    private void repricePrependedGap(CandleData previous, int nextOpenTime, int originalFirstOpenTime) {
+        int gapFromIndex = checkAligned(previous.getOpenTime()) + 1;
+        int gapToIndex = checkAligned(Math.min(nextOpenTime, originalFirstOpenTime));
+        if (gapFromIndex < gapToIndex) {
+            fillWithPlaceHolders(gapFromIndex, gapToIndex, previous.getClosePrice());
+        }
+    }
+
+    private double read(int column, int index) {
+        long stamp = lock.tryOptimisticRead();
+        double[] values = columns[column];
+        int slot = head + index;
+        if (index >= 0 && index < size && slot < values.length) {
+            double result = values[slot];
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            checkIndex(index);
+            return columns[column][head + index];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void write(int index, CandleData candleData) {
+        int slot = head + index;
+        columns[OPEN][slot] = candleData.getOpenPrice();
+        columns[CLOSE][slot] = candleData.getClosePrice();
+        columns[HIGH][slot] = candleData.getHighPrice();
+        columns[LOW][slot] = candleData.getLowPrice();
+        columns[VOLUME][slot] = candleData.getVolume();
+        columns[AVERAGE][slot] = candleData.getAveragePrice();
+        columns[VWAP][slot] = candleData.getVolumeWeightedAveragePrice();
+        placeHolders[slot] = candleData.isPlaceHolder();
+    }
+
+    private void fillWithPlaceHolders(int fromIndex, int toIndex, double price) {
+        for (int slot = head + fromIndex; slot < head + toIndex; slot++) {
+            columns[OPEN][slot] = price;
+            columns[CLOSE][slot] = price;
+            columns[HIGH][slot] = price;
+            columns[LOW][slot] = price;
+            columns[VOLUME][slot] = 0;
+            columns[AVERAGE][slot] = 0;
+            columns[VWAP][slot] = 0;
+            placeHolders[slot] = true;
+        }
+    }
+
+    private CandleData toCandleData(int index) {
+        int slot = head + index;
+        return new CandleData(columns[OPEN][slot], columns[CLOSE][slot], columns[HIGH][slot], columns[LOW][slot],
+                firstOpenTime + (index * secondsPerCandle), columns[VOLUME][slot], columns[AVERAGE][slot],
+                columns[VWAP][slot], placeHolders[slot]);
+    }
+
+    /**
+     * Makes sure there is room for at least {@code before} candles before the first candle and {@code after}
+     * candles after the last candle, growing (and re-centering) the columns if necessary.
+     */
+    private void ensureCapacity(int before, int after) {
+        int capacity = placeHolders.length;
+        if (head >= before && capacity - (head + size) >= after) {
+            return;
+        }
+
+        int required = size + before + after;
+        int newCapacity = Math.max(capacity * 2, required + (required / 2));
+        int newHead = before + ((newCapacity - required) / 2);
+        for (int i = 0; i < NUM_COLUMNS; i++) {
+            double[] newColumn = new double[newCapacity];
+            System.arraycopy(columns[i], head, newColumn, newHead, size);
+            columns[i] = newColumn;
+        }
+        boolean[] newPlaceHolders = new boolean[newCapacity];
+        System.arraycopy(placeHolders, head, newPlaceHolders, newHead, size);
+        placeHolders = newPlaceHolders;
+        head = newHead;
+        // Every candle has moved, so the extrema indices have to be rebuilt.
+        extremaStale = true;
+    }
+
+    private int checkAligned(int openTime) {
+        if ((openTime - firstOpenTime) % secondsPerCandle != 0) {
+            throw new IllegalArgumentException("openTime (" + openTime + ") is not aligned with the candles in this " +
+                    "series (first open time: " + firstOpenTime + ", secondsPerCandle: " + secondsPerCandle + ")");
+        }
+        return (openTime - firstOpenTime) / secondsPerCandle;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    private void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex +
+                    ", size: " + size);
+        }
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new IllegalStateException("candle series is empty");
+        }
+    }
+
+    @Override
+    public String toString() {
+        long stamp = lock.readLock();
+        try {
+            return String.format("CandleSeries [secondsPerCandle = %d, firstOpenTime = %d, size = %d]",
+                    secondsPerCandle, firstOpenTime, size);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.brcolow.candlefx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * Supplies pages of candle data from a {@link CandleSeries} that has already been built in memory (for example by
+ * aggregating a whole raw trade data file with a {@link ParallelTradeAggregator}), starting with the newest
+ * candles.
+ *
+ * @author Michael Ennen
+ */
+public class CandleSeriesDataSupplier extends CandleDataSupplier {
+    private final CandleSeries candleSeries;
+
+    public CandleSeriesDataSupplier(CandleSeries candleSeries, TradePair tradePair) {
+        super(200, Objects.requireNonNull(candleSeries, "candleSeries must not be null").getSecondsPerCandle(),
+                tradePair, new SimpleIntegerProperty(-1));
+        this.candleSeries = candleSeries;
+    }
+
+    @Override
+    public Future<List<CandleData>> get() {
+        if (candleSeries.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        if (endTime.get() == -1) {
+            endTime.set(candleSeries.getLastOpenTime() + secondsPerCandle);
+        }
+
+        int pageEndTime = endTime.get();
+        int pageStartTime = pageEndTime - (numCandles * secondsPerCandle);
+        endTime.set(pageStartTime);
+
+        int fromIndex = Math.max(0, candleSeries.floorIndex(pageStartTime));
+        int toIndex = Math.min(candleSeries.size(), candleSeries.floorIndex(pageEndTime));
+        if (fromIndex >= toIndex) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return CompletableFuture.completedFuture(candleSeries.subList(fromIndex, toIndex));
+    }
+}
@@ -0,0 +1,404 @@
+package com.brcolow.candlefx;
+
+import static com.brcolow.candlefx.ChartColors.BEAR_CANDLE_BORDER_COLOR;
+import static com.brcolow.candlefx.ChartColors.BEAR_CANDLE_FILL_COLOR;
+import static com.brcolow.candlefx.ChartColors.BULL_CANDLE_BORDER_COLOR;
+import static com.brcolow.candlefx.ChartColors.BULL_CANDLE_FILL_COLOR;
+import static com.brcolow.candlefx.ChartColors.PLACE_HOLDER_BORDER_COLOR;
+import static com.brcolow.candlefx.ChartColors.PLACE_HOLDER_FILL_COLOR;
+
+import java.util.Arrays;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Paint;
+
+/**
+ * A list of the shapes (candles, placeholders and level-of-detail bars) to draw on a chart canvas, in screen
+ * coordinates. All of the geometry (positions, heights, colors and which wicks are drawn) is worked out when a
+ * shape is added (see {@link FrameGeometry}), which can be done on any thread, so that
+ * {@link #replay(GraphicsContext, FrameGeometry)} only has to issue the (batched) {@code GraphicsContext} calls. At
+ * small candle widths the shapes can instead be rasterized in software (see
+ * {@link #rasterize(CandleRaster, FrameGeometry, int, int)}).
+ *
+ * <p>The shapes are stored in parallel primitive arrays rather than as objects. A {@code CandleShapes} is not
+ * thread-safe, but once it has been handed to another thread (for example as part of a {@link FrameModel}) and is
+ * no longer added to, it can be replayed by that thread.
+ *
+ * @author Michael Ennen
+ */
+final class CandleShapes {
+    private static final byte PLACE_HOLDER_CANDLE = 0;
+    private static final byte BULL_CANDLE = 1;
+    private static final byte BEAR_CANDLE = 2;
+    private static final byte PLACE_HOLDER_BAR = 3;
+    private static final byte BULL_BAR = 4;
+    private static final byte BEAR_BAR = 5;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int PLACE_HOLDER_FILL_ARGB = CandleRaster.toArgbPre(PLACE_HOLDER_FILL_COLOR);
+    private static final int PLACE_HOLDER_BORDER_ARGB = CandleRaster.toArgbPre(PLACE_HOLDER_BORDER_COLOR);
+    private static final int BULL_FILL_ARGB = CandleRaster.toArgbPre(BULL_CANDLE_FILL_COLOR);
+    private static final int BULL_BORDER_ARGB = CandleRaster.toArgbPre(BULL_CANDLE_BORDER_COLOR);
+    private static final int BEAR_FILL_ARGB = CandleRaster.toArgbPre(BEAR_CANDLE_FILL_COLOR);
+    private static final int BEAR_BORDER_ARGB = CandleRaster.toArgbPre(BEAR_CANDLE_BORDER_COLOR);
+
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    /**
+     * The left edge of a candle or the center of a bar.
+     */
+    private double[] xs = new double[INITIAL_CAPACITY];
+    /**
+     * The top of the body of a candle or the high of a bar.
+     */
+    private double[] tops = new double[INITIAL_CAPACITY];
+    /**
+     * The height of the body of a candle or the low of a bar.
+     */
+    private double[] heights = new double[INITIAL_CAPACITY];
+    /**
+     * The end of the high wick of a candle, or NaN if it has none.
+     */
+    private double[] highs = new double[INITIAL_CAPACITY];
+    /**
+     * The end of the low wick of a candle, or NaN if it has none.
+     */
+    private double[] lows = new double[INITIAL_CAPACITY];
+    /**
+     * The top of the volume bar, or NaN if none is drawn.
+     */
+    private double[] volumes = new double[INITIAL_CAPACITY];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the left edge of the candle, or the center of the bar, at the given index
+     */
+    double getX(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return xs[index];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a placeholder candle (for a duration in which no trading activity occurred), a flat line at the given
+     * height.
+     */
+    void addPlaceHolderCandle(double x, double y) {
+        add(PLACE_HOLDER_CANDLE, x, y, 0, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Adds a candle.
+     *
+     * @param bear whether the candle opened above its close
+     * @param bodyTop the top of the body of the candle
+     * @param bodyHeight the height of the body of the candle
+     * @param high the end of the high wick, or NaN if no high wick is drawn
+     * @param low the end of the low wick, or NaN if no low wick is drawn
+     * @param volume the top of the volume bar, or NaN if no volume bar is drawn
+     */
+    void addCandle(double x, boolean bear, double bodyTop, double bodyHeight, double high, double low,
+                   double volume) {
+        add(bear ? BEAR_CANDLE : BULL_CANDLE, x, bodyTop, bodyHeight, high, low, volume);
+    }
+
+    /**
+     * Adds a level-of-detail bar, a vertical line from {@code high} to {@code low} centered on {@code x}.
+     *
+     * @param volume the top of the volume line, or NaN if no volume line is drawn
+     */
+    void addBar(double x, boolean placeHolder, boolean bear, double high, double low, double volume) {
+        add(placeHolder ? PLACE_HOLDER_BAR : bear ? BEAR_BAR : BULL_BAR, x, high, low, Double.NaN, Double.NaN,
+                volume);
+    }
+
+    private void add(byte kind, double x, double top, double height, double high, double low, double volume) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            tops = Arrays.copyOf(tops, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+        }
+        kinds[size] = kind;
+        xs[size] = x;
+        tops[size] = top;
+        heights[size] = height;
+        highs[size] = high;
+        lows[size] = low;
+        volumes[size] = volume;
+        size++;
+    }
+
+    /**
+     * Draws every shape with the given graphics context, batched by paint state: rather than setting the paint and
+     * line width and filling and stroking a path for each shape in turn, the bodies (or wicks, or volume bars) of all
+     * of the bull candles of a batch are added to one path which is then filled and stroked once, and so on for the
+     * bear candles and the placeholders.
+     *
+     * <p>The result is pixel-identical to drawing the shapes one after another (in the order they were added), as
+     * long as the shapes that end up in one path never cover the same pixel, and the shapes of each column are still
+     * drawn in the same order (body, wicks and then volume bar). The x positions of the candles are whole pixels and
+     * the width 2 borders of the bodies and volume bars of adjacent columns only touch, so the only shape that shares
+     * pixels with its neighbour is the placeholder, whose width 1 border spills half a pixel into the column to its
+     * right. A placeholder that is right next to the shape added before it therefore starts a new batch, after the
+     * shapes before it have been drawn.
+     *
+     * @param geometry the geometry the shapes were added with
+     */
+    void replay(GraphicsContext gc, FrameGeometry geometry) {
+        int candleWidth = geometry.getCandleWidth();
+        int batchStart = 0;
+        for (int i = 1; i <= size; i++) {
+            if (i == size || (kinds[i] == PLACE_HOLDER_CANDLE && xs[i - 1] - xs[i] <= candleWidth)) {
+                replayBatch(gc, geometry, batchStart, i);
+                batchStart = i;
+            }
+        }
+    }
+
+    private void replayBatch(GraphicsContext gc, FrameGeometry geometry, int from, int to) {
+        double candleWidth = geometry.getCandleWidth();
+        replayPlaceHolderCandles(gc, from, to, candleWidth);
+        replayBodies(gc, from, to, candleWidth, BULL_CANDLE, BULL_CANDLE_BORDER_COLOR, BULL_CANDLE_FILL_COLOR);
+        replayBodies(gc, from, to, candleWidth, BEAR_CANDLE, BEAR_CANDLE_BORDER_COLOR, BEAR_CANDLE_FILL_COLOR);
+        replayWicks(gc, from, to, candleWidth, BULL_CANDLE, BULL_CANDLE_BORDER_COLOR);
+        replayWicks(gc, from, to, candleWidth, BEAR_CANDLE, BEAR_CANDLE_BORDER_COLOR);
+        replayVolumeBars(gc, from, to, candleWidth, BULL_CANDLE, BULL_CANDLE_BORDER_COLOR, BULL_CANDLE_FILL_COLOR);
+        replayVolumeBars(gc, from, to, candleWidth, BEAR_CANDLE, BEAR_CANDLE_BORDER_COLOR, BEAR_CANDLE_FILL_COLOR);
+        // The bars are stroked as lines (not as paths, which can be rasterized a little differently), so they are
+        // only sorted by color. A bar's volume line is drawn after every bar line, which is fine as bars never share
+        // pixels with each other.
+        replayBars(gc, from, to, PLACE_HOLDER_BAR, PLACE_HOLDER_BORDER_COLOR);
+        replayBars(gc, from, to, BULL_BAR, BULL_CANDLE_BORDER_COLOR);
+        replayBars(gc, from, to, BEAR_BAR, BEAR_CANDLE_BORDER_COLOR);
+        replayBarVolumes(gc, from, to, geometry.getCanvasHeight(), BULL_BAR, BULL_CANDLE_BORDER_COLOR);
+        replayBarVolumes(gc, from, to, geometry.getCanvasHeight(), BEAR_BAR, BEAR_CANDLE_BORDER_COLOR);
+    }
+
+    private void replayPlaceHolderCandles(GraphicsContext gc, int from, int to, double candleWidth) {
+        boolean any = false;
+        for (int i = from; i < to; i++) {
+            if (kinds[i] == PLACE_HOLDER_CANDLE) {
+                if (!any) {
+                    gc.beginPath();
+                    any = true;
+                }
+                gc.rect(xs[i], tops[i], candleWidth - 1, 1);
+            }
+        }
+        if (any) {
+            gc.setFill(PLACE_HOLDER_FILL_COLOR);
+            gc.fill();
+            gc.setStroke(PLACE_HOLDER_BORDER_COLOR);
+            gc.setLineWidth(1);
+            gc.stroke();
+        }
+    }
+
+    private void replayBodies(GraphicsContext gc, int from, int to, double candleWidth, byte kind, Paint borderColor,
+                              Paint fillColor) {
+        boolean any = false;
+        for (int i = from; i < to; i++) {
+            if (kinds[i] == kind) {
+                if (!any) {
+                    gc.beginPath();
+                    any = true;
+                }
+                gc.rect(xs[i], tops[i], candleWidth - 2, heights[i] - 2);
+            }
+        }
+        if (any) {
+            gc.setFill(fillColor);
+            gc.fill();
+            gc.setStroke(borderColor);
+            gc.setLineWidth(2);
+            gc.stroke();
+        }
+    }
+
+    /**
+     * Strokes the wicks of the candles of the given kind. A candle used to add its low wick to the path its high wick
+     * had already been stroked with, so a candle with both wicks has its high wick stroked twice: once on its own,
+     * and then together with the low wick. The high wicks of such candles are therefore stroked on their own first.
+     */
+    private void replayWicks(GraphicsContext gc, int from, int to, double candleWidth, byte kind, Paint color) {
+        boolean any = false;
+        for (int i = from; i < to; i++) {
+            if (kinds[i] == kind && !Double.isNaN(highs[i]) && !Double.isNaN(lows[i])) {
+                if (!any) {
+                    gc.beginPath();
+                    any = true;
+                }
+                double wickX = (xs[i] + (candleWidth * 0.5)) - 1;
+                gc.moveTo(wickX, tops[i]);
+                gc.lineTo(wickX, highs[i]);
+            }
+        }
+        if (any) {
+            gc.setStroke(color);
+            gc.setLineWidth(2);
+            gc.stroke();
+        }
+
+        any = false;
+        for (int i = from; i < to; i++) {
+            if (kinds[i] == kind && (!Double.isNaN(highs[i]) || !Double.isNaN(lows[i]))) {
+                if (!any) {
+                    gc.beginPath();
+                    any = true;
+                }
+                double wickX = (xs[i] + (candleWidth * 0.5)) - 1;
+                if (!Double.isNaN(highs[i])) {
+                    gc.moveTo(wickX, tops[i]);
+                    gc.lineTo(wickX, highs[i]);
+                }
+                if (!Double.isNaN(lows[i])) {
+                    gc.moveTo(wickX, tops[i] + heights[i]);
+                    gc.lineTo(wickX, lows[i]);
+                }
+            }
+        }
+        if (any) {
+            gc.setStroke(color);
+            gc.setLineWidth(2);
+            gc.stroke();
+        }
+    }
+
+    private void replayVolumeBars(GraphicsContext gc, int from, int to, double candleWidth, byte kind,
+                                  Paint borderColor, Paint fillColor) {
+        boolean any = false;
+        for (int i = from; i < to; i++) {
+            if (kinds[i] == kind && !Double.isNaN(volumes[i])) {
+                if (!any) {
+                    gc.beginPath();
+                    any = true;
+                }
+                gc.rect(xs[i], volumes[i], candleWidth - 2, volumes[i] - 2);
+            }
+        }
+        if (any) {
+            gc.setFill(fillColor);
+            gc.fill();
+            gc.setStroke(borderColor);
+            gc.setLineWidth(2);
+            gc.stroke();
+        }
+    }
+
+    private void replayBars(GraphicsContext gc, int from, int to, byte kind, Paint color) {
+        boolean any = false;
+        for (int i = from; i < to; i++) {
+            if (kinds[i] == kind) {
+                if (!any) {
+                    gc.setStroke(color);
+                    gc.setLineWidth(1);
+                    any = true;
+                }
+                gc.strokeLine(xs[i], tops[i], xs[i], heights[i]);
+            }
+        }
+    }
+
+    private void replayBarVolumes(GraphicsContext gc, int from, int to, double canvasHeight, byte kind,
+                                  Paint color) {
+        boolean any = false;
+        for (int i = from; i < to; i++) {
+            if (kinds[i] == kind && !Double.isNaN(volumes[i])) {
+                if (!any) {
+                    gc.setStroke(color);
+                    gc.setLineWidth(1);
+                    any = true;
+                }
+                gc.strokeLine(xs[i], volumes[i], xs[i], canvasHeight);
+            }
+        }
+    }
+
+    /**
+     * Rasterizes the parts of the shapes that lie within the strip {@code [fromX, toX)} of the given raster, with the
+     * same geometry (but with edges snapped to whole pixels) as {@link #replay(GraphicsContext, FrameGeometry)}. The
+     * shapes are composited in the order they were added.
+     *
+     * @param geometry the geometry the shapes were added with
+     */
+    void rasterize(CandleRaster raster, FrameGeometry geometry, int fromX, int toX) {
+        int candleWidth = geometry.getCandleWidth();
+        for (int i = 0; i < size; i++) {
+            double x = xs[i];
+            // The borders of a shape spill (at most) one pixel out of its column.
+            if (x + candleWidth + 1 < fromX || x - 1 >= toX) {
+                continue;
+            }
+            switch (kinds[i]) {
+                case PLACE_HOLDER_CANDLE:
+                    raster.fillRect(x, tops[i], x + candleWidth - 1, tops[i] + 1, PLACE_HOLDER_FILL_ARGB, fromX,
+                            toX);
+                    raster.strokeRect(x, tops[i], candleWidth - 1, 1, 1, PLACE_HOLDER_BORDER_ARGB, fromX, toX);
+                    break;
+                case BULL_CANDLE:
+                    rasterizeCandle(raster, i, candleWidth, BULL_BORDER_ARGB, BULL_FILL_ARGB, fromX, toX);
+                    break;
+                case BEAR_CANDLE:
+                    rasterizeCandle(raster, i, candleWidth, BEAR_BORDER_ARGB, BEAR_FILL_ARGB, fromX, toX);
+                    break;
+                case PLACE_HOLDER_BAR:
+                    rasterizeBar(raster, i, geometry.getCanvasHeight(), PLACE_HOLDER_BORDER_ARGB, fromX, toX);
+                    break;
+                case BULL_BAR:
+                    rasterizeBar(raster, i, geometry.getCanvasHeight(), BULL_BORDER_ARGB, fromX, toX);
+                    break;
+                case BEAR_BAR:
+                    rasterizeBar(raster, i, geometry.getCanvasHeight(), BEAR_BORDER_ARGB, fromX, toX);
+                    break;
+                default:
+                    throw new IllegalStateException("unknown shape kind: " + kinds[i]);
+            }
+        }
+    }
+
+    private void rasterizeCandle(CandleRaster raster, int i, int candleWidth, int borderColor, int fillColor,
+                                 int fromX, int toX) {
+        double x = xs[i];
+        double bodyTop = tops[i];
+        double bodyHeight = heights[i];
+        raster.fillRect(x, bodyTop, x + candleWidth - 2, bodyTop + bodyHeight - 2, fillColor, fromX, toX);
+        raster.strokeRect(x, bodyTop, candleWidth - 2, bodyHeight - 2, 2, borderColor, fromX, toX);
+
+        // Unlike the vector wicks, the high wick of a candle with both wicks is only filled once, so it is a little
+        // lighter than when it is replayed, which (like the edges not being anti-aliased) does not show at the widths
+        // that are rasterized.
+        double wickX = (x + (candleWidth * 0.5)) - 1;
+        if (!Double.isNaN(highs[i])) {
+            raster.fillRect(wickX - 1, bodyTop, wickX + 1, highs[i], borderColor, fromX, toX);
+        }
+        if (!Double.isNaN(lows[i])) {
+            raster.fillRect(wickX - 1, bodyTop + bodyHeight, wickX + 1, lows[i], borderColor, fromX, toX);
+        }
+
+        if (!Double.isNaN(volumes[i])) {
+            double volumeTop = volumes[i];
+            raster.fillRect(x, volumeTop, x + candleWidth - 2, volumeTop + volumeTop - 2, fillColor, fromX, toX);
+            raster.strokeRect(x, volumeTop, candleWidth - 2, volumeTop - 2, 2, borderColor, fromX, toX);
+        }
+    }
+
+    private void rasterizeBar(CandleRaster raster, int i, double canvasHeight, int color, int fromX, int toX) {
+        double x = xs[i];
+        raster.fillRect(x - 0.5, tops[i], x + 0.5, heights[i], color, fromX, toX);
+        if (!Double.isNaN(volumes[i])) {
+            raster.fillRect(x - 0.5, volumes[i], x + 0.5, canvasHeight, color, fromX, toX);
+        }
+    }
+}
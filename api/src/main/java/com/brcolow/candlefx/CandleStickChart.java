@@ -1,38 +1,29 @@
 package com.brcolow.candlefx;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static com.brcolow.candlefx.CandleStickChartUtils.getXAxisFormatterForRange;
-import static com.brcolow.candlefx.CandleStickChartUtils.putExtremaForRemainingElements;
-import static com.brcolow.candlefx.CandleStickChartUtils.putSlidingWindowExtrema;
 import static com.brcolow.candlefx.ChartColors.AXIS_TICK_LABEL_COLOR;
-import static com.brcolow.candlefx.ChartColors.BEAR_CANDLE_BORDER_COLOR;
-import static com.brcolow.candlefx.ChartColors.BEAR_CANDLE_FILL_COLOR;
-import static com.brcolow.candlefx.ChartColors.BULL_CANDLE_BORDER_COLOR;
-import static com.brcolow.candlefx.ChartColors.BULL_CANDLE_FILL_COLOR;
-import static com.brcolow.candlefx.ChartColors.PLACE_HOLDER_BORDER_COLOR;
-import static com.brcolow.candlefx.ChartColors.PLACE_HOLDER_FILL_COLOR;
 
 import java.text.DecimalFormat;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -48,6 +39,8 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.chart.Axis;
 import javafx.scene.control.ProgressIndicator;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseButton;
@@ -63,7 +56,6 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontSmoothingType;
 import javafx.scene.text.TextAlignment;
 
-import javafx.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -102,11 +94,30 @@ public class CandleStickChart extends Region {
     private final CandleDataPager candleDataPager;
     private final CandleStickChartOptions chartOptions;
     /**
-     * Maps an open time (as a Unix timestamp) to the computed candle data (high price, low price, etc.) for a trading
-     * period beginning with that opening time. Thus the key "1601798498" would be mapped to the candle data for trades
-     * from the period of 1601798498 to 1601798498 + secondsPerCandle.
+     * The computed candle data (high price, low price, etc.) for every trading period the chart knows about. The
+     * candle at index "i" is for trades from the period of {@code data.getOpenTime(i)} to
+     * {@code data.getOpenTime(i) + secondsPerCandle}.
      */
-    private final NavigableMap<Integer, CandleData> data;
+    private final CandleSeries data;
+    /**
+     * The pyramid, if any, that the candles of this chart are the base candles of, or are derived by. In the
+     * former case every candle put into {@code data} is also put into it so that the coarser candles it derives stay
+     * in sync with this chart. In the latter case the live trades of this chart are folded into base candles too,
+     * which are put into it (see {@link #setCandlePyramid(CandlePyramid)}).
+     */
+    private volatile CandlePyramid candlePyramid;
+    /**
+     * Coalesces the requests to repaint the chart (from listeners, mouse drags, zooming, resizing and live syncing)
+     * so that the chart contents are drawn at most once per frame. Nothing should call {@code drawChartContents}
+     * directly.
+     */
+    private final RenderScheduler renderScheduler;
+    private volatile ChartMetrics metrics = ChartMetrics.NONE;
+    /**
+     * The timestamp (in nanoseconds since the epoch) of the oldest live trade that has been processed but not yet
+     * drawn, or 0 if every processed live trade has been drawn.
+     */
+    private final AtomicLong undrawnTradeEpochNanos = new AtomicLong();
     private final Exchange exchange;
     private final TradePair tradePair;
     private final boolean liveSyncing;
@@ -127,17 +138,77 @@ public class CandleStickChart extends Region {
     private final int secondsPerCandle;
     private Canvas canvas;
     private GraphicsContext graphicsContext;
+    private Canvas gridCanvas;
+    private GraphicsContext gridGraphicsContext;
+    private Canvas liveCanvas;
+    private GraphicsContext liveGraphicsContext;
+    /**
+     * Builds the frame models of the chart off the JavaFX application thread (see {@link #requestFrame()}). Its
+     * thread is only kept alive while frames are being requested.
+     */
+    private final ExecutorService frameModelExecutor;
+    /**
+     * The snapshot for the latest requested frame, if it has not been built yet.
+     */
+    private final AtomicReference<FrameModelBuilder> pendingFrame = new AtomicReference<>();
+    /**
+     * The latest frame model that has been built but not drawn yet.
+     */
+    private final AtomicReference<FrameModel> builtFrame = new AtomicReference<>();
+    /**
+     * The frame model that the grid and historical layers are currently drawn from (and that the live overlay is
+     * drawn to match), or {@code null} until the first frame model has been built.
+     */
+    private FrameModel displayedFrame;
+    private final CandleShapes liveCandleShapes = new CandleShapes();
+    /**
+     * The image that rasterized frames (see {@link CandleRaster}) are written to before being drawn, which is reused
+     * until the canvas grows larger than it.
+     */
+    private WritableImage rasterImage;
+    /**
+     * The frame whose raster is currently written to {@code rasterImage}, so that redrawing the same frame (for
+     * example translated, while the chart is being panned) does not upload its pixels again.
+     */
+    private FrameModel rasterImageFrame;
+    private final CandleTileCache tileCache = new CandleTileCache(DEFAULT_TILE_CACHE_BUDGET_BYTES);
     private int candleWidth = 10;
     private double mousePrevX = -1;
     private double mousePrevY = -1;
-    private double scrollDeltaXSum;
+    /**
+     * How far (in pixels, positive to the right) the chart has been panned past the current bounds of the x-axis.
+     * The x-axis is only ever moved by whole bars, and this is always less than a bar: the chart contents are drawn
+     * translated by it.
+     */
+    private double panOffset;
+    private final KineticPanner kineticPanner = new KineticPanner();
+    private final AnimationTimer kineticPanTimer;
     private double chartWidth = 900;
     private double chartHeight = 700;
     private int inProgressCandleLastDraw = -1;
     private volatile ZoomLevel currZoomLevel;
     private volatile boolean paging;
 
-    private static final DecimalFormat MARKER_FORMAT = new DecimalFormat("#.00");
+    /**
+     * How often the in-progress candle is updated with the live trades that have arrived since the last update.
+     */
+    private static final long LIVE_UPDATE_PERIOD_MILLIS = 250;
+    /**
+     * The narrowest a candle can be drawn. Zooming out any further merges candles into level-of-detail bars of this
+     * width, up to {@code MAX_CANDLES_PER_BAR} candles per bar.
+     */
+    private static final int MIN_CANDLE_WIDTH = 2;
+    private static final int MAX_CANDLES_PER_BAR = 4096;
+    /**
+     * The number of bars either side of the visible range that are drawn too (off the edges of the canvas), so that
+     * they come into view when the chart is drawn translated because it has been panned by part of a bar (or because
+     * the frame for the new bounds of the x-axis is still being built).
+     */
+    private static final int OVERSCAN_BARS = 2;
+    private static final long DEFAULT_TILE_CACHE_BUDGET_BYTES = 64L * 1024 * 1024;
+    static final String MARKER_PATTERN = "#.00";
+    private static final DecimalFormat MARKER_FORMAT = new DecimalFormat(MARKER_PATTERN);
+    private static final double[] NO_GRID_LINES = new double[0];
     private static final Logger logger = LoggerFactory.getLogger(CandleStickChart.class);
 
     /**
@@ -173,7 +244,44 @@ public class CandleStickChart extends Region {
         this.liveSyncing = liveSyncing;
         zoomLevelMap = new ConcurrentHashMap<>();
         candleDataPager = new CandleDataPager(this, candleDataSupplier);
-        data = Collections.synchronizedNavigableMap(new TreeMap<>(Integer::compare));
+        data = new CandleSeries(secondsPerCandle);
+        ThreadPoolExecutor frameModelThreadPool = new ThreadPoolExecutor(1, 1, 1, SECONDS,
+                new LinkedBlockingQueue<>(), new LogOnExceptionThreadFactory("FRAME-MODEL-BUILDER"));
+        frameModelThreadPool.allowCoreThreadTimeOut(true);
+        frameModelExecutor = frameModelThreadPool;
+        kineticPanTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                double dx = kineticPanner.step(now);
+                if (dx != 0) {
+                    panBy(dx);
+                }
+                if (!kineticPanner.isFlicking()) {
+                    stop();
+                    if (mousePrevX == -1) {
+                        endPan();
+                    }
+                }
+            }
+        };
+        renderScheduler = new RenderScheduler(dirtyLevel -> {
+            // Nothing can be drawn until the first page of candle data has been received.
+            if (currZoomLevel != null) {
+                long start = System.nanoTime();
+                int candlesDrawn = drawChartContents(dirtyLevel);
+                if (candlesDrawn == -1) {
+                    // The frame is still being built, the metrics are recorded once it has been drawn.
+                    return;
+                }
+                metrics.recordDraw(dirtyLevel, System.nanoTime() - start, candlesDrawn);
+                long tradeEpochNanos = undrawnTradeEpochNanos.getAndSet(0);
+                if (tradeEpochNanos != 0) {
+                    Instant now = Instant.now();
+                    metrics.recordTradeToPixelLag((now.getEpochSecond() * 1_000_000_000L) + now.getNano() -
+                            tradeEpochNanos);
+                }
+            }
+        });
         chartOptions = new CandleStickChartOptions();
         canvasNumberFont = Font.font(FXUtils.getMonospacedFont(), 11);
         progressIndicator = new ProgressIndicator(-1);
@@ -242,7 +350,8 @@ public class CandleStickChart extends Region {
                         exchange.getWebsocketClient().streamLiveTrades(tradePair, updateInProgressCandleTask);
                     }
 
-                    updateInProgressCandleExecutor.scheduleAtFixedRate(updateInProgressCandleTask, 5, 5, SECONDS);
+                    updateInProgressCandleExecutor.scheduleAtFixedRate(updateInProgressCandleTask,
+                            LIVE_UPDATE_PERIOD_MILLIS, LIVE_UPDATE_PERIOD_MILLIS, MILLISECONDS);
                 }
             });
         } else {
@@ -268,16 +377,19 @@ public class CandleStickChart extends Region {
                         (candleWidth / 2);
                 chartHeight = containerHeight.getValue().doubleValue();
                 canvas = new Canvas(chartWidth - 100, chartHeight - 100);
-                StackPane chartStackPane = new StackPane(canvas, loadingIndicatorContainer);
+                gridCanvas = createLayerCanvas();
+                liveCanvas = createLayerCanvas();
+                StackPane chartStackPane = new StackPane(gridCanvas, canvas, liveCanvas, loadingIndicatorContainer);
                 chartStackPane.setTranslateX(64); // Only necessary when wrapped in StackPane...why?
                 getChildren().add(0, chartStackPane);
                 canvas.setOnMouseEntered(event -> canvas.getScene().setCursor(Cursor.HAND));
                 canvas.setOnMouseExited(event -> canvas.getScene().setCursor(Cursor.DEFAULT));
                 graphicsContext = canvas.getGraphicsContext2D();
+                gridGraphicsContext = gridCanvas.getGraphicsContext2D();
+                liveGraphicsContext = liveCanvas.getGraphicsContext2D();
                 layoutChart();
                 initializeEventHandlers();
-                CompletableFuture.supplyAsync(candleDataPager.getCandleDataSupplier()).thenAccept(
-                        candleDataPager.getCandleDataPreProcessor());
+                candleDataPager.fetchPage();
                 gotFirstSize.removeListener(this);
             }
         };
@@ -285,19 +397,31 @@ public class CandleStickChart extends Region {
         gotFirstSize.addListener(gotFirstSizeChangeListener);
 
         chartOptions.horizontalGridLinesVisibleProperty().addListener((observable, oldValue, newValue) ->
-                drawChartContents(true));
+                renderScheduler.requestRender());
         chartOptions.verticalGridLinesVisibleProperty().addListener((observable, oldValue, newValue) ->
-                drawChartContents(true));
-        chartOptions.showVolumeProperty().addListener((observable, oldValue, newValue) -> drawChartContents(true));
-        chartOptions.alignOpenCloseProperty().addListener((observable, oldValue, newValue) -> drawChartContents(true));
+                renderScheduler.requestRender());
+        chartOptions.showVolumeProperty().addListener((observable, oldValue, newValue) ->
+                renderScheduler.requestRender());
+        chartOptions.alignOpenCloseProperty().addListener((observable, oldValue, newValue) ->
+                renderScheduler.requestRender());
+    }
+
+    /**
+     * Creates a canvas for one of the layers drawn behind or on top of the historical candles canvas. It is always
+     * the same size as that canvas and lets mouse events through to it.
+     */
+    private Canvas createLayerCanvas() {
+        Canvas layerCanvas = new Canvas();
+        layerCanvas.widthProperty().bind(canvas.widthProperty());
+        layerCanvas.heightProperty().bind(canvas.heightProperty());
+        layerCanvas.setMouseTransparent(true);
+        return layerCanvas;
     }
 
     private void initializeEventHandlers() {
         if (canvas.getParent() != null) {
-            canvas.getParent().addEventFilter(MouseEvent.MOUSE_RELEASED, event -> {
-                mousePrevX = -1;
-                mousePrevY = -1;
-            });
+            canvas.getParent().addEventFilter(MouseEvent.MOUSE_PRESSED, event -> kineticPanner.stop());
+            canvas.getParent().addEventFilter(MouseEvent.MOUSE_RELEASED, event -> releaseDrag());
 
             canvas.getParent().addEventFilter(MouseEvent.MOUSE_DRAGGED, mouseDraggedHandler);
             canvas.getParent().addEventFilter(ScrollEvent.SCROLL, scrollHandler);
@@ -305,10 +429,8 @@ public class CandleStickChart extends Region {
         } else {
             canvas.parentProperty().addListener((observable, oldValue, newValue) -> {
                 if (newValue != null) {
-                    newValue.addEventFilter(MouseEvent.MOUSE_RELEASED, event -> {
-                        mousePrevX = -1;
-                        mousePrevY = -1;
-                    });
+                    newValue.addEventFilter(MouseEvent.MOUSE_PRESSED, event -> kineticPanner.stop());
+                    newValue.addEventFilter(MouseEvent.MOUSE_RELEASED, event -> releaseDrag());
 
                     newValue.addEventFilter(MouseEvent.MOUSE_DRAGGED, mouseDraggedHandler);
                     newValue.addEventFilter(ScrollEvent.SCROLL, scrollHandler);
@@ -322,97 +444,235 @@ public class CandleStickChart extends Region {
         if (deltaX != 1 && deltaX != -1) {
             throw new RuntimeException("deltaX must be 1 or -1 but was: " + deltaX);
         }
-        CompletableFuture<Boolean> progressIndicatorVisibleFuture = new CompletableFuture<>();
-        Platform.runLater(() -> progressIndicatorVisibleFuture.complete(progressIndicator.isVisible()));
-        progressIndicatorVisibleFuture.thenAccept(progressIndicatorVisible -> {
-            // This is run on the JavaFX application thread.
-            if (!progressIndicatorVisible) {
-                int desiredXLowerBound = (int) xAxis.getLowerBound() + (deltaX == 1 ? secondsPerCandle : -secondsPerCandle);
-
-                // Prevent moving in the positive direction past the point where only "minCandlesRemaining" candles
-                // remain on the left-most part of the chart.
-                int minCandlesRemaining = 3;
-                if (desiredXLowerBound <= data.lastEntry().getValue().getOpenTime() -
-                        (minCandlesRemaining - 1) * secondsPerCandle) {
-                    if (desiredXLowerBound <= currZoomLevel.getMinXValue()) {
-                        CompletableFuture.supplyAsync(candleDataPager.getCandleDataSupplier()).thenAccept(
-                                candleDataPager.getCandleDataPreProcessor()).whenComplete((result, throwable) -> {
-                            // Show the loading indicator and freeze the chart during the time that the new data is
-                            // being paged in.
-                            if (throwable != null) {
-                                logger.error("exception: ", throwable);
-                            }
-                            paging = true;
-                            progressIndicator.setVisible(true);
-                            setAxisBoundsForMove(deltaX);
-                            setYAndExtraAxisBounds();
-                            if (!skipDraw) {
-                                drawChartContents(true);
-                            }
-                            progressIndicator.setVisible(false);
-                            paging = false;
-                        });
-                    } else {
-                        setAxisBoundsForMove(deltaX);
-                        setYAndExtraAxisBounds();
-                        if (!skipDraw) {
-                            drawChartContents(true);
-                        }
-                    }
+        if (Platform.isFxApplicationThread()) {
+            stepAlongX(deltaX, skipDraw);
+        } else {
+            Platform.runLater(() -> stepAlongX(deltaX, skipDraw));
+        }
+    }
+
+    /**
+     * Moves the x-axis one bar in the direction of {@code deltaX}, unless the chart is paging in candle data or
+     * would be moved past the newest candles. This must be called on the JavaFX application thread.
+     *
+     * @return true if the x-axis was moved, false if it was not (or will only be moved once the page of candle data
+     * that it moves into has been paged in)
+     */
+    private boolean stepAlongX(int deltaX, boolean skipDraw) {
+        if (progressIndicator.isVisible() || !canMoveAlongX(deltaX)) {
+            return false;
+        }
+
+        int desiredXLowerBound = (int) xAxis.getLowerBound() + (deltaX * getSecondsPerBar());
+        if (desiredXLowerBound <= currZoomLevel.getMinXValue()) {
+            // The prefetched pages (if any) do not reach this far back yet, so show the loading indicator and freeze
+            // the chart until the next page has been paged in.
+            paging = true;
+            progressIndicator.setVisible(true);
+            candleDataPager.awaitPage().whenComplete((result, throwable) -> Platform.runLater(() -> {
+                setAxisBoundsForMove(deltaX);
+                setYAndExtraAxisBounds(isPanning());
+                if (!skipDraw) {
+                    renderScheduler.requestRender();
                 }
+                progressIndicator.setVisible(false);
+                paging = false;
+            }));
+            return false;
+        }
+
+        setAxisBoundsForMove(deltaX);
+        setYAndExtraAxisBounds(isPanning());
+        if (!skipDraw) {
+            renderScheduler.requestRender();
+        }
+        candleDataPager.prefetch((desiredXLowerBound - currZoomLevel.getMinXValue()) / secondsPerCandle,
+                getPanVelocity());
+        return true;
+    }
+
+    /**
+     * @return false if moving the x-axis one bar in the direction of {@code deltaX} would move it in the positive
+     * direction past the point where only a few candles remain on the left-most part of the chart
+     */
+    private boolean canMoveAlongX(int deltaX) {
+        int minCandlesRemaining = 3;
+        int desiredXLowerBound = (int) xAxis.getLowerBound() + (deltaX * getSecondsPerBar());
+        return desiredXLowerBound <= data.getLastOpenTime() - (minCandlesRemaining - 1) * secondsPerCandle;
+    }
+
+    /**
+     * Pans the chart by the given number of pixels (positive to the right, that is, back in time). The x-axis is
+     * moved by the whole bars the chart has been panned by, and what is left is drawn as a translation of the
+     * displayed frame (see {@link RenderScheduler.DirtyLevel#PAN}), so that panning is pixel-exact and does not
+     * wait for a new frame to be built. This must be called on the JavaFX application thread.
+     */
+    private void panBy(double dx) {
+        if (paging || currZoomLevel == null) {
+            kineticPanner.stop();
+            return;
+        }
+
+        double newPanOffset = panOffset + dx;
+        boolean moved = false;
+        while (Math.abs(newPanOffset) >= candleWidth) {
+            int deltaX = newPanOffset > 0 ? -1 : 1;
+            if (!stepAlongX(deltaX, true)) {
+                newPanOffset = 0;
+                kineticPanner.stop();
+                break;
             }
-        });
+            moved = true;
+            newPanOffset += deltaX * candleWidth;
+        }
+        if (newPanOffset < 0 && !canMoveAlongX(1)) {
+            // There is nothing newer to pan into.
+            newPanOffset = 0;
+            kineticPanner.stop();
+        }
+        panOffset = newPanOffset;
+        renderScheduler.requestRender(moved ? RenderScheduler.DirtyLevel.FULL : RenderScheduler.DirtyLevel.PAN);
     }
 
     /**
-     * Sets the bounds of the x-axis either one full candle to the right or left, depending on the sign
-     * of deltaX. Currently the magnitude of deltaX does not matter (each call to this method only moves
-     * the duration of one full candle).
+     * Ends a drag of the chart, flicking it if it was released while still being dragged fast enough.
+     */
+    private void releaseDrag() {
+        if (mousePrevX == -1) {
+            // The chart was clicked rather than dragged.
+            return;
+        }
+        mousePrevX = -1;
+        mousePrevY = -1;
+        if (kineticPanner.release(System.nanoTime())) {
+            kineticPanTimer.start();
+        } else if (currZoomLevel != null) {
+            endPan();
+        }
+    }
+
+    /**
+     * @return the velocity, in candles per second, at which the chart is being panned back in time (negative if it
+     * is being panned forward in time), which drives how far ahead of the viewport pages of candle data are
+     * prefetched
+     */
+    private double getPanVelocity() {
+        return (kineticPanner.getVelocity(System.nanoTime()) / candleWidth) * currZoomLevel.getCandlesPerBar();
+    }
+
+    /**
+     * Sets the bounds of the x-axis either one full bar (which is one candle unless the chart is zoomed out into
+     * level-of-detail bars) to the right or left, depending on the sign of deltaX. Currently the magnitude of deltaX
+     * does not matter (each call to this method only moves the duration of one full bar).
      *
-     * @param deltaX set the bounds either one candle over to the right or left from the current position
+     * @param deltaX set the bounds either one bar over to the right or left from the current position
      */
     private void setAxisBoundsForMove(int deltaX) {
+        int secondsPerBar = getSecondsPerBar();
         if (deltaX == 1) {
-            xAxis.setUpperBound(xAxis.getUpperBound() + secondsPerCandle);
-            xAxis.setLowerBound(xAxis.getLowerBound() + secondsPerCandle);
+            xAxis.setUpperBound(xAxis.getUpperBound() + secondsPerBar);
+            xAxis.setLowerBound(xAxis.getLowerBound() + secondsPerBar);
         } else if (deltaX == -1) {
-            xAxis.setUpperBound(xAxis.getUpperBound() - secondsPerCandle);
-            xAxis.setLowerBound(xAxis.getLowerBound() - secondsPerCandle);
+            xAxis.setUpperBound(xAxis.getUpperBound() - secondsPerBar);
+            xAxis.setLowerBound(xAxis.getLowerBound() - secondsPerBar);
         } else {
             throw new IllegalArgumentException("deltaX must be 1 or -1 but was: " + deltaX);
         }
     }
 
     /**
-     * Sets the y-axis and extra axis bounds using only the x-axis lower bound.
+     * Sets the y-axis and extra axis bounds from the price and volume extrema of the candles that are visible for
+     * the current x-axis bounds (that is, over the index range from {@link #getFirstVisibleCandleIndex()} to
+     * {@link #getLastVisibleCandleIndex(int)}), leaving some space above and below the price extrema.
      */
     private void setYAndExtraAxisBounds() {
-        logger.info("xAxis lower bound: " + (int) xAxis.getLowerBound());
+        setYAndExtraAxisBounds(false);
+    }
+
+    /**
+     * Sets the y-axis and extra axis bounds for the candles that are visible for the current x-axis bounds (see
+     * {@link #setYAndExtraAxisBounds()}).
+     *
+     * @param holdScales if true the bounds are left as they are unless the visible candles no longer fit in them,
+     * in which case they are only widened. While the chart is being panned this keeps the y and volume scales (and
+     * with them the keys of the cached tiles, see {@link CandleTileCache.TileKey}) from changing on every bar.
+     */
+    private void setYAndExtraAxisBounds(boolean holdScales) {
         final double idealBufferSpaceMultiplier = 0.35;
-        if (!currZoomLevel.getExtremaForCandleRangeMap().containsKey((int) xAxis.getLowerBound())) {
-            // TODO(mike): Does this *always* represent a coding error on our end or can this happen during
-            // normal chart functioning, and could we handle it more gracefully?
-            logger.error("The extrema map did not contain extrema for x-value: " + (int) xAxis.getLowerBound());
-            logger.error("extrema map: " + new TreeMap<>(currZoomLevel.getExtremaForCandleRangeMap()));
+        // The extrema are taken over exactly the candles that are drawn, which the candle series can answer for
+        // any window size - so nothing needs to be recomputed when zooming or resizing changes that size.
+        int numCandlesToSkip = Math.max(((int) xAxis.getUpperBound() - data.getLastOpenTime()) /
+                secondsPerCandle, 0);
+        int firstVisibleIndex = getFirstVisibleCandleIndex();
+        int lastVisibleIndex = getLastVisibleCandleIndex(numCandlesToSkip);
+        if (firstVisibleIndex > lastVisibleIndex) {
+            logger.error("no candles are visible for x-axis range: [" + xAxis.getLowerBound() + ", " +
+                    xAxis.getUpperBound() + "]");
+            return;
         }
 
-        // The y-axis and extra axis extrema are obtained using a key offset by minus one candle duration. This makes
-        // the chart work correctly. I don't fully understand the logic behind it, so I am leaving a note for
-        // my future self.
-        Pair<Extrema<Integer>, Extrema<Integer>> extremaForRange = currZoomLevel.getExtremaForCandleRangeMap().get(
-                (int) xAxis.getLowerBound() - secondsPerCandle);
-        // FIXME: Figure out why this is null
-        if (extremaForRange == null) {
-            logger.error("extremaForRange was null!");
-        }
-        final Integer yAxisMax = extremaForRange.getValue().getMax();
-        final Integer yAxisMin = extremaForRange.getValue().getMin();
+        long start = System.nanoTime();
+        Extrema<Double> priceExtrema = data.getPriceExtrema(firstVisibleIndex, lastVisibleIndex + 1);
+        Extrema<Double> volumeExtrema = data.getVolumeExtrema(firstVisibleIndex, lastVisibleIndex + 1);
+        metrics.recordExtremaUpdate(System.nanoTime() - start);
+        final double yAxisMax = priceExtrema.getMax();
+        final double yAxisMin = priceExtrema.getMin();
         final double yAxisDelta = yAxisMax - yAxisMin;
-        yAxis.setUpperBound(yAxisMax + (yAxisDelta * idealBufferSpaceMultiplier));
-        yAxis.setLowerBound(Math.max(0, yAxisMin - (yAxisDelta * idealBufferSpaceMultiplier)));
+        double yAxisUpperBound = yAxisMax + (yAxisDelta * idealBufferSpaceMultiplier);
+        double yAxisLowerBound = Math.max(0, yAxisMin - (yAxisDelta * idealBufferSpaceMultiplier));
+        double extraAxisUpperBound = volumeExtrema.getMax();
+        if (holdScales) {
+            if (yAxisMax <= yAxis.getUpperBound() && yAxisMin >= yAxis.getLowerBound() &&
+                    extraAxisUpperBound <= extraAxis.getUpperBound()) {
+                return;
+            }
+            yAxisUpperBound = Math.max(yAxisUpperBound, yAxis.getUpperBound());
+            yAxisLowerBound = Math.min(yAxisLowerBound, yAxis.getLowerBound());
+            extraAxisUpperBound = Math.max(extraAxisUpperBound, extraAxis.getUpperBound());
+        }
+        yAxis.setUpperBound(yAxisUpperBound);
+        yAxis.setLowerBound(yAxisLowerBound);
+
+        extraAxis.setUpperBound(extraAxisUpperBound);
+    }
+
+    /**
+     * @return true while the chart is being dragged or is moving on after being flicked
+     */
+    private boolean isPanning() {
+        return mousePrevX != -1 || kineticPanner.isFlicking();
+    }
 
-        extraAxis.setUpperBound(currZoomLevel.getExtremaForCandleRangeMap().get(
-                (int) xAxis.getLowerBound() - secondsPerCandle).getKey().getMax());
+    /**
+     * Fits the y-axis and extra axis bounds, which were held while the chart was being panned, to the visible
+     * candles again.
+     */
+    private void endPan() {
+        double yAxisLowerBound = yAxis.getLowerBound();
+        double yAxisUpperBound = yAxis.getUpperBound();
+        double extraAxisUpperBound = extraAxis.getUpperBound();
+        setYAndExtraAxisBounds();
+        if (yAxis.getLowerBound() != yAxisLowerBound || yAxis.getUpperBound() != yAxisUpperBound ||
+                extraAxis.getUpperBound() != extraAxisUpperBound) {
+            renderScheduler.requestRender();
+        }
+    }
+
+    /**
+     * @return the index (into {@code data}) of the oldest candle that is drawn for the current x-axis bounds
+     */
+    private int getFirstVisibleCandleIndex() {
+        int firstVisibleTime = ((int) xAxis.getUpperBound() - secondsPerCandle) -
+                (((int) currZoomLevel.getNumVisibleCandles()) * secondsPerCandle);
+        return Math.max(0, data.floorIndex(firstVisibleTime - 1) + 1);
+    }
+
+    /**
+     * @return the index (into {@code data}) of the newest candle that is drawn for the current x-axis bounds
+     */
+    private int getLastVisibleCandleIndex(int numCandlesToSkip) {
+        int lastVisibleTime = ((int) xAxis.getUpperBound() - secondsPerCandle) - (numCandlesToSkip * secondsPerCandle);
+        return Math.min(data.size() - 1, data.floorIndex(lastVisibleTime));
     }
 
     private void layoutChart() {
@@ -422,8 +682,8 @@ public class CandleStickChart extends Region {
         extraAxisExtension.setStartY(0);
         extraAxisExtension.setEndY((chartHeight - 100) * 0.75);
 
-        graphicsContext.setFill(Color.BLACK);
-        graphicsContext.fillRect(0, 0, chartWidth - 100, chartHeight - 100);
+        gridGraphicsContext.setFill(Color.BLACK);
+        gridGraphicsContext.fillRect(0, 0, chartWidth - 100, chartHeight - 100);
         double top = snappedTopInset();
         double left = snappedLeftInset();
         top = snapPositionY(top);
@@ -478,13 +738,68 @@ public class CandleStickChart extends Region {
     }
 
     /**
-     * Draws the chart contents on the canvas corresponding to the current x-axis, y-axis, and extra (volume) axis
-     * bounds.
+     * Draws the chart contents corresponding to the current x-axis, y-axis, and extra (volume) axis bounds.
+     *
+     * <p>The chart is drawn in three layers (stacked canvases): the background and grid lines, the historical
+     * candles and, on top, a transparent live overlay that holds the in-progress candle and the high/low markers.
+     * A {@link RenderScheduler.DirtyLevel#LIVE} repaint only redraws the live overlay (see
+     * {@link #drawLiveLayer()}), which is all that changes when a live trade updates the in-progress candle without
+     * changing the axes.
+     *
+     * <p>The grid and historical layers are drawn in two steps so that the JavaFX application thread does as little
+     * work as possible. A {@link RenderScheduler.DirtyLevel#FULL} repaint only takes a snapshot of the visible range
+     * (see {@link #requestFrame()}), from which a {@link FrameModel} is built in the background. Once it is built a
+     * {@link RenderScheduler.DirtyLevel#FRAME} repaint replays it (see {@link #replayFrame(FrameModel)}), so the
+     * candles are drawn one pulse after the axes have changed. Until then, the frame that is already displayed is
+     * drawn translated to where the x-axis now is (see {@link #drawDisplayedFrame()}), which is also all that a
+     * {@link RenderScheduler.DirtyLevel#PAN} repaint does, so panning the chart never waits for a frame to be built.
+     *
+     * <p>When the chart is zoomed out into level-of-detail bars (see {@link ZoomLevel#getCandlesPerBar()}) the
+     * candles that land in each bar are merged and drawn as one bar, so the number of draw calls is proportional to
+     * the width of the chart rather than to the number of visible candles. The in-progress candle then shares a
+     * bar with historical candles, so it is drawn with them and every repaint is a full one.
+     *
+     * @return the number of candles that were drawn, or -1 if nothing was drawn because the frame is still being
+     * built
+     */
+    private int drawChartContents(RenderScheduler.DirtyLevel dirtyLevel) {
+        boolean liveOnly = dirtyLevel == RenderScheduler.DirtyLevel.LIVE && currZoomLevel.getCandlesPerBar() == 1;
+        if (dirtyLevel == RenderScheduler.DirtyLevel.FULL ||
+                (dirtyLevel == RenderScheduler.DirtyLevel.LIVE && !liveOnly)) {
+            requestFrame();
+        }
+
+        FrameModel frame = builtFrame.getAndSet(null);
+        if (frame != null) {
+            replayFrame(frame);
+            return frame.getNumCandles();
+        }
+        if (dirtyLevel != RenderScheduler.DirtyLevel.LIVE && displayedFrame != null &&
+                displayedFrame.getGeometry().getCandleWidth() == candleWidth &&
+                displayedFrame.getGeometry().getCandlesPerBar() == currZoomLevel.getCandlesPerBar()) {
+            // The chart has been panned: until the frame for the new bounds of the x-axis has been built, the
+            // displayed frame is drawn translated to where the x-axis now is (unless it was drawn at another zoom
+            // level, which can not be translated to the current one).
+            drawDisplayedFrame();
+            return displayedFrame.getNumCandles();
+        }
+        if (liveOnly && displayedFrame != null) {
+            drawLiveLayer();
+            return displayedFrame.getInProgressCandleColumn() == FrameModel.NO_COLUMN ? 0 : 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Takes a snapshot of the visible range of candles (and of the geometry they are drawn with) and hands it to
+     * the frame model builder thread. If the builder is still busy with an earlier snapshot that has not been
+     * started on yet, the earlier snapshot is replaced, so the builder never falls behind the JavaFX application
+     * thread.
      */
-    private void drawChartContents(boolean clearCanvas) {
+    private void requestFrame() {
         // TODO should this expression start with (xAxis.getUpperBound() - secondsPerCandle)?
         // This value allows for us to go past the highest x-value by skipping the drawing of some candles.
-        int numCandlesToSkip = Math.max(((int) xAxis.getUpperBound() - data.lastEntry().getValue().getOpenTime()) /
+        int numCandlesToSkip = Math.max(((int) xAxis.getUpperBound() - data.getLastOpenTime()) /
                 secondsPerCandle, 0);
 
         if (liveSyncing && inProgressCandleLastDraw != inProgressCandle.getOpenTime()) {
@@ -497,220 +812,200 @@ public class CandleStickChart extends Region {
                     // Make room for the new in-progress candle.
                     moveAlongX(1, true);
                     numCandlesToSkip = Math.max(((int) xAxis.getUpperBound() -
-                            data.lastEntry().getValue().getOpenTime()) / secondsPerCandle, 0);
+                            data.getLastOpenTime()) / secondsPerCandle, 0);
                 }
             }
             inProgressCandleLastDraw = inProgressCandle.getOpenTime();
         }
 
-        if (clearCanvas) {
-            graphicsContext.setFill(Color.BLACK);
-            graphicsContext.fillRect(0, 0, chartWidth - 100, chartHeight - 100);
+        FrameGeometry geometry = new FrameGeometry(canvas.getWidth(), canvas.getHeight(), candleWidth,
+                currZoomLevel.getCandlesPerBar(), currZoomLevel.getNumVisibleCandles(), secondsPerCandle,
+                xAxis.getUpperBound(), yAxis.getLowerBound(), yAxis.getUpperBound(), extraAxis.getUpperBound(),
+                chartOptions.isShowVolume(), chartOptions.isAlignOpenClose());
+        FrameModelBuilder frameModelBuilder = new FrameModelBuilder(geometry, data, getFirstVisibleCandleIndex(),
+                getLastVisibleCandleIndex(numCandlesToSkip), numCandlesToSkip,
+                OVERSCAN_BARS * currZoomLevel.getCandlesPerBar(), getInProgressCandleIndex(),
+                chartOptions.isHorizontalGridLinesVisible() ? getTickMarkPositions(yAxis) : NO_GRID_LINES,
+                chartOptions.isVerticalGridLinesVisible() ? getTickMarkPositions(xAxis) : NO_GRID_LINES,
+                tileCache.isEnabled() ? tileCache : null);
+        if (pendingFrame.getAndSet(frameModelBuilder) == null) {
+            frameModelExecutor.execute(this::buildPendingFrame);
         }
+    }
 
-        double monetaryUnitsPerPixel = (yAxis.getUpperBound() - yAxis.getLowerBound()) / canvas.getHeight();
-        double pixelsPerMonetaryUnit = 1d / monetaryUnitsPerPixel;
-        NavigableMap<Integer, CandleData> candlesToDraw = data.subMap(((int) xAxis.getUpperBound() - secondsPerCandle) -
-                        (((int) currZoomLevel.getNumVisibleCandles()) * secondsPerCandle), true,
-                ((int) xAxis.getUpperBound() - secondsPerCandle) - (numCandlesToSkip * secondsPerCandle), true);
-
-        logger.info("Drawing " + candlesToDraw.size() + " candles.");
-        if (chartOptions.isHorizontalGridLinesVisible()) {
-            // Draw horizontal grid lines aligned with y-axis major tick marks
-            for (Axis.TickMark<Number> tickMark : yAxis.getTickMarks()) {
-                graphicsContext.setStroke(Color.rgb(189, 189, 189, 0.6));
-                graphicsContext.setLineWidth(1.5);
-                graphicsContext.strokeLine(0, tickMark.getPosition(), canvas.getWidth(), tickMark.getPosition());
-            }
+    /**
+     * Builds the frame model for the latest snapshot (if it has not already been built) and, once it is built,
+     * requests that it is replayed. This is run on the frame model builder thread.
+     */
+    private void buildPendingFrame() {
+        FrameModelBuilder frameModelBuilder = pendingFrame.getAndSet(null);
+        if (frameModelBuilder == null) {
+            return;
         }
+        long start = System.nanoTime();
+        FrameModel frame = frameModelBuilder.build();
+        metrics.recordFrameBuild(System.nanoTime() - start, frameModelBuilder.getNumCandles());
+        if (frame.getTiles() != null) {
+            metrics.recordTileCacheLookups(frameModelBuilder.getTileCacheHits(),
+                    frameModelBuilder.getTileCacheMisses());
+        }
+        builtFrame.set(frame);
+        renderScheduler.requestRender(RenderScheduler.DirtyLevel.FRAME);
+    }
 
-        if (chartOptions.isVerticalGridLinesVisible()) {
-            // Draw vertical grid lines aligned with x-axis major tick marks
-            for (Axis.TickMark<Number> tickMark : xAxis.getTickMarks()) {
-                graphicsContext.setStroke(Color.rgb(189, 189, 189, 0.6));
-                graphicsContext.setLineWidth(1.5);
-                graphicsContext.strokeLine(tickMark.getPosition(), 0, tickMark.getPosition(), canvas.getHeight());
-            }
+    private static double[] getTickMarkPositions(StableTicksAxis axis) {
+        List<Axis.TickMark<Number>> tickMarks = axis.getTickMarks();
+        double[] positions = new double[tickMarks.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = tickMarks.get(i).getPosition();
         }
+        return positions;
+    }
 
-        int candleIndex = numCandlesToSkip;
-        double highestCandleValue = Double.MIN_VALUE;
-        double lowestCandleValue = Double.MAX_VALUE;
-        int candleIndexOfHighest = -1;
-        int candleIndexOfLowest = -1;
-        int volumeBarMaxHeight = 150;
-        double volumeScale = volumeBarMaxHeight / extraAxis.getUpperBound();
-        double halfCandleWidth = candleWidth * 0.5;
-        double lastClose = -1;
-        for (CandleData candleDatum : candlesToDraw.descendingMap().values()) {
-            // TODO(mike): We could change the sliding window extrema function to map to doubles instead of ints
-            // and use that here instead of iterating over the candle data again.
-            if (candleIndex < currZoomLevel.getNumVisibleCandles() + 2) {
-                // We don't want to draw the high/low markers off-screen, so we guard it with the above condition.
-                if (candleDatum.getHighPrice() > highestCandleValue) {
-                    highestCandleValue = candleDatum.getHighPrice();
-                    candleIndexOfHighest = candleIndex;
-                }
+    /**
+     * Draws the given (newly built) frame: the grid and historical layers are replayed from the frame model (or, if
+     * the frame was rasterized, the historical layer is drawn as one image, or blitted from its tiles) and the live
+     * overlay is redrawn to match it.
+     */
+    private void replayFrame(FrameModel frame) {
+        displayedFrame = frame;
+        drawDisplayedFrame();
+    }
 
-                if (candleDatum.getLowPrice() < lowestCandleValue) {
-                    lowestCandleValue = candleDatum.getLowPrice();
-                    candleIndexOfLowest = candleIndex;
+    /**
+     * Draws the displayed frame translated by how far the chart has been panned since it was requested (see
+     * {@link #getPanTranslateX()}). The frame is not rebuilt: its shapes are replayed or, if it was rasterized, its
+     * image (or tiles) are blitted again, and the newly exposed strip at the edge of the chart is filled in by the
+     * overscan bars that were drawn off the edge of the canvas.
+     */
+    private void drawDisplayedFrame() {
+        FrameModel frame = displayedFrame;
+        double translateX = getPanTranslateX();
+        drawGridLayer(frame, translateX);
+        graphicsContext.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        graphicsContext.save();
+        graphicsContext.translate(translateX, 0);
+        CandleRaster raster = frame.getRaster();
+        CandleTileCache.Tile[] tiles = frame.getTiles();
+        if (tiles != null) {
+            double[] tileXs = frame.getTileXs();
+            for (int i = 0; i < tiles.length; i++) {
+                Image tileImage = tiles[i].getImage();
+                if (tileImage != null) {
+                    graphicsContext.drawImage(tileImage, tileXs[i], 0);
                 }
             }
+        } else if (raster == null) {
+            frame.getShapes().replay(graphicsContext, frame.getGeometry());
+        } else if (raster.getWidth() > 0 && raster.getHeight() > 0) {
+            if (rasterImage == null || rasterImage.getWidth() < raster.getWidth() ||
+                    rasterImage.getHeight() < raster.getHeight()) {
+                rasterImage = new WritableImage(raster.getWidth(), raster.getHeight());
+                rasterImageFrame = null;
+            }
+            if (rasterImageFrame != frame) {
+                raster.writeTo(rasterImage);
+                rasterImageFrame = frame;
+            }
+            graphicsContext.drawImage(rasterImage, 0, 0, raster.getWidth(), raster.getHeight(), 0, 0,
+                    raster.getWidth(), raster.getHeight());
+        }
+        graphicsContext.restore();
+        drawLiveLayer();
+    }
 
-            if (candleDatum.isPlaceHolder()) {
-                // A placeholder candle is placed in a duration where no trading activity occurred.
-                graphicsContext.beginPath();
-                double candleOpenPrice = candleDatum.getOpenPrice();
-                if (chartOptions.isAlignOpenClose() && lastClose != -1) {
-                    candleOpenPrice = lastClose;
-                }
-
-                double candleYOrigin = cartesianToScreenCoords((candleOpenPrice - yAxis.getLowerBound()) *
-                        pixelsPerMonetaryUnit);
-
-                graphicsContext.beginPath();
-                graphicsContext.moveTo((canvas.getWidth() - (candleIndex * candleWidth)) + 1, candleYOrigin);
-                graphicsContext.rect(canvas.getWidth() - (candleIndex * candleWidth), candleYOrigin,
-                        candleWidth - 1, 1);
-                graphicsContext.setFill(PLACE_HOLDER_FILL_COLOR);
-                graphicsContext.fill();
-                graphicsContext.setStroke(PLACE_HOLDER_BORDER_COLOR);
-                graphicsContext.setLineWidth(1);
-                graphicsContext.stroke();
-            } else {
-                Paint candleBorderColor;
-                Paint candleFillColor;
-
-                double candleOpenPrice = candleDatum.getOpenPrice();
-                if (chartOptions.isAlignOpenClose() && lastClose != -1) {
-                    candleOpenPrice = lastClose;
-                }
-
-                boolean openAboveClose = candleOpenPrice > candleDatum.getClosePrice();
-
-                if (openAboveClose) {
-                    candleBorderColor = BEAR_CANDLE_BORDER_COLOR;
-                    candleFillColor = BEAR_CANDLE_FILL_COLOR;
-                } else {
-                    candleBorderColor = BULL_CANDLE_BORDER_COLOR;
-                    candleFillColor = BULL_CANDLE_FILL_COLOR;
-                }
-
-                double candleYOrigin;
-
-                if (openAboveClose) {
-                    candleYOrigin = cartesianToScreenCoords((candleOpenPrice -
-                            yAxis.getLowerBound()) * pixelsPerMonetaryUnit);
-                } else {
-                    candleYOrigin = cartesianToScreenCoords((candleDatum.getClosePrice() -
-                            yAxis.getLowerBound()) * pixelsPerMonetaryUnit);
-                }
-
-                double candleHeight = Math.abs(candleOpenPrice - candleDatum.getClosePrice()) * pixelsPerMonetaryUnit;
-
-                // draw the candle bar
-                graphicsContext.beginPath();
-                graphicsContext.moveTo((canvas.getWidth() - (candleIndex * candleWidth)) + 2, candleYOrigin);
-                graphicsContext.rect(canvas.getWidth() - (candleIndex * candleWidth), candleYOrigin,
-                        candleWidth - 2, candleHeight - 2);
-                graphicsContext.setFill(candleFillColor);
-                graphicsContext.fill();
-                graphicsContext.setStroke(candleBorderColor);
-                graphicsContext.setLineWidth(2);
-                graphicsContext.stroke();
-                graphicsContext.beginPath(); // TODO(mike): Delete this line?
-
-                // Draw high line (skip draw if the open (or close) is the same as the high.
-                boolean drawHighLine = true;
-                if (openAboveClose) {
-                    if (candleOpenPrice == candleDatum.getHighPrice()) {
-                        drawHighLine = false;
-                    }
-
-                    if (chartOptions.isAlignOpenClose()) {
-                        if (candleOpenPrice > candleDatum.getHighPrice()) {
-                            drawHighLine = false;
-                        }
-                    }
-                } else {
-                    if (candleDatum.getClosePrice() == candleDatum.getHighPrice()) {
-                        drawHighLine = false;
-                    }
-                }
-
-                if (drawHighLine) {
-                    double candleHighValue = cartesianToScreenCoords((candleDatum.getHighPrice() -
-                            yAxis.getLowerBound()) * pixelsPerMonetaryUnit);
-                    graphicsContext.moveTo(((canvas.getWidth() - (candleIndex * candleWidth)) + halfCandleWidth) - 1,
-                            candleYOrigin);
-                    graphicsContext.lineTo(((canvas.getWidth() - (candleIndex * candleWidth)) + halfCandleWidth) - 1,
-                            candleHighValue);
-                    graphicsContext.stroke();
-                }
+    /**
+     * @return how far (in pixels) the displayed frame is drawn translated along the x-axis: by the number of bars the
+     * x-axis has been moved since the frame was requested, and by how far the chart has been panned past that
+     */
+    private double getPanTranslateX() {
+        return displayedFrame.getGeometry().getTranslateX(xAxis.getUpperBound()) + panOffset;
+    }
 
-                // Draw low line (skip draw if the close (or open) is the same as the low.
-                boolean drawLowLine = true;
-                if (openAboveClose) {
-                    if (candleDatum.getClosePrice() == candleDatum.getLowPrice()) {
-                        drawLowLine = false;
-                    }
-                } else {
-                    if (candleOpenPrice == candleDatum.getLowPrice()) {
-                        drawLowLine = false;
-                    }
+    /**
+     * Draws the background and the grid lines, which only change when the axes (or chart options) change. The
+     * vertical grid lines are translated along with the candles.
+     */
+    private void drawGridLayer(FrameModel frame, double translateX) {
+        gridGraphicsContext.setFill(Color.BLACK);
+        gridGraphicsContext.fillRect(0, 0, gridCanvas.getWidth(), gridCanvas.getHeight());
+        // Draw horizontal grid lines aligned with y-axis major tick marks
+        for (double position : frame.getHorizontalGridLines()) {
+            gridGraphicsContext.setStroke(Color.rgb(189, 189, 189, 0.6));
+            gridGraphicsContext.setLineWidth(1.5);
+            gridGraphicsContext.strokeLine(0, position, canvas.getWidth(), position);
+        }
 
-                    if (chartOptions.isAlignOpenClose()) {
-                        if (candleOpenPrice < candleDatum.getLowPrice()) {
-                            drawLowLine = false;
-                        }
-                    }
+        // Draw vertical grid lines aligned with x-axis major tick marks
+        for (double position : frame.getVerticalGridLines()) {
+            gridGraphicsContext.setStroke(Color.rgb(189, 189, 189, 0.6));
+            gridGraphicsContext.setLineWidth(1.5);
+            gridGraphicsContext.strokeLine(position + translateX, 0, position + translateX, canvas.getHeight());
+        }
+    }
 
-                }
-                if (drawLowLine) {
-                    double candleLowValue = cartesianToScreenCoords((candleDatum.getLowPrice() -
-                            yAxis.getLowerBound()) * pixelsPerMonetaryUnit);
-                    graphicsContext.moveTo(((canvas.getWidth() - (candleIndex * candleWidth)) + halfCandleWidth) - 1,
-                            candleYOrigin + candleHeight);
-                    graphicsContext.lineTo(((canvas.getWidth() - (candleIndex * candleWidth)) + halfCandleWidth) - 1,
-                            candleLowValue);
-                    graphicsContext.stroke();
+    /**
+     * Redraws the live overlay: the in-progress candle (if it is visible) in the column it was given by the
+     * displayed frame, and the high/low markers of the visible candles, which are the extrema of the historical
+     * candles of the displayed frame combined with the in-progress candle. Only the live overlay is cleared, so the
+     * cost of this method does not depend on the number of visible candles.
+     */
+    private void drawLiveLayer() {
+        liveGraphicsContext.clearRect(0, 0, liveCanvas.getWidth(), liveCanvas.getHeight());
+        liveGraphicsContext.save();
+        liveGraphicsContext.translate(getPanTranslateX(), 0);
+
+        FrameModel frame = displayedFrame;
+        FrameGeometry geometry = frame.getGeometry();
+        double highestValue = frame.getHighestValue();
+        double lowestValue = frame.getLowestValue();
+        int highestColumn = frame.getHighestColumn();
+        int lowestColumn = frame.getLowestColumn();
+        String highestText = frame.getHighestText();
+        String lowestText = frame.getLowestText();
+        int inProgressCandleColumn = frame.getInProgressCandleColumn();
+        int inProgressCandleIndex = getInProgressCandleIndex();
+        if (inProgressCandleColumn != FrameModel.NO_COLUMN && inProgressCandleIndex != -1) {
+            if (inProgressCandleColumn >= 0 && inProgressCandleColumn < geometry.getNumVisibleCandles() + 2) {
+                if (data.getHighPrice(inProgressCandleIndex) > highestValue) {
+                    highestValue = data.getHighPrice(inProgressCandleIndex);
+                    highestColumn = inProgressCandleColumn;
+                    highestText = MARKER_FORMAT.format(highestValue);
                 }
 
-                // draw volume bar
-                if (chartOptions.isShowVolume()) {
-                    double candleVolumeYOrigin = cartesianToScreenCoords(candleDatum.getVolume() * volumeScale);
-                    graphicsContext.beginPath();
-                    graphicsContext.moveTo((canvas.getWidth() - (candleIndex * candleWidth)) + 2, candleVolumeYOrigin);
-                    graphicsContext.rect(canvas.getWidth() - (candleIndex * candleWidth), candleVolumeYOrigin,
-                            candleWidth - 2, candleVolumeYOrigin - 2);
-                    graphicsContext.setFill(candleFillColor);
-                    graphicsContext.fill();
-                    graphicsContext.setStroke(candleBorderColor);
-                    graphicsContext.setLineWidth(2);
-                    graphicsContext.stroke();
+                if (data.getLowPrice(inProgressCandleIndex) < lowestValue) {
+                    lowestValue = data.getLowPrice(inProgressCandleIndex);
+                    lowestColumn = inProgressCandleColumn;
+                    lowestText = MARKER_FORMAT.format(lowestValue);
                 }
             }
-
-            lastClose = candleDatum.getClosePrice();
-            candleIndex++;
+            liveCandleShapes.clear();
+            geometry.addCandle(liveCandleShapes, inProgressCandleColumn, data.getOpenPrice(inProgressCandleIndex),
+                    data.getClosePrice(inProgressCandleIndex), data.getHighPrice(inProgressCandleIndex),
+                    data.getLowPrice(inProgressCandleIndex), data.getVolume(inProgressCandleIndex),
+                    data.isPlaceHolder(inProgressCandleIndex), inProgressCandleIndex > 0 ?
+                            data.getClosePrice(inProgressCandleIndex - 1) : Double.NaN);
+            liveCandleShapes.replay(liveGraphicsContext, geometry);
         }
 
+        double canvasWidth = geometry.getCanvasWidth();
+        double halfCandleWidth = geometry.getCandleWidth() * 0.5;
+        int candleWidth = geometry.getCandleWidth();
+        int candlesPerBar = geometry.getCandlesPerBar();
+
         // Draw arrows to the extrema for the currently visible candles (helps to easily see the highs and lows of
         // the current range without needing to visually trace to the axis).
-        graphicsContext.setFont(canvasNumberFont);
-        graphicsContext.setTextBaseline(VPos.CENTER);
-        graphicsContext.setFill(AXIS_TICK_LABEL_COLOR);
-        graphicsContext.setFontSmoothingType(FontSmoothingType.LCD);
-        double highMarkYPos = cartesianToScreenCoords((highestCandleValue - yAxis.getLowerBound()) *
-                pixelsPerMonetaryUnit) - 1;
-        double lowMarkYPos = cartesianToScreenCoords((lowestCandleValue - yAxis.getLowerBound()) *
-                pixelsPerMonetaryUnit) + 1;
+        liveGraphicsContext.setFont(canvasNumberFont);
+        liveGraphicsContext.setTextBaseline(VPos.CENTER);
+        liveGraphicsContext.setFill(AXIS_TICK_LABEL_COLOR);
+        liveGraphicsContext.setFontSmoothingType(FontSmoothingType.LCD);
+        double highMarkYPos = geometry.priceToY(highestValue) - 1;
+        double lowMarkYPos = geometry.priceToY(lowestValue) + 1;
 
         // Prevent the high and low markers from overlapping (this can happen if there is very little volatility
         // between candles and very few candles are on-screen).
         boolean skipLowMark = lowMarkYPos - highMarkYPos < canvasNumberFont.getSize() &&
-                candleIndexOfHighest == candleIndexOfLowest;
+                highestColumn == lowestColumn;
         // TODO(mike): In addition to drawing the high/low markers to the left or right of the extrema, we should
         //  also (or maybe instead) factor in how visible the marker will be. This can be determined by seeing
         //  if it will be obscured by neighboring candles (if there is very low volatility, for example). See
@@ -718,51 +1013,78 @@ public class CandleStickChart extends Region {
         //  upper bound is past the highest x-value (and we draw less than numVisibleCandles on the chart),
         //  we need to shift the candle indices to see which "side" of chart the extrema is (this might not be
         //  necessary).
-        if (candleIndexOfHighest > currZoomLevel.getNumVisibleCandles() * 0.5) {
+        if (highestColumn > geometry.getNumVisibleCandles() * 0.5) {
             // draw high marker to the right of the candle (arrow points to the left)
-            double xPos = ((canvas.getWidth() - (candleIndexOfHighest * candleWidth)) + halfCandleWidth) + 2;
-            graphicsContext.setTextAlign(TextAlignment.LEFT);
-            graphicsContext.fillText("← " + MARKER_FORMAT.format(highestCandleValue), xPos, highMarkYPos);
+            double xPos = ((canvasWidth - ((highestColumn / candlesPerBar) * candleWidth)) + halfCandleWidth) + 2;
+            liveGraphicsContext.setTextAlign(TextAlignment.LEFT);
+            liveGraphicsContext.fillText("← " + highestText, xPos, highMarkYPos);
         } else {
             // draw high marker to the left of the candle (arrow points to the right)
-            double xPos = ((canvas.getWidth() - (candleIndexOfHighest * candleWidth)) + halfCandleWidth) - 3;
-            graphicsContext.setTextAlign(TextAlignment.RIGHT);
-            graphicsContext.fillText(MARKER_FORMAT.format(highestCandleValue) + " →", xPos, highMarkYPos);
+            double xPos = ((canvasWidth - ((highestColumn / candlesPerBar) * candleWidth)) + halfCandleWidth) - 3;
+            liveGraphicsContext.setTextAlign(TextAlignment.RIGHT);
+            liveGraphicsContext.fillText(highestText + " →", xPos, highMarkYPos);
         }
 
         if (!skipLowMark) {
-            if (candleIndexOfLowest > currZoomLevel.getNumVisibleCandles() * 0.5) {
+            if (lowestColumn > geometry.getNumVisibleCandles() * 0.5) {
                 // draw low marker to the right of the candle (arrow points to the left)
-                double xPos = ((canvas.getWidth() - (candleIndexOfLowest * candleWidth)) + halfCandleWidth) + 2;
-                graphicsContext.setTextAlign(TextAlignment.LEFT);
-                graphicsContext.fillText("← " + MARKER_FORMAT.format(lowestCandleValue), xPos, lowMarkYPos);
+                double xPos = ((canvasWidth - ((lowestColumn / candlesPerBar) * candleWidth)) + halfCandleWidth) + 2;
+                liveGraphicsContext.setTextAlign(TextAlignment.LEFT);
+                liveGraphicsContext.fillText("← " + lowestText, xPos, lowMarkYPos);
             } else {
                 // draw low marker to the left of the candle (arrow points to the right)
-                double xPos = ((canvas.getWidth() - (candleIndexOfLowest * candleWidth)) + halfCandleWidth) - 3;
-                graphicsContext.setTextAlign(TextAlignment.RIGHT);
-                graphicsContext.fillText(MARKER_FORMAT.format(lowestCandleValue) + " →", xPos, lowMarkYPos);
+                double xPos = ((canvasWidth - ((lowestColumn / candlesPerBar) * candleWidth)) + halfCandleWidth) - 3;
+                liveGraphicsContext.setTextAlign(TextAlignment.RIGHT);
+                liveGraphicsContext.fillText(lowestText + " →", xPos, lowMarkYPos);
             }
         }
+        liveGraphicsContext.restore();
+    }
+
+    /**
+     * @return the index (into {@code data}) of the in-progress candle or -1 if the chart is not live syncing
+     */
+    private int getInProgressCandleIndex() {
+        if (!liveSyncing || data.isEmpty() || data.getLastOpenTime() != inProgressCandle.getOpenTime()) {
+            return -1;
+        }
+        return data.size() - 1;
     }
 
-    private double cartesianToScreenCoords(double yCoordinate) {
-        return -yCoordinate + canvas.getHeight();
+    /**
+     * @return the duration of one bar, which is the duration of one candle unless the chart is zoomed out into
+     * level-of-detail bars
+     */
+    private int getSecondsPerBar() {
+        return currZoomLevel.getCandlesPerBar() * secondsPerCandle;
     }
 
     void changeZoom(ZoomDirection zoomDirection) {
-        final int multiplier = zoomDirection == ZoomDirection.IN ? -1 : 1;
         if (currZoomLevel == null) {
             logger.error("currZoomLevel was null!");
         }
-        int newCandleWidth = currZoomLevel.getCandleWidth() - multiplier;
-        if (newCandleWidth <= 1) {
-            // Can't go below one pixel for candle width.
-            return;
+        int newCandleWidth = currZoomLevel.getCandleWidth();
+        int newCandlesPerBar = currZoomLevel.getCandlesPerBar();
+        if (zoomDirection == ZoomDirection.IN) {
+            if (newCandlesPerBar > 1) {
+                newCandlesPerBar /= 2;
+            } else {
+                newCandleWidth++;
+            }
+        } else {
+            if (newCandleWidth > MIN_CANDLE_WIDTH) {
+                newCandleWidth--;
+            } else if (newCandlesPerBar < MAX_CANDLES_PER_BAR) {
+                // The candles can't get any narrower, so start merging them into level-of-detail bars.
+                newCandlesPerBar *= 2;
+            } else {
+                return;
+            }
         }
 
         int newLowerBoundX = (int) (xAxis.getUpperBound() - ((int) (canvas.getWidth() /
-                newCandleWidth) * secondsPerCandle));
-        if (newLowerBoundX > data.lastEntry().getValue().getOpenTime() - (2 * secondsPerCandle)) {
+                newCandleWidth) * newCandlesPerBar * secondsPerCandle));
+        if (newLowerBoundX > data.getLastOpenTime() - (2 * secondsPerCandle)) {
             return;
         }
 
@@ -774,12 +1096,12 @@ public class CandleStickChart extends Region {
             // z(0), z(1), ... z(n) that the chart has gone through, z(x).minXValue <= z(y).minXValue for all x > y.
             // That is, if we are currently at a max/min zoom-level in zoomLevelMap, there is no other zoom-level that
             // has a lower minXValue (assuming we did not start at the maximum or mimnimum zoom level).
-            ZoomLevel newZoomLevel = new ZoomLevel(nextZoomLevelId, newCandleWidth, secondsPerCandle,
-                    canvas.widthProperty(), getXAxisFormatterForRange(xAxis.getUpperBound() - newLowerBoundX),
-                    currMinXValue);
+            ZoomLevel newZoomLevel = new ZoomLevel(nextZoomLevelId, newCandleWidth, newCandlesPerBar,
+                    secondsPerCandle, canvas.widthProperty(),
+                    getXAxisFormatterForRange(xAxis.getUpperBound() - newLowerBoundX), currMinXValue);
 
             int numCandlesToSkip = Math.max((((int) xAxis.getUpperBound()) -
-                    data.lastEntry().getValue().getOpenTime()) / secondsPerCandle, 0);
+                    data.getLastOpenTime()) / secondsPerCandle, 0);
 
             // If there are less than numVisibleCandles on the screen, we want to be sure and check against what the
             // lower bound *would be* if we had the full amount. Otherwise we won't be able to calculate the correct
@@ -788,53 +1110,35 @@ public class CandleStickChart extends Region {
                 // We need to try and request more data so that we can properly zoom out to this level.
                 paging = true;
                 progressIndicator.setVisible(true);
-                CompletableFuture.supplyAsync(candleDataPager.getCandleDataSupplier()).thenAccept(
-                        candleDataPager.getCandleDataPreProcessor()).whenComplete((result, throwable) -> {
-                    List<CandleData> candleData = new ArrayList<>(data.values());
-                    putSlidingWindowExtrema(newZoomLevel.getExtremaForCandleRangeMap(),
-                            candleData, (int) newZoomLevel.getNumVisibleCandles());
-                    putExtremaForRemainingElements(newZoomLevel.getExtremaForCandleRangeMap(),
-                            candleData.subList(candleData.size() - (int) Math.floor(
-                                    newZoomLevel.getNumVisibleCandles()), candleData.size()));
+                candleDataPager.fetchPage().whenComplete((result, throwable) -> {
                     zoomLevelMap.put(nextZoomLevelId, newZoomLevel);
                     currZoomLevel = newZoomLevel;
                     Platform.runLater(() -> {
                         xAxis.setTickLabelFormatter(currZoomLevel.getXAxisFormatter());
                         candleWidth = currZoomLevel.getCandleWidth();
+                        panOffset = 0;
                         xAxis.setLowerBound(newLowerBoundX);
                         setYAndExtraAxisBounds();
-                        drawChartContents(true);
+                        renderScheduler.requestRender();
                         progressIndicator.setVisible(false);
                         paging = false;
                     });
                 });
                 return;
             } else {
-                List<CandleData> candleData = new ArrayList<>(data.values());
-                putSlidingWindowExtrema(newZoomLevel.getExtremaForCandleRangeMap(),
-                        candleData, (int) newZoomLevel.getNumVisibleCandles());
-                putExtremaForRemainingElements(newZoomLevel.getExtremaForCandleRangeMap(), candleData.subList(
-                        candleData.size() - (int) Math.floor(newZoomLevel.getNumVisibleCandles()),
-                        candleData.size()));
                 zoomLevelMap.put(nextZoomLevelId, newZoomLevel);
                 currZoomLevel = newZoomLevel;
             }
         } else {
-            // TODO(mike): In this case we only need to compute the extrema for any new live syncing data that has
-            //  happened since the last time we were at this zoom level.
             currZoomLevel = zoomLevelMap.get(nextZoomLevelId);
-            List<CandleData> candleData = new ArrayList<>(data.values());
-            putSlidingWindowExtrema(currZoomLevel.getExtremaForCandleRangeMap(), candleData,
-                    (int) currZoomLevel.getNumVisibleCandles());
-            putExtremaForRemainingElements(currZoomLevel.getExtremaForCandleRangeMap(), candleData.subList(
-                    candleData.size() - (int) Math.floor(currZoomLevel.getNumVisibleCandles()), candleData.size()));
         }
 
         xAxis.setTickLabelFormatter(currZoomLevel.getXAxisFormatter());
         candleWidth = currZoomLevel.getCandleWidth();
+        panOffset = 0;
         xAxis.setLowerBound(newLowerBoundX);
         setYAndExtraAxisBounds();
-        drawChartContents(true);
+        renderScheduler.requestRender();
     }
 
     CandleStickChartOptions getChartOptions() {
@@ -845,6 +1149,77 @@ public class CandleStickChart extends Region {
         return candlePageConsumer;
     }
 
+    /**
+     * Sets the pyramid that the candles of this chart are the base candles of or, if the candles of this chart are
+     * derived by the pyramid, that the base candles made up of the live trades of this (live-syncing) chart are put
+     * into, so that the pyramid stays in sync while this chart is shown. This should be called before the first
+     * page of candle data is received.
+     */
+    void setCandlePyramid(CandlePyramid candlePyramid) {
+        Objects.requireNonNull(candlePyramid, "candlePyramid must not be null");
+        if (candlePyramid.getBaseSecondsPerCandle() != secondsPerCandle &&
+                !candlePyramid.isDerived(secondsPerCandle)) {
+            throw new IllegalArgumentException("secondsPerCandle (" + secondsPerCandle + ") must be the base or a " +
+                    "derived granularity of candlePyramid (base: " + candlePyramid.getBaseSecondsPerCandle() +
+                    ", derived: " + candlePyramid.getDerivedGranularities() + ")");
+        }
+        this.candlePyramid = candlePyramid;
+    }
+
+    private void putCandle(CandleData candleData) {
+        data.put(candleData);
+        CandlePyramid pyramid = candlePyramid;
+        if (pyramid != null && pyramid.getBaseSecondsPerCandle() == secondsPerCandle) {
+            pyramid.put(candleData);
+        }
+    }
+
+    private void putCandles(List<CandleData> candleData) {
+        data.putAll(candleData);
+        CandlePyramid pyramid = candlePyramid;
+        if (pyramid != null && pyramid.getBaseSecondsPerCandle() == secondsPerCandle) {
+            pyramid.putAll(candleData);
+        }
+    }
+
+    /**
+     * @return the {@code RenderScheduler} that repaints this chart, which counts how many frames were requested
+     * and how many were actually rendered
+     */
+    public RenderScheduler getRenderScheduler() {
+        return renderScheduler;
+    }
+
+    /**
+     * Sets the policy that decides how many pages of candle data are prefetched ahead of the viewport while the
+     * chart is being panned back in time.
+     */
+    public void setPagePrefetchPolicy(PagePrefetchPolicy pagePrefetchPolicy) {
+        candleDataPager.setPrefetchPolicy(pagePrefetchPolicy);
+    }
+
+    /**
+     * Sets the memory budget of the cache of pre-rendered tiles of candles that frames are made up of when the
+     * candles are narrow enough to be rasterized in software, so that panning only renders the tiles that come into
+     * view. When the cached tiles take up more than the budget, the least recently used tiles are evicted.
+     *
+     * @param budgetBytes the (approximate) number of bytes of pixels the cached tiles may take up, or 0 to disable
+     * the tile cache
+     */
+    public void setTileCacheBudget(long budgetBytes) {
+        tileCache.setBudgetBytes(budgetBytes);
+    }
+
+    /**
+     * Sets the metrics that measurements of this chart's rendering and data paths are reported to.
+     *
+     * @param metrics the metrics, or {@link ChartMetrics#NONE} to not report measurements
+     */
+    public void setMetrics(ChartMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+        candleDataPager.setMetrics(metrics);
+    }
+
     @Override
     protected double computeMinWidth(double height) {
         return 200;
@@ -879,60 +1254,142 @@ public class CandleStickChart extends Region {
             canvas.setWidth(chartWidth - 100);
             canvas.setHeight(chartHeight - 100);
 
-            // Because the chart has been resized, the number of visible candles has changed and thus we must
-            // recompute the sliding window extrema where the size of the sliding window is the new number of
-            // visible candles.
+            // Because the chart has been resized, the number of visible candles has changed and thus we may need
+            // to page in more candles to fill the new width.
             int newLowerBoundX = (int) (xAxis.getUpperBound() - ((int) currZoomLevel.getNumVisibleCandles() *
                     secondsPerCandle));
             if (newLowerBoundX < currZoomLevel.getMinXValue()) {
                 // We need to try and request more data so that we can properly resize the chart.
                 paging = true;
                 progressIndicator.setVisible(true);
-                CompletableFuture.supplyAsync(candleDataPager.getCandleDataSupplier()).thenAccept(
-                        candleDataPager.getCandleDataPreProcessor()).whenComplete((result, throwable) -> {
-                    currZoomLevel.getExtremaForCandleRangeMap().clear();
-                    List<CandleData> candleData = new ArrayList<>(data.values());
-                    putSlidingWindowExtrema(currZoomLevel.getExtremaForCandleRangeMap(),
-                            candleData, (int) Math.round(currZoomLevel.getNumVisibleCandles()));
-                    putExtremaForRemainingElements(currZoomLevel.getExtremaForCandleRangeMap(),
-                            candleData.subList(candleData.size() - (int) Math.floor(
-                                    currZoomLevel.getNumVisibleCandles()), candleData.size()));
+                candleDataPager.fetchPage().whenComplete((result, throwable) -> {
                     Platform.runLater(() -> {
                         xAxis.setLowerBound(newLowerBoundX);
                         setYAndExtraAxisBounds();
                         layoutChart();
-                        drawChartContents(true);
+                        renderScheduler.requestRender();
                         progressIndicator.setVisible(false);
                         paging = false;
                     });
                 });
             } else {
-                currZoomLevel.getExtremaForCandleRangeMap().clear();
-                List<CandleData> candleData = new ArrayList<>(data.values());
-                putSlidingWindowExtrema(currZoomLevel.getExtremaForCandleRangeMap(),
-                        candleData, (int) Math.round(currZoomLevel.getNumVisibleCandles()));
-                putExtremaForRemainingElements(currZoomLevel.getExtremaForCandleRangeMap(),
-                        candleData.subList(candleData.size() - (int) Math.floor(
-                                currZoomLevel.getNumVisibleCandles()), candleData.size()));
                 xAxis.setLowerBound(newLowerBoundX);
                 setYAndExtraAxisBounds();
                 layoutChart();
-                drawChartContents(true);
+                renderScheduler.requestRender();
             }
         }
     }
 
     private class UpdateInProgressCandleTask implements LiveTradesConsumer, Runnable {
-        private final BlockingQueue<Trade> liveTradesQueue;
-        private boolean ready;
+        private final TradeRingBuffer liveTradesRingBuffer;
+        private final Consumer<TradeSlot> liveTradeHandler;
+        private final int tradePairId;
+        private volatile boolean ready;
+        /**
+         * Trades up to (and including) this time were already accounted for when the in-progress candle was
+         * caught up with the exchange's REST API, so they are ignored if they are streamed to us too.
+         */
+        private int knownTradesTill;
+        private boolean inProgressCandleChanged;
+        private boolean inProgressCandleRolledOver;
+        /**
+         * The timestamp (in nanoseconds since the epoch) of the oldest trade handled by the current run, or 0.
+         */
+        private long oldestTradeEpochNanos;
+        /**
+         * The number of dropped trades (see {@link TradeRingBuffer#getDroppedCount()}) that have been logged.
+         */
+        private long loggedDroppedCount;
+        /**
+         * If the candles of this chart are derived by the candle pyramid, the base candle of the pyramid that live
+         * trades are folded into (alongside the in-progress candle), and which is put into the pyramid once it is
+         * complete. Otherwise null.
+         */
+        private InProgressCandle pyramidBaseCandle;
+        /**
+         * The exact volume and notional value of the live trades of the in-progress candle (and of the pyramid base
+         * candle), which are only converted to the doubles of the candle after every trade.
+         */
+        private final LiveCandleSums inProgressCandleSums;
+        private final LiveCandleSums pyramidBaseCandleSums;
 
         UpdateInProgressCandleTask() {
-            liveTradesQueue = new LinkedBlockingQueue<>();
+            liveTradesRingBuffer = new TradeRingBuffer();
+            liveTradeHandler = this::handleLiveTrade;
+            tradePairId = tradePair.getId();
+            inProgressCandleSums = new LiveCandleSums(tradePair);
+            pyramidBaseCandleSums = new LiveCandleSums(tradePair);
         }
 
         @Override
         public void acceptTrades(List<Trade> trades) {
-            liveTradesQueue.addAll(trades);
+            // Trades that do not fit in the ring buffer are counted by it, and logged once per drain (see run()).
+            for (Trade trade : trades) {
+                liveTradesRingBuffer.offer(trade);
+            }
+        }
+
+        @Override
+        public TradeRingBuffer getTradeRingBuffer() {
+            return liveTradesRingBuffer;
+        }
+
+        private void handleLiveTrade(TradeSlot trade) {
+            if (trade.getTradePairId() != tradePairId) {
+                logger.warn("live trade for trade pair: " + TradePair.ofId(trade.getTradePairId()) +
+                        " streamed to chart for trade pair: " + tradePair + ", ignoring trade: " + trade);
+                return;
+            }
+            if (trade.getEpochSecond() <= knownTradesTill) {
+                return;
+            }
+
+            if (oldestTradeEpochNanos == 0) {
+                oldestTradeEpochNanos = (trade.getEpochSecond() * 1_000_000_000L) + trade.getNano();
+            }
+            int tradeTime = (int) trade.getEpochSecond();
+            if (tradeTime >= inProgressCandle.getOpenTime() + secondsPerCandle) {
+                // The trade belongs to a later candle, so the in-progress candle is complete.
+                rollOverInProgressCandle(tradeTime);
+            }
+            inProgressCandleSums.accept(inProgressCandle, trade);
+            inProgressCandle.setCurrentTill(Math.max(inProgressCandle.getCurrentTill(), tradeTime));
+            inProgressCandleChanged = true;
+            if (pyramidBaseCandle != null && tradeTime >= pyramidBaseCandle.getOpenTime()) {
+                rollOverPyramidBaseCandle(tradeTime);
+                pyramidBaseCandleSums.accept(pyramidBaseCandle, trade);
+            }
+        }
+
+        /**
+         * If {@code time} is past the pyramid base candle, puts it (now complete) into the candle pyramid and starts a
+         * new one for the base candle duration that contains {@code time}.
+         */
+        private void rollOverPyramidBaseCandle(int time) {
+            int baseSecondsPerCandle = candlePyramid.getBaseSecondsPerCandle();
+            int openTime = pyramidBaseCandle.getOpenTime();
+            if (time >= openTime + baseSecondsPerCandle) {
+                candlePyramid.put(pyramidBaseCandle.snapshot());
+                pyramidBaseCandle.rollOver(openTime + (((time - openTime) / baseSecondsPerCandle) *
+                        baseSecondsPerCandle));
+                pyramidBaseCandleSums.reset(pyramidBaseCandle);
+            }
+        }
+
+        /**
+         * Puts the (now complete) in-progress candle into the chart's data and starts a new one for the candle
+         * duration that contains {@code time}. Any candle durations in between, which had no trades, are filled with
+         * placeholders by {@code data}.
+         */
+        private void rollOverInProgressCandle(int time) {
+            putCandle(inProgressCandle.snapshot());
+            int openTime = inProgressCandle.getOpenTime();
+            inProgressCandle.rollOver(openTime + (((time - openTime) / secondsPerCandle) * secondsPerCandle));
+            inProgressCandleSums.reset(inProgressCandle);
+            inProgressCandle.setCurrentTill(time);
+            inProgressCandleChanged = true;
+            inProgressCandleRolledOver = true;
         }
 
         @Override
@@ -944,68 +1401,69 @@ public class CandleStickChart extends Region {
                 return;
             }
 
-            int currentTill = (int) Instant.now().getEpochSecond();
-            List<Trade> liveTrades = new ArrayList<>();
-            liveTradesQueue.drainTo(liveTrades);
-
-            // Get rid of trades we already know about
-            List<Trade> newTrades = liveTrades.stream().filter(trade -> trade.getTimestamp().getEpochSecond() >
-                    inProgressCandle.getCurrentTill()).collect(Collectors.toList());
-
-            // Partition the trades between the current in-progress candle and the candle after that (which we may
-            // have entered after last update).
-            Map<Boolean, List<Trade>> candlePartitionedNewTrades = newTrades.stream().collect(
-                    Collectors.partitioningBy(trade -> trade.getTimestamp().getEpochSecond() >=
-                            inProgressCandle.getOpenTime() + secondsPerCandle));
-
-            // Update the in-progress candle with new trades partitioned in the in-progress candle's duration
-            List<Trade> currentCandleTrades = candlePartitionedNewTrades.get(false);
-
-            if (!currentCandleTrades.isEmpty()) {
-                inProgressCandle.setHighPriceSoFar(Math.max(currentCandleTrades.stream().mapToDouble(trade ->
-                                trade.getPrice().toDouble()).max().getAsDouble(),
-                        inProgressCandle.getHighPriceSoFar()));
-                inProgressCandle.setLowPriceSoFar(Math.max(currentCandleTrades.stream().mapToDouble(trade ->
-                                trade.getPrice().toDouble()).min().getAsDouble(),
-                        inProgressCandle.getLowPriceSoFar()));
-                inProgressCandle.setVolumeSoFar(inProgressCandle.getVolumeSoFar() +
-                        currentCandleTrades.stream().mapToDouble(trade -> trade.getAmount().toDouble()).sum());
-                inProgressCandle.setCurrentTill(currentTill);
-                inProgressCandle.setLastPrice(currentCandleTrades.get(currentCandleTrades.size() - 1)
-                        .getPrice().toDouble());
-                data.put(inProgressCandle.getOpenTime(), inProgressCandle.snapshot());
+            inProgressCandleChanged = false;
+            inProgressCandleRolledOver = false;
+            oldestTradeEpochNanos = 0;
+            metrics.recordLiveTradeQueueDepth(liveTradesRingBuffer.size());
+            liveTradesRingBuffer.drain(liveTradeHandler);
+            long droppedCount = liveTradesRingBuffer.getDroppedCount();
+            if (droppedCount != loggedDroppedCount) {
+                logger.warn("dropped " + (droppedCount - loggedDroppedCount) + " live trade(s) since the ring " +
+                        "buffer was last drained (it was full, or their price or amount did not fit in a long)");
+                loggedDroppedCount = droppedCount;
+            }
+            if (oldestTradeEpochNanos != 0) {
+                // Unless older trades are still waiting to be drawn, these trades are now the oldest undrawn ones.
+                undrawnTradeEpochNanos.compareAndSet(0, oldestTradeEpochNanos);
             }
 
-            List<Trade> nextCandleTrades = candlePartitionedNewTrades.get(true);
-            if (Instant.now().getEpochSecond() >= inProgressCandle.getOpenTime() + secondsPerCandle) {
-                // Reset in-progress candle
-                inProgressCandle.setOpenTime(inProgressCandle.getOpenTime() + secondsPerCandle);
-                inProgressCandle.setOpenPrice(inProgressCandle.getLastPrice());
-
-                if (!nextCandleTrades.isEmpty()) {
-                    inProgressCandle.setIsPlaceholder(false);
-                    inProgressCandle.setHighPriceSoFar(nextCandleTrades.stream().mapToDouble(trade ->
-                            trade.getPrice().toDouble()).max().getAsDouble());
-                    inProgressCandle.setLowPriceSoFar(currentCandleTrades.stream().mapToDouble(trade ->
-                            trade.getPrice().toDouble()).min().getAsDouble());
-                    inProgressCandle.setVolumeSoFar(nextCandleTrades.stream().mapToDouble(trade ->
-                            trade.getAmount().toDouble()).sum());
-                    inProgressCandle.setLastPrice(nextCandleTrades.get(0).getPrice().toDouble());
-                    inProgressCandle.setCurrentTill((int) nextCandleTrades.get(0).getTimestamp().getEpochSecond());
-                } else {
-                    inProgressCandle.setIsPlaceholder(true);
-                    inProgressCandle.setHighPriceSoFar(inProgressCandle.getLastPrice());
-                    inProgressCandle.setLowPriceSoFar(inProgressCandle.getLastPrice());
-                    inProgressCandle.setVolumeSoFar(0);
-                }
-
-                data.put(inProgressCandle.getOpenTime(), inProgressCandle.snapshot());
+            int now = (int) Instant.now().getEpochSecond();
+            if (now >= inProgressCandle.getOpenTime() + secondsPerCandle) {
+                rollOverInProgressCandle(now);
+            }
+            if (pyramidBaseCandle != null) {
+                rollOverPyramidBaseCandle(now);
             }
 
-            drawChartContents(true);
+            if (!inProgressCandleChanged) {
+                return;
+            }
+            putCandle(inProgressCandle.snapshot());
+
+            // The in-progress candle may have made a new high/low (or volume) for the visible candles. Updating the
+            // extrema for it is cheap because the candle series indexes the changed candle incrementally. Unless that
+            // changed the axes, or a new candle was started, only the live overlay has to be repainted.
+            boolean rolledOver = inProgressCandleRolledOver;
+            Platform.runLater(() -> {
+                double yAxisLowerBound = yAxis.getLowerBound();
+                double yAxisUpperBound = yAxis.getUpperBound();
+                double extraAxisUpperBound = extraAxis.getUpperBound();
+                setYAndExtraAxisBounds(isPanning());
+                boolean axesChanged = yAxis.getLowerBound() != yAxisLowerBound ||
+                        yAxis.getUpperBound() != yAxisUpperBound || extraAxis.getUpperBound() != extraAxisUpperBound;
+                renderScheduler.requestRender(rolledOver || axesChanged ?
+                        RenderScheduler.DirtyLevel.FULL : RenderScheduler.DirtyLevel.LIVE);
+            });
         }
 
         public void setReady(boolean ready) {
+            if (ready) {
+                knownTradesTill = inProgressCandle.getCurrentTill();
+                // Live trades are summed onto what the in-progress candle was caught up with.
+                inProgressCandleSums.reset(inProgressCandle);
+                CandlePyramid pyramid = candlePyramid;
+                if (pyramid != null && pyramid.getBaseSecondsPerCandle() != secondsPerCandle) {
+                    // Only base candles whose every trade is streamed to this chart are put into the pyramid, so the
+                    // first one is the one after the trades the in-progress candle was caught up with. The pyramid
+                    // fills the base candle durations between its newest base candle and that one with placeholders.
+                    int baseSecondsPerCandle = pyramid.getBaseSecondsPerCandle();
+                    pyramidBaseCandle = new InProgressCandle();
+                    pyramidBaseCandle.setLastPrice(inProgressCandle.getLastPrice());
+                    pyramidBaseCandle.rollOver((Math.floorDiv(knownTradesTill, baseSecondsPerCandle) + 1) *
+                            baseSecondsPerCandle);
+                    pyramidBaseCandleSums.reset(pyramidBaseCandle);
+                }
+            }
             this.ready = ready;
         }
     }
@@ -1072,27 +1530,21 @@ public class CandleStickChart extends Region {
                                         inProgressCandle.setOpenPrice(inProgressCandleData.getOpenPrice());
                                         inProgressCandle.setCurrentTill(currentTill);
 
-                                        if (trades.isEmpty()) {
-                                            // No trading activity happened in addition to the sub-candles from above.
-                                            inProgressCandle.setHighPriceSoFar(
-                                                    inProgressCandleData.getHighPriceSoFar());
-                                            inProgressCandle.setLowPriceSoFar(inProgressCandleData.getLowPriceSoFar());
-                                            inProgressCandle.setVolumeSoFar(inProgressCandleData.getVolumeSoFar());
-                                            inProgressCandle.setLastPrice(inProgressCandleData.getLastPrice());
-                                        } else {
-                                            // We need to factor in the trades that have happened after the
-                                            // "currentTill" time of the in-progress candle.
-                                            inProgressCandle.setHighPriceSoFar(Math.max(trades.stream().mapToDouble(
-                                                    trade -> trade.getPrice().toDouble()).max().getAsDouble(),
-                                                    inProgressCandleData.getHighPriceSoFar()));
-                                            inProgressCandle.setLowPriceSoFar(Math.max(trades.stream().mapToDouble(
-                                                    trade -> trade.getPrice().toDouble()).min().getAsDouble(),
-                                                    inProgressCandleData.getLowPriceSoFar()));
-                                            inProgressCandle.setVolumeSoFar(inProgressCandleData.getVolumeSoFar() +
-                                                    trades.stream().mapToDouble(
-                                                            trade -> trade.getAmount().toDouble()).sum());
-                                            inProgressCandle.setLastPrice(trades.get(trades.size() - 1).getPrice()
-                                                    .toDouble());
+                                        inProgressCandle.setHighPriceSoFar(inProgressCandleData.getHighPriceSoFar());
+                                        inProgressCandle.setLowPriceSoFar(inProgressCandleData.getLowPriceSoFar());
+                                        inProgressCandle.setVolumeSoFar(inProgressCandleData.getVolumeSoFar());
+                                        // The sub-candles do not tell us the prices their volume traded at, so
+                                        // their typical price is the best estimate we have for the VWAP.
+                                        inProgressCandle.setVolumeWeightedPriceSoFar(
+                                                inProgressCandleData.getVolumeSoFar() *
+                                                        ((inProgressCandleData.getHighPriceSoFar() +
+                                                                inProgressCandleData.getLowPriceSoFar()) / 2));
+                                        inProgressCandle.setLastPrice(inProgressCandleData.getLastPrice());
+                                        // We need to factor in the trades that have happened after the
+                                        // "currentTill" time of the in-progress candle.
+                                        for (Trade trade : trades) {
+                                            inProgressCandle.accept(trade.getPrice().toDouble(),
+                                                    trade.getAmount().toDouble());
                                         }
                                         Platform.runLater(() -> setInitialState(candleData));
                                     } else {
@@ -1102,8 +1554,8 @@ public class CandleStickChart extends Region {
                                 });
                             } else {
                                 // No trades have happened during the current candle so far.
-                                inProgressCandle.setIsPlaceholder(true);
-                                inProgressCandle.setVolumeSoFar(0);
+                                inProgressCandle.setLastPrice(candleData.get(candleData.size() - 1).getClosePrice());
+                                inProgressCandle.rollOver(inProgressCandle.getOpenTime());
                                 inProgressCandle.setCurrentTill((int) (secondsIntoCurrentCandle +
                                         (candleData.get(candleData.size() - 1).getOpenTime() + secondsPerCandle)));
                                 Platform.runLater(() -> setInitialState(candleData));
@@ -1116,20 +1568,7 @@ public class CandleStickChart extends Region {
                     setInitialState(candleData);
                 }
             } else {
-                int slidingWindowSize = (int) currZoomLevel.getNumVisibleCandles();
-
-                // In order to compute the y-axis extrema for the new data in the page, we have to include the
-                // first numVisibleCandles from the previous page (otherwise the sliding window will not be able
-                // to reach all the way).
-                Map<Integer, CandleData> extremaData = new TreeMap<>(data.subMap(currZoomLevel.getMinXValue(),
-                        currZoomLevel.getMinXValue() + (int) (currZoomLevel.getNumVisibleCandles() *
-                                secondsPerCandle)));
-                List<CandleData> newDataPlusOffset = new ArrayList<>(candleData);
-                newDataPlusOffset.addAll(extremaData.values());
-                putSlidingWindowExtrema(currZoomLevel.getExtremaForCandleRangeMap(), newDataPlusOffset,
-                        slidingWindowSize);
-                data.putAll(candleData.stream().collect(Collectors.toMap(CandleData::getOpenTime,
-                        Function.identity())));
+                putCandles(candleData);
                 currZoomLevel.setMinXValue(candleData.get(0).getOpenTime());
             }
         }
@@ -1149,14 +1588,9 @@ public class CandleStickChart extends Region {
                 candleData.get(0).getOpenTime());
         zoomLevelMap.put(0, currZoomLevel);
         xAxis.setTickLabelFormatter(currZoomLevel.getXAxisFormatter());
-        putSlidingWindowExtrema(currZoomLevel.getExtremaForCandleRangeMap(), candleData,
-                (int) Math.round(currZoomLevel.getNumVisibleCandles()));
-        putExtremaForRemainingElements(currZoomLevel.getExtremaForCandleRangeMap(), candleData.subList(
-                candleData.size() - (int) Math.floor(currZoomLevel.getNumVisibleCandles() - (liveSyncing ? 1 : 0)),
-                candleData.size()));
+        putCandles(candleData);
         setYAndExtraAxisBounds();
-        data.putAll(candleData.stream().collect(Collectors.toMap(CandleData::getOpenTime, Function.identity())));
-        drawChartContents(false);
+        renderScheduler.requestRender();
         progressIndicator.setVisible(false);
         updateInProgressCandleTask.setReady(true);
     }
@@ -1180,14 +1614,8 @@ public class CandleStickChart extends Region {
             }
 
             double dx = event.getScreenX() - mousePrevX;
-
-            scrollDeltaXSum += dx;
-
-            if (Math.abs(scrollDeltaXSum) >= 10) {
-                int deltaX = (int) -Math.signum(scrollDeltaXSum);
-                moveAlongX(deltaX, false);
-                scrollDeltaXSum = 0;
-            }
+            kineticPanner.drag(dx, System.nanoTime());
+            panBy(dx);
             mousePrevX = event.getScreenX();
             mousePrevY = event.getScreenY();
         }
@@ -1220,6 +1648,11 @@ public class CandleStickChart extends Region {
             }
 
             if (deltaX != 0) {
+                if (!isPanning() && canMoveAlongX(deltaX)) {
+                    // Moving the chart with the keys is tracked by the kinetic panner like a drag, so that it knows
+                    // the velocity to prefetch pages of candle data for.
+                    kineticPanner.drag(-deltaX * candleWidth, System.nanoTime());
+                }
                 moveAlongX(deltaX, false);
             }
 
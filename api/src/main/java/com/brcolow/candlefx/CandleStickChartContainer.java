@@ -16,6 +16,12 @@ import javafx.util.Duration;
  * duration is selected, this container automatically creates a new {@code CandleStickChart} and visually
  * transitions to it.
  *
+ * <p>The candles of a chart are also the base candles of a {@link CandlePyramid} that derives the coarser
+ * durations from them. Switching to one of those durations serves the new chart's candle data from the pyramid
+ * (until the user pages back past the data it holds) instead of refetching it from the exchange, and the live
+ * trades of the new chart keep the base candles of the pyramid up to date. Switching to a finer (or otherwise
+ * underived) duration starts a new pyramid based on the new chart.
+ *
  * @author Michael Ennen
  */
 public class CandleStickChartContainer extends Region {
@@ -25,6 +31,7 @@ public class CandleStickChartContainer extends Region {
     private final TradePair tradePair;
     private final SimpleIntegerProperty secondsPerCandle;
     private CandleStickChart candleStickChart;
+    private CandlePyramid candlePyramid;
 
     /**
      * Construct a new {@code CandleStickChartContainer} with liveSyncing mode off.
@@ -87,8 +94,27 @@ public class CandleStickChartContainer extends Region {
         CandleDataSupplier candleDataSupplier = new ReverseRawTradeDataProcessor(Paths.get("C:\\bitstampUSD.csv"),
                 secondsPerCandle.get(), TradePair.of(amountUnit, priceUnit));
         */
-        candleStickChart = new CandleStickChart(exchange, exchange.getCandleDataSupplier(secondsPerCandle, tradePair),
-                tradePair, liveSyncing, secondsPerCandle, widthProperty(), heightProperty());
+        CandleDataSupplier candleDataSupplier = exchange.getCandleDataSupplier(secondsPerCandle, tradePair);
+        if (candlePyramid != null && candlePyramid.isDerived(secondsPerCandle)) {
+            candleStickChart = new CandleStickChart(exchange,
+                    new CandlePyramidDataSupplier(candlePyramid, candleDataSupplier), tradePair, liveSyncing,
+                    secondsPerCandle, widthProperty(), heightProperty());
+            // The live trades of the new chart keep the base candles of the pyramid up to date.
+            candleStickChart.setCandlePyramid(candlePyramid);
+        } else {
+            candlePyramid = new CandlePyramid(secondsPerCandle, candleDataSupplier.getSupportedGranularities());
+            candleStickChart = new CandleStickChart(exchange, candleDataSupplier, tradePair, liveSyncing,
+                    secondsPerCandle, widthProperty(), heightProperty());
+            candleStickChart.setCandlePyramid(candlePyramid);
+        }
+    }
+
+    /**
+     * @return the chart for the candle duration picked last (which may still be fading in), or {@code null} if no
+     * candle duration has been picked yet
+     */
+    public CandleStickChart getCandleStickChart() {
+        return candleStickChart;
     }
 
     private void animateInNewChart(CandleStickChart newChart) {
@@ -0,0 +1,221 @@
+package com.brcolow.candlefx;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+/**
+ * A least-recently-used cache of pre-rendered tiles of the historical candle layer of a {@link CandleStickChart},
+ * so that panning only has to render the tiles that have just come into view and can blit the rest.
+ *
+ * <p>A tile holds {@link #TILE_CANDLES} consecutive candles. Tiles are anchored to the open times of the candles
+ * rather than to the screen, so a tile can be drawn at any x position, and is keyed (see {@link TileKey}) by
+ * everything that its pixels depend on: the zoom level (the candle duration and width), the scales of the y-axis
+ * and volume axis, the height of the canvas, the chart options that change how candles are drawn and the index of
+ * the tile. When the tiles take up more than the memory budget, the least recently used tiles are evicted.
+ *
+ * <p>Tiles are looked up and rendered on the thread frame models are built on (see {@link FrameModelBuilder}) while
+ * the memory budget is set on the JavaFX application thread, so a {@code CandleTileCache} is thread-safe.
+ *
+ * @author Michael Ennen
+ */
+final class CandleTileCache {
+    /**
+     * The number of candles in a tile.
+     */
+    static final int TILE_CANDLES = 64;
+    /**
+     * The number of pixels a tile extends past the left edge of its oldest candle, which the border of that candle
+     * spills into.
+     */
+    static final int TILE_PADDING = 2;
+
+    private final Map<TileKey, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long budgetBytes;
+    private long usedBytes;
+
+    /**
+     * Creates a new {@code CandleTileCache}.
+     *
+     * @param budgetBytes the (approximate) number of bytes of pixels the cached tiles may take up, or 0 to disable
+     * the cache
+     */
+    CandleTileCache(long budgetBytes) {
+        setBudgetBytes(budgetBytes);
+    }
+
+    synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Sets the memory budget, evicting the least recently used tiles if the cached tiles no longer fit in it.
+     *
+     * @param budgetBytes the (approximate) number of bytes of pixels the cached tiles may take up, or 0 to disable
+     * the cache
+     */
+    synchronized void setBudgetBytes(long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("budgetBytes must not be negative but was: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+        evict();
+    }
+
+    synchronized boolean isEnabled() {
+        return budgetBytes > 0;
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    synchronized int size() {
+        return tiles.size();
+    }
+
+    /**
+     * @return the cached tile for the given key (which then becomes the most recently used tile), or {@code null}
+     */
+    synchronized Tile get(TileKey key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Caches the given tile, evicting the least recently used tiles if the cached tiles no longer fit in the memory
+     * budget. A tile that is larger than the whole budget is not cached.
+     */
+    synchronized void put(TileKey key, Tile tile) {
+        Objects.requireNonNull(key, "key must not be null");
+        Objects.requireNonNull(tile, "tile must not be null");
+        if (tile.getSizeBytes() > budgetBytes) {
+            return;
+        }
+        Tile previous = tiles.put(key, tile);
+        if (previous != null) {
+            usedBytes -= previous.getSizeBytes();
+        }
+        usedBytes += tile.getSizeBytes();
+        evict();
+    }
+
+    synchronized void clear() {
+        tiles.clear();
+        usedBytes = 0;
+    }
+
+    private void evict() {
+        Iterator<Tile> leastRecentlyUsed = tiles.values().iterator();
+        while (usedBytes > budgetBytes && leastRecentlyUsed.hasNext()) {
+            usedBytes -= leastRecentlyUsed.next().getSizeBytes();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    /**
+     * Identifies the pixels of a tile.
+     */
+    static final class TileKey {
+        private final int secondsPerCandle;
+        private final int candleWidth;
+        private final double yAxisLowerBound;
+        private final double pixelsPerMonetaryUnit;
+        private final double volumeScale;
+        private final double canvasHeight;
+        private final boolean showVolume;
+        private final boolean alignOpenClose;
+        private final long tileIndex;
+
+        /**
+         * @param tileIndex the index of the tile, which holds the candles whose open times are in
+         * {@code [tileIndex * TILE_CANDLES * secondsPerCandle, (tileIndex + 1) * TILE_CANDLES * secondsPerCandle)}
+         * (offset by the phase of the candles' open times)
+         */
+        TileKey(FrameGeometry geometry, int secondsPerCandle, long tileIndex) {
+            this.secondsPerCandle = secondsPerCandle;
+            candleWidth = geometry.getCandleWidth();
+            yAxisLowerBound = geometry.getYAxisLowerBound();
+            pixelsPerMonetaryUnit = geometry.getPixelsPerMonetaryUnit();
+            volumeScale = geometry.getVolumeScale();
+            canvasHeight = geometry.getCanvasHeight();
+            showVolume = geometry.isShowVolume();
+            alignOpenClose = geometry.isAlignOpenClose();
+            this.tileIndex = tileIndex;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+
+            if (object == null || object.getClass() != getClass()) {
+                return false;
+            }
+
+            TileKey other = (TileKey) object;
+
+            return secondsPerCandle == other.secondsPerCandle &&
+                    candleWidth == other.candleWidth &&
+                    Double.compare(yAxisLowerBound, other.yAxisLowerBound) == 0 &&
+                    Double.compare(pixelsPerMonetaryUnit, other.pixelsPerMonetaryUnit) == 0 &&
+                    Double.compare(volumeScale, other.volumeScale) == 0 &&
+                    Double.compare(canvasHeight, other.canvasHeight) == 0 &&
+                    showVolume == other.showVolume &&
+                    alignOpenClose == other.alignOpenClose &&
+                    tileIndex == other.tileIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(secondsPerCandle, candleWidth, yAxisLowerBound, pixelsPerMonetaryUnit, volumeScale,
+                    canvasHeight, showVolume, alignOpenClose, tileIndex);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("TileKey [secondsPerCandle = %d, candleWidth = %d, yAxisLowerBound = %f, " +
+                    "pixelsPerMonetaryUnit = %f, volumeScale = %f, canvasHeight = %f, showVolume = %b, " +
+                    "alignOpenClose = %b, tileIndex = %d]", secondsPerCandle, candleWidth, yAxisLowerBound,
+                    pixelsPerMonetaryUnit, volumeScale, canvasHeight, showVolume, alignOpenClose, tileIndex);
+        }
+    }
+
+    /**
+     * A rendered tile. The tile is rasterized in the background, and its pixels are only uploaded to an image the
+     * first time it is drawn (see {@link #getImage()}), after which the rasterized pixels are dropped.
+     */
+    static final class Tile {
+        private final long sizeBytes;
+        private CandleRaster raster;
+        private WritableImage image;
+
+        Tile(CandleRaster raster) {
+            this.raster = Objects.requireNonNull(raster, "raster must not be null");
+            sizeBytes = (long) raster.getWidth() * raster.getHeight() * Integer.BYTES;
+        }
+
+        long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        /**
+         * @return the image of this tile, or {@code null} if the tile is empty. This must be called on the JavaFX
+         * application thread.
+         */
+        Image getImage() {
+            if (image == null && raster != null) {
+                if (raster.getWidth() > 0 && raster.getHeight() > 0) {
+                    image = new WritableImage(raster.getWidth(), raster.getHeight());
+                    raster.writeTo(image);
+                }
+                raster = null;
+            }
+            return image;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.brcolow.candlefx;
+
+/**
+ * Receives measurements of the rendering and data paths of a {@link CandleStickChart} (see
+ * {@link CandleStickChart#setMetrics(ChartMetrics)}), which can be used to tune charts and to bridge them into a
+ * monitoring system (such as JMX). Every method has an empty default implementation, so implementations only need
+ * to override the measurements they are interested in.
+ *
+ * <p>Methods are called from the JavaFX application thread and from background threads (the threads candle data
+ * is paged in on, the thread frames are built on and the thread live trades are processed on), so implementations
+ * must be thread-safe. They should also be cheap, as some are called every frame.
+ *
+ * @author Michael Ennen
+ * @see SummaryChartMetrics
+ */
+public interface ChartMetrics {
+    /**
+     * Ignores all measurements.
+     */
+    ChartMetrics NONE = new ChartMetrics() {};
+
+    /**
+     * Called, on the JavaFX application thread, after each time the chart is drawn.
+     *
+     * @param dirtyLevel the parts of the chart that were drawn
+     * @param nanos how long drawing took
+     * @param candlesDrawn the number of candles that were drawn
+     */
+    default void recordDraw(RenderScheduler.DirtyLevel dirtyLevel, long nanos, int candlesDrawn) {}
+
+    /**
+     * Called, on the thread frames are built on, after the model of a frame has been built from a snapshot of the
+     * visible candles.
+     *
+     * @param nanos how long building the frame model took
+     * @param candles the number of candles in the snapshot
+     */
+    default void recordFrameBuild(long nanos, int candles) {}
+
+    /**
+     * Called, on the thread frames are built on, after a frame made up of pre-rendered tiles of candles has been
+     * built.
+     *
+     * @param hits the number of tiles of the frame that were found in the tile cache
+     * @param misses the number of tiles of the frame that had to be rendered
+     */
+    default void recordTileCacheLookups(int hits, int misses) {}
+
+    /**
+     * Called after the extrema of the visible candles (which the axes are scaled to) have been recomputed.
+     *
+     * @param nanos how long recomputing the extrema took
+     */
+    default void recordExtremaUpdate(long nanos) {}
+
+    /**
+     * Called after a page of candle data has been fetched and passed to the chart.
+     *
+     * @param nanos how long it took from the page being requested from the {@code CandleDataSupplier} until it was
+     * passed to the chart
+     */
+    default void recordPageFetch(long nanos) {}
+
+    /**
+     * Called each time the live trades that have been received are processed.
+     *
+     * @param depth the number of trades that were waiting to be processed
+     */
+    default void recordLiveTradeQueueDepth(int depth) {}
+
+    /**
+     * Called, on the JavaFX application thread, after a frame that shows live trades has been drawn.
+     *
+     * @param nanos the time from the timestamp of the oldest trade shown for the first time in the frame until the
+     * frame was drawn
+     */
+    default void recordTradeToPixelLag(long nanos) {}
+}
@@ -90,6 +90,35 @@ public final class FastMoney implements Money, Comparable<FastMoney> {
         return fromDouble(amount, precision, currencyCode, CurrencyType.CRYPTO);
     }
 
+    /**
+     * @return the amount {@code unscaledAmount * 10^-precision}
+     */
+    static Money ofUnscaled(long unscaledAmount, final Currency currency, int precision) {
+        Utils.checkPrecision(precision);
+        return new FastMoney(unscaledAmount, currency, precision).normalize();
+    }
+
+    /**
+     * Parses the given plain decimal (such as the price or size of a trade in an exchange's feed) directly to a
+     * {@code FastMoney} whose precision is the number of fractional digits of the decimal. Unlike
+     * {@code DefaultMoney.of(new BigDecimal(text), currency)} this does not create any intermediate objects. If the
+     * decimal does not fit a {@code FastMoney} a {@code DefaultMoney} is returned instead.
+     *
+     * @throws NumberFormatException if the text is not a decimal
+     */
+    public static Money parse(final CharSequence text, final Currency currency) {
+        Objects.requireNonNull(text, "text must not be null");
+        Objects.requireNonNull(currency, "currency must not be null");
+        long unscaledAmount;
+        try {
+            unscaledAmount = AsciiNumbers.parseUnscaled(text);
+        } catch (NumberFormatException ex) {
+            // Too many digits, or not a plain decimal (e.g. in scientific notation).
+            return fromBigDecimal(new BigDecimal(text.toString()), currency);
+        }
+        return new FastMoney(unscaledAmount, currency, AsciiNumbers.scaleOf(text)).normalize();
+    }
+
     private static Money fromDouble(final double value, final int precision, final String currencyCode,
                                     final CurrencyType currencyType) {
         Objects.requireNonNull(currencyCode, "currencyCode must not be null");
@@ -198,6 +227,13 @@ public final class FastMoney implements Money, Comparable<FastMoney> {
         return precision;
     }
 
+    /**
+     * @return the amount in units of {@code 10^-precision}, without boxing it like {@link #getAmount()} does
+     */
+    long getUnscaledAmount() {
+        return amount;
+    }
+
     private Money plus(FastMoney other) {
         long result;
         int precision = currency.fractionalDigits;
@@ -363,7 +399,7 @@ public final class FastMoney implements Money, Comparable<FastMoney> {
 
     @Override
     public BigDecimal toBigDecimal() {
-        return BigDecimal.valueOf(amount, currency.fractionalDigits);
+        return BigDecimal.valueOf(amount, precision);
     }
 
     @Override
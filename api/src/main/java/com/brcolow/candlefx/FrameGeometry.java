@@ -0,0 +1,200 @@
+package com.brcolow.candlefx;
+
+/**
+ * The mapping from candle data to screen coordinates for one frame of a {@link CandleStickChart}: the size of the
+ * canvas, the width of a candle and the scales of the y-axis and the volume (extra) axis, as they were on the
+ * JavaFX application thread when the frame was requested. Because it is immutable, the geometry of a frame can be
+ * worked out (see {@link #addCandle(CandleShapes, int, double, double, double, double, double, boolean, double)})
+ * on any thread.
+ *
+ * @author Michael Ennen
+ */
+final class FrameGeometry {
+    /**
+     * The widest candles that are rasterized in software (see {@link CandleRaster}) rather than drawn as vector
+     * paths.
+     */
+    static final int MAX_RASTERIZED_CANDLE_WIDTH = 4;
+
+    private final double canvasWidth;
+    private final double canvasHeight;
+    private final int candleWidth;
+    private final int candlesPerBar;
+    private final double numVisibleCandles;
+    private final int secondsPerBar;
+    private final double xAxisUpperBound;
+    private final double yAxisLowerBound;
+    private final double pixelsPerMonetaryUnit;
+    private final double volumeScale;
+    private final boolean showVolume;
+    private final boolean alignOpenClose;
+
+    FrameGeometry(double canvasWidth, double canvasHeight, int candleWidth, int candlesPerBar,
+                  double numVisibleCandles, int secondsPerCandle, double xAxisUpperBound, double yAxisLowerBound,
+                  double yAxisUpperBound, double extraAxisUpperBound, boolean showVolume, boolean alignOpenClose) {
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+        this.candleWidth = candleWidth;
+        this.candlesPerBar = candlesPerBar;
+        this.numVisibleCandles = numVisibleCandles;
+        secondsPerBar = candlesPerBar * secondsPerCandle;
+        this.xAxisUpperBound = xAxisUpperBound;
+        this.yAxisLowerBound = yAxisLowerBound;
+        double monetaryUnitsPerPixel = (yAxisUpperBound - yAxisLowerBound) / canvasHeight;
+        pixelsPerMonetaryUnit = 1d / monetaryUnitsPerPixel;
+        int volumeBarMaxHeight = 150;
+        volumeScale = volumeBarMaxHeight / extraAxisUpperBound;
+        this.showVolume = showVolume;
+        this.alignOpenClose = alignOpenClose;
+    }
+
+    private FrameGeometry(FrameGeometry geometry, double canvasWidth) {
+        this.canvasWidth = canvasWidth;
+        canvasHeight = geometry.canvasHeight;
+        candleWidth = geometry.candleWidth;
+        candlesPerBar = geometry.candlesPerBar;
+        numVisibleCandles = geometry.numVisibleCandles;
+        secondsPerBar = geometry.secondsPerBar;
+        xAxisUpperBound = geometry.xAxisUpperBound;
+        yAxisLowerBound = geometry.yAxisLowerBound;
+        pixelsPerMonetaryUnit = geometry.pixelsPerMonetaryUnit;
+        volumeScale = geometry.volumeScale;
+        showVolume = geometry.showVolume;
+        alignOpenClose = geometry.alignOpenClose;
+    }
+
+    /**
+     * @return a copy of this geometry for a canvas of the given width (such as a tile of a {@link CandleTileCache}),
+     * in which the columns are counted from the right edge of that canvas
+     */
+    FrameGeometry withCanvasWidth(double canvasWidth) {
+        return new FrameGeometry(this, canvasWidth);
+    }
+
+    double getCanvasWidth() {
+        return canvasWidth;
+    }
+
+    double getCanvasHeight() {
+        return canvasHeight;
+    }
+
+    int getCandleWidth() {
+        return candleWidth;
+    }
+
+    int getCandlesPerBar() {
+        return candlesPerBar;
+    }
+
+    double getNumVisibleCandles() {
+        return numVisibleCandles;
+    }
+
+    boolean isShowVolume() {
+        return showVolume;
+    }
+
+    boolean isAlignOpenClose() {
+        return alignOpenClose;
+    }
+
+    double getYAxisLowerBound() {
+        return yAxisLowerBound;
+    }
+
+    double getPixelsPerMonetaryUnit() {
+        return pixelsPerMonetaryUnit;
+    }
+
+    double getVolumeScale() {
+        return volumeScale;
+    }
+
+    /**
+     * @return true if the candles (or level-of-detail bars) are so narrow that they are rasterized in software
+     */
+    boolean isRasterized() {
+        return candleWidth <= MAX_RASTERIZED_CANDLE_WIDTH;
+    }
+
+    /**
+     * @return how far (in pixels) a frame drawn with this geometry has to be translated along the x-axis to line up
+     * with the given (current) upper bound of the x-axis, which is the number of bars the x-axis has been moved by
+     * since the frame was requested
+     */
+    double getTranslateX(double currentXAxisUpperBound) {
+        return ((xAxisUpperBound - currentXAxisUpperBound) / secondsPerBar) * candleWidth;
+    }
+
+    /**
+     * @return the y screen coordinate of the given price
+     */
+    double priceToY(double price) {
+        return cartesianToScreenCoords((price - yAxisLowerBound) * pixelsPerMonetaryUnit);
+    }
+
+    private double cartesianToScreenCoords(double yCoordinate) {
+        return -yCoordinate + canvasHeight;
+    }
+
+    /**
+     * Adds the candle (and volume bar) drawn into the given column (counting from the right edge of the chart) to
+     * the given shapes.
+     *
+     * @param previousClosePrice the close price of the preceding candle, or NaN if there is none, which the candle
+     * opens at if the open and close are aligned
+     */
+    void addCandle(CandleShapes shapes, int column, double openPrice, double closePrice, double highPrice,
+                   double lowPrice, double volume, boolean placeHolder, double previousClosePrice) {
+        double x = canvasWidth - (column * candleWidth);
+        double candleOpenPrice = openPrice;
+        if (alignOpenClose && !Double.isNaN(previousClosePrice)) {
+            candleOpenPrice = previousClosePrice;
+        }
+
+        if (placeHolder) {
+            // A placeholder candle is placed in a duration where no trading activity occurred.
+            shapes.addPlaceHolderCandle(x, priceToY(candleOpenPrice));
+            return;
+        }
+
+        boolean openAboveClose = candleOpenPrice > closePrice;
+        double candleYOrigin = priceToY(openAboveClose ? candleOpenPrice : closePrice);
+        double candleHeight = Math.abs(candleOpenPrice - closePrice) * pixelsPerMonetaryUnit;
+
+        // Draw the high line unless the open (or close) is the same as the high.
+        boolean drawHighLine;
+        if (openAboveClose) {
+            drawHighLine = candleOpenPrice != highPrice && !(alignOpenClose && candleOpenPrice > highPrice);
+        } else {
+            drawHighLine = closePrice != highPrice;
+        }
+
+        // Draw the low line unless the close (or open) is the same as the low.
+        boolean drawLowLine;
+        if (openAboveClose) {
+            drawLowLine = closePrice != lowPrice;
+        } else {
+            drawLowLine = candleOpenPrice != lowPrice && !(alignOpenClose && candleOpenPrice < lowPrice);
+        }
+
+        shapes.addCandle(x, openAboveClose, candleYOrigin, candleHeight,
+                drawHighLine ? priceToY(highPrice) : Double.NaN, drawLowLine ? priceToY(lowPrice) : Double.NaN,
+                showVolume ? cartesianToScreenCoords(volume * volumeScale) : Double.NaN);
+    }
+
+    /**
+     * Adds a level-of-detail bar, which summarizes all of the candles that land in it, to the given shapes. The
+     * volume is the average volume of the bar's candles so that it is on the same scale as the volume axis.
+     */
+    void addBar(CandleShapes shapes, int barIndex, double openPrice, double closePrice, double highPrice,
+                double lowPrice, double volume, boolean placeHolder) {
+        double xPos = (canvasWidth - (barIndex * candleWidth)) + (candleWidth * 0.5);
+        // Make sure that a bar with no range is still at least one pixel tall.
+        double highYPos = priceToY(highPrice);
+        double lowYPos = Math.max(highYPos + 1, priceToY(lowPrice));
+        shapes.addBar(xPos, placeHolder, openPrice > closePrice, highYPos, lowYPos,
+                showVolume && !placeHolder ? cartesianToScreenCoords(volume * volumeScale) : Double.NaN);
+    }
+}
@@ -0,0 +1,150 @@
+package com.brcolow.candlefx;
+
+/**
+ * Everything needed to draw one frame of the grid and historical candle layers of a {@link CandleStickChart}:
+ * the positions of the grid lines, the shapes of the visible candles (or level-of-detail bars) and the extrema
+ * (and their high/low marker labels) of the visible historical candles. A frame model is built off the JavaFX
+ * application thread by a {@link FrameModelBuilder}, so that drawing the frame only has to replay it.
+ *
+ * <p>A {@code FrameModel} is immutable, and so can be safely handed from the thread that builds it to the JavaFX
+ * application thread.
+ *
+ * @author Michael Ennen
+ */
+final class FrameModel {
+    /**
+     * The column of a candle that is not drawn. Candles can be drawn in negative columns (off the right edge of the
+     * canvas, see {@link FrameModelBuilder}), so -1 can not be used.
+     */
+    static final int NO_COLUMN = Integer.MIN_VALUE;
+
+    private final FrameGeometry geometry;
+    private final double[] horizontalGridLines;
+    private final double[] verticalGridLines;
+    private final CandleShapes shapes;
+    private final CandleRaster raster;
+    private final CandleTileCache.Tile[] tiles;
+    private final double[] tileXs;
+    private final int numCandles;
+    private final int inProgressCandleColumn;
+    private final double highestValue;
+    private final double lowestValue;
+    private final int highestColumn;
+    private final int lowestColumn;
+    private final String highestText;
+    private final String lowestText;
+
+    FrameModel(FrameGeometry geometry, double[] horizontalGridLines, double[] verticalGridLines, CandleShapes shapes,
+               CandleRaster raster, CandleTileCache.Tile[] tiles, double[] tileXs, int numCandles,
+               int inProgressCandleColumn, double highestValue, double lowestValue, int highestColumn,
+               int lowestColumn, String highestText, String lowestText) {
+        this.geometry = geometry;
+        this.horizontalGridLines = horizontalGridLines;
+        this.verticalGridLines = verticalGridLines;
+        this.shapes = shapes;
+        this.raster = raster;
+        this.tiles = tiles;
+        this.tileXs = tileXs;
+        this.numCandles = numCandles;
+        this.inProgressCandleColumn = inProgressCandleColumn;
+        this.highestValue = highestValue;
+        this.lowestValue = lowestValue;
+        this.highestColumn = highestColumn;
+        this.lowestColumn = lowestColumn;
+        this.highestText = highestText;
+        this.lowestText = lowestText;
+    }
+
+    FrameGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * @return the y positions of the horizontal grid lines, which must not be modified
+     */
+    double[] getHorizontalGridLines() {
+        return horizontalGridLines;
+    }
+
+    /**
+     * @return the x positions of the vertical grid lines, which must not be modified
+     */
+    double[] getVerticalGridLines() {
+        return verticalGridLines;
+    }
+
+    /**
+     * @return the shapes of the historical candles, which must not be added to
+     */
+    CandleShapes getShapes() {
+        return shapes;
+    }
+
+    /**
+     * @return the shapes of the historical candles rasterized in software, or null if they are to be drawn as vector
+     * paths (see {@link FrameGeometry#isRasterized()})
+     */
+    CandleRaster getRaster() {
+        return raster;
+    }
+
+    /**
+     * @return the tiles (see {@link CandleTileCache}) the historical candles are drawn from, ordered from newest to
+     * oldest, or null if the frame is not made up of tiles. The array must not be modified.
+     */
+    CandleTileCache.Tile[] getTiles() {
+        return tiles;
+    }
+
+    /**
+     * @return the x positions of the left edges of the tiles of {@link #getTiles()}, which must not be modified
+     */
+    double[] getTileXs() {
+        return tileXs;
+    }
+
+    /**
+     * @return the number of candles in the visible range, including the in-progress candle
+     */
+    int getNumCandles() {
+        return numCandles;
+    }
+
+    /**
+     * @return the column that the in-progress candle is drawn in on the live overlay, or {@link #NO_COLUMN} if it is
+     * not drawn
+     */
+    int getInProgressCandleColumn() {
+        return inProgressCandleColumn;
+    }
+
+    double getHighestValue() {
+        return highestValue;
+    }
+
+    double getLowestValue() {
+        return lowestValue;
+    }
+
+    int getHighestColumn() {
+        return highestColumn;
+    }
+
+    int getLowestColumn() {
+        return lowestColumn;
+    }
+
+    /**
+     * @return the label of the high marker for {@link #getHighestValue()}
+     */
+    String getHighestText() {
+        return highestText;
+    }
+
+    /**
+     * @return the label of the low marker for {@link #getLowestValue()}
+     */
+    String getLowestText() {
+        return lowestText;
+    }
+}
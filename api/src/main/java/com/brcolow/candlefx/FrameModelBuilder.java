@@ -0,0 +1,293 @@
+package com.brcolow.candlefx;
+
+import java.text.DecimalFormat;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds the {@link FrameModel} of a frame of a {@link CandleStickChart}. A builder is created on the JavaFX
+ * application thread, where it takes a snapshot of everything the frame depends on: the geometry (see
+ * {@link FrameGeometry}), the positions of the grid lines and the candles in the visible range (and a few candles
+ * either side of it, which come into view when the chart is panned by less than a bar), which are copied out of the
+ * chart's {@link CandleSeries} in one go. The (much more expensive) work of turning the snapshot into shapes
+ * and marker labels is then done by {@link #build()}, which can be called on any thread, as the builder no longer
+ * refers to any of the chart's mutable state.
+ *
+ * <p>If the candles are rasterized and a {@link CandleTileCache} is given, the snapshot is widened to the whole tiles
+ * the drawn candles fall into, and the frame is made up of tiles (only the tiles that are not in the cache yet are
+ * rendered) rather than of shapes.
+ *
+ * @author Michael Ennen
+ */
+final class FrameModelBuilder {
+    private final FrameGeometry geometry;
+    /**
+     * The cache the tiles of the frame are looked up in and added to, or null if the frame is not made up of tiles.
+     */
+    private final CandleTileCache tileCache;
+    private final int secondsPerCandle;
+    /**
+     * The index (into the chart's data) of the first copied candle.
+     */
+    private final int copyFrom;
+    /**
+     * The number of candles the chart's data had when the snapshot was taken.
+     */
+    private final int dataSize;
+    /**
+     * The number of candle durations between the epoch (offset by the phase of the candles' open times) and the
+     * open time of the first copied candle, which the tiles are anchored to.
+     */
+    private final long firstCandleNumber;
+    private final double[] horizontalGridLines;
+    private final double[] verticalGridLines;
+    /**
+     * The column (counting from the right edge of the chart) of the newest drawn candle.
+     */
+    private final int newestColumn;
+    /**
+     * The offset (into the copied columns) of the in-progress candle, or -1 if it was not copied.
+     */
+    private final int inProgressCandleOffset;
+    /**
+     * The offset (into the copied columns) of the oldest visible candle, which is 1 if the candle before it (whose
+     * close price it opens at if the open and close are aligned) was copied too.
+     */
+    private final int firstVisibleOffset;
+    private final int lastVisibleOffset;
+    /**
+     * The offset (into the copied columns) of the oldest candle that is drawn, which is before the oldest visible
+     * candle by the overscan.
+     */
+    private final int firstDrawnOffset;
+    /**
+     * The offset (into the copied columns) of the newest candle that is drawn, which is after the newest visible
+     * candle by the overscan.
+     */
+    private final int lastDrawnOffset;
+    private final int numCandles;
+    private final double[] openPrices;
+    private final double[] closePrices;
+    private final double[] highPrices;
+    private final double[] lowPrices;
+    private final double[] volumes;
+    private final boolean[] placeHolders;
+    private int tileCacheHits;
+    private int tileCacheMisses;
+
+    /**
+     * Takes a snapshot of the candles in the range {@code [firstVisibleIndex, lastVisibleIndex]} of the given data,
+     * and of up to {@code overscanCandles} candles either side of it.
+     *
+     * @param firstColumn the column the candle at {@code lastVisibleIndex} is drawn in
+     * @param overscanCandles the number of candles either side of the visible range that are drawn too (off the
+     * edges of the canvas, unless the frame is drawn translated because the chart has been panned by less than a bar)
+     * @param inProgressCandleIndex the index of the in-progress candle (which is drawn on the live overlay rather
+     * than with the historical candles), or -1
+     * @param horizontalGridLines the y positions of the horizontal grid lines
+     * @param verticalGridLines the x positions of the vertical grid lines
+     * @param tileCache the cache of tiles to make the frame up of, if the candles are rasterized, or null
+     */
+    FrameModelBuilder(FrameGeometry geometry, CandleSeries data, int firstVisibleIndex, int lastVisibleIndex,
+                      int firstColumn, int overscanCandles, int inProgressCandleIndex, double[] horizontalGridLines,
+                      double[] verticalGridLines, CandleTileCache tileCache) {
+        this.geometry = Objects.requireNonNull(geometry, "geometry must not be null");
+        Objects.requireNonNull(data, "data must not be null");
+        this.horizontalGridLines = Objects.requireNonNull(horizontalGridLines, "horizontalGridLines must not be null");
+        this.verticalGridLines = Objects.requireNonNull(verticalGridLines, "verticalGridLines must not be null");
+        if (overscanCandles < 0) {
+            throw new IllegalArgumentException("overscanCandles must not be negative but was: " + overscanCandles);
+        }
+        numCandles = Math.max(0, (lastVisibleIndex - firstVisibleIndex) + 1);
+        // Level-of-detail bars are merged relative to the right edge of the chart (rather than to the open times of
+        // the candles), so they can not be tiled.
+        this.tileCache = numCandles > 0 && geometry.isRasterized() && geometry.getCandlesPerBar() == 1 ?
+                tileCache : null;
+        secondsPerCandle = data.getSecondsPerCandle();
+        dataSize = data.size();
+        int firstDrawnIndex = Math.max(0, firstVisibleIndex - overscanCandles);
+        int lastDrawnIndex = Math.min(dataSize - 1, lastVisibleIndex + overscanCandles);
+        newestColumn = firstColumn - Math.max(0, lastDrawnIndex - lastVisibleIndex);
+        int copyTo;
+        if (numCandles == 0) {
+            copyFrom = firstVisibleIndex;
+            copyTo = firstVisibleIndex;
+            firstCandleNumber = 0;
+        } else if (this.tileCache == null) {
+            copyFrom = Math.max(0, firstDrawnIndex - 1);
+            copyTo = lastDrawnIndex + 1;
+            firstCandleNumber = 0;
+        } else {
+            // Copy the whole tiles that the drawn candles fall into, and the candle before the oldest tile (whose
+            // close the oldest candle of the tile opens at if the open and close are aligned).
+            long dataFirstCandleNumber = Math.floorDiv(data.getFirstOpenTime(), secondsPerCandle);
+            long firstTileStart = Math.floorDiv(dataFirstCandleNumber + firstDrawnIndex,
+                    CandleTileCache.TILE_CANDLES) * CandleTileCache.TILE_CANDLES;
+            long lastTileEnd = (Math.floorDiv(dataFirstCandleNumber + lastDrawnIndex,
+                    CandleTileCache.TILE_CANDLES) + 1) * CandleTileCache.TILE_CANDLES;
+            copyFrom = (int) Math.max(0, (firstTileStart - dataFirstCandleNumber) - 1);
+            copyTo = (int) Math.min(dataSize, lastTileEnd - dataFirstCandleNumber);
+            firstCandleNumber = dataFirstCandleNumber + copyFrom;
+        }
+        firstVisibleOffset = numCandles == 0 ? 0 : firstVisibleIndex - copyFrom;
+        lastVisibleOffset = firstVisibleOffset + numCandles - 1;
+        firstDrawnOffset = numCandles == 0 ? 0 : firstDrawnIndex - copyFrom;
+        lastDrawnOffset = numCandles == 0 ? -1 : lastDrawnIndex - copyFrom;
+        int length = copyTo - copyFrom;
+        openPrices = new double[length];
+        closePrices = new double[length];
+        highPrices = new double[length];
+        lowPrices = new double[length];
+        volumes = new double[length];
+        placeHolders = new boolean[length];
+        if (length > 0) {
+            data.copyRange(copyFrom, copyFrom + length, openPrices, closePrices, highPrices, lowPrices, volumes,
+                    placeHolders);
+        }
+        boolean inProgressCandleCopied = inProgressCandleIndex >= copyFrom && inProgressCandleIndex < copyTo;
+        inProgressCandleOffset = inProgressCandleCopied ? inProgressCandleIndex - copyFrom : -1;
+    }
+
+    int getNumCandles() {
+        return numCandles;
+    }
+
+    /**
+     * @return the number of tiles of the built frame that were found in the tile cache
+     */
+    int getTileCacheHits() {
+        return tileCacheHits;
+    }
+
+    /**
+     * @return the number of tiles of the built frame that had to be rendered
+     */
+    int getTileCacheMisses() {
+        return tileCacheMisses;
+    }
+
+    /**
+     * Works out the shapes of the drawn historical candles (merged into level-of-detail bars if the chart is zoomed
+     * out into them) and the extrema of the visible historical candles, for the high/low markers. If the candles are
+     * narrow enough (see {@link FrameGeometry#isRasterized()}) the shapes are also rasterized, on every core.
+     */
+    FrameModel build() {
+        int candlesPerBar = geometry.getCandlesPerBar();
+        CandleShapes shapes = new CandleShapes();
+        int candleIndex = newestColumn;
+        double highestCandleValue = Double.MIN_VALUE;
+        double lowestCandleValue = Double.MAX_VALUE;
+        int candleIndexOfHighest = -1;
+        int candleIndexOfLowest = -1;
+        int inProgressCandleColumn = FrameModel.NO_COLUMN;
+        BarMerger barMerger = candlesPerBar == 1 ? null : new BarMerger(candlesPerBar,
+                (barIndex, open, close, high, low, volume, placeHolder) ->
+                        geometry.addBar(shapes, barIndex, open, close, high, low, volume, placeHolder));
+        for (int i = lastDrawnOffset; i >= firstDrawnOffset; i--, candleIndex++) {
+            if (i == inProgressCandleOffset && candlesPerBar == 1) {
+                // The in-progress candle is drawn on the live overlay.
+                inProgressCandleColumn = candleIndex;
+                continue;
+            }
+
+            if (i >= firstVisibleOffset && i <= lastVisibleOffset &&
+                    candleIndex < geometry.getNumVisibleCandles() + 2) {
+                // We don't want to draw the high/low markers off-screen, so we guard it with the above condition.
+                if (highPrices[i] > highestCandleValue) {
+                    highestCandleValue = highPrices[i];
+                    candleIndexOfHighest = candleIndex;
+                }
+
+                if (lowPrices[i] < lowestCandleValue) {
+                    lowestCandleValue = lowPrices[i];
+                    candleIndexOfLowest = candleIndex;
+                }
+            }
+
+            if (candlesPerBar == 1) {
+                if (tileCache != null) {
+                    // The candle is drawn as part of its tile.
+                    continue;
+                }
+                geometry.addCandle(shapes, candleIndex, openPrices[i], closePrices[i], highPrices[i], lowPrices[i],
+                        volumes[i], placeHolders[i], i > 0 ? closePrices[i - 1] : Double.NaN);
+                continue;
+            }
+
+            barMerger.add(candleIndex, openPrices[i], closePrices[i], highPrices[i], lowPrices[i], volumes[i],
+                    placeHolders[i]);
+        }
+        if (barMerger != null) {
+            barMerger.finish();
+        }
+
+        CandleTileCache.Tile[] tiles = null;
+        double[] tileXs = null;
+        CandleRaster raster = null;
+        if (tileCache != null) {
+            long firstTile = Math.floorDiv(firstCandleNumber + firstDrawnOffset, CandleTileCache.TILE_CANDLES);
+            long lastTile = Math.floorDiv(firstCandleNumber + lastDrawnOffset, CandleTileCache.TILE_CANDLES);
+            int numTiles = (int) ((lastTile - firstTile) + 1);
+            tiles = new CandleTileCache.Tile[numTiles];
+            tileXs = new double[numTiles];
+            // Like the candles, the tiles are ordered from newest to oldest.
+            for (int t = 0; t < numTiles; t++) {
+                long tileIndex = lastTile - t;
+                int tileStartOffset = (int) ((tileIndex * CandleTileCache.TILE_CANDLES) - firstCandleNumber);
+                int tileStartColumn = newestColumn + (lastDrawnOffset - tileStartOffset);
+                tileXs[t] = (geometry.getCanvasWidth() - (tileStartColumn * geometry.getCandleWidth())) -
+                        CandleTileCache.TILE_PADDING;
+                tiles[t] = getTile(tileIndex, tileStartOffset);
+            }
+        } else if (geometry.isRasterized()) {
+            raster = CandleRaster.rasterize(shapes, geometry, ForkJoinPool.commonPool());
+        }
+
+        // DecimalFormat is not thread-safe, so each build formats the marker labels with its own.
+        DecimalFormat markerFormat = new DecimalFormat(CandleStickChart.MARKER_PATTERN);
+        return new FrameModel(geometry, horizontalGridLines, verticalGridLines, shapes, raster, tiles, tileXs,
+                numCandles, inProgressCandleColumn, highestCandleValue, lowestCandleValue, candleIndexOfHighest,
+                candleIndexOfLowest, markerFormat.format(highestCandleValue), markerFormat.format(lowestCandleValue));
+    }
+
+    /**
+     * Looks up the tile with the given index in the tile cache, rendering it if it is not there. A tile is only
+     * cached once none of its candles can change any more: the tile that holds the newest candle (which may still be
+     * in progress) is rendered every frame, as is the tile that holds the oldest candle (as the candle before it,
+     * whose close it may open at, has not been paged in yet).
+     */
+    private CandleTileCache.Tile getTile(long tileIndex, int tileStartOffset) {
+        int tileStartIndex = copyFrom + tileStartOffset;
+        if (tileStartIndex < 1 || tileStartIndex + CandleTileCache.TILE_CANDLES > dataSize - 1) {
+            tileCacheMisses++;
+            return renderTile(tileStartOffset);
+        }
+
+        CandleTileCache.TileKey key = new CandleTileCache.TileKey(geometry, secondsPerCandle, tileIndex);
+        CandleTileCache.Tile tile = tileCache.get(key);
+        if (tile != null) {
+            tileCacheHits++;
+            return tile;
+        }
+        tileCacheMisses++;
+        tile = renderTile(tileStartOffset);
+        tileCache.put(key, tile);
+        return tile;
+    }
+
+    private CandleTileCache.Tile renderTile(int tileStartOffset) {
+        int tileCandles = CandleTileCache.TILE_CANDLES;
+        FrameGeometry tileGeometry = geometry.withCanvasWidth(CandleTileCache.TILE_PADDING +
+                (tileCandles * geometry.getCandleWidth()));
+        CandleShapes tileShapes = new CandleShapes();
+        for (int k = tileCandles - 1; k >= 0; k--) {
+            int i = tileStartOffset + k;
+            if (i < 0 || i >= openPrices.length || i == inProgressCandleOffset) {
+                continue;
+            }
+            tileGeometry.addCandle(tileShapes, tileCandles - k, openPrices[i], closePrices[i], highPrices[i],
+                    lowPrices[i], volumes[i], placeHolders[i], i > 0 ? closePrices[i - 1] : Double.NaN);
+        }
+        return new CandleTileCache.Tile(CandleRaster.rasterize(tileShapes, tileGeometry, ForkJoinPool.commonPool()));
+    }
+}
@@ -13,6 +13,7 @@ public class InProgressCandle {
     private int currentTill;
     private double lastPrice;
     private double volumeSoFar;
+    private double volumeWeightedPriceSoFar; // the sum of price * amount of the trades so far
     private boolean visible; // is the in-progress candle currently visible on screen?
     private boolean placeHolder;
 
@@ -22,7 +23,55 @@ public class InProgressCandle {
      * time passes the close time of the current in-progress candle and it needs to be added to a chart's data set.
      */
     public CandleData snapshot() {
-        return new CandleData(openPrice, lastPrice, highPriceSoFar, lowPriceSoFar, openTime, volumeSoFar);
+        return new CandleData(openPrice, lastPrice, highPriceSoFar, lowPriceSoFar, openTime, volumeSoFar,
+                (highPriceSoFar + lowPriceSoFar) / 2, getVolumeWeightedAveragePrice(), placeHolder);
+    }
+
+    /**
+     * Folds a single trade, which must have happened during this candle, into the candle in constant time. The
+     * first trade of a candle (while it is still a placeholder) sets the high and low prices, every later trade
+     * extends them.
+     */
+    public void accept(double price, double amount) {
+        if (placeHolder) {
+            highPriceSoFar = price;
+            lowPriceSoFar = price;
+            placeHolder = false;
+        } else {
+            highPriceSoFar = Math.max(highPriceSoFar, price);
+            lowPriceSoFar = Math.min(lowPriceSoFar, price);
+        }
+        volumeSoFar += amount;
+        volumeWeightedPriceSoFar += price * amount;
+        lastPrice = price;
+    }
+
+    /**
+     * Starts a new, empty (placeholder) candle at the given open time that opens at the last price of this candle.
+     */
+    public void rollOver(int newOpenTime) {
+        openTime = newOpenTime;
+        openPrice = lastPrice;
+        highPriceSoFar = lastPrice;
+        lowPriceSoFar = lastPrice;
+        volumeSoFar = 0;
+        volumeWeightedPriceSoFar = 0;
+        placeHolder = true;
+    }
+
+    /**
+     * @return the volume weighted average price of the trades so far or the last price if there have not been any
+     */
+    public double getVolumeWeightedAveragePrice() {
+        return volumeSoFar == 0 ? lastPrice : volumeWeightedPriceSoFar / volumeSoFar;
+    }
+
+    public double getVolumeWeightedPriceSoFar() {
+        return volumeWeightedPriceSoFar;
+    }
+
+    public void setVolumeWeightedPriceSoFar(double volumeWeightedPriceSoFar) {
+        this.volumeWeightedPriceSoFar = volumeWeightedPriceSoFar;
     }
 
     public int getOpenTime() {
@@ -89,6 +138,10 @@ public class InProgressCandle {
         this.visible = visible;
     }
 
+    public boolean isPlaceHolder() {
+        return placeHolder;
+    }
+
     public void setIsPlaceholder(boolean isPlaceholder) {
         this.placeHolder = isPlaceholder;
     }
@@ -96,9 +149,10 @@ public class InProgressCandle {
     @Override
     public String toString() {
         return String.format("InProgressCandle [openTime = %d, openPrice = %f, highPriceSoFar = %f, " +
-                        "lowPriceSoFar = %f, currentTill = %d, lastPrice = %f, volumeSoFar = %f, visible = %b, " +
-                        "placeHolder = %b]", openTime, openPrice, highPriceSoFar, lowPriceSoFar, currentTill,
-                lastPrice, volumeSoFar, visible, placeHolder);
+                        "lowPriceSoFar = %f, currentTill = %d, lastPrice = %f, volumeSoFar = %f, " +
+                        "volumeWeightedPriceSoFar = %f, visible = %b, placeHolder = %b]", openTime, openPrice,
+                highPriceSoFar, lowPriceSoFar, currentTill, lastPrice, volumeSoFar, volumeWeightedPriceSoFar,
+                visible, placeHolder);
     }
 
     @Override
@@ -120,6 +174,7 @@ public class InProgressCandle {
                 Objects.equals(currentTill, other.currentTill) &&
                 Objects.equals(lastPrice, other.lastPrice) &&
                 Objects.equals(volumeSoFar, other.volumeSoFar) &&
+                Objects.equals(volumeWeightedPriceSoFar, other.volumeWeightedPriceSoFar) &&
                 Objects.equals(visible, other.visible) &&
                 placeHolder == other.placeHolder;
     }
@@ -127,6 +182,6 @@ public class InProgressCandle {
     @Override
     public int hashCode() {
         return Objects.hash(openTime, openPrice, highPriceSoFar, lowPriceSoFar, currentTill, lastPrice, volumeSoFar,
-                visible, placeHolder);
+                volumeWeightedPriceSoFar, visible, placeHolder);
     }
 }
@@ -0,0 +1,121 @@
+package com.brcolow.candlefx;
+
+/**
+ * Tracks the velocity at which a chart is being dragged and, when the drag is released while the chart is still
+ * moving, keeps it moving ("flicks" it) with a velocity that decays exponentially, as if slowed down by friction.
+ * The velocity (see {@link #getVelocity(long)}) is also what the prefetching of candle data is driven by. All times
+ * are in nanoseconds (as given by {@link System#nanoTime()} or an {@code AnimationTimer}) and all distances in
+ * pixels.
+ *
+ * <p>A {@code KineticPanner} is not thread-safe, it is used only on the JavaFX application thread.
+ *
+ * @author Michael Ennen
+ */
+final class KineticPanner {
+    /**
+     * The rate (per second) at which the velocity of a flick decays.
+     */
+    private static final double FRICTION = 4;
+    /**
+     * The weight of the most recent drag in the smoothed drag velocity.
+     */
+    private static final double VELOCITY_SMOOTHING = 0.4;
+    /**
+     * The slowest (in pixels per second) that a released drag is flicked.
+     */
+    private static final double MIN_FLICK_VELOCITY = 200;
+    /**
+     * A flick stops once it has slowed down to this velocity (in pixels per second).
+     */
+    private static final double STOP_VELOCITY = 20;
+    /**
+     * If the pointer was not moved for this long before being released, the drag is not flicked.
+     */
+    static final long MAX_RELEASE_DELAY_NANOS = 100_000_000L;
+    /**
+     * The longest time step of a flick, so that a long pause between pulses does not make the chart jump.
+     */
+    private static final long MAX_STEP_NANOS = 50_000_000L;
+
+    private double dragVelocity;
+    private long lastDragNanos = -1;
+    private double flickVelocity;
+    private long lastStepNanos = -1;
+
+    /**
+     * Records that the chart was dragged by {@code dx} pixels at the given time, and stops any flick.
+     */
+    void drag(double dx, long nanos) {
+        stop();
+        if (lastDragNanos == -1 || nanos - lastDragNanos > MAX_RELEASE_DELAY_NANOS) {
+            dragVelocity = 0;
+        } else {
+            double velocity = dx / Math.max((nanos - lastDragNanos) / 1e9, 1e-3);
+            dragVelocity = (VELOCITY_SMOOTHING * velocity) + ((1 - VELOCITY_SMOOTHING) * dragVelocity);
+        }
+        lastDragNanos = nanos;
+    }
+
+    /**
+     * Releases the drag at the given time, flicking the chart if it was still being dragged fast enough.
+     *
+     * @return true if the chart was flicked (and so {@link #step(long)} should be called every pulse)
+     */
+    boolean release(long nanos) {
+        boolean flick = lastDragNanos != -1 && nanos - lastDragNanos <= MAX_RELEASE_DELAY_NANOS &&
+                Math.abs(dragVelocity) >= MIN_FLICK_VELOCITY;
+        flickVelocity = flick ? dragVelocity : 0;
+        lastStepNanos = flick ? nanos : -1;
+        dragVelocity = 0;
+        lastDragNanos = -1;
+        return flick;
+    }
+
+    /**
+     * Advances the flick to the given time.
+     *
+     * @return the number of pixels the chart moved since the last step (or since the drag was released)
+     */
+    double step(long nanos) {
+        if (!isFlicking()) {
+            return 0;
+        }
+        double seconds = Math.min(Math.max(nanos - lastStepNanos, 0), MAX_STEP_NANOS) / 1e9;
+        lastStepNanos = nanos;
+        // Integrate v(t) = v0 * e^(-FRICTION * t) exactly, so the distance does not depend on the pulse rate.
+        double decay = Math.exp(-FRICTION * seconds);
+        double distance = flickVelocity * (1 - decay) / FRICTION;
+        flickVelocity *= decay;
+        if (Math.abs(flickVelocity) < STOP_VELOCITY) {
+            stop();
+        }
+        return distance;
+    }
+
+    boolean isFlicking() {
+        return flickVelocity != 0;
+    }
+
+    /**
+     * @return the velocity (in pixels per second, positive to the right) at which the chart is moving at the given
+     * time: that of the flick, if it is being flicked, or that of the drag, unless it has not been dragged for
+     * longer than {@link #MAX_RELEASE_DELAY_NANOS}
+     */
+    double getVelocity(long nanos) {
+        if (isFlicking()) {
+            return flickVelocity;
+        }
+        if (lastDragNanos != -1 && nanos - lastDragNanos <= MAX_RELEASE_DELAY_NANOS) {
+            return dragVelocity;
+        }
+        return 0;
+    }
+
+    /**
+     * Stops the flick, if any.
+     */
+    void stop() {
+        flickVelocity = 0;
+        lastStepNanos = -1;
+    }
+}
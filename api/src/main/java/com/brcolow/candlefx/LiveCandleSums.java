@@ -0,0 +1,60 @@
+package com.brcolow.candlefx;
+
+import java.util.Objects;
+
+/**
+ * The volume and notional value (the sum of price * amount) of the live trades folded into an
+ * {@link InProgressCandle}, summed in fixed-point straight from the units of the {@link TradeSlot}s the trades are
+ * drained from. Summing the trades as doubles would accumulate a rounding error with every trade (and a candle can
+ * have many thousands of them), whereas these sums are only rounded to {@link #PRECISION} fractional digits.
+ *
+ * @author Michael Ennen
+ */
+final class LiveCandleSums {
+    /**
+     * The precision of the sums: satoshis for the volume of a crypto currency, and fractions of a millionth of a cent
+     * for the notional value, while sums up to about {@code 9.2 * 10^10} still fit in a {@code long}.
+     */
+    static final int PRECISION = 8;
+
+    private final MoneyAccumulator volume;
+    private final MoneyAccumulator notional;
+
+    LiveCandleSums(TradePair tradePair) {
+        Objects.requireNonNull(tradePair, "tradePair must not be null");
+        volume = new MoneyAccumulator(tradePair.getBaseCurrency(), PRECISION);
+        notional = new MoneyAccumulator(tradePair.getCounterCurrency(), PRECISION);
+    }
+
+    /**
+     * Folds the given trade into the candle (see {@link InProgressCandle#accept(double, double)}) and sets the
+     * volume and notional value of the candle to the sums that include it.
+     */
+    void accept(InProgressCandle candle, TradeSlot trade) {
+        volume.add(trade.getAmountUnits(), trade.getAmountScale());
+        notional.addProduct(trade.getPriceUnits(), trade.getPriceScale(), trade.getAmountUnits(),
+                trade.getAmountScale());
+        candle.accept(trade.getPrice(), trade.getAmount());
+        candle.setVolumeSoFar(volume.toDouble());
+        candle.setVolumeWeightedPriceSoFar(notional.toDouble());
+    }
+
+    /**
+     * Restarts the sums from the volume and notional value the given candle has so far, which is zero after it has
+     * been rolled over, or what it was caught up with otherwise.
+     */
+    void reset(InProgressCandle candle) {
+        volume.reset();
+        notional.reset();
+        volume.add(candle.getVolumeSoFar());
+        notional.add(candle.getVolumeWeightedPriceSoFar());
+    }
+
+    Money getVolume() {
+        return volume.toMoney();
+    }
+
+    Money getNotional() {
+        return notional.toMoney();
+    }
+}
@@ -7,4 +7,16 @@ import java.util.List;
  */
 public interface LiveTradesConsumer {
     void acceptTrades(List<Trade> trades);
+
+    /**
+     * Returns the ring buffer that this consumer reads live trades from, if it has one. An
+     * {@link ExchangeWebSocketClient} can publish trades directly into it (without allocating a {@code Trade}
+     * or a {@code List} per trade) instead of calling {@link #acceptTrades(List)}.
+     *
+     * @return the consumer's {@code TradeRingBuffer} or {@code null} if trades must be passed to
+     * {@link #acceptTrades(List)}
+     */
+    default TradeRingBuffer getTradeRingBuffer() {
+        return null;
+    }
 }
@@ -0,0 +1,205 @@
+package com.brcolow.candlefx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Reads the lines of a file in reverse (starting at the last line) like {@link ReversedLinesFileReader}, but
+ * without allocating anything per line. The file is memory-mapped, one window at a time, and each line is handed
+ * out as a {@link Line} - a reusable view of the bytes of the line in the mapped window - that is only valid until
+ * the next call to {@link #readLine()}.
+ *
+ * <p>Lines are separated by "\n" or "\r\n" and must be encoded in a single-byte, ASCII-compatible charset (as the
+ * raw trade data CSV files exchanges publish are). The bytes of a line can be parsed directly with
+ * {@link Line#parseInt(int, int)} and {@link Line#parseDouble(int, int)}.
+ *
+ * @author Michael Ennen
+ */
+public class MappedReversedLinesReader implements Closeable {
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int windowSize;
+    private final Line line = new Line();
+    private MappedByteBuffer window;
+    private long windowStart;
+    /**
+     * The file offset (exclusive) of the end of the next line to read, or -1 once the first line has been read.
+     */
+    private long position;
+
+    public MappedReversedLinesReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a new {@code MappedReversedLinesReader}.
+     *
+     * @param file the file to read
+     * @param windowSize the number of bytes of the file that are mapped at once, no line may be longer than this
+     */
+    public MappedReversedLinesReader(Path file, int windowSize) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive but was: " + windowSize);
+        }
+        this.file = file;
+        this.windowSize = windowSize;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        long size = channel.size();
+        position = size == 0 ? -1 : size;
+        windowStart = size;
+        // Like BufferedReader, a trailing newline does not start an (empty) last line.
+        if (size > 0 && byteAt(size - 1) == '\n') {
+            position = size - 1;
+        }
+    }
+
+    /**
+     * Returns the lines of the file from bottom to top.
+     *
+     * @return a view of the next line, which is reused by the next call, or {@code null} if the start of the file
+     * has been reached
+     * @throws IOException if an I/O error occurs or a line is longer than the window size
+     */
+    public Line readLine() throws IOException {
+        if (position < 0) {
+            return null;
+        }
+
+        long end = position;
+        long newline = end - 1;
+        while (newline >= 0 && byteAt(newline) != '\n') {
+            newline--;
+            if (newline >= 0 && newline < windowStart) {
+                // The line continues before the mapped window, so move the window back to end with the line.
+                if (end - newline > windowSize) {
+                    throw new IOException("line ending at offset " + end + " of " + file + " is longer than " +
+                            "the window size: " + windowSize);
+                }
+                map(end);
+            }
+        }
+        if (newline + 1 < windowStart) {
+            map(end);
+        }
+        position = newline;
+
+        if (end > newline + 1 && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        line.set((int) (newline + 1 - windowStart), (int) (end - windowStart));
+        return line;
+    }
+
+    private byte byteAt(long offset) throws IOException {
+        if (offset < windowStart || offset >= windowStart + window.limit()) {
+            map(offset + 1);
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    /**
+     * Maps the window of the file that ends at the given (exclusive) offset.
+     */
+    private void map(long end) throws IOException {
+        windowStart = Math.max(0, end - windowSize);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, end - windowStart);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A view of the bytes of one line of the file. Each byte is one character.
+     */
+    public final class Line implements CharSequence {
+        private int from;
+        private int to;
+
+        private Line() {}
+
+        private void set(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (byteAt(index) & 0xFF);
+        }
+
+        public byte byteAt(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + (to - from));
+            }
+            return window.get(from + index);
+        }
+
+        /**
+         * @return the index of the first occurrence of the given character at or after {@code fromIndex}, or -1 if
+         * there is none
+         */
+        public int indexOf(char c, int fromIndex) {
+            for (int i = Math.max(0, fromIndex); i < to - from; i++) {
+                if (window.get(from + i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Parses the characters in the range {@code [fromIndex, toIndex)} as a (possibly signed) decimal int.
+         *
+         * @throws NumberFormatException if the characters are not a valid int
+         */
+        public int parseInt(int fromIndex, int toIndex) {
+            checkRange(fromIndex, toIndex);
+            return AsciiNumbers.parseInt(window, from + fromIndex, from + toIndex);
+        }
+
+        /**
+         * Parses the characters in the range {@code [fromIndex, toIndex)} as a decimal double. Plain decimals with
+         * up to 15 significant digits (such as prices and amounts) are parsed without allocating, with the same
+         * result as {@link Double#parseDouble(String)}; anything else is handed to it.
+         *
+         * @throws NumberFormatException if the characters are not a valid double
+         */
+        public double parseDouble(int fromIndex, int toIndex) {
+            checkRange(fromIndex, toIndex);
+            return AsciiNumbers.parseDouble(window, from + fromIndex, from + toIndex);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            checkRange(start, end);
+            return AsciiNumbers.toString(window, from + start, from + end);
+        }
+
+        private void checkRange(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > to - from || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex +
+                        ", length: " + (to - from));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.brcolow.candlefx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import javafx.beans.property.SimpleIntegerProperty;
+
+/**
+ * Supplies pages of candle data aggregated from the trades in a memory-mapped {@link BinaryTradeArchive}. This is
+ * the binary counterpart of {@link ReverseRawTradeDataProcessor}: instead of reading and parsing a CSV file
+ * backwards, the trades of each candle are found by binary-searching the archive for the candle's time range and
+ * then aggregated straight from the mapped records.
+ *
+ * <p>The first page ends with the candle that contains the newest trade in the archive.
+ *
+ * @author Michael Ennen
+ */
+public class MappedTradeDataSupplier extends CandleDataSupplier {
+    private final BinaryTradeArchive archive;
+
+    public MappedTradeDataSupplier(BinaryTradeArchive archive, int secondsPerCandle, TradePair tradePair) {
+        super(200, secondsPerCandle, tradePair, new SimpleIntegerProperty(-1));
+        this.archive = Objects.requireNonNull(archive, "archive must not be null");
+    }
+
+    @Override
+    public Future<List<CandleData>> get() {
+        if (archive.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        if (endTime.get() == -1) {
+            int newestTimestamp = archive.getTimestamp(archive.size() - 1);
+            endTime.set((Math.floorDiv(newestTimestamp, secondsPerCandle) + 1) * secondsPerCandle);
+        }
+
+        int pageEndTime = endTime.get();
+        int pageStartTime = pageEndTime - (numCandles * secondsPerCandle);
+        endTime.set(pageStartTime);
+
+        List<CandleData> candleData = new ArrayList<>(numCandles);
+        long from = archive.lowerBound(pageStartTime);
+        for (int openTime = pageStartTime; openTime < pageEndTime; openTime += secondsPerCandle) {
+            long to = archive.lowerBound(openTime + secondsPerCandle);
+            if (from == to) {
+                // No trades occurred during this candle, it is priced at the last trade before it (if any).
+                if (from > 0) {
+                    double lastPrice = archive.getPrice(from - 1);
+                    candleData.add(new CandleData(lastPrice, lastPrice, lastPrice, lastPrice, openTime, 0, 0, 0,
+                            true));
+                }
+            } else {
+                candleData.add(aggregate(openTime, from, to));
+            }
+            from = to;
+        }
+        return CompletableFuture.completedFuture(candleData);
+    }
+
+    /**
+     * Aggregates the trades with indices in the range {@code [from, to)} into a candle.
+     */
+    private CandleData aggregate(int openTime, long from, long to) {
+        double open = archive.getPrice(from);
+        double high = open;
+        double low = open;
+        double priceTotal = 0;
+        double volume = 0;
+        double volumeWeightedPriceTotal = 0;
+        for (long i = from; i < to; i++) {
+            double price = archive.getPrice(i);
+            double amount = archive.getAmount(i);
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+            priceTotal += price;
+            volume += amount;
+            volumeWeightedPriceTotal += price * amount;
+        }
+        return new CandleData(open, archive.getPrice(to - 1), high, low, openTime, volume, priceTotal / (to - from),
+                volume == 0 ? 0 : volumeWeightedPriceTotal / volume, false);
+    }
+}
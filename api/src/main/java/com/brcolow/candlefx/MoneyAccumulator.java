@@ -0,0 +1,255 @@
+package com.brcolow.candlefx;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * A mutable sum of monetary amounts in a single currency, for summing volumes, fees or notional values across many
+ * trades without creating garbage (unlike {@link Money#plus(Money)}, which creates a new {@code Money} for every
+ * sum). The sum is kept, like a {@link FastMoney}, as a {@code long} count of units of {@code 10^-precision}, and
+ * is only converted to an immutable {@code Money} at the end (see {@link #toMoney()}).
+ *
+ * <p>Amounts with more fractional digits than the precision of the accumulator are rounded (half-even) to it, so
+ * the precision should be chosen to suit what is being summed (for example more than the fractional digits of the
+ * currency when summing notional values, which are products of prices and amounts). Should the sum ever overflow a
+ * {@code long} the accumulator continues with a {@code BigDecimal}, which is exact but allocates.
+ *
+ * <p>A {@code MoneyAccumulator} is not thread-safe.
+ *
+ * @author Michael Ennen
+ */
+public final class MoneyAccumulator {
+    private final Currency currency;
+    private final int precision;
+    private long units;
+    /**
+     * The sum once it no longer fits in {@code units}, or {@code null} while it does.
+     */
+    private BigDecimal overflowedSum;
+
+    /**
+     * Creates a new {@code MoneyAccumulator} with the precision of the fractional digits of the given currency.
+     */
+    public MoneyAccumulator(Currency currency) {
+        this(currency, Objects.requireNonNull(currency, "currency must not be null").getFractionalDigits());
+    }
+
+    public MoneyAccumulator(Currency currency, int precision) {
+        Objects.requireNonNull(currency, "currency must not be null");
+        FastMoney.Utils.checkPrecision(precision);
+        this.currency = currency;
+        this.precision = precision;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Adds the given amount, which must be in the currency of this accumulator.
+     *
+     * @return this accumulator
+     */
+    public MoneyAccumulator add(Money money) {
+        checkCurrency(money);
+        if (money instanceof FastMoney) {
+            FastMoney fastMoney = (FastMoney) money;
+            return add(fastMoney.getUnscaledAmount(), fastMoney.getPrecision());
+        }
+        return addDecimal(money.toBigDecimal());
+    }
+
+    /**
+     * Subtracts the given amount, which must be in the currency of this accumulator.
+     *
+     * @return this accumulator
+     */
+    public MoneyAccumulator subtract(Money money) {
+        checkCurrency(money);
+        if (money instanceof FastMoney) {
+            FastMoney fastMoney = (FastMoney) money;
+            if (fastMoney.getUnscaledAmount() != Long.MIN_VALUE) {
+                return add(-fastMoney.getUnscaledAmount(), fastMoney.getPrecision());
+            }
+        }
+        return addDecimal(money.toBigDecimal().negate());
+    }
+
+    /**
+     * Adds the amount {@code unscaledAmount * 10^-scale}.
+     *
+     * @return this accumulator
+     */
+    public MoneyAccumulator add(long unscaledAmount, int scale) {
+        if (overflowedSum != null) {
+            return addOverflowed(BigDecimal.valueOf(unscaledAmount, scale));
+        }
+        long addend;
+        if (scale == precision) {
+            addend = unscaledAmount;
+        } else if (scale > precision) {
+            if (scale - precision > FastMoney.Utils.MAX_ALLOWED_PRECISION) {
+                return addOverflowed(BigDecimal.valueOf(unscaledAmount, scale));
+            }
+            addend = divideHalfEven(unscaledAmount, FastMoney.Utils.MULTIPLIERS[scale - precision]);
+        } else {
+            if (precision - scale > FastMoney.Utils.MAX_ALLOWED_PRECISION) {
+                return addOverflowed(BigDecimal.valueOf(unscaledAmount, scale));
+            }
+            long multiplier = FastMoney.Utils.MULTIPLIERS[precision - scale];
+            addend = unscaledAmount * multiplier;
+            if (Math.multiplyHigh(unscaledAmount, multiplier) != (addend >> 63)) {
+                return addOverflowed(BigDecimal.valueOf(unscaledAmount, scale));
+            }
+        }
+        return addUnits(addend);
+    }
+
+    /**
+     * Adds the given amount, rounded (half-even) to the precision of this accumulator.
+     *
+     * @return this accumulator
+     */
+    public MoneyAccumulator add(double amount) {
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException("amount must be finite but was: " + amount);
+        }
+        double scaled = amount * FastMoney.Utils.MULTIPLIERS[precision];
+        if (overflowedSum != null || Math.abs(scaled) >= 0x1p62) {
+            return addOverflowed(new BigDecimal(amount));
+        }
+        return addUnits((long) Math.rint(scaled));
+    }
+
+    /**
+     * Adds the product of the given price (which must be in the currency of this accumulator) and amount, which is
+     * the notional value of a trade of {@code amount} at {@code price}.
+     *
+     * @return this accumulator
+     */
+    public MoneyAccumulator addProduct(Money price, Money amount) {
+        checkCurrency(price);
+        Objects.requireNonNull(amount, "amount must not be null");
+        if (price instanceof FastMoney && amount instanceof FastMoney) {
+            FastMoney fastPrice = (FastMoney) price;
+            FastMoney fastAmount = (FastMoney) amount;
+            return addProduct(fastPrice.getUnscaledAmount(), fastPrice.getPrecision(),
+                    fastAmount.getUnscaledAmount(), fastAmount.getPrecision());
+        }
+        return addDecimal(price.toBigDecimal().multiply(amount.toBigDecimal()));
+    }
+
+    /**
+     * Adds the product of the price {@code priceUnits * 10^-priceScale} and the amount
+     * {@code amountUnits * 10^-amountScale} (such as those held by a {@link TradeSlot}), which is the notional value
+     * of a trade of that amount at that price.
+     *
+     * @return this accumulator
+     */
+    public MoneyAccumulator addProduct(long priceUnits, int priceScale, long amountUnits, int amountScale) {
+        if (overflowedSum == null) {
+            long product = priceUnits * amountUnits;
+            if (Math.multiplyHigh(priceUnits, amountUnits) == (product >> 63)) {
+                return add(product, priceScale + amountScale);
+            }
+        }
+        return addDecimal(BigDecimal.valueOf(priceUnits, priceScale).multiply(
+                BigDecimal.valueOf(amountUnits, amountScale)));
+    }
+
+    /**
+     * Adds the product of the given price and amount, rounded (half-even) to the precision of this accumulator.
+     *
+     * @return this accumulator
+     */
+    public MoneyAccumulator addProduct(double price, double amount) {
+        return add(price * amount);
+    }
+
+    /**
+     * Resets the sum to zero, so that this accumulator can be reused.
+     */
+    public void reset() {
+        units = 0;
+        overflowedSum = null;
+    }
+
+    public boolean isZero() {
+        return overflowedSum == null ? units == 0 : overflowedSum.signum() == 0;
+    }
+
+    public double toDouble() {
+        return overflowedSum == null ? ((double) units) / FastMoney.Utils.MULTIPLIERS[precision] :
+                overflowedSum.doubleValue();
+    }
+
+    /**
+     * @return the sum as an immutable {@code Money}: a {@code FastMoney}, unless the sum overflowed a {@code long}
+     */
+    public Money toMoney() {
+        if (overflowedSum == null) {
+            return FastMoney.ofUnscaled(units, currency, precision);
+        }
+        return new DefaultMoney(overflowedSum, currency);
+    }
+
+    private MoneyAccumulator addUnits(long addend) {
+        long sum = units + addend;
+        // The sum overflowed if both operands have the same sign and the sum has the other one.
+        if (((units ^ sum) & (addend ^ sum)) < 0) {
+            overflowedSum = BigDecimal.valueOf(units, precision).add(BigDecimal.valueOf(addend, precision));
+        } else {
+            units = sum;
+        }
+        return this;
+    }
+
+    private MoneyAccumulator addDecimal(BigDecimal addend) {
+        BigDecimal rounded = addend.setScale(precision, RoundingMode.HALF_EVEN);
+        if (overflowedSum == null && rounded.unscaledValue().bitLength() < Long.SIZE) {
+            return addUnits(rounded.unscaledValue().longValue());
+        }
+        return addOverflowed(rounded);
+    }
+
+    private MoneyAccumulator addOverflowed(BigDecimal addend) {
+        if (overflowedSum == null) {
+            overflowedSum = BigDecimal.valueOf(units, precision);
+        }
+        // Rounded like the addends of the long sum, so that the result does not depend on whether it overflowed.
+        overflowedSum = overflowedSum.add(addend.setScale(precision, RoundingMode.HALF_EVEN));
+        return this;
+    }
+
+    private void checkCurrency(Money money) {
+        Objects.requireNonNull(money, "money must not be null");
+        if (!currency.equals(money.getCurrency())) {
+            throw new IllegalArgumentException("can not accumulate money in currency: " + money.getCurrency() +
+                    " with money in currency: " + currency);
+        }
+    }
+
+    /**
+     * @return {@code dividend / divisor} rounded half-even
+     */
+    private static long divideHalfEven(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend - (quotient * divisor);
+        long twiceRemainder = Math.abs(remainder) * 2;
+        if (twiceRemainder > divisor || (twiceRemainder == divisor && (quotient & 1) != 0)) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MoneyAccumulator [currency = %s, precision = %d, sum = %s]", currency, precision,
+                overflowedSum == null ? BigDecimal.valueOf(units, precision) : overflowedSum);
+    }
+}
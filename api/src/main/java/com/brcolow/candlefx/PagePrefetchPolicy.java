@@ -0,0 +1,98 @@
+package com.brcolow.candlefx;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Decides how many pages of candle data a {@link CandleDataPager} should fetch ahead of the viewport of a chart
+ * that is being panned back in time, so that the data is usually already there by the time the user pans to it.
+ *
+ * <p>The faster the user pans, the further ahead pages are fetched: enough candles are requested for the user to
+ * keep panning at their current velocity for the {@code lookAhead} duration. This is bounded both by the
+ * {@code depth} (the most pages that will be held, or be in-flight, ahead of the viewport) and by
+ * {@code maxInFlight} (the most page requests that may be outstanding at once).
+ *
+ * @author Michael Ennen
+ */
+public final class PagePrefetchPolicy {
+    /**
+     * A policy that never prefetches (so pages are only fetched once the user pans past the candle data that has
+     * been fetched so far).
+     */
+    public static final PagePrefetchPolicy NONE = new PagePrefetchPolicy(0, 0, Duration.ZERO);
+    public static final PagePrefetchPolicy DEFAULT = new PagePrefetchPolicy(3, 2, Duration.ofSeconds(2));
+
+    private final int depth;
+    private final int maxInFlight;
+    private final Duration lookAhead;
+
+    /**
+     * Creates a new {@code PagePrefetchPolicy}.
+     *
+     * @param depth the maximum number of pages to fetch ahead of the viewport
+     * @param maxInFlight the maximum number of page requests that may be outstanding at once
+     * @param lookAhead how far ahead, in panning time, candle data should be fetched
+     */
+    public PagePrefetchPolicy(int depth, int maxInFlight, Duration lookAhead) {
+        Objects.requireNonNull(lookAhead, "lookAhead must not be null");
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative but was: " + depth);
+        }
+        if (maxInFlight < 0) {
+            throw new IllegalArgumentException("maxInFlight must not be negative but was: " + maxInFlight);
+        }
+        if (lookAhead.isNegative()) {
+            throw new IllegalArgumentException("lookAhead must not be negative but was: " + lookAhead);
+        }
+        this.depth = depth;
+        this.maxInFlight = maxInFlight;
+        this.lookAhead = lookAhead;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Duration getLookAhead() {
+        return lookAhead;
+    }
+
+    /**
+     * Returns the number of additional pages that should be requested.
+     *
+     * @param candlesAhead the number of candles that have already been fetched to the left of the viewport
+     * @param candlesPerSecond the velocity at which the viewport is being panned back in time (which is zero or
+     * negative if it is not being panned back in time)
+     * @param candlesPerPage the number of candles in each page
+     * @param pagesInFlight the number of page requests that are currently outstanding
+     */
+    public int getPagesToFetch(int candlesAhead, double candlesPerSecond, int candlesPerPage, int pagesInFlight) {
+        if (candlesPerPage <= 0) {
+            throw new IllegalArgumentException("candlesPerPage must be positive but was: " + candlesPerPage);
+        }
+        if (candlesPerSecond <= 0) {
+            return 0;
+        }
+
+        double wantedCandlesAhead = candlesPerSecond * (lookAhead.toMillis() / 1000d);
+        double missingCandles = wantedCandlesAhead - Math.max(0, candlesAhead) -
+                ((double) pagesInFlight * candlesPerPage);
+        if (missingCandles <= 0) {
+            return 0;
+        }
+
+        int pages = (int) Math.ceil(missingCandles / candlesPerPage);
+        int pagesAhead = (Math.max(0, candlesAhead) / candlesPerPage) + pagesInFlight;
+        return Math.max(0, Math.min(pages, Math.min(maxInFlight - pagesInFlight, depth - pagesAhead)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PagePrefetchPolicy [depth = %d, maxInFlight = %d, lookAhead = %s]", depth, maxInFlight,
+                lookAhead);
+    }
+}
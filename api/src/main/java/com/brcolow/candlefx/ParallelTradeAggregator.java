@@ -0,0 +1,220 @@
+package com.brcolow.candlefx;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates a whole raw trade data CSV file (where each line is "timestamp,price,amount") into candles on every
+ * core, using fork/join.
+ *
+ * <p>The file is split into chunks of (about) {@code chunkBytes} bytes whose boundaries are moved forward to the
+ * start of the next line, so every line belongs to exactly one chunk. Each chunk is memory-mapped and aggregated by
+ * a separate task into a {@link CandleAccumulator} per candle, and the partial accumulators of neighbouring
+ * chunks are then merged pairwise. Because merging accumulators is associative (and the lines do not even need to
+ * be in order) the result is the same as aggregating the file sequentially.
+ *
+ * @author Michael Ennen
+ */
+public final class ParallelTradeAggregator {
+    private static final long DEFAULT_CHUNK_BYTES = 16 * 1024 * 1024;
+    private static final long MAX_CHUNK_BYTES = 1 << 30;
+
+    private final ForkJoinPool pool;
+    private final long chunkBytes;
+
+    public ParallelTradeAggregator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Creates a new {@code ParallelTradeAggregator}.
+     *
+     * @param pool the pool whose threads aggregate the chunks
+     * @param chunkBytes the (approximate) number of bytes of the file each task aggregates
+     */
+    public ParallelTradeAggregator(ForkJoinPool pool, long chunkBytes) {
+        Objects.requireNonNull(pool, "pool must not be null");
+        if (chunkBytes <= 0 || chunkBytes > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("chunkBytes must be in (0, " + MAX_CHUNK_BYTES + "] but was: " +
+                    chunkBytes);
+        }
+        this.pool = pool;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Aggregates the trades in the given raw trade data file into candles of the given duration.
+     *
+     * @return the candles in which at least one trade happened, in ascending order by open time
+     * @throws IllegalArgumentException if the raw trade data is malformed
+     */
+    public List<CandleData> aggregate(Path rawTradeData, int secondsPerCandle) throws IOException {
+        Objects.requireNonNull(rawTradeData, "rawTradeData must not be null");
+        if (secondsPerCandle <= 0) {
+            throw new IllegalArgumentException("secondsPerCandle must be positive but was: " + secondsPerCandle);
+        }
+
+        Map<Integer, CandleAccumulator> accumulators;
+        try (FileChannel channel = FileChannel.open(rawTradeData, StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel);
+            try {
+                accumulators = pool.invoke(new AggregateTask(channel, boundaries, 0, boundaries.length - 1,
+                        secondsPerCandle));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        List<Integer> openTimes = new ArrayList<>(accumulators.keySet());
+        openTimes.sort(null);
+        List<CandleData> candleData = new ArrayList<>(openTimes.size());
+        for (int openTime : openTimes) {
+            candleData.add(accumulators.get(openTime).toCandleData());
+        }
+        return candleData;
+    }
+
+    /**
+     * @return the file offsets at which chunks start, followed by the size of the file
+     */
+    private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long boundary = chunkBytes;
+        while (boundary < size) {
+            // Move the boundary forward to just after the next newline.
+            long lineStart = -1;
+            long position = boundary;
+            while (lineStart == -1 && position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineStart = position + i + 1;
+                        break;
+                    }
+                }
+                position += read;
+            }
+            if (lineStart == -1 || lineStart >= size) {
+                break;
+            }
+            boundaries.add(lineStart);
+            boundary = lineStart + chunkBytes;
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class AggregateTask extends RecursiveTask<Map<Integer, CandleAccumulator>> {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int fromChunk;
+        private final int toChunk;
+        private final int secondsPerCandle;
+
+        AggregateTask(FileChannel channel, long[] boundaries, int fromChunk, int toChunk, int secondsPerCandle) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.secondsPerCandle = secondsPerCandle;
+        }
+
+        @Override
+        protected Map<Integer, CandleAccumulator> compute() {
+            if (toChunk - fromChunk <= 1) {
+                try {
+                    return aggregateChunk(boundaries[fromChunk], boundaries[toChunk]);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+
+            int middleChunk = (fromChunk + toChunk) >>> 1;
+            AggregateTask older = new AggregateTask(channel, boundaries, fromChunk, middleChunk, secondsPerCandle);
+            AggregateTask newer = new AggregateTask(channel, boundaries, middleChunk, toChunk, secondsPerCandle);
+            newer.fork();
+            Map<Integer, CandleAccumulator> result = older.compute();
+            Map<Integer, CandleAccumulator> newerResult = newer.join();
+            // Merge the smaller map into the larger one.
+            if (newerResult.size() > result.size()) {
+                Map<Integer, CandleAccumulator> swap = result;
+                result = newerResult;
+                newerResult = swap;
+            }
+            for (CandleAccumulator accumulator : newerResult.values()) {
+                result.merge(accumulator.getOpenTime(), accumulator, CandleAccumulator::merge);
+            }
+            return result;
+        }
+
+        private Map<Integer, CandleAccumulator> aggregateChunk(long from, long to) throws IOException {
+            Map<Integer, CandleAccumulator> accumulators = new HashMap<>();
+            if (from == to) {
+                return accumulators;
+            }
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            int length = chunk.limit();
+            CandleAccumulator accumulator = null;
+            int lineStart = 0;
+            while (lineStart < length) {
+                int lineEnd = lineStart;
+                int firstComma = -1;
+                int secondComma = -1;
+                int commas = 0;
+                while (lineEnd < length && chunk.get(lineEnd) != '\n') {
+                    if (chunk.get(lineEnd) == ',') {
+                        if (commas == 0) {
+                            firstComma = lineEnd;
+                        } else if (commas == 1) {
+                            secondComma = lineEnd;
+                        }
+                        commas++;
+                    }
+                    lineEnd++;
+                }
+                int nextLineStart = lineEnd + 1;
+                if (lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+
+                if (lineEnd > lineStart) {
+                    if (commas != 2) {
+                        throw new IllegalArgumentException("raw trade data malformed at offset " +
+                                (from + lineStart) + ": " + AsciiNumbers.toString(chunk, lineStart, lineEnd));
+                    }
+                    int timestamp = AsciiNumbers.parseInt(chunk, lineStart, firstComma);
+                    double price = AsciiNumbers.parseDouble(chunk, firstComma + 1, secondComma);
+                    double amount = AsciiNumbers.parseDouble(chunk, secondComma + 1, lineEnd);
+
+                    int openTime = Math.floorDiv(timestamp, secondsPerCandle) * secondsPerCandle;
+                    if (accumulator == null || accumulator.getOpenTime() != openTime) {
+                        accumulator = accumulators.computeIfAbsent(openTime, CandleAccumulator::new);
+                    }
+                    // The offset of the line orders trades with the same timestamp.
+                    accumulator.accept(timestamp, from + lineStart, price, amount);
+                }
+                lineStart = nextLineStart;
+            }
+            return accumulators;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.brcolow.candlefx;
+
+import java.util.Arrays;
+
+/**
+ * An index over two columns of values that answers "what is the minimum of the first column and the maximum of
+ * the second column for the positions in the range [from, to)?" in {@literal O(log n)} time, for any range size.
+ * For example, given the low prices as the first column and the high prices as the second column of a range of
+ * candles, the extrema are the lowest low and highest high of those candles (which is exactly what is needed to
+ * compute the y-axis bounds of the chart).
+ *
+ * <p>The index is implemented as a pair of (iterative, bottom-up) segment trees, one for the minimum and one for
+ * the maximum. The leaves of the trees are stored in {@code [capacity, 2 * capacity)} and the parent of the node
+ * at {@code i} is at {@code i / 2}. Positions that have no value are treated as the identity element, i.e.
+ * {@code +Infinity} for the minimum and {@code -Infinity} for the maximum.
+ *
+ * <p>This class is not thread-safe - it is guarded by its owning {@link CandleSeries}.
+ *
+ * @author Michael Ennen
+ */
+public final class RangeExtremaIndex {
+    private final int capacity;
+    private final double[] min;
+    private final double[] max;
+
+    public RangeExtremaIndex(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was: " + capacity);
+        }
+        this.capacity = capacity;
+        min = new double[2 * capacity];
+        max = new double[2 * capacity];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Rebuilds the whole index in {@literal O(n)} time from the given columns. Positions in the range
+     * {@code [from, to)} take their values from the columns and all other positions are cleared.
+     */
+    public void build(double[] minColumn, double[] maxColumn, int from, int to) {
+        if (minColumn.length < capacity || maxColumn.length < capacity) {
+            throw new IllegalArgumentException("columns must have a length of at least " + capacity);
+        }
+        Arrays.fill(min, capacity, 2 * capacity, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, capacity, 2 * capacity, Double.NEGATIVE_INFINITY);
+        System.arraycopy(minColumn, from, min, capacity + from, to - from);
+        System.arraycopy(maxColumn, from, max, capacity + from, to - from);
+        for (int i = capacity - 1; i > 0; i--) {
+            min[i] = Math.min(min[2 * i], min[(2 * i) + 1]);
+            max[i] = Math.max(max[2 * i], max[(2 * i) + 1]);
+        }
+    }
+
+    /**
+     * Sets the values at the given position in {@literal O(log n)} time, updating only the nodes that cover it.
+     */
+    public void set(int position, double minValue, double maxValue) {
+        if (position < 0 || position >= capacity) {
+            throw new IndexOutOfBoundsException("position: " + position + ", capacity: " + capacity);
+        }
+        int node = position + capacity;
+        min[node] = minValue;
+        max[node] = maxValue;
+        for (node >>= 1; node > 0; node >>= 1) {
+            min[node] = Math.min(min[2 * node], min[(2 * node) + 1]);
+            max[node] = Math.max(max[2 * node], max[(2 * node) + 1]);
+        }
+    }
+
+    /**
+     * @return the minimum of the first column in the range {@code [from, to)} or {@code +Infinity} if the range is
+     * empty
+     */
+    public double getMin(int from, int to) {
+        checkRange(from, to);
+        double result = Double.POSITIVE_INFINITY;
+        for (int left = from + capacity, right = to + capacity; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                result = Math.min(result, min[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = Math.min(result, min[--right]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the maximum of the second column in the range {@code [from, to)} or {@code -Infinity} if the range is
+     * empty
+     */
+    public double getMax(int from, int to) {
+        checkRange(from, to);
+        double result = Double.NEGATIVE_INFINITY;
+        for (int left = from + capacity, right = to + capacity; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                result = Math.max(result, max[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = Math.max(result, max[--right]);
+            }
+        }
+        return result;
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > capacity || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", capacity: " + capacity);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.brcolow.candlefx;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Coalesces requests to repaint a chart so that it is repainted at most once per JavaFX pulse. Instead of
+ * painting directly, callers (from any thread) call {@link #requestRender()}, which just marks the chart as dirty.
+ * An {@link AnimationTimer} then runs the render callback, on the JavaFX application thread, on the next pulse
+ * if the chart is dirty. This means that a burst of mouse drags or live updates within a single frame results in
+ * only one repaint.
+ *
+ * <p>Requests are made at a {@link DirtyLevel}: a request to repaint only the live overlay (the in-progress
+ * candle) is satisfied by the cheaper {@link DirtyLevel#LIVE} repaint unless a {@link DirtyLevel#FULL} repaint has
+ * also been requested during the same pulse, in which case one full repaint is done.
+ *
+ * <p>The timer only runs while there is something to render - it is started by the first request after the chart
+ * becomes clean and it stops itself once a pulse passes with no new requests, so an idle chart costs nothing.
+ *
+ * <p>The number of requested frames and the number of frames that were actually rendered are counted, the ratio
+ * between them being a measure of how much work the coalescing is saving. How long each render takes can be
+ * observed by setting a {@link #setRenderTimeListener(LongConsumer) render time listener}.
+ *
+ * @author Michael Ennen
+ */
+public final class RenderScheduler {
+    private final Consumer<DirtyLevel> renderer;
+    /**
+     * Starts running {@link #pulse()} on every pulse, it is called by the first request after the chart becomes
+     * clean.
+     */
+    private final Runnable pulseStarter;
+    private final AtomicReference<DirtyLevel> dirtyLevel = new AtomicReference<>(DirtyLevel.CLEAN);
+    private final AtomicLong requestedFrames = new AtomicLong();
+    private final AtomicLong renderedFrames = new AtomicLong();
+    private volatile LongConsumer renderTimeListener;
+
+    /**
+     * Creates a new {@code RenderScheduler}.
+     *
+     * @param renderer the callback that repaints the parts of the chart described by the given dirty level (never
+     * {@link DirtyLevel#CLEAN}), it is always called on the JavaFX application thread
+     */
+    public RenderScheduler(Consumer<DirtyLevel> renderer) {
+        this.renderer = Objects.requireNonNull(renderer, "renderer must not be null");
+        AnimationTimer timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (!pulse()) {
+                    // Nothing was requested since the last pulse. Any later request will start the timer again.
+                    stop();
+                }
+            }
+        };
+        pulseStarter = () -> {
+            if (Platform.isFxApplicationThread()) {
+                timer.start();
+            } else {
+                Platform.runLater(timer::start);
+            }
+        };
+    }
+
+    /**
+     * Creates a new {@code RenderScheduler} whose pulses are driven by calling {@link #pulse()} rather than by an
+     * {@code AnimationTimer}.
+     *
+     * @param pulseStarter called by the first request after the chart becomes clean, to start the pulses
+     */
+    RenderScheduler(Consumer<DirtyLevel> renderer, Runnable pulseStarter) {
+        this.renderer = Objects.requireNonNull(renderer, "renderer must not be null");
+        this.pulseStarter = Objects.requireNonNull(pulseStarter, "pulseStarter must not be null");
+    }
+
+    /**
+     * Marks the whole chart as needing to be repainted on the next pulse. This method can be called from any thread.
+     */
+    public void requestRender() {
+        requestRender(DirtyLevel.FULL);
+    }
+
+    /**
+     * Marks the given parts of the chart as needing to be repainted on the next pulse. This method can be called
+     * from any thread.
+     */
+    public void requestRender(DirtyLevel level) {
+        Objects.requireNonNull(level, "level must not be null");
+        if (level == DirtyLevel.CLEAN) {
+            throw new IllegalArgumentException("level must not be CLEAN");
+        }
+        requestedFrames.incrementAndGet();
+        DirtyLevel previousLevel = dirtyLevel.getAndAccumulate(level,
+                (current, requested) -> current.compareTo(requested) >= 0 ? current : requested);
+        if (previousLevel != DirtyLevel.CLEAN) {
+            // A render is already pending, this request will be satisfied by it.
+            return;
+        }
+
+        pulseStarter.run();
+    }
+
+    /**
+     * Renders the chart at the level it has been marked dirty at since the last pulse, if any, and marks it clean.
+     * This is called on the JavaFX application thread on every pulse while there is something to render.
+     *
+     * @return true if the chart was rendered, false if it was clean
+     */
+    boolean pulse() {
+        DirtyLevel level = dirtyLevel.getAndSet(DirtyLevel.CLEAN);
+        if (level == DirtyLevel.CLEAN) {
+            return false;
+        }
+        renderedFrames.incrementAndGet();
+        LongConsumer listener = renderTimeListener;
+        if (listener == null) {
+            renderer.accept(level);
+        } else {
+            long start = System.nanoTime();
+            renderer.accept(level);
+            listener.accept(System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of times a render has been requested
+     */
+    public long getRequestedFrameCount() {
+        return requestedFrames.get();
+    }
+
+    /**
+     * @return the number of times the chart has actually been rendered
+     */
+    public long getRenderedFrameCount() {
+        return renderedFrames.get();
+    }
+
+    /**
+     * Sets the listener that is told how long (in nanoseconds) each render took. The time is that spent by the
+     * render callback on the JavaFX application thread, which does not include the time Prism then takes to
+     * rasterize the canvas commands. The listener is called on the JavaFX application thread.
+     *
+     * @param renderTimeListener the listener, or {@code null} to stop timing renders
+     */
+    public void setRenderTimeListener(LongConsumer renderTimeListener) {
+        this.renderTimeListener = renderTimeListener;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RenderScheduler [requestedFrames = %d, renderedFrames = %d, dirtyLevel = %s]",
+                requestedFrames.get(), renderedFrames.get(), dirtyLevel.get());
+    }
+
+    /**
+     * How much of the chart needs to be repainted, in increasing order.
+     */
+    public enum DirtyLevel {
+        /**
+         * Nothing needs to be repainted.
+         */
+        CLEAN,
+        /**
+         * Only the live overlay (the in-progress candle and the high/low markers) needs to be repainted.
+         */
+        LIVE,
+        /**
+         * The chart has been panned by part of a bar, so the frame that is already displayed only needs to be
+         * redrawn translated (which also redraws the live overlay).
+         */
+        PAN,
+        /**
+         * A frame that has been built in the background is ready to be drawn.
+         */
+        FRAME,
+        /**
+         * Every layer of the chart needs to be repainted.
+         */
+        FULL
+    }
+}
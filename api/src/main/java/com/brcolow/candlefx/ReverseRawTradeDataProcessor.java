@@ -1,126 +1,148 @@
 package com.brcolow.candlefx;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
-import java.util.stream.Collectors;
 
 import javafx.beans.property.SimpleIntegerProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Supplies pages of candle data by reading a raw trade data CSV file (where each line is "timestamp,price,amount")
+ * backwards, starting with the newest trades.
+ *
+ * <p>Because the trades in such a file are already in time order, each page is produced in a single scan that
+ * streams the trades through a {@link StreamingCandleBucketer}, which only keeps the state of the candle being
+ * built. If a trade turns out to be out of order the whole file is instead aggregated by a
+ * {@link ParallelTradeAggregator} (which does not depend on the order of the trades) and the remaining pages are
+ * supplied from the result.
+ *
+ * <p>The file is closed once all of its trades have been read (that is, by the time the empty final page is
+ * supplied) or once the whole file has been aggregated instead.
+ *
  * @author Michael Ennen
  */
 public class ReverseRawTradeDataProcessor extends CandleDataSupplier {
-    private final ReversedLinesFileReader fileReader;
-    private int start;
+    private static final Logger logger = LoggerFactory.getLogger(ReverseRawTradeDataProcessor.class);
+    private final Path rawTradeData;
+    private final MappedReversedLinesReader fileReader;
+    /**
+     * The newest trade older than the last supplied page, which was read while looking for the end of that page.
+     */
+    private Trade pendingTrade;
+    private boolean exhausted;
+    private CandleDataSupplier fallback;
 
     public ReverseRawTradeDataProcessor(Path rawTradeData, int secondsPerCandle, TradePair tradePair)
             throws IOException {
         super(200, secondsPerCandle, tradePair, new SimpleIntegerProperty(-1));
-        fileReader = new ReversedLinesFileReader(rawTradeData, StandardCharsets.UTF_8);
+        this.rawTradeData = rawTradeData;
+        fileReader = new MappedReversedLinesReader(rawTradeData);
     }
 
     @Override
     public Future<List<CandleData>> get() {
-        final Map<Integer, TreeSet<Trade>> candleTrades = new HashMap<>(numCandles);
-
-        String line;
+        if (fallback != null) {
+            return fallback.get();
+        }
         try {
-            while ((line = fileReader.readLine()) != null) {
-                String[] commaSplitLine = line.split(",");
-                if (commaSplitLine.length != 3) {
-                    throw new IllegalArgumentException("raw trade data malformed");
-                }
-
-                final int timestamp = Integer.parseInt(commaSplitLine[0]);
-
-                if (endTime.get() == -1) {
-                    start = timestamp;
-                    endTime.set(start - (secondsPerCandle * numCandles));
+            if (endTime.get() == -1) {
+                pendingTrade = readTrade();
+                if (pendingTrade == null) {
+                    return CompletableFuture.completedFuture(new ArrayList<>());
                 }
+                endTime.set((Math.floorDiv(pendingTrade.timestamp, secondsPerCandle) + 1) * secondsPerCandle);
+            }
 
-                if (timestamp < endTime.get()) {
-                    break;
+            int pageEndTime = endTime.get();
+            int pageStartTime = pageEndTime - (numCandles * secondsPerCandle);
+            final List<CandleData> newestFirst = new ArrayList<>(numCandles);
+            StreamingCandleBucketer bucketer = new StreamingCandleBucketer(secondsPerCandle, true, newestFirst::add);
+            while (pendingTrade != null && pendingTrade.timestamp >= pageStartTime) {
+                if (!bucketer.accept(pendingTrade.timestamp, pendingTrade.price, pendingTrade.amount)) {
+                    logger.warn("raw trade data is not in time order (at timestamp " + pendingTrade.timestamp +
+                            "), aggregating the whole file instead");
+                    fallback = new CandleSeriesDataSupplier(aggregateFile(), tradePair);
+                    closeFile();
+                    fallback.endTime.set(pageEndTime);
+                    return fallback.get();
                 }
+                pendingTrade = readTrade();
+            }
+            bucketer.finish();
+            endTime.set(pageStartTime);
 
-                Trade trade = new Trade(timestamp, Double.parseDouble(commaSplitLine[1]),
-                        Double.parseDouble(commaSplitLine[2]));
-
-                int candleIndex = (numCandles - ((start - timestamp) / secondsPerCandle)) - 1;
-                if (candleTrades.get(candleIndex) == null) {
-                    // noinspection Convert2Diamond
-                    candleTrades.put(candleIndex, new TreeSet<Trade>((t1, t2) ->
-                            Integer.compare(t2.timestamp, t1.timestamp)));
-                } else {
-                    candleTrades.get(candleIndex).add(trade);
-                }
+            if (newestFirst.isEmpty() && pendingTrade == null) {
+                return CompletableFuture.completedFuture(new ArrayList<>());
             }
+            return CompletableFuture.completedFuture(fillPage(newestFirst, pageStartTime, pageEndTime));
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
+    }
 
+    /**
+     * Puts the candles of a page in ascending order, with placeholders for the candles in which no trades happened.
+     * The placeholders are at the close price of the trade before them, so there are none before the oldest trade
+     * of the file.
+     */
+    private List<CandleData> fillPage(List<CandleData> newestFirst, int pageStartTime, int pageEndTime) {
         final List<CandleData> candleData = new ArrayList<>(numCandles);
-        double lastClose = -1;
-        for (int i = 0; i < numCandles; i++) {
-            int openTime = (start - secondsPerCandle) - (i * secondsPerCandle);
-            if (candleTrades.get(i) == null || candleTrades.get(i).isEmpty()) {
+        double lastClose = pendingTrade == null ? Double.NaN : pendingTrade.price;
+        int candleIndex = newestFirst.size() - 1;
+        for (int openTime = pageStartTime; openTime < pageEndTime; openTime += secondsPerCandle) {
+            if (candleIndex >= 0 && newestFirst.get(candleIndex).getOpenTime() == openTime) {
+                CandleData candle = newestFirst.get(candleIndex--);
+                lastClose = candle.getClosePrice();
+                candleData.add(candle);
+            } else if (!Double.isNaN(lastClose)) {
                 // no trades occurred during this candle
                 candleData.add(new CandleData(lastClose, lastClose, lastClose, lastClose, openTime, 0, 0, 0, true));
-            } else {
-                double open = 0;
-                double high = -1;
-                double low = Double.MAX_VALUE;
-                double close = 0;
-                double volume = 0;
-                double priceTotal = 0;
-                double volumeWeightedPriceTotal = 0;
-                int tradeIndex = 0;
-                for (Trade trade : candleTrades.get(i)) {
-                    if (tradeIndex == 0) {
-                        open = trade.price;
-                    }
-
-                    if (trade.price > high) {
-                        high = trade.price;
-                    }
-
-                    if (trade.price < low) {
-                        low = trade.price;
-                    }
-
-                    if (tradeIndex == candleTrades.get(i).size() - 1) {
-                        close = trade.price;
-                    }
-
-                    priceTotal += trade.price;
-                    volumeWeightedPriceTotal += trade.price * trade.amount;
-                    volume += trade.amount;
-                    tradeIndex++;
-                    lastClose = close;
-                }
+            }
+        }
+        return candleData;
+    }
 
-                double averagePrice = priceTotal / candleTrades.get(i).size();
-                double volumeWeightedAveragePrice = volumeWeightedPriceTotal / volume;
+    private CandleSeries aggregateFile() throws IOException {
+        CandleSeries candleSeries = new CandleSeries(secondsPerCandle);
+        candleSeries.putAll(new ParallelTradeAggregator().aggregate(rawTradeData, secondsPerCandle));
+        return candleSeries;
+    }
 
-                CandleData datum = new CandleData(open, close, Math.max(open, high), Math.min(open, low), openTime,
-                        volume, averagePrice, volumeWeightedAveragePrice, false);
-                candleData.add(datum);
-            }
+    private void closeFile() throws IOException {
+        exhausted = true;
+        fileReader.close();
+    }
+
+    /**
+     * @return the next (older) trade of the file, or {@code null} if all of the trades have been read
+     */
+    private Trade readTrade() throws IOException {
+        if (exhausted) {
+            return null;
         }
+        MappedReversedLinesReader.Line line;
+        do {
+            line = fileReader.readLine();
+            if (line == null) {
+                closeFile();
+                return null;
+            }
+        } while (line.length() == 0);
 
-        start = endTime.get();
-        endTime.set(endTime.get() - (secondsPerCandle * numCandles));
-        return CompletableFuture.completedFuture(candleData.stream().sorted(Comparator.comparingInt(
-                CandleData::getOpenTime)).collect(Collectors.toList()));
+        // The fields are parsed straight from the bytes of the line, without creating any Strings.
+        int firstComma = line.indexOf(',', 0);
+        int secondComma = firstComma == -1 ? -1 : line.indexOf(',', firstComma + 1);
+        if (secondComma == -1 || line.indexOf(',', secondComma + 1) != -1) {
+            throw new IllegalArgumentException("raw trade data malformed: " + line);
+        }
+        return new Trade(line.parseInt(0, firstComma), line.parseDouble(firstComma + 1, secondComma),
+                line.parseDouble(secondComma + 1, line.length()));
     }
 
     /**
@@ -0,0 +1,78 @@
+package com.brcolow.candlefx;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Buckets a stream of time-ordered trades into candles in a single pass, keeping only the state of the current
+ * candle. As soon as a trade for a different candle arrives the current candle is complete and is handed to the
+ * candle consumer, so each candle is produced directly - there is no need to collect (or sort) the trades of a
+ * candle first.
+ *
+ * <p>The trades may be streamed either in ascending order by timestamp (for example read forwards from a trade
+ * file) or in descending order (read backwards, newest trade first), in which case the candles are produced newest
+ * first too. Either way the order is verified: a trade that is out of order is rejected (see
+ * {@link #accept(int, double, double)}) so that the caller can fall back to an order-independent way of
+ * aggregating the trades.
+ *
+ * @author Michael Ennen
+ */
+public final class StreamingCandleBucketer {
+    private final int secondsPerCandle;
+    private final boolean descending;
+    private final Consumer<CandleData> candleConsumer;
+    private CandleAccumulator current;
+    private int lastTimestamp;
+    /**
+     * Orders trades with the same timestamp by the order they were streamed in (reversed if descending).
+     */
+    private long sequence;
+
+    /**
+     * Creates a new {@code StreamingCandleBucketer}.
+     *
+     * @param secondsPerCandle the duration of the candles, which open at whole multiples of it
+     * @param descending whether the trades are streamed newest first
+     * @param candleConsumer receives each candle once it is complete
+     */
+    public StreamingCandleBucketer(int secondsPerCandle, boolean descending, Consumer<CandleData> candleConsumer) {
+        if (secondsPerCandle <= 0) {
+            throw new IllegalArgumentException("secondsPerCandle must be positive but was: " + secondsPerCandle);
+        }
+        this.secondsPerCandle = secondsPerCandle;
+        this.descending = descending;
+        this.candleConsumer = Objects.requireNonNull(candleConsumer, "candleConsumer must not be null");
+    }
+
+    /**
+     * Accepts the next trade of the stream.
+     *
+     * @return {@code true} if the trade was accepted or {@code false} if it is out of order (in which case it was
+     * not accepted)
+     */
+    public boolean accept(int timestamp, double price, double amount) {
+        if (current != null && (descending ? timestamp > lastTimestamp : timestamp < lastTimestamp)) {
+            return false;
+        }
+        lastTimestamp = timestamp;
+
+        int openTime = Math.floorDiv(timestamp, secondsPerCandle) * secondsPerCandle;
+        if (current == null || current.getOpenTime() != openTime) {
+            finish();
+            current = new CandleAccumulator(openTime);
+        }
+        current.accept(timestamp, descending ? sequence-- : sequence++, price, amount);
+        return true;
+    }
+
+    /**
+     * Hands the current (last) candle, if any, to the candle consumer. This must be called at the end of the
+     * stream.
+     */
+    public void finish() {
+        if (current != null && !current.isEmpty()) {
+            candleConsumer.accept(current.toCandleData());
+        }
+        current = null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.brcolow.candlefx;
+
+/**
+ * A {@link ChartMetrics} implementation that summarizes each measurement by its count, mean and maximum.
+ *
+ * @author Michael Ennen
+ */
+public final class SummaryChartMetrics implements ChartMetrics {
+    private final Summary drawNanos = new Summary();
+    private final Summary candlesDrawn = new Summary();
+    private final Summary frameBuildNanos = new Summary();
+    private final Summary tileCacheHits = new Summary();
+    private final Summary tileCacheMisses = new Summary();
+    private final Summary extremaUpdateNanos = new Summary();
+    private final Summary pageFetchNanos = new Summary();
+    private final Summary liveTradeQueueDepth = new Summary();
+    private final Summary tradeToPixelLagNanos = new Summary();
+
+    @Override
+    public void recordDraw(RenderScheduler.DirtyLevel dirtyLevel, long nanos, int candlesDrawn) {
+        drawNanos.record(nanos);
+        this.candlesDrawn.record(candlesDrawn);
+    }
+
+    @Override
+    public void recordFrameBuild(long nanos, int candles) {
+        frameBuildNanos.record(nanos);
+    }
+
+    @Override
+    public void recordTileCacheLookups(int hits, int misses) {
+        tileCacheHits.record(hits);
+        tileCacheMisses.record(misses);
+    }
+
+    @Override
+    public void recordExtremaUpdate(long nanos) {
+        extremaUpdateNanos.record(nanos);
+    }
+
+    @Override
+    public void recordPageFetch(long nanos) {
+        pageFetchNanos.record(nanos);
+    }
+
+    @Override
+    public void recordLiveTradeQueueDepth(int depth) {
+        liveTradeQueueDepth.record(depth);
+    }
+
+    @Override
+    public void recordTradeToPixelLag(long nanos) {
+        tradeToPixelLagNanos.record(nanos);
+    }
+
+    public Summary getDrawNanos() {
+        return drawNanos;
+    }
+
+    public Summary getCandlesDrawn() {
+        return candlesDrawn;
+    }
+
+    public Summary getFrameBuildNanos() {
+        return frameBuildNanos;
+    }
+
+    public Summary getTileCacheHits() {
+        return tileCacheHits;
+    }
+
+    public Summary getTileCacheMisses() {
+        return tileCacheMisses;
+    }
+
+    public Summary getExtremaUpdateNanos() {
+        return extremaUpdateNanos;
+    }
+
+    public Summary getPageFetchNanos() {
+        return pageFetchNanos;
+    }
+
+    public Summary getLiveTradeQueueDepth() {
+        return liveTradeQueueDepth;
+    }
+
+    public Summary getTradeToPixelLagNanos() {
+        return tradeToPixelLagNanos;
+    }
+
+    /**
+     * Resets all of the summaries, for example to start a new measurement interval.
+     */
+    public void reset() {
+        drawNanos.reset();
+        candlesDrawn.reset();
+        frameBuildNanos.reset();
+        tileCacheHits.reset();
+        tileCacheMisses.reset();
+        extremaUpdateNanos.reset();
+        pageFetchNanos.reset();
+        liveTradeQueueDepth.reset();
+        tradeToPixelLagNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SummaryChartMetrics [drawNanos = %s, candlesDrawn = %s, frameBuildNanos = %s, " +
+                "tileCacheHits = %s, tileCacheMisses = %s, extremaUpdateNanos = %s, pageFetchNanos = %s, " +
+                "liveTradeQueueDepth = %s, tradeToPixelLagNanos = %s]", drawNanos, candlesDrawn, frameBuildNanos,
+                tileCacheHits, tileCacheMisses, extremaUpdateNanos, pageFetchNanos, liveTradeQueueDepth,
+                tradeToPixelLagNanos);
+    }
+
+    /**
+     * The count, total and maximum of the values of one measurement.
+     */
+    public static final class Summary {
+        private long count;
+        private long total;
+        private long max;
+
+        synchronized void record(long value) {
+            count++;
+            total += value;
+            max = count == 1 ? value : Math.max(max, value);
+        }
+
+        synchronized void reset() {
+            count = 0;
+            total = 0;
+            max = 0;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the largest recorded value, or 0 if no values have been recorded
+         */
+        public synchronized long getMax() {
+            return max;
+        }
+
+        /**
+         * @return the mean of the recorded values, or 0 if no values have been recorded
+         */
+        public synchronized double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("[count = %d, mean = %.1f, max = %d]", count, getMean(), max);
+        }
+    }
+}
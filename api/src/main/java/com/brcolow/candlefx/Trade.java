@@ -60,15 +60,18 @@ public class Trade {
 
     /**
      * Returns the total amount of money this trade was, i.e. {@literal price * amount} in price
-     * units.
+     * units (btc * usd/btc = usd).
      *
-     * @return
+     * @return the total, with as many fractional digits as the price and amount currencies have together
      */
     public Money getTotal() {
-        // TODO implement multiply method in Money..but think of how to do it with
-        // different currencies..maybe involve a TradePair? btc * usd/btc = usd, which
-        // is technically what we are doing here
-        return DefaultMoney.ofFiat(price.toBigDecimal().multiply(amount.toBigDecimal()), "USD");
+        int precision = Math.min(FastMoney.Utils.MAX_ALLOWED_PRECISION,
+                price.getCurrency().getFractionalDigits() + amount.getCurrency().getFractionalDigits());
+        return new MoneyAccumulator(price.getCurrency(), precision).addProduct(price, amount).toMoney();
+    }
+
+    public long getLocalTradeId() {
+        return localTradeId;
     }
 
     public Instant getTimestamp() {
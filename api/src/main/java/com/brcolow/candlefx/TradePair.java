@@ -1,6 +1,10 @@
 package com.brcolow.candlefx;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javafx.util.Pair;
 
@@ -12,6 +16,20 @@ public class TradePair extends Pair<Currency, Currency> {
     private final Currency baseCurrency;
     private final Currency counterCurrency;
     private static final Logger logger = LoggerFactory.getLogger(TradePair.class);
+    /**
+     * The ids of the trade pairs that have been assigned one. Ids are assigned (and the trade pairs added to
+     * {@code tradePairsById}) while holding the lock of this map, so that each id is the index of its trade pair.
+     */
+    private static final Map<TradePair, Integer> ids = new HashMap<>();
+    /**
+     * The trade pairs that have been assigned an id, by id. Ids are only ever appended, so it can be read without
+     * holding a lock.
+     */
+    private static final List<TradePair> tradePairsById = new CopyOnWriteArrayList<>();
+    /**
+     * The id of this trade pair, or -1 until {@link #getId()} is first called.
+     */
+    private volatile int id = -1;
 
     public TradePair(Currency baseCurrency, Currency counterCurrency) {
         super(baseCurrency, counterCurrency);
@@ -129,6 +147,41 @@ public class TradePair extends Pair<Currency, Currency> {
         }
     }
 
+    /**
+     * Returns a small, non-negative integer that identifies this trade pair for the lifetime of the JVM: equal
+     * trade pairs have the same id and different trade pairs have different ids. It allows trades to refer to their
+     * trade pair by a primitive (for example in a {@link TradeSlot}) instead of by reference.
+     *
+     * @see #ofId(int)
+     */
+    public int getId() {
+        int id = this.id;
+        if (id == -1) {
+            synchronized (ids) {
+                Integer assignedId = ids.get(this);
+                if (assignedId == null) {
+                    assignedId = tradePairsById.size();
+                    tradePairsById.add(this);
+                    ids.put(this, assignedId);
+                }
+                id = assignedId;
+            }
+            this.id = id;
+        }
+        return id;
+    }
+
+    /**
+     * @return the trade pair with the given id (see {@link #getId()})
+     * @throws IllegalArgumentException if no trade pair has the given id
+     */
+    public static TradePair ofId(int id) {
+        if (id < 0 || id >= tradePairsById.size()) {
+            throw new IllegalArgumentException("unknown trade pair id: " + id);
+        }
+        return tradePairsById.get(id);
+    }
+
     public Currency getBaseCurrency() {
         return baseCurrency;
     }
@@ -0,0 +1,157 @@
+package com.brcolow.candlefx;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, single-producer/single-consumer queue of trades backed by a ring of preallocated
+ * {@link TradeSlot}s. It is used to hand live trades from an {@link ExchangeWebSocketClient} thread to the
+ * thread that updates the in-progress candle without any allocation or locking on either side.
+ *
+ * <p>The producer publishes a trade by claiming the next free slot, writing into it and then publishing it:
+ *
+ * <pre>{@code
+ * TradeSlot slot = ringBuffer.claim();
+ * if (slot != null) {
+ *     slot.set(price, amount, side, tradeId, epochSecond, nano);
+ *     ringBuffer.publish();
+ * }
+ * }</pre>
+ *
+ * <p>The consumer periodically drains all of the published slots. Ordering between the two threads is provided by
+ * two sequences: the producer release-stores the sequence of the next slot it will publish (after writing the
+ * slot) and the consumer release-stores the sequence of the next slot it will read (after reading the slots), so
+ * each side only has to acquire-load the other side's sequence.
+ *
+ * <p>If the consumer falls behind and the ring is full, new trades are dropped (rather than blocking the producer
+ * or overwriting trades that have not been read yet) and counted - see {@link #getDroppedCount()}.
+ *
+ * <p>At most one thread may call {@link #claim()}, {@link #publish()} and {@link #offer(Trade)}, and at most one
+ * (other) thread may call {@link #drain(Consumer)}.
+ *
+ * @author Michael Ennen
+ */
+public final class TradeRingBuffer {
+    private static final int DEFAULT_CAPACITY = 1 << 15;
+
+    private final TradeSlot[] slots;
+    private final int mask;
+    /**
+     * The sequence of the next slot the producer will publish. Written only by the producer.
+     */
+    private final AtomicLong producerSequence = new AtomicLong();
+    /**
+     * The sequence of the next slot the consumer will read. Written only by the consumer.
+     */
+    private final AtomicLong consumerSequence = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    /**
+     * The producer's last read of {@code consumerSequence}, so that it only has to re-read the consumer's
+     * sequence when the ring looks full.
+     */
+    private long cachedConsumerSequence;
+
+    public TradeRingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code TradeRingBuffer} that can hold {@code capacity} unread trades.
+     *
+     * @param capacity the number of slots in the ring, which must be a power of two
+     */
+    public TradeRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of two but was: " + capacity);
+        }
+        slots = new TradeSlot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new TradeSlot();
+        }
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Claims the next free slot for the producer to write a trade into. The trade is not visible to the consumer
+     * until {@link #publish()} is called.
+     *
+     * @return the claimed slot or {@code null} if the ring is full, in which case the trade is counted as dropped
+     */
+    public TradeSlot claim() {
+        long sequence = producerSequence.get();
+        if (sequence - cachedConsumerSequence >= slots.length) {
+            cachedConsumerSequence = consumerSequence.getAcquire();
+            if (sequence - cachedConsumerSequence >= slots.length) {
+                droppedCount.incrementAndGet();
+                return null;
+            }
+        }
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Publishes the slot returned by the last (successful) call to {@link #claim()}.
+     */
+    public void publish() {
+        producerSequence.setRelease(producerSequence.get() + 1);
+    }
+
+    /**
+     * Copies the given trade into the next free slot and publishes it. A trade whose price or amount does not fit
+     * in a slot (see {@link TradeSlot#set(Trade)}) is dropped (and counted) without claiming a slot.
+     *
+     * @return {@code true} if the trade was published or {@code false} if the ring is full, or the trade does not
+     * fit in a slot, and it was dropped
+     */
+    public boolean offer(Trade trade) {
+        Objects.requireNonNull(trade, "trade must not be null");
+        if (!TradeSlot.canHold(trade)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        TradeSlot slot = claim();
+        if (slot == null) {
+            return false;
+        }
+        slot.set(trade);
+        publish();
+        return true;
+    }
+
+    /**
+     * Passes every published (and not yet drained) slot, in publication order, to the given consumer. The slots
+     * are reused once this method returns, so the consumer must not keep references to them.
+     *
+     * @return the number of slots drained
+     */
+    public int drain(Consumer<TradeSlot> slotConsumer) {
+        long from = consumerSequence.get();
+        long to = producerSequence.getAcquire();
+        for (long sequence = from; sequence < to; sequence++) {
+            slotConsumer.accept(slots[(int) sequence & mask]);
+        }
+        consumerSequence.setRelease(to);
+        return (int) (to - from);
+    }
+
+    /**
+     * @return the number of published trades that have not been drained yet
+     */
+    public int size() {
+        long consumed = consumerSequence.getAcquire();
+        return (int) (producerSequence.getAcquire() - consumed);
+    }
+
+    /**
+     * @return the number of trades that have been dropped because the ring was full (or, for
+     * {@link #offer(Trade)}, because they did not fit in a slot)
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
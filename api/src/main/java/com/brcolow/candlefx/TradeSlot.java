@@ -0,0 +1,203 @@
+package com.brcolow.candlefx;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A mutable, reusable holder of the fields of a single trade that is needed to build candles. Slots are
+ * preallocated by a {@link TradeRingBuffer} and overwritten in-place, so that publishing a trade does not
+ * allocate anything.
+ *
+ * <p>The trade is held in a compact, primitive form: its trade pair by id (see {@link TradePair#getId()}) and its
+ * price and amount in fixed-point, as a {@code long} number of units of {@code 10^-scale} (like a
+ * {@link FastMoney}). A price or amount can be parsed straight from the decimal text of an exchange's feed into
+ * a slot (see {@link #set(int, CharSequence, CharSequence, Side, long, long, int)}), so publishing a live trade
+ * involves neither a {@code Money} nor a {@code BigDecimal}.
+ *
+ * <p>A slot must only be written by the producer between {@link TradeRingBuffer#claim()} and
+ * {@link TradeRingBuffer#publish()}, and only be read by the consumer while it is being drained.
+ *
+ * @author Michael Ennen
+ */
+public final class TradeSlot {
+    private int tradePairId;
+    private long priceUnits;
+    private int priceScale;
+    private long amountUnits;
+    private int amountScale;
+    private Side side;
+    private long tradeId;
+    private long epochSecond;
+    private int nano;
+
+    TradeSlot() {}
+
+    /**
+     * Sets the trade held by this slot.
+     *
+     * @param tradePairId the id of the trade pair of the trade (see {@link TradePair#getId()})
+     * @param priceUnits the price of the trade in units of {@code 10^-priceScale}
+     * @param priceScale the scale of the price, from 0 to {@link FastMoney.Utils#MAX_ALLOWED_PRECISION}
+     * @param amountUnits the amount of the trade in units of {@code 10^-amountScale}
+     * @param amountScale the scale of the amount, from 0 to {@link FastMoney.Utils#MAX_ALLOWED_PRECISION}
+     * @return this slot
+     */
+    public TradeSlot set(int tradePairId, long priceUnits, int priceScale, long amountUnits, int amountScale,
+                         Side side, long tradeId, long epochSecond, int nano) {
+        FastMoney.Utils.checkPrecision(priceScale);
+        FastMoney.Utils.checkPrecision(amountScale);
+        this.tradePairId = tradePairId;
+        this.priceUnits = priceUnits;
+        this.priceScale = priceScale;
+        this.amountUnits = amountUnits;
+        this.amountScale = amountScale;
+        this.side = side;
+        this.tradeId = tradeId;
+        this.epochSecond = epochSecond;
+        this.nano = nano;
+        return this;
+    }
+
+    /**
+     * Sets the trade held by this slot, parsing its price and amount from plain decimals (such as {@code "10432.17"}
+     * and {@code "0.00100000"}) without allocating.
+     *
+     * @return this slot
+     * @throws NumberFormatException if the price or amount is not a plain decimal with at most 18 digits, of which
+     * at most {@link FastMoney.Utils#MAX_ALLOWED_PRECISION} are fractional
+     */
+    public TradeSlot set(int tradePairId, CharSequence price, CharSequence amount, Side side, long tradeId,
+                         long epochSecond, int nano) {
+        Objects.requireNonNull(price, "price must not be null");
+        Objects.requireNonNull(amount, "amount must not be null");
+        return set(tradePairId, AsciiNumbers.parseUnscaled(price), AsciiNumbers.scaleOf(price),
+                AsciiNumbers.parseUnscaled(amount), AsciiNumbers.scaleOf(amount), side, tradeId, epochSecond, nano);
+    }
+
+    /**
+     * Sets the trade held by this slot from the given trade. A price or amount that is not a {@link FastMoney} is
+     * rounded (half-even) to at most {@link FastMoney.Utils#MAX_ALLOWED_PRECISION} fractional digits, and to fewer
+     * if its unscaled value would not fit in a {@code long} otherwise.
+     *
+     * @return this slot
+     * @throws IllegalArgumentException if the price or amount does not fit in a {@code long} even without any
+     * fractional digits (see {@link #canHold(Trade)})
+     */
+    public TradeSlot set(Trade trade) {
+        Money price = trade.getPrice();
+        Money amount = trade.getAmount();
+        Instant timestamp = trade.getTimestamp();
+        if (price instanceof FastMoney && amount instanceof FastMoney) {
+            FastMoney fastPrice = (FastMoney) price;
+            FastMoney fastAmount = (FastMoney) amount;
+            return set(trade.getTradePair().getId(), fastPrice.getUnscaledAmount(), fastPrice.getPrecision(),
+                    fastAmount.getUnscaledAmount(), fastAmount.getPrecision(), trade.getTransactionType(),
+                    trade.getLocalTradeId(), timestamp.getEpochSecond(), timestamp.getNano());
+        }
+        BigDecimal fixedPointPrice = toFixedPoint(price);
+        BigDecimal fixedPointAmount = toFixedPoint(amount);
+        if (fixedPointPrice == null || fixedPointAmount == null) {
+            throw new IllegalArgumentException("price and amount of trade must fit in a long but were: " + price +
+                    " and " + amount);
+        }
+        return set(trade.getTradePair().getId(), fixedPointPrice.unscaledValue().longValue(),
+                fixedPointPrice.scale(), fixedPointAmount.unscaledValue().longValue(), fixedPointAmount.scale(),
+                trade.getTransactionType(), trade.getLocalTradeId(), timestamp.getEpochSecond(), timestamp.getNano());
+    }
+
+    /**
+     * @return {@code true} if the price and amount of the given trade can be held by a slot (see
+     * {@link #set(Trade)})
+     */
+    static boolean canHold(Trade trade) {
+        return (trade.getPrice() instanceof FastMoney && trade.getAmount() instanceof FastMoney) ||
+                (toFixedPoint(trade.getPrice()) != null && toFixedPoint(trade.getAmount()) != null);
+    }
+
+    /**
+     * @return the given amount with a scale from 0 to {@link FastMoney.Utils#MAX_ALLOWED_PRECISION} (rounded
+     * half-even if it has more fractional digits than that, or if its unscaled value would not fit in a
+     * {@code long} otherwise) or {@code null} if it does not fit in a {@code long} even with a scale of 0
+     */
+    private static BigDecimal toFixedPoint(Money money) {
+        BigDecimal value = money.toBigDecimal().stripTrailingZeros();
+        int scale = Math.max(0, Math.min(FastMoney.Utils.MAX_ALLOWED_PRECISION, value.scale()));
+        BigDecimal fixedPoint = value.setScale(scale, RoundingMode.HALF_EVEN);
+        while (fixedPoint.unscaledValue().bitLength() >= Long.SIZE) {
+            if (scale == 0) {
+                return null;
+            }
+            scale--;
+            fixedPoint = value.setScale(scale, RoundingMode.HALF_EVEN);
+        }
+        return fixedPoint;
+    }
+
+    public int getTradePairId() {
+        return tradePairId;
+    }
+
+    public long getPriceUnits() {
+        return priceUnits;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public long getAmountUnits() {
+        return amountUnits;
+    }
+
+    public int getAmountScale() {
+        return amountScale;
+    }
+
+    /**
+     * @return the price as the closest double to it
+     */
+    public double getPrice() {
+        return toDouble(priceUnits, priceScale);
+    }
+
+    /**
+     * @return the amount as the closest double to it
+     */
+    public double getAmount() {
+        return toDouble(amountUnits, amountScale);
+    }
+
+    /**
+     * Converts {@code units * 10^-scale} to a double. Both {@code units} (if its magnitude is less than
+     * {@code 2^53}) and {@code 10^scale} are exact doubles, so their (correctly rounded) quotient is the closest
+     * double to the decimal, the same as parsing the decimal with {@link Double#parseDouble(String)}.
+     */
+    private static double toDouble(long units, int scale) {
+        return units / (double) FastMoney.Utils.MULTIPLIERS[scale];
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getTradeId() {
+        return tradeId;
+    }
+
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    public int getNano() {
+        return nano;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TradeSlot [tradePairId = %d, price = %s, amount = %s, side = %s, tradeId = %d, " +
+                "epochSecond = %d, nano = %d]", tradePairId, BigDecimal.valueOf(priceUnits, priceScale),
+                BigDecimal.valueOf(amountUnits, amountScale), side, tradeId, epochSecond, nano);
+    }
+}
@@ -1,13 +1,10 @@
 package com.brcolow.candlefx;
 
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.util.Pair;
 
 /**
  * @author Michael Ennen
@@ -15,6 +12,13 @@ import javafx.util.Pair;
 public class ZoomLevel {
     private final int zoomLevelId;
     private final int candleWidth;
+    /**
+     * The number of candles that are merged into each bar that is drawn. This is one (every candle is drawn
+     * individually) unless the chart has been zoomed out past the minimum candle width, in which case each bar of
+     * {@code candleWidth} pixels is a level-of-detail summary (open, high, low, close and volume) of this many
+     * consecutive candles.
+     */
+    private final int candlesPerBar;
     private final double xAxisRangeInSeconds;
     private final DoubleProperty numVisibleCandles;
     private final double secondsPerPixel;
@@ -22,28 +26,40 @@ public class ZoomLevel {
     private final InstantAxisFormatter xAxisFormatter;
     private int minXValue;
 
-    private final Map<Integer, Pair<Extrema<Integer>, Extrema<Integer>>> extremaForCandleRangeMap;
-
     ZoomLevel(final int zoomLevelId, final int candleWidth, final int secondsPerCandle,
               final DoubleProperty plotAreaWidthProperty, final InstantAxisFormatter xAxisFormatter,
               final int minXValue) {
+        this(zoomLevelId, candleWidth, 1, secondsPerCandle, plotAreaWidthProperty, xAxisFormatter, minXValue);
+    }
+
+    ZoomLevel(final int zoomLevelId, final int candleWidth, final int candlesPerBar, final int secondsPerCandle,
+              final DoubleProperty plotAreaWidthProperty, final InstantAxisFormatter xAxisFormatter,
+              final int minXValue) {
+        if (candlesPerBar <= 0) {
+            throw new IllegalArgumentException("candlesPerBar must be positive but was: " + candlesPerBar);
+        }
         this.zoomLevelId = zoomLevelId;
         this.candleWidth = candleWidth;
-        numVisibleCandles = new SimpleDoubleProperty(plotAreaWidthProperty.doubleValue() / candleWidth);
-        numVisibleCandles.bind(Bindings.createDoubleBinding(() -> plotAreaWidthProperty.doubleValue() / candleWidth,
-                plotAreaWidthProperty));
-        this.secondsPerPixel = secondsPerCandle / candleWidth;
+        this.candlesPerBar = candlesPerBar;
+        numVisibleCandles = new SimpleDoubleProperty((plotAreaWidthProperty.doubleValue() / candleWidth) *
+                candlesPerBar);
+        numVisibleCandles.bind(Bindings.createDoubleBinding(() ->
+                (plotAreaWidthProperty.doubleValue() / candleWidth) * candlesPerBar, plotAreaWidthProperty));
+        this.secondsPerPixel = ((double) secondsPerCandle * candlesPerBar) / candleWidth;
         pixelsPerSecond = 1d / secondsPerPixel;
         this.xAxisFormatter = xAxisFormatter;
         this.minXValue = minXValue;
         this.xAxisRangeInSeconds = numVisibleCandles.doubleValue() * secondsPerCandle;
-        extremaForCandleRangeMap = new ConcurrentHashMap<>();
     }
 
     public int getCandleWidth() {
         return candleWidth;
     }
 
+    public int getCandlesPerBar() {
+        return candlesPerBar;
+    }
+
     public double getxAxisRangeInSeconds() {
         return xAxisRangeInSeconds;
     }
@@ -60,10 +76,6 @@ public class ZoomLevel {
         return pixelsPerSecond;
     }
 
-    public Map<Integer, Pair<Extrema<Integer>, Extrema<Integer>>> getExtremaForCandleRangeMap() {
-        return extremaForCandleRangeMap;
-    }
-
     public InstantAxisFormatter getXAxisFormatter() {
         return xAxisFormatter;
     }
@@ -98,6 +110,7 @@ public class ZoomLevel {
 
         return zoomLevelId == other.zoomLevelId &&
                 candleWidth == other.candleWidth &&
+                candlesPerBar == other.candlesPerBar &&
                 xAxisRangeInSeconds == other.xAxisRangeInSeconds &&
                 Objects.equals(numVisibleCandles, other.numVisibleCandles) &&
                 secondsPerPixel == other.secondsPerPixel &&
@@ -109,14 +122,14 @@ public class ZoomLevel {
 
     @Override
     public int hashCode() {
-        return Objects.hash(zoomLevelId, candleWidth, xAxisRangeInSeconds, numVisibleCandles,
+        return Objects.hash(zoomLevelId, candleWidth, candlesPerBar, xAxisRangeInSeconds, numVisibleCandles,
                 secondsPerPixel, pixelsPerSecond, xAxisFormatter, minXValue);
     }
 
     @Override
     public String toString() {
         return String.format("ZoomLevel [id = %d, numVisibleCandles = %s, secondsPerPixel = %f, pixelsPerSecond = " +
-                        "%f, candleWidth = %d, minXValue = %d", zoomLevelId, numVisibleCandles, secondsPerPixel,
-                pixelsPerSecond, candleWidth, minXValue);
+                        "%f, candleWidth = %d, candlesPerBar = %d, minXValue = %d", zoomLevelId, numVisibleCandles,
+                secondsPerPixel, pixelsPerSecond, candleWidth, candlesPerBar, minXValue);
     }
 }
@@ -0,0 +1,62 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.brcolow.candlefx.BarMerger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class BarMergerTest {
+    @Test
+    public void candlesAreMergedIntoBarsFromNewestToOldest() {
+        List<String> bars = new ArrayList<>();
+        BarMerger barMerger = new BarMerger(4, (barIndex, open, close, high, low, volume, placeHolder) ->
+                bars.add(String.format("%d: %s %s %s %s %s %b", barIndex, open, close, high, low, volume,
+                        placeHolder)));
+
+        // The newest candle is in column -2 (an overscan column), so bar -1 only holds columns -2 and -1.
+        barMerger.add(-2, 20, 21, 25, 19, 8, false);
+        barMerger.add(-1, 18, 20, 22, 17, 4, false);
+        // Bar 0 holds columns 0 to 3, which are added newest first.
+        barMerger.add(0, 15, 18, 18, 14, 1, false);
+        barMerger.add(1, 17, 15, 30, 12, 2, false);
+        barMerger.add(2, 16, 17, 17, 16, 3, true);
+        barMerger.add(3, 10, 16, 16, 9, 6, false);
+        // Bar 1 only holds placeholder candles.
+        barMerger.add(4, 10, 10, 10, 10, 0, true);
+        barMerger.add(5, 10, 10, 10, 10, 0, true);
+        assertThat(bars).containsExactly("-1: 18.0 21.0 25.0 17.0 6.0 false", "0: 10.0 18.0 30.0 9.0 3.0 false");
+
+        barMerger.finish();
+        assertThat(bars).hasSize(3).endsWith("1: 10.0 10.0 10.0 10.0 0.0 true");
+        // Finishing again does not pass the last bar again.
+        barMerger.finish();
+        assertThat(bars).hasSize(3);
+    }
+
+    @Test
+    public void oneCandlePerBarPassesEveryCandleThrough() {
+        List<double[]> bars = new ArrayList<>();
+        BarMerger barMerger = new BarMerger(1, (barIndex, open, close, high, low, volume, placeHolder) ->
+                bars.add(new double[] {barIndex, open, close, high, low, volume}));
+        barMerger.add(1, 1, 2, 3, 0.5, 7, false);
+        barMerger.add(2, 2, 1, 2.5, 1, 9, false);
+        barMerger.finish();
+
+        assertThat(bars).hasSize(2);
+        assertThat(bars.get(0)).containsExactly(1, 1, 2, 3, 0.5, 7);
+        assertThat(bars.get(1)).containsExactly(2, 2, 1, 2.5, 1, 9);
+    }
+
+    @Test
+    public void candlesPerBarMustBePositive() {
+        assertThatThrownBy(() -> new BarMerger(0, (barIndex, open, close, high, low, volume, placeHolder) -> { }))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
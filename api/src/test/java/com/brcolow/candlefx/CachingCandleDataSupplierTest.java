@@ -0,0 +1,116 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import javafx.beans.property.SimpleIntegerProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Michael Ennen
+ */
+public class CachingCandleDataSupplierTest {
+    private static final int SECONDS_PER_CANDLE = 60;
+    private static final int NUM_CANDLES = 10;
+    private static final int PAGE_SECONDS = NUM_CANDLES * SECONDS_PER_CANDLE;
+    /**
+     * The end of the first page that is supplied, long before now so that all of the candles are complete.
+     */
+    private static final int END_TIME = 1000 * PAGE_SECONDS;
+
+    @TempDir
+    Path cacheDirectory;
+
+    @AfterEach
+    public void closeCaches() {
+        CachingCandleDataSupplier.closeCaches();
+    }
+
+    @Test
+    public void cachedPagesAreNotRequestedFromTheDelegate() throws Exception {
+        RecordingCandleDataSupplier delegate = new RecordingCandleDataSupplier();
+        CachingCandleDataSupplier supplier = newSupplier(delegate, END_TIME);
+        List<CandleData> newerPage = supplier.get().get();
+        List<CandleData> olderPage = supplier.get().get();
+        assertThat(delegate.requestedEndTimes).containsExactly(END_TIME, END_TIME - PAGE_SECONDS);
+        assertThat(newerPage).hasSize(NUM_CANDLES);
+
+        // Another supplier of the same candles shares the cache.
+        RecordingCandleDataSupplier otherDelegate = new RecordingCandleDataSupplier();
+        CachingCandleDataSupplier otherSupplier = newSupplier(otherDelegate, END_TIME);
+        assertThat(otherSupplier.get().get()).isEqualTo(newerPage);
+        assertThat(otherSupplier.get().get()).isEqualTo(olderPage);
+        assertThat(otherDelegate.requestedEndTimes).isEmpty();
+        assertThat(otherSupplier.endTime.get()).isEqualTo(END_TIME - (2 * PAGE_SECONDS));
+    }
+
+    @Test
+    public void partiallyCachedPageIsRequestedFromTheDelegate() throws Exception {
+        newSupplier(new RecordingCandleDataSupplier(), END_TIME).get().get();
+
+        // Half of this page is newer than the cached page.
+        int pageEndTime = END_TIME + (PAGE_SECONDS / 2);
+        RecordingCandleDataSupplier delegate = new RecordingCandleDataSupplier();
+        List<CandleData> page = newSupplier(delegate, pageEndTime).get().get();
+        assertThat(delegate.requestedEndTimes).containsExactly(pageEndTime);
+
+        // Now that it has been supplied, the page is cached too.
+        RecordingCandleDataSupplier otherDelegate = new RecordingCandleDataSupplier();
+        assertThat(newSupplier(otherDelegate, pageEndTime).get().get()).isEqualTo(page);
+        assertThat(otherDelegate.requestedEndTimes).isEmpty();
+    }
+
+    @Test
+    public void closedCachesAreReopened() throws Exception {
+        CachingCandleDataSupplier supplier = newSupplier(new RecordingCandleDataSupplier(), END_TIME);
+        List<CandleData> page = supplier.get().get();
+
+        CachingCandleDataSupplier.closeCaches();
+
+        // The candles were written to the cache file, so they are read from it once it has been reopened.
+        RecordingCandleDataSupplier delegate = new RecordingCandleDataSupplier();
+        assertThat(newSupplier(delegate, END_TIME).get().get()).isEqualTo(page);
+        assertThat(delegate.requestedEndTimes).isEmpty();
+        // A supplier that opened the cache before it was closed reopens it as well.
+        supplier.endTime.set(END_TIME);
+        assertThat(supplier.get().get()).isEqualTo(page);
+    }
+
+    private CachingCandleDataSupplier newSupplier(CandleDataSupplier delegate, int endTime) {
+        CachingCandleDataSupplier supplier = new CachingCandleDataSupplier(delegate, cacheDirectory, "test");
+        supplier.endTime.set(endTime);
+        return supplier;
+    }
+
+    /**
+     * Supplies candles for any page and records the end times of the pages that were requested.
+     */
+    private static final class RecordingCandleDataSupplier extends CandleDataSupplier {
+        private final List<Integer> requestedEndTimes = new ArrayList<>();
+
+        RecordingCandleDataSupplier() {
+            super(NUM_CANDLES, SECONDS_PER_CANDLE, TradePair.of("BTC", "USD"), new SimpleIntegerProperty(-1));
+        }
+
+        @Override
+        public Future<List<CandleData>> get() {
+            int pageEndTime = endTime.get();
+            int pageStartTime = pageEndTime - (numCandles * secondsPerCandle);
+            requestedEndTimes.add(pageEndTime);
+            List<CandleData> candleData = new ArrayList<>(numCandles);
+            for (int openTime = pageStartTime; openTime < pageEndTime; openTime += secondsPerCandle) {
+                double openPrice = openTime / (double) secondsPerCandle;
+                candleData.add(new CandleData(openPrice, openPrice + 1, openPrice + 2, openPrice - 1, openTime, 10));
+            }
+            endTime.set(pageStartTime);
+            return CompletableFuture.completedFuture(candleData);
+        }
+    }
+}
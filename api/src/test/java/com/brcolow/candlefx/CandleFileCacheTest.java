@@ -0,0 +1,50 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.CandleFileCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Michael Ennen
+ */
+public class CandleFileCacheTest {
+    @TempDir
+    Path cacheDirectory;
+
+    @Test
+    public void blocksAreIndexedAcrossReopensAndTornWritesAreDiscarded() throws IOException {
+        Path cacheFile = cacheDirectory.resolve("test-BTC-USD-60.candles");
+        CandleData first = new CandleData(1, 2, 3, 0.5, 600, 10);
+        CandleData second = new CandleData(2, 3, 4, 1.5, 720, 20);
+        CandleData older = new CandleData(5, 6, 7, 4, 240, 30);
+        long sizeAfterTwoBlocks;
+        try (CandleFileCache cache = CandleFileCache.open(cacheFile, 60)) {
+            cache.append(600, 780, List.of(first, second));
+            cache.append(240, 600, List.of(older));
+            sizeAfterTwoBlocks = cache.getFileSize();
+            // A block that is only partially written.
+            cache.append(780, 900, List.of(new CandleData(3, 3, 3, 3, 780, 1)));
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.WRITE)) {
+            channel.truncate(sizeAfterTwoBlocks + 20);
+        }
+
+        try (CandleFileCache cache = CandleFileCache.open(cacheFile, 60)) {
+            assertThat(cache.getFileSize()).isEqualTo(sizeAfterTwoBlocks);
+            assertThat(cache.isCovered(240, 780)).isTrue();
+            assertThat(cache.isCovered(180, 780)).isFalse();
+            assertThat(cache.isCovered(600, 900)).isFalse();
+            assertThat(cache.get(240, 780)).containsExactly(older, first, second);
+            assertThat(cache.get(660, 780)).containsExactly(second);
+        }
+    }
+}
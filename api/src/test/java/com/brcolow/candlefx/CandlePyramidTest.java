@@ -0,0 +1,139 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.CandleDataSupplier;
+import com.brcolow.candlefx.CandlePyramid;
+import com.brcolow.candlefx.CandlePyramidDataSupplier;
+import com.brcolow.candlefx.CandleSeries;
+import com.brcolow.candlefx.TradePair;
+import javafx.beans.property.SimpleIntegerProperty;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class CandlePyramidTest {
+    @Test
+    public void coarserCandlesAreRolledUpFromBaseCandles() {
+        CandlePyramid candlePyramid = new CandlePyramid(60, Set.of(60, 90, 300, 900));
+        assertThat(candlePyramid.getDerivedGranularities()).containsExactly(300, 900);
+
+        // Prepend the newer page first, as pages are paged in backwards in time.
+        candlePyramid.putAll(minuteCandles(600, 10));
+        candlePyramid.putAll(minuteCandles(0, 10));
+
+        CandleSeries fiveMinutes = candlePyramid.getSeries(300);
+        assertThat(fiveMinutes.size()).isEqualTo(4);
+        assertThat(fiveMinutes.get(1)).isEqualTo(new CandleData(5, 10, 14 + 5, 5 - 1, 300, 5 * 2,
+                (19 + 4) / 2d, (6 + 7 + 8 + 9 + 10) / 5d, false));
+        CandleSeries fifteenMinutes = candlePyramid.getSeries(900);
+        assertThat(fifteenMinutes.size()).isEqualTo(2);
+        assertThat(fifteenMinutes.get(0).getVolume()).isEqualTo(15 * 2);
+        assertThat(fifteenMinutes.get(0).getHighPrice()).isEqualTo(24);
+        assertThat(fifteenMinutes.get(0).getOpenPrice()).isEqualTo(0);
+        assertThat(fifteenMinutes.get(0).getClosePrice()).isEqualTo(15);
+
+        // A live candle updates the derived candles that contain it.
+        candlePyramid.put(new CandleData(20, 20, 100, 20, 1200, 1, 60, 50, false));
+        assertThat(fiveMinutes.get(4).getHighPrice()).isEqualTo(100);
+        assertThat(fifteenMinutes.get(1).getHighPrice()).isEqualTo(100);
+        assertThat(fifteenMinutes.get(1).getVolume()).isEqualTo((5 * 2) + 1);
+
+        assertThat(candlePyramid.getCompleteCandles(300, 0, 1200)).isEqualTo(fiveMinutes.subList(0, 4));
+        assertThat(candlePyramid.getCompleteCandles(300, 300, 1500)).isNull();
+    }
+
+    @Test
+    public void newestCompleteCandlesAreClippedToTheBaseCandles() {
+        CandlePyramid candlePyramid = new CandlePyramid(60, Set.of(300));
+        // The base candles cover [120, 1800), so the oldest complete 5 minute candle opens at 300.
+        candlePyramid.putAll(minuteCandles(120, 28));
+
+        assertThat(candlePyramid.getNewestCompleteCandles(300, 0, 1500)).extracting(CandleData::getOpenTime)
+                .containsExactly(300, 600, 900, 1200);
+        assertThat(candlePyramid.getNewestCompleteCandles(300, 900, 1800)).extracting(CandleData::getOpenTime)
+                .containsExactly(900, 1200, 1500);
+        // The end of the range is not covered.
+        assertThat(candlePyramid.getNewestCompleteCandles(300, 900, 2100)).isEmpty();
+        assertThat(candlePyramid.getNewestCompleteCandles(300, 0, 300)).isEmpty();
+    }
+
+    @Test
+    public void pyramidServesTheCandlesItHoldsAndTheFallbackTheRest() throws Exception {
+        int oldestBaseOpenTime = (((int) Instant.now().getEpochSecond() / 300) * 300) - 3000;
+        CandlePyramid candlePyramid = new CandlePyramid(60, Set.of(300));
+        // Covers the 5 minute candle the supplier's first page ends at, even if the test runs across the start of
+        // a new one.
+        candlePyramid.putAll(minuteCandles(oldestBaseOpenTime, 60));
+        FallbackSupplier fallbackSupplier = new FallbackSupplier(4, 300);
+        CandlePyramidDataSupplier supplier = new CandlePyramidDataSupplier(candlePyramid, fallbackSupplier);
+
+        List<CandleData> firstPage = supplier.get().get();
+        assertThat(firstPage).hasSize(4);
+        int endTime = firstPage.get(3).getOpenTime() + 300;
+        assertThat(supplier.get().get()).extracting(CandleData::getOpenTime)
+                .containsExactly(endTime - 2400, endTime - 2100, endTime - 1800, endTime - 1500);
+        assertThat(fallbackSupplier.requestedEndTimes).isEmpty();
+
+        // The pyramid only holds the newest part of the third page, the fallback supplies a page older than that.
+        int numPyramidCandles = ((endTime - 2400) - oldestBaseOpenTime) / 300;
+        List<CandleData> thirdPage = supplier.get().get();
+        int fallbackEndTime = (endTime - 2400) - (numPyramidCandles * 300);
+        assertThat(fallbackSupplier.requestedEndTimes).containsExactly(fallbackEndTime);
+        assertThat(thirdPage).hasSize(4 + numPyramidCandles);
+        for (int i = 0; i < thirdPage.size(); i++) {
+            assertThat(thirdPage.get(i).getOpenTime()).isEqualTo((fallbackEndTime - 1200) + (i * 300));
+            assertThat(thirdPage.get(i).getVolume()).isEqualTo(i < 4 ? FallbackSupplier.VOLUME : 10);
+        }
+
+        // Every later page comes from the fallback.
+        assertThat(supplier.get().get()).extracting(CandleData::getOpenTime).containsExactly(
+                fallbackEndTime - 2400, fallbackEndTime - 2100, fallbackEndTime - 1800, fallbackEndTime - 1500);
+        assertThat(fallbackSupplier.requestedEndTimes).containsExactly(fallbackEndTime, fallbackEndTime - 1200);
+    }
+
+    /**
+     * Creates {@code count} one minute candles starting at {@code fromTime}, the i-th of which (counting from
+     * time 0) opens at i, closes at i + 1, has a high of i + 10, a low of i - 1 and a volume of 2.
+     */
+    private static List<CandleData> minuteCandles(int fromTime, int count) {
+        List<CandleData> candleData = new ArrayList<>(count);
+        for (int openTime = fromTime; openTime < fromTime + (count * 60); openTime += 60) {
+            int i = openTime / 60;
+            candleData.add(new CandleData(i, i + 1, i + 10, i - 1, openTime, 2, i, i + 1, false));
+        }
+        return candleData;
+    }
+
+    /**
+     * Supplies pages of candles with a volume of {@link #VOLUME}, and records the end time of each page.
+     */
+    private static final class FallbackSupplier extends CandleDataSupplier {
+        static final double VOLUME = 99;
+        private final List<Integer> requestedEndTimes = new ArrayList<>();
+
+        FallbackSupplier(int numCandles, int secondsPerCandle) {
+            super(numCandles, secondsPerCandle, TradePair.of("BTC", "USD"), new SimpleIntegerProperty(-1));
+        }
+
+        @Override
+        public Future<List<CandleData>> get() {
+            requestedEndTimes.add(endTime.get());
+            List<CandleData> candleData = new ArrayList<>(numCandles);
+            for (int i = numCandles; i > 0; i--) {
+                candleData.add(new CandleData(1, 1, 1, 1, endTime.get() - (i * secondsPerCandle), VOLUME));
+            }
+            endTime.set(endTime.get() - (numCandles * secondsPerCandle));
+            return CompletableFuture.completedFuture(candleData);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ForkJoinPool;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Stop;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class CandleRasterTest {
+    private static final int OPAQUE_BLUE = 0xFF0000FF;
+
+    @Test
+    public void colorsArePremultiplied() {
+        assertThat(CandleRaster.toArgbPre(Color.rgb(255, 0, 0))).isEqualTo(0xFFFF0000);
+        assertThat(CandleRaster.toArgbPre(Color.rgb(255, 0, 0, 0.5))).isEqualTo(0x80800000);
+        assertThat(CandleRaster.toArgbPre(Color.rgb(0, 0, 255, 0.2))).isEqualTo(0x33000033);
+        assertThat(CandleRaster.toArgbPre(Color.TRANSPARENT)).isZero();
+        assertThatThrownBy(() -> CandleRaster.toArgbPre(new LinearGradient(0, 0, 1, 1, true, CycleMethod.NO_CYCLE,
+                new Stop(0, Color.RED), new Stop(1, Color.BLUE)))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void translucentColorsAreBlendedSourceOver() {
+        CandleRaster raster = new CandleRaster(2, 1);
+        raster.fillRect(0, 0, 1, 1, OPAQUE_BLUE, 0, 2);
+        int halfRed = CandleRaster.toArgbPre(Color.rgb(255, 0, 0, 0.5));
+        raster.fillRect(0, 0, 2, 1, halfRed, 0, 2);
+
+        // Over opaque blue, half of the blue shows through.
+        assertThat(raster.getPixel(0, 0)).isEqualTo(0xFF80007F);
+        // Over a transparent pixel, the color is unchanged.
+        assertThat(raster.getPixel(1, 0)).isEqualTo(halfRed);
+        // An opaque color replaces what is under it.
+        raster.fillRect(0, 0, 2, 1, OPAQUE_BLUE, 0, 2);
+        assertThat(raster.getPixel(0, 0)).isEqualTo(OPAQUE_BLUE);
+        assertThat(raster.getPixel(1, 0)).isEqualTo(OPAQUE_BLUE);
+    }
+
+    @Test
+    public void filledEdgesAreRoundedToTheNearestPixelBoundary() {
+        CandleRaster raster = new CandleRaster(6, 6);
+        // x from 1.4 to 3.6 rounds to [1, 4) and y from 2.5 to 4.49 rounds to [3, 4).
+        raster.fillRect(3.6, 4.49, 1.4, 2.5, OPAQUE_BLUE, 0, 6);
+        assertThat(render(raster)).containsExactly(
+                "......",
+                "......",
+                "......",
+                ".###..",
+                "......",
+                "......");
+    }
+
+    @Test
+    public void fillIsClippedToTheStrip() {
+        CandleRaster raster = new CandleRaster(6, 2);
+        raster.fillRect(-2, -1, 8, 3, OPAQUE_BLUE, 2, 4);
+        assertThat(render(raster)).containsExactly(
+                "..##..",
+                "..##..");
+    }
+
+    @Test
+    public void strokeIsCenteredOnTheEdgesOfTheRectangle() {
+        CandleRaster raster = new CandleRaster(8, 8);
+        // A width 2 border around [2, 6) x [2, 6) covers [1, 7) x [1, 7), less the inside [3, 5) x [3, 5).
+        raster.strokeRect(2, 2, 4, 4, 2, OPAQUE_BLUE, 0, 8);
+        assertThat(render(raster)).containsExactly(
+                "........",
+                ".######.",
+                ".######.",
+                ".##..##.",
+                ".##..##.",
+                ".######.",
+                ".######.",
+                "........");
+    }
+
+    @Test
+    public void shapesCrossingStripsAreRasterizedAsInOneStrip() {
+        int canvasWidth = 2 * CandleRaster.STRIP_WIDTH;
+        int candleWidth = 10;
+        FrameGeometry geometry = new FrameGeometry(canvasWidth, 100, candleWidth, 1, 25, 60, 1500, 0, 100, 100,
+                true, false);
+        CandleShapes shapes = new CandleShapes();
+        for (int column = 1; column <= 26; column++) {
+            double open = 40 + (column % 3) * 5;
+            double close = column % 2 == 0 ? open + 20 : open - 10;
+            geometry.addCandle(shapes, column, open, close, Math.max(open, close) + 7, Math.min(open, close) - 4,
+                    column * 3, column % 7 == 0, Double.NaN);
+        }
+        // The canvas is split into two strips at STRIP_WIDTH, which the candle in this column crosses.
+        int crossingColumn = 13;
+        int crossingX = canvasWidth - (crossingColumn * candleWidth);
+        assertThat(crossingX).isLessThan(CandleRaster.STRIP_WIDTH);
+        assertThat(crossingX + candleWidth).isGreaterThan(CandleRaster.STRIP_WIDTH);
+
+        CandleRaster strips = CandleRaster.rasterize(shapes, geometry, ForkJoinPool.commonPool());
+        CandleRaster oneStrip = new CandleRaster(canvasWidth, 100);
+        shapes.rasterize(oneStrip, geometry, 0, canvasWidth);
+
+        assertThat(render(strips)).containsExactly(render(oneStrip));
+        // The body of the crossing candle is drawn on both sides of the boundary.
+        int bodyY = (int) geometry.priceToY(45);
+        assertThat(strips.getPixel(CandleRaster.STRIP_WIDTH - 1, bodyY)).isNotZero();
+        assertThat(strips.getPixel(CandleRaster.STRIP_WIDTH, bodyY)).isNotZero();
+    }
+
+    /**
+     * @return the rows of the given raster, with a '.' for each transparent pixel, a '#' for each opaque blue pixel
+     * and the hex color of any other pixel
+     */
+    private static String[] render(CandleRaster raster) {
+        String[] rows = new String[raster.getHeight()];
+        for (int y = 0; y < raster.getHeight(); y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x < raster.getWidth(); x++) {
+                int pixel = raster.getPixel(x, y);
+                row.append(pixel == 0 ? "." : pixel == OPAQUE_BLUE ? "#" : String.format("[%08X]", pixel));
+            }
+            rows[y] = row.toString();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,126 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.CandleSeries;
+import com.brcolow.candlefx.Extrema;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class CandleSeriesTest {
+    @Test
+    public void openTimesAreDerivedFromIndex() {
+        CandleSeries series = new CandleSeries(60);
+        series.putAll(List.of(new CandleData(1, 2, 3, 0.5, 600, 10),
+                new CandleData(2, 3, 4, 1.5, 660, 20),
+                new CandleData(3, 4, 5, 2.5, 720, 30)));
+
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.getFirstOpenTime()).isEqualTo(600);
+        assertThat(series.getLastOpenTime()).isEqualTo(720);
+        assertThat(series.getOpenTime(1)).isEqualTo(660);
+        assertThat(series.floorIndex(659)).isEqualTo(0);
+        assertThat(series.floorIndex(660)).isEqualTo(1);
+        assertThat(series.floorIndex(540)).isEqualTo(-1);
+        assertThat(series.getHighPrice(2)).isEqualTo(5);
+        assertThat(series.get(1)).isEqualTo(new CandleData(2, 3, 4, 1.5, 660, 20));
+    }
+
+    @Test
+    public void prependingAndAppendingFillsGapsWithPlaceHolders() {
+        CandleSeries series = new CandleSeries(60, 4);
+        series.put(new CandleData(1, 2, 3, 0.5, 600, 10));
+        series.put(new CandleData(2, 3, 4, 1.5, 780, 20));
+        series.putAll(List.of(new CandleData(5, 6, 7, 4.5, 300, 1), new CandleData(6, 7, 8, 5.5, 420, 1)));
+
+        assertThat(series.size()).isEqualTo(9);
+        assertThat(series.getFirstOpenTime()).isEqualTo(300);
+        assertThat(series.isPlaceHolder(0)).isFalse();
+        assertThat(series.isPlaceHolder(1)).isTrue();
+        assertThat(series.getClosePrice(1)).isEqualTo(6);
+        assertThat(series.isPlaceHolder(3)).isTrue();
+        assertThat(series.getClosePrice(3)).isEqualTo(7);
+        assertThat(series.isPlaceHolder(6)).isTrue();
+        assertThat(series.getOpenPrice(6)).isEqualTo(2);
+        assertThat(series.get(8)).isEqualTo(new CandleData(2, 3, 4, 1.5, 780, 20));
+    }
+
+    @Test
+    public void putOverwritesExistingCandle() {
+        CandleSeries series = new CandleSeries(60);
+        List<CandleData> candleData = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            candleData.add(new CandleData(i, i, i, i, i * 60, i));
+        }
+        series.putAll(candleData);
+        series.put(new CandleData(1, 1, 1, 1, 999 * 60, 1));
+
+        assertThat(series.size()).isEqualTo(1000);
+        assertThat(series.getVolume(999)).isEqualTo(1);
+        assertThat(series.toList().subList(0, 999)).isEqualTo(candleData.subList(0, 999));
+    }
+
+    @Test
+    public void misalignedCandleIsRejected() {
+        CandleSeries series = new CandleSeries(60);
+        series.put(new CandleData(1, 2, 3, 0.5, 600, 10));
+
+        assertThatThrownBy(() -> series.put(new CandleData(1, 2, 3, 0.5, 630, 10)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void rangeExtremaMatchBruteForce() {
+        CandleSeries series = new CandleSeries(60, 4);
+        List<CandleData> candleData = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            double mid = 100 + ((i * 37) % 101);
+            candleData.add(new CandleData(mid, mid, mid + (i % 7), mid - (i % 5), i * 60, (i * 13) % 29));
+        }
+        series.putAll(candleData.subList(150, 300));
+        series.putAll(candleData.subList(0, 150));
+
+        for (int from = 0; from < 300; from += 17) {
+            for (int to = from + 1; to <= 300; to += 23) {
+                List<CandleData> range = candleData.subList(from, to);
+                assertThat(series.getPriceExtrema(from, to).getMin()).isEqualTo(
+                        range.stream().mapToDouble(CandleData::getLowPrice).min().orElseThrow());
+                assertThat(series.getPriceExtrema(from, to).getMax()).isEqualTo(
+                        range.stream().mapToDouble(CandleData::getHighPrice).max().orElseThrow());
+                assertThat(series.getVolumeExtrema(from, to).getMax()).isEqualTo(
+                        range.stream().mapToDouble(CandleData::getVolume).max().orElseThrow());
+            }
+        }
+
+        series.put(new CandleData(1, 1, 1000, 0.5, 120 * 60, 1));
+        assertThat(series.getPriceExtrema(100, 130).getMax()).isEqualTo(1000);
+        assertThat(series.getPriceExtrema(100, 130).getMin()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void extremaAreUpdatedIncrementallyForLiveCandles() {
+        CandleSeries series = new CandleSeries(60);
+        List<CandleData> candleData = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            candleData.add(new CandleData(10, 10, 11, 9, i * 60, 5));
+        }
+        series.putAll(candleData);
+        assertThat(series.getPriceExtrema(90, 100)).isEqualTo(new Extrema<>(9d, 11d));
+
+        // Overwrite the last (in-progress) candle and then append a new one after a gap.
+        series.put(new CandleData(10, 12, 15, 8, 99 * 60, 7));
+        assertThat(series.getPriceExtrema(90, 100)).isEqualTo(new Extrema<>(8d, 15d));
+        assertThat(series.getVolumeExtrema(0, 100)).isEqualTo(new Extrema<>(5d, 7d));
+        series.put(new CandleData(12, 13, 14, 11, 102 * 60, 1));
+        assertThat(series.size()).isEqualTo(103);
+        assertThat(series.getPriceExtrema(100, 103)).isEqualTo(new Extrema<>(11d, 14d));
+        assertThat(series.getVolumeExtrema(99, 103)).isEqualTo(new Extrema<>(0d, 7d));
+    }
+}
@@ -0,0 +1,146 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks that replaying {@link CandleShapes} batched by paint state draws exactly the same pixels as drawing each
+ * shape on its own, in the order they were added. The snapshots need the JavaFX toolkit, which is started headless
+ * (with Monocle) when the {@code headless} profile is active. Otherwise the tests are skipped unless the toolkit can
+ * be started on a display.
+ *
+ * @author Michael Ennen
+ */
+public class CandleShapesSnapshotTest {
+    private static final int CANVAS_WIDTH = 130;
+    private static final int CANVAS_HEIGHT = 200;
+    private static boolean toolkitStarted;
+
+    private static final Logger logger = LoggerFactory.getLogger(CandleShapesSnapshotTest.class);
+
+    @BeforeAll
+    public static void startToolkit() {
+        if (System.getProperty("glass.platform") == null && isMonocleAvailable()) {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+        }
+        try {
+            Platform.startup(() -> { });
+            toolkitStarted = true;
+        } catch (IllegalStateException ex) {
+            // The toolkit has already been started.
+            toolkitStarted = true;
+        } catch (RuntimeException ex) {
+            logger.info("could not start the JavaFX toolkit, skipping the snapshot tests: " + ex);
+        }
+    }
+
+    private static boolean isMonocleAvailable() {
+        try {
+            Class.forName("com.sun.glass.ui.monocle.MonoclePlatformFactory");
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    @Test
+    public void batchedCandlesMatchCandlesDrawnOneByOne() throws Exception {
+        FrameGeometry geometry = new FrameGeometry(CANVAS_WIDTH, CANVAS_HEIGHT, 10, 1, 12, 60, 600, 0, 100, 100,
+                true, false);
+        List<Consumer<CandleShapes>> candles = new ArrayList<>();
+        // Bull and bear candles with both wicks.
+        candles.add(shapes -> geometry.addCandle(shapes, 1, 40, 60, 70, 30, 50, false, Double.NaN));
+        candles.add(shapes -> geometry.addCandle(shapes, 2, 60, 45, 65, 40, 80, false, Double.NaN));
+        // Adjacent placeholders, whose borders spill into the column to their right.
+        candles.add(shapes -> geometry.addCandle(shapes, 3, 45, 45, 45, 45, 0, true, Double.NaN));
+        candles.add(shapes -> geometry.addCandle(shapes, 4, 45, 45, 45, 45, 0, true, Double.NaN));
+        // No wicks, only a high wick and only a low wick.
+        candles.add(shapes -> geometry.addCandle(shapes, 5, 45, 50, 50, 45, 20, false, Double.NaN));
+        candles.add(shapes -> geometry.addCandle(shapes, 6, 55, 50, 60, 50, 30, false, Double.NaN));
+        candles.add(shapes -> geometry.addCandle(shapes, 7, 50, 55, 55, 42, 40, false, Double.NaN));
+        candles.add(shapes -> geometry.addCandle(shapes, 8, 55, 55, 55, 55, 0, true, Double.NaN));
+        // A tall bear candle with the largest volume, and a bull candle without volume.
+        candles.add(shapes -> geometry.addCandle(shapes, 9, 70, 20, 90, 10, 100, false, Double.NaN));
+        candles.add(shapes -> geometry.addCandle(shapes, 10, 20, 25, 30, 15, 0, false, Double.NaN));
+        // Partly off the left edge of the canvas.
+        candles.add(shapes -> geometry.addCandle(shapes, 13, 25, 35, 40, 20, 60, false, Double.NaN));
+
+        assertBatchedReplayMatches(geometry, candles);
+    }
+
+    @Test
+    public void batchedBarsMatchBarsDrawnOneByOne() throws Exception {
+        FrameGeometry geometry = new FrameGeometry(CANVAS_WIDTH, CANVAS_HEIGHT, 2, 4, 260, 60, 600, 0, 100, 100,
+                true, false);
+        List<Consumer<CandleShapes>> bars = new ArrayList<>();
+        for (int barIndex = 0; barIndex < 60; barIndex++) {
+            int index = barIndex;
+            double open = 30 + ((barIndex * 7) % 40);
+            double close = 30 + ((barIndex * 11) % 40);
+            boolean placeHolder = barIndex % 9 == 4;
+            bars.add(shapes -> geometry.addBar(shapes, index, open, close, Math.max(open, close) + 5,
+                    Math.min(open, close) - 5, (index * 13) % 100, placeHolder));
+        }
+        // A bar with no range.
+        bars.add(shapes -> geometry.addBar(shapes, 60, 50, 50, 50, 50, 10, false));
+
+        assertBatchedReplayMatches(geometry, bars);
+    }
+
+    private static void assertBatchedReplayMatches(FrameGeometry geometry, List<Consumer<CandleShapes>> adders)
+            throws Exception {
+        assumeTrue(toolkitStarted, "the JavaFX toolkit could not be started");
+
+        CandleShapes batched = new CandleShapes();
+        List<CandleShapes> oneByOne = new ArrayList<>();
+        for (Consumer<CandleShapes> adder : adders) {
+            adder.accept(batched);
+            CandleShapes single = new CandleShapes();
+            adder.accept(single);
+            oneByOne.add(single);
+        }
+
+        int[] batchedPixels = snapshot(canvas -> batched.replay(canvas.getGraphicsContext2D(), geometry));
+        int[] oneByOnePixels = snapshot(canvas -> {
+            for (CandleShapes single : oneByOne) {
+                single.replay(canvas.getGraphicsContext2D(), geometry);
+            }
+        });
+
+        assertThat(batchedPixels).containsExactly(oneByOnePixels);
+        // Make sure that something was actually drawn over the background (the color of the top-left pixel).
+        assertThat(Arrays.stream(batchedPixels).filter(pixel -> pixel != batchedPixels[0]).count()).isPositive();
+    }
+
+    private static int[] snapshot(Consumer<Canvas> draw) throws Exception {
+        FutureTask<int[]> task = new FutureTask<>(() -> {
+            Canvas canvas = new Canvas(CANVAS_WIDTH, CANVAS_HEIGHT);
+            draw.accept(canvas);
+            WritableImage image = canvas.snapshot(null, null);
+            int[] pixels = new int[CANVAS_WIDTH * CANVAS_HEIGHT];
+            image.getPixelReader().getPixels(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT,
+                    PixelFormat.getIntArgbInstance(), pixels, 0, CANVAS_WIDTH);
+            return pixels;
+        });
+        Platform.runLater(task);
+        return task.get(30, TimeUnit.SECONDS);
+    }
+}
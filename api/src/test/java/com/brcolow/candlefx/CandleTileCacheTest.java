@@ -0,0 +1,142 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class CandleTileCacheTest {
+    /**
+     * The size of the pixels of a 4x4 tile.
+     */
+    private static final int TILE_BYTES = 4 * 4 * Integer.BYTES;
+
+    private static FrameGeometry geometry(double canvasWidth, double xAxisUpperBound, double canvasHeight,
+                                          int candleWidth, double yAxisLowerBound, double yAxisUpperBound,
+                                          double extraAxisUpperBound, boolean showVolume, boolean alignOpenClose) {
+        return new FrameGeometry(canvasWidth, canvasHeight, candleWidth, 1, canvasWidth / candleWidth, 60,
+                xAxisUpperBound, yAxisLowerBound, yAxisUpperBound, extraAxisUpperBound, showVolume, alignOpenClose);
+    }
+
+    private static CandleTileCache.TileKey key(long tileIndex) {
+        return new CandleTileCache.TileKey(geometry(600, 6000, 400, 3, 100, 200, 50, true, false), 60, tileIndex);
+    }
+
+    private static CandleTileCache.Tile tile() {
+        return new CandleTileCache.Tile(new CandleRaster(4, 4));
+    }
+
+    @Test
+    public void leastRecentlyUsedTileIsEvictedFirst() {
+        CandleTileCache tileCache = new CandleTileCache(3 * TILE_BYTES);
+        CandleTileCache.Tile tile0 = tile();
+        tileCache.put(key(0), tile0);
+        tileCache.put(key(1), tile());
+        tileCache.put(key(2), tile());
+        // Looking tile 0 up makes tile 1 the least recently used.
+        assertThat(tileCache.get(key(0))).isSameAs(tile0);
+
+        tileCache.put(key(3), tile());
+
+        assertThat(tileCache.size()).isEqualTo(3);
+        assertThat(tileCache.getUsedBytes()).isEqualTo(3 * TILE_BYTES);
+        assertThat(tileCache.get(key(1))).isNull();
+        assertThat(tileCache.get(key(0))).isSameAs(tile0);
+        assertThat(tileCache.get(key(2))).isNotNull();
+        assertThat(tileCache.get(key(3))).isNotNull();
+    }
+
+    @Test
+    public void tilesAreEvictedUntilTheyFitInTheBudget() {
+        CandleTileCache tileCache = new CandleTileCache((3 * TILE_BYTES) + 10);
+        tileCache.put(key(0), tile());
+        tileCache.put(key(1), tile());
+        // A tile twice the size of the others only fits once the two older tiles have been evicted.
+        CandleTileCache.Tile wideTile = new CandleTileCache.Tile(new CandleRaster(8, 4));
+        assertThat(wideTile.getSizeBytes()).isEqualTo(2 * TILE_BYTES);
+        tileCache.put(key(2), wideTile);
+
+        assertThat(tileCache.size()).isEqualTo(2);
+        assertThat(tileCache.getUsedBytes()).isEqualTo(3 * TILE_BYTES);
+        assertThat(tileCache.get(key(0))).isNull();
+        assertThat(tileCache.get(key(1))).isNotNull();
+        assertThat(tileCache.get(key(2))).isSameAs(wideTile);
+    }
+
+    @Test
+    public void replacingTileReleasesTheBytesOfTheReplacedTile() {
+        CandleTileCache tileCache = new CandleTileCache(10 * TILE_BYTES);
+        tileCache.put(key(0), tile());
+        CandleTileCache.Tile replacement = tile();
+        tileCache.put(key(0), replacement);
+
+        assertThat(tileCache.size()).isEqualTo(1);
+        assertThat(tileCache.getUsedBytes()).isEqualTo(TILE_BYTES);
+        assertThat(tileCache.get(key(0))).isSameAs(replacement);
+    }
+
+    @Test
+    public void shrinkingTheBudgetEvictsTiles() {
+        CandleTileCache tileCache = new CandleTileCache(3 * TILE_BYTES);
+        tileCache.put(key(0), tile());
+        tileCache.put(key(1), tile());
+        tileCache.put(key(2), tile());
+
+        tileCache.setBudgetBytes(TILE_BYTES);
+        assertThat(tileCache.getBudgetBytes()).isEqualTo(TILE_BYTES);
+        assertThat(tileCache.size()).isEqualTo(1);
+        assertThat(tileCache.getUsedBytes()).isEqualTo(TILE_BYTES);
+        assertThat(tileCache.get(key(2))).isNotNull();
+
+        // A budget of 0 disables the cache.
+        tileCache.setBudgetBytes(0);
+        assertThat(tileCache.isEnabled()).isFalse();
+        assertThat(tileCache.size()).isZero();
+        assertThat(tileCache.getUsedBytes()).isZero();
+
+        assertThatThrownBy(() -> tileCache.setBudgetBytes(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void tileLargerThanTheBudgetIsNotCached() {
+        CandleTileCache tileCache = new CandleTileCache(TILE_BYTES - 1);
+        tileCache.put(key(0), tile());
+
+        assertThat(tileCache.size()).isZero();
+        assertThat(tileCache.getUsedBytes()).isZero();
+        assertThat(tileCache.get(key(0))).isNull();
+    }
+
+    @Test
+    public void tileKeysAreEqualIfTheTilesHaveTheSamePixels() {
+        CandleTileCache.TileKey key = key(5);
+        assertThat(key).isEqualTo(key(5)).hasSameHashCodeAs(key(5));
+        // Tiles are anchored to the open times of the candles, so neither the width of the canvas nor the bounds of
+        // the x-axis change their pixels.
+        assertThat(key).isEqualTo(new CandleTileCache.TileKey(
+                geometry(900, 12000, 400, 3, 100, 200, 50, true, false), 60, 5));
+
+        assertThat(key).isNotEqualTo(key(6));
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 400, 3, 100, 200, 50, true, false), 300, 5));
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 400, 4, 100, 200, 50, true, false), 60, 5));
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 500, 3, 100, 200, 50, true, false), 60, 5));
+        // The y-axis moved, and the y scale changed.
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 400, 3, 110, 210, 50, true, false), 60, 5));
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 400, 3, 100, 250, 50, true, false), 60, 5));
+        // The volume scale changed.
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 400, 3, 100, 200, 60, true, false), 60, 5));
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 400, 3, 100, 200, 50, false, false), 60, 5));
+        assertThat(key).isNotEqualTo(new CandleTileCache.TileKey(
+                geometry(600, 6000, 400, 3, 100, 200, 50, true, true), 60, 5));
+    }
+}
@@ -0,0 +1,99 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.text.DecimalFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class FrameModelBuilderTest {
+    private static final double[] NO_GRID_LINES = new double[0];
+
+    /**
+     * A 100x100 canvas with 10 pixel wide candles of one minute, a y-axis from 0 to 200 (so half a pixel per
+     * monetary unit) and the newest candle on the x-axis opening at 300.
+     */
+    private static FrameGeometry geometry() {
+        return new FrameGeometry(100, 100, 10, 1, 10, 60, 300, 0, 200, 300, true, false);
+    }
+
+    @Test
+    public void pricesAreMappedOntoTheCanvasFromTheBottom() {
+        FrameGeometry geometry = geometry();
+        assertThat(geometry.priceToY(0)).isCloseTo(100, within(1e-9));
+        assertThat(geometry.priceToY(50)).isCloseTo(75, within(1e-9));
+        assertThat(geometry.priceToY(200)).isCloseTo(0, within(1e-9));
+        // Prices outside of the y-axis are drawn off the canvas.
+        assertThat(geometry.priceToY(250)).isCloseTo(-25, within(1e-9));
+    }
+
+    @Test
+    public void frameIsTranslatedByTheBarsTheXAxisHasMovedBy() {
+        FrameGeometry geometry = geometry();
+        assertThat(geometry.getTranslateX(300)).isZero();
+        // Moving the x-axis two candles back in time moves the frame two candles to the right.
+        assertThat(geometry.getTranslateX(180)).isCloseTo(20, within(1e-9));
+        assertThat(geometry.getTranslateX(360)).isCloseTo(-10, within(1e-9));
+        // Part of a candle.
+        assertThat(geometry.getTranslateX(270)).isCloseTo(5, within(1e-9));
+    }
+
+    @Test
+    public void candlesAreDrawnInColumnsFromTheRightEdge() {
+        CandleSeries data = new CandleSeries(60);
+        data.putAll(List.of(
+                // Only drawn because of the overscan, so its low is not marked.
+                new CandleData(10, 12, 13, 1, 0, 5),
+                new CandleData(12, 11, 14, 10, 60, 5),
+                new CandleData(11, 15, 150, 10, 120, 5),
+                new CandleData(15, 14, 16, 5, 180, 5),
+                new CandleData(14, 13, 15, 12, 240, 5),
+                // In progress, so it is drawn on the live overlay and its high is not marked.
+                new CandleData(13, 14, 190, 12, 300, 5)));
+
+        FrameModel frameModel = new FrameModelBuilder(geometry(), data, 1, 5, 1, 1, 5, NO_GRID_LINES,
+                NO_GRID_LINES, null).build();
+
+        assertThat(frameModel.getNumCandles()).isEqualTo(5);
+        assertThat(frameModel.getInProgressCandleColumn()).isEqualTo(1);
+        // The historical candles, from newest to oldest, are drawn in columns 2 to 6 (the last one off the left edge
+        // of the canvas).
+        CandleShapes shapes = frameModel.getShapes();
+        assertThat(shapes.size()).isEqualTo(5);
+        for (int i = 0; i < shapes.size(); i++) {
+            assertThat(shapes.getX(i)).isCloseTo(100 - ((i + 2) * 10), within(1e-9));
+        }
+
+        DecimalFormat markerFormat = new DecimalFormat("#.00");
+        assertThat(frameModel.getHighestValue()).isEqualTo(150);
+        assertThat(frameModel.getHighestColumn()).isEqualTo(4);
+        assertThat(frameModel.getHighestText()).isEqualTo(markerFormat.format(150));
+        assertThat(frameModel.getLowestValue()).isEqualTo(5);
+        assertThat(frameModel.getLowestColumn()).isEqualTo(3);
+        assertThat(frameModel.getLowestText()).isEqualTo(markerFormat.format(5));
+    }
+
+    @Test
+    public void inProgressCandleIsNotDrawnWhenItIsOutOfRange() {
+        CandleSeries data = new CandleSeries(60);
+        data.putAll(List.of(
+                new CandleData(10, 12, 13, 9, 0, 5),
+                new CandleData(12, 11, 14, 10, 60, 5),
+                new CandleData(11, 15, 16, 10, 120, 5)));
+
+        // The chart has been panned back so that the newest visible candle is the one at index 1.
+        FrameModel frameModel = new FrameModelBuilder(geometry(), data, 0, 1, 1, 0, 2, NO_GRID_LINES,
+                NO_GRID_LINES, null).build();
+
+        assertThat(frameModel.getNumCandles()).isEqualTo(2);
+        assertThat(frameModel.getInProgressCandleColumn()).isEqualTo(FrameModel.NO_COLUMN);
+        assertThat(frameModel.getShapes().size()).isEqualTo(2);
+        assertThat(frameModel.getHighestColumn()).isEqualTo(1);
+        assertThat(frameModel.getLowestColumn()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,34 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.InProgressCandle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class InProgressCandleTest {
+    @Test
+    public void tradesAreFoldedIntoCandle() {
+        InProgressCandle inProgressCandle = new InProgressCandle();
+        inProgressCandle.setLastPrice(100);
+        inProgressCandle.rollOver(600);
+        assertThat(inProgressCandle.snapshot().isPlaceHolder()).isTrue();
+
+        inProgressCandle.accept(102, 1);
+        inProgressCandle.accept(98, 3);
+        inProgressCandle.accept(101, 4);
+
+        assertThat(inProgressCandle.snapshot()).isEqualTo(new CandleData(100, 101, 102, 98, 600, 8, 100,
+                ((102 * 1) + (98 * 3) + (101 * 4)) / 8d, false));
+
+        inProgressCandle.rollOver(660);
+        CandleData rolledOver = inProgressCandle.snapshot();
+        assertThat(rolledOver.getOpenPrice()).isEqualTo(101);
+        assertThat(rolledOver.getLowPrice()).isEqualTo(101);
+        assertThat(rolledOver.getVolume()).isZero();
+        assertThat(rolledOver.isPlaceHolder()).isTrue();
+    }
+}
@@ -0,0 +1,113 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class KineticPannerTest {
+    private static final long MILLIS = 1_000_000L;
+
+    /**
+     * Drags the given panner by 10 pixels every 10 milliseconds (1000 pixels per second) for 200 milliseconds.
+     *
+     * @return the time of the last drag
+     */
+    private static long dragFast(KineticPanner kineticPanner) {
+        long nanos = 0;
+        for (int i = 0; i <= 20; i++) {
+            nanos = i * 10 * MILLIS;
+            kineticPanner.drag(10, nanos);
+        }
+        return nanos;
+    }
+
+    /**
+     * Steps the flick of the given panner at the given rate until it has stopped.
+     *
+     * @return the total distance the flick moved the chart
+     */
+    private static double flick(KineticPanner kineticPanner, long releaseNanos, double framesPerSecond) {
+        double distance = 0;
+        for (int frame = 1; kineticPanner.isFlicking(); frame++) {
+            distance += kineticPanner.step(releaseNanos + (long) ((frame * 1e9) / framesPerSecond));
+        }
+        return distance;
+    }
+
+    @Test
+    public void flickMovesTheSameDistanceAtAnyFrameRate() {
+        KineticPanner at60Hz = new KineticPanner();
+        long releaseNanos = dragFast(at60Hz) + (5 * MILLIS);
+        assertThat(at60Hz.release(releaseNanos)).isTrue();
+        double velocity = at60Hz.getVelocity(releaseNanos);
+        assertThat(velocity).isCloseTo(1000, within(50d));
+
+        KineticPanner at144Hz = new KineticPanner();
+        assertThat(at144Hz.release(dragFast(at144Hz) + (5 * MILLIS))).isTrue();
+        assertThat(at144Hz.getVelocity(releaseNanos)).isEqualTo(velocity);
+
+        double distanceAt60Hz = flick(at60Hz, releaseNanos, 60);
+        double distanceAt144Hz = flick(at144Hz, releaseNanos, 144);
+        assertThat(distanceAt60Hz).isPositive();
+        // The flick stops at the first step that slows it below the stop velocity, so the distances can only differ
+        // by (less than) one step at that velocity.
+        assertThat(distanceAt144Hz).isCloseTo(distanceAt60Hz, within(0.5));
+        assertThat(at60Hz.getVelocity(Long.MAX_VALUE)).isZero();
+    }
+
+    @Test
+    public void dragReleasedAfterBeingHeldStillIsNotFlicked() {
+        KineticPanner kineticPanner = new KineticPanner();
+        long lastDragNanos = dragFast(kineticPanner);
+
+        assertThat(kineticPanner.release(lastDragNanos + KineticPanner.MAX_RELEASE_DELAY_NANOS + 1)).isFalse();
+        assertThat(kineticPanner.isFlicking()).isFalse();
+        assertThat(kineticPanner.step(lastDragNanos + KineticPanner.MAX_RELEASE_DELAY_NANOS + (20 * MILLIS)))
+                .isZero();
+
+        // Released right at the delay, it still is.
+        KineticPanner flicked = new KineticPanner();
+        lastDragNanos = dragFast(flicked);
+        assertThat(flicked.release(lastDragNanos + KineticPanner.MAX_RELEASE_DELAY_NANOS)).isTrue();
+    }
+
+    @Test
+    public void slowDragIsNotFlicked() {
+        KineticPanner kineticPanner = new KineticPanner();
+        for (int i = 0; i <= 20; i++) {
+            kineticPanner.drag(1, i * 10 * MILLIS);
+        }
+        assertThat(kineticPanner.getVelocity(200 * MILLIS)).isCloseTo(100, within(10d));
+        assertThat(kineticPanner.release(200 * MILLIS)).isFalse();
+    }
+
+    @Test
+    public void draggingStopsTheFlick() {
+        KineticPanner kineticPanner = new KineticPanner();
+        long releaseNanos = dragFast(kineticPanner);
+        assertThat(kineticPanner.release(releaseNanos)).isTrue();
+        assertThat(kineticPanner.step(releaseNanos + (16 * MILLIS))).isPositive();
+
+        kineticPanner.drag(-3, releaseNanos + (20 * MILLIS));
+
+        assertThat(kineticPanner.isFlicking()).isFalse();
+        assertThat(kineticPanner.step(releaseNanos + (32 * MILLIS))).isZero();
+        // A new drag starts from rest.
+        assertThat(kineticPanner.getVelocity(releaseNanos + (20 * MILLIS))).isZero();
+    }
+
+    @Test
+    public void velocityFollowsTheDragUntilItIsHeldStill() {
+        KineticPanner kineticPanner = new KineticPanner();
+        assertThat(kineticPanner.getVelocity(0)).isZero();
+        for (int i = 0; i <= 20; i++) {
+            kineticPanner.drag(-10, i * 10 * MILLIS);
+        }
+        assertThat(kineticPanner.getVelocity(200 * MILLIS)).isCloseTo(-1000, within(50d));
+        assertThat(kineticPanner.getVelocity(200 * MILLIS + KineticPanner.MAX_RELEASE_DELAY_NANOS + 1)).isZero();
+    }
+}
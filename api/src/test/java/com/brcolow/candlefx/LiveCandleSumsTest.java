@@ -0,0 +1,58 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class LiveCandleSumsTest {
+    private static final TradePair BTC_USD = TradePair.of("BTC", "USD");
+
+    @Test
+    public void tradesAreSummedExactly() {
+        InProgressCandle candle = new InProgressCandle();
+        candle.setLastPrice(10_000);
+        candle.rollOver(600);
+        LiveCandleSums sums = new LiveCandleSums(BTC_USD);
+        sums.reset(candle);
+
+        // Summing 0.1 BTC ten thousand times as doubles would not give exactly 1000 BTC.
+        TradeSlot trade = new TradeSlot();
+        for (int i = 0; i < 10_000; i++) {
+            trade.set(BTC_USD.getId(), "10432.17", "0.1", Side.BUY, i, 600, 0);
+            sums.accept(candle, trade);
+        }
+
+        assertThat(sums.getVolume().toBigDecimal()).isEqualByComparingTo("1000");
+        assertThat(sums.getNotional().toBigDecimal()).isEqualByComparingTo("10432170");
+        assertThat(candle.getVolumeSoFar()).isEqualTo(1000);
+        assertThat(candle.getVolumeWeightedAveragePrice()).isEqualTo(10_432.17);
+        assertThat(candle.getHighPriceSoFar()).isEqualTo(10_432.17);
+        assertThat(candle.isPlaceHolder()).isFalse();
+    }
+
+    @Test
+    public void sumsRestartFromTheCandle() {
+        InProgressCandle candle = new InProgressCandle();
+        candle.setLastPrice(100);
+        candle.rollOver(600);
+        // The volume the candle was caught up with before live trades are streamed.
+        candle.setVolumeSoFar(2);
+        candle.setVolumeWeightedPriceSoFar(200);
+        LiveCandleSums sums = new LiveCandleSums(BTC_USD);
+        sums.reset(candle);
+
+        TradeSlot trade = new TradeSlot().set(BTC_USD.getId(), "103", "1", Side.SELL, 1, 610, 0);
+        sums.accept(candle, trade);
+        assertThat(candle.getVolumeSoFar()).isEqualTo(3);
+        assertThat(candle.getVolumeWeightedAveragePrice()).isEqualTo(101);
+
+        candle.rollOver(660);
+        sums.reset(candle);
+        sums.accept(candle, trade);
+        assertThat(candle.getVolumeSoFar()).isEqualTo(1);
+        assertThat(candle.getVolumeWeightedPriceSoFar()).isEqualTo(103);
+    }
+}
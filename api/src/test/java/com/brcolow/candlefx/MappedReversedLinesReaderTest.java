@@ -0,0 +1,53 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.brcolow.candlefx.MappedReversedLinesReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Michael Ennen
+ */
+public class MappedReversedLinesReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void linesAreReadBackwardsAcrossWindowsAndParsedFromBytes() throws Exception {
+        Path file = directory.resolve("trades.csv");
+        Files.write(file, ("1315922016,5.800000000000,1.000000000000\r\n" +
+                "1315922373,5.9,0.0123\n" +
+                "\n" +
+                "-42,-0.1,1e3\n").getBytes(StandardCharsets.US_ASCII));
+
+        List<String> lines = new ArrayList<>();
+        // A window smaller than the file forces it to be moved back partway through scanning a line.
+        try (MappedReversedLinesReader reader = new MappedReversedLinesReader(file, 48)) {
+            MappedReversedLinesReader.Line line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line.toString());
+                if (lines.size() == 1) {
+                    assertThat(line.parseInt(0, 3)).isEqualTo(-42);
+                    assertThat(line.parseDouble(4, 8)).isEqualTo(-0.1);
+                    assertThat(line.parseDouble(9, 12)).isEqualTo(1000);
+                } else if (lines.size() == 3) {
+                    int firstComma = line.indexOf(',', 0);
+                    int secondComma = line.indexOf(',', firstComma + 1);
+                    assertThat(line.parseInt(0, firstComma)).isEqualTo(1315922373);
+                    assertThat(line.parseDouble(firstComma + 1, secondComma)).isEqualTo(5.9);
+                    assertThat(line.parseDouble(secondComma + 1, line.length())).isEqualTo(0.0123);
+                }
+            }
+        }
+
+        assertThat(lines).containsExactly("-42,-0.1,1e3", "", "1315922373,5.9,0.0123",
+                "1315922016,5.800000000000,1.000000000000");
+    }
+}
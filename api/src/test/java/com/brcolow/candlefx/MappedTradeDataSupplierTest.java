@@ -0,0 +1,51 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.brcolow.candlefx.BinaryTradeArchive;
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.MappedTradeDataSupplier;
+import com.brcolow.candlefx.TradePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Michael Ennen
+ */
+public class MappedTradeDataSupplierTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void candlesAreAggregatedFromConvertedArchive() throws Exception {
+        Path rawTradeData = directory.resolve("trades.csv");
+        Files.write(rawTradeData, List.of(
+                "12000,5.0,1.0",
+                "12030,7.0,3.0",
+                "12059,6.0,1.0",
+                "12180,4.0,2.0"));
+        Path archiveFile = directory.resolve("trades.bin");
+        assertThat(BinaryTradeArchive.convert(rawTradeData, archiveFile)).isEqualTo(4);
+
+        try (BinaryTradeArchive archive = BinaryTradeArchive.open(archiveFile)) {
+            assertThat(archive.size()).isEqualTo(4);
+            assertThat(archive.lowerBound(12030)).isEqualTo(1);
+            assertThat(archive.lowerBound(12060)).isEqualTo(3);
+
+            MappedTradeDataSupplier supplier = new MappedTradeDataSupplier(archive, 60,
+                    TradePair.of("BTC", "USD"));
+            List<CandleData> candleData = supplier.get().get();
+            assertThat(candleData).containsExactly(
+                    new CandleData(5, 6, 7, 5, 12000, 5, 6, ((5 * 1) + (7 * 3) + (6 * 1)) / 5d, false),
+                    new CandleData(6, 6, 6, 6, 12060, 0, 0, 0, true),
+                    new CandleData(6, 6, 6, 6, 12120, 0, 0, 0, true),
+                    new CandleData(4, 4, 4, 4, 12180, 2, 4, 4, false));
+            // The next page is before the first trade.
+            assertThat(supplier.get().get()).isEmpty();
+        }
+    }
+}
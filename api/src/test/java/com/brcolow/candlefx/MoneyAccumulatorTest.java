@@ -0,0 +1,72 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import com.brcolow.candlefx.Currency;
+import com.brcolow.candlefx.DefaultMoney;
+import com.brcolow.candlefx.FastMoney;
+import com.brcolow.candlefx.Money;
+import com.brcolow.candlefx.MoneyAccumulator;
+import com.brcolow.candlefx.Side;
+import com.brcolow.candlefx.Trade;
+import com.brcolow.candlefx.TradePair;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class MoneyAccumulatorTest {
+    @Test
+    public void amountsAreSummedAndRoundedToThePrecision() {
+        MoneyAccumulator accumulator = new MoneyAccumulator(Currency.ofFiat("USD"));
+        accumulator.add(FastMoney.ofFiat(5.10, "USD"))
+                .add(DefaultMoney.ofFiat("0.25", "USD"))
+                .add(1.005)
+                .subtract(FastMoney.ofFiat(0.35, "USD"))
+                // 1304.02125 is rounded down to 1304.02.
+                .addProduct(FastMoney.ofFiat(10_432.17, "USD"), FastMoney.ofCrypto(0.125, "BTC"));
+
+        Money sum = accumulator.toMoney();
+        assertThat(sum).isInstanceOf(FastMoney.class);
+        assertThat(sum.toBigDecimal()).isEqualByComparingTo("1310.02");
+        assertThat(accumulator.toDouble()).isEqualTo(1310.02);
+
+        accumulator.reset();
+        assertThat(accumulator.isZero()).isTrue();
+        assertThatThrownBy(() -> accumulator.add(FastMoney.ofCrypto(1, "BTC")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void overflowingSumContinuesExactly() {
+        MoneyAccumulator accumulator = new MoneyAccumulator(Currency.ofFiat("USD"));
+        accumulator.add(Long.MAX_VALUE, 2).add(Long.MAX_VALUE, 2).add(-1, 2);
+
+        assertThat(accumulator.toMoney().toBigDecimal()).isEqualByComparingTo(
+                BigDecimal.valueOf(Long.MAX_VALUE, 2).multiply(BigDecimal.valueOf(2)).subtract(new BigDecimal("0.01")));
+    }
+
+    @Test
+    public void productOfUnitsIsExact() {
+        MoneyAccumulator accumulator = new MoneyAccumulator(Currency.ofFiat("USD"), 8);
+        // 10432.17 * 0.125 and 3 * 0.00000001, and a product that does not fit in a long.
+        accumulator.addProduct(1_043_217, 2, 125, 3)
+                .addProduct(3, 0, 1, 8)
+                .addProduct(Long.MAX_VALUE, 8, 10, 0);
+
+        assertThat(accumulator.toMoney().toBigDecimal()).isEqualByComparingTo(new BigDecimal("1304.02125003").add(
+                BigDecimal.valueOf(Long.MAX_VALUE, 8).multiply(BigDecimal.TEN)));
+    }
+
+    @Test
+    public void tradeTotalIsExact() {
+        Trade trade = new Trade(TradePair.of("BTC", "USD"), FastMoney.ofFiat(10_432.17, "USD"),
+                FastMoney.ofCrypto(0.125, "BTC"), Side.BUY, 1, 1_600_000_000L);
+
+        assertThat(trade.getTotal().getCurrency()).isEqualTo(Currency.ofFiat("USD"));
+        assertThat(trade.getTotal().toBigDecimal()).isEqualByComparingTo("1304.02125");
+    }
+}
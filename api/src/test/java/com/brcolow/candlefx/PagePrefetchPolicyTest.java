@@ -0,0 +1,33 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import com.brcolow.candlefx.PagePrefetchPolicy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class PagePrefetchPolicyTest {
+    @Test
+    public void pagesAheadScaleWithPanVelocityUpToTheLimits() {
+        PagePrefetchPolicy policy = new PagePrefetchPolicy(4, 2, Duration.ofSeconds(2));
+
+        // Not panning back in time.
+        assertThat(policy.getPagesToFetch(0, 0, 200, 0)).isZero();
+        assertThat(policy.getPagesToFetch(0, -300, 200, 0)).isZero();
+        // 2 seconds at 50 candles per second are already covered by the 150 candles ahead.
+        assertThat(policy.getPagesToFetch(150, 50, 200, 0)).isZero();
+        assertThat(policy.getPagesToFetch(50, 50, 200, 0)).isEqualTo(1);
+        // Panning fast wants 5 pages, but only 2 may be in-flight at once.
+        assertThat(policy.getPagesToFetch(0, 500, 200, 0)).isEqualTo(2);
+        assertThat(policy.getPagesToFetch(0, 500, 200, 1)).isEqualTo(1);
+        assertThat(policy.getPagesToFetch(0, 500, 200, 2)).isZero();
+        // With 3 pages already ahead of the viewport, the depth only allows one more.
+        assertThat(policy.getPagesToFetch(600, 5000, 200, 0)).isEqualTo(1);
+
+        assertThat(PagePrefetchPolicy.NONE.getPagesToFetch(0, 5000, 200, 0)).isZero();
+    }
+}
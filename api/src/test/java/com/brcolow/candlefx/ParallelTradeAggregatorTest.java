@@ -0,0 +1,59 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.ParallelTradeAggregator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Michael Ennen
+ */
+public class ParallelTradeAggregatorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void chunkedAggregationMatchesSequentialAggregation() throws Exception {
+        Path rawTradeData = directory.resolve("trades.csv");
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<>();
+        int timestamp = 1_000_000;
+        for (int i = 0; i < 5000; i++) {
+            timestamp += random.nextInt(20);
+            // Whole prices and amounts so that the sums do not depend on the order they are added in.
+            lines.add(timestamp + "," + (100 + random.nextInt(50)) + ".0," + (1 + random.nextInt(5)));
+        }
+        Files.write(rawTradeData, lines);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<CandleData> sequential = new ParallelTradeAggregator(pool, 1 << 30).aggregate(rawTradeData, 60);
+            List<CandleData> parallel = new ParallelTradeAggregator(pool, 256).aggregate(rawTradeData, 60);
+            assertThat(parallel).isEqualTo(sequential);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void tradesAreAggregatedIntoCandles() throws Exception {
+        Path rawTradeData = directory.resolve("trades.csv");
+        Files.write(rawTradeData, List.of("60,5.0,1", "61,7.0,3", "61,6.0,1", "185,4.0,2"));
+
+        List<CandleData> candleData = new ParallelTradeAggregator(ForkJoinPool.commonPool(), 10)
+                .aggregate(rawTradeData, 60);
+
+        assertThat(candleData).containsExactly(
+                new CandleData(5, 6, 7, 5, 60, 5, 6, ((5 * 1) + (7 * 3) + (6 * 1)) / 5d, false),
+                new CandleData(4, 4, 4, 4, 180, 2, 4, 4, false));
+    }
+}
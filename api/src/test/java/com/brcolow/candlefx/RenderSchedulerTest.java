@@ -0,0 +1,78 @@
+package com.brcolow.candlefx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.brcolow.candlefx.RenderScheduler.DirtyLevel;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class RenderSchedulerTest {
+    private final List<DirtyLevel> renders = new ArrayList<>();
+    private int pulseStarts;
+    private final RenderScheduler renderScheduler = new RenderScheduler(renders::add, () -> pulseStarts++);
+
+    @Test
+    public void requestsWithinPulseAreCoalescedAtTheHighestLevel() {
+        renderScheduler.requestRender(DirtyLevel.LIVE);
+        renderScheduler.requestRender(DirtyLevel.FRAME);
+        renderScheduler.requestRender(DirtyLevel.PAN);
+        renderScheduler.requestRender(DirtyLevel.LIVE);
+
+        // Only the first request starts the pulses, the others are satisfied by the pending render.
+        assertThat(pulseStarts).isEqualTo(1);
+        assertThat(renderScheduler.pulse()).isTrue();
+        assertThat(renders).containsExactly(DirtyLevel.FRAME);
+        assertThat(renderScheduler.getRequestedFrameCount()).isEqualTo(4);
+        assertThat(renderScheduler.getRenderedFrameCount()).isEqualTo(1);
+
+        renderScheduler.requestRender(DirtyLevel.PAN);
+        renderScheduler.requestRender();
+        renderScheduler.requestRender(DirtyLevel.LIVE);
+        assertThat(renderScheduler.pulse()).isTrue();
+        assertThat(renders).containsExactly(DirtyLevel.FRAME, DirtyLevel.FULL);
+    }
+
+    @Test
+    public void pulseMarksTheChartClean() {
+        renderScheduler.requestRender();
+        assertThat(renderScheduler.pulse()).isTrue();
+
+        // Nothing was requested since, so the next pulse renders nothing (and the pulses can stop).
+        assertThat(renderScheduler.pulse()).isFalse();
+        assertThat(renders).containsExactly(DirtyLevel.FULL);
+        assertThat(renderScheduler.getRenderedFrameCount()).isEqualTo(1);
+
+        // Once clean, the chart is rendered at the level of the next request (not that of the last render), and
+        // the request starts the pulses again.
+        renderScheduler.requestRender(DirtyLevel.LIVE);
+        assertThat(pulseStarts).isEqualTo(2);
+        assertThat(renderScheduler.pulse()).isTrue();
+        assertThat(renders).containsExactly(DirtyLevel.FULL, DirtyLevel.LIVE);
+    }
+
+    @Test
+    public void renderTimeIsReportedToTheListener() {
+        List<Long> renderNanos = new ArrayList<>();
+        renderScheduler.setRenderTimeListener(renderNanos::add);
+        renderScheduler.requestRender(DirtyLevel.PAN);
+        renderScheduler.pulse();
+        renderScheduler.pulse();
+
+        assertThat(renderNanos).hasSize(1);
+        assertThat(renderNanos.get(0)).isNotNegative();
+    }
+
+    @Test
+    public void cleanCanNotBeRequested() {
+        assertThatThrownBy(() -> renderScheduler.requestRender(DirtyLevel.CLEAN))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(renderScheduler.getRequestedFrameCount()).isZero();
+        assertThat(pulseStarts).isZero();
+    }
+}
@@ -0,0 +1,58 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.ReverseRawTradeDataProcessor;
+import com.brcolow.candlefx.StreamingCandleBucketer;
+import com.brcolow.candlefx.TradePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author Michael Ennen
+ */
+public class StreamingCandleBucketerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void descendingTradesAreBucketedNewestFirst() {
+        List<CandleData> candleData = new ArrayList<>();
+        StreamingCandleBucketer bucketer = new StreamingCandleBucketer(60, true, candleData::add);
+        // The trades of the file "60,5.0,1", "61,7.0,3", "61,6.0,1", "185,4.0,2" read backwards.
+        assertThat(bucketer.accept(185, 4, 2)).isTrue();
+        assertThat(bucketer.accept(61, 6, 1)).isTrue();
+        assertThat(bucketer.accept(61, 7, 3)).isTrue();
+        assertThat(bucketer.accept(60, 5, 1)).isTrue();
+        assertThat(bucketer.accept(61, 8, 1)).isFalse();
+        bucketer.finish();
+
+        assertThat(candleData).containsExactly(
+                new CandleData(4, 4, 4, 4, 180, 2, 4, 4, false),
+                new CandleData(5, 6, 7, 5, 60, 5, 6, ((5 * 1) + (7 * 3) + (6 * 1)) / 5d, false));
+    }
+
+    @Test
+    public void outOfOrderTradesFallBackToAggregatingTheWholeFile() throws Exception {
+        Path sorted = directory.resolve("sorted.csv");
+        Files.write(sorted, List.of("60,5.0,1", "61,7.0,3", "122,6.0,1", "185,4.0,2", "190,3.0,1"));
+        Path unsorted = directory.resolve("unsorted.csv");
+        Files.write(unsorted, List.of("60,5.0,1", "122,6.0,1", "61,7.0,3", "185,4.0,2", "190,3.0,1"));
+
+        TradePair tradePair = TradePair.of("BTC", "USD");
+        List<CandleData> expected = new ReverseRawTradeDataProcessor(sorted, 60, tradePair).get().get();
+        List<CandleData> actual = new ReverseRawTradeDataProcessor(unsorted, 60, tradePair).get().get();
+
+        assertThat(expected).containsExactly(
+                new CandleData(5, 7, 7, 5, 60, 4, 6, ((5 * 1) + (7 * 3)) / 4d, false),
+                new CandleData(6, 6, 6, 6, 120, 1, 6, 6, false),
+                new CandleData(4, 3, 4, 3, 180, 3, 3.5, ((4 * 2) + (3 * 1)) / 3d, false));
+        assertThat(actual).isEqualTo(expected);
+    }
+}
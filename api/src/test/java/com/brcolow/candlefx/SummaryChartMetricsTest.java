@@ -0,0 +1,36 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.brcolow.candlefx.RenderScheduler;
+import com.brcolow.candlefx.SummaryChartMetrics;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class SummaryChartMetricsTest {
+    @Test
+    public void measurementsAreSummarized() {
+        SummaryChartMetrics metrics = new SummaryChartMetrics();
+        metrics.recordDraw(RenderScheduler.DirtyLevel.FULL, 3000, 120);
+        metrics.recordDraw(RenderScheduler.DirtyLevel.LIVE, 1000, 1);
+        metrics.recordLiveTradeQueueDepth(0);
+        metrics.recordTileCacheLookups(7, 2);
+        metrics.recordTileCacheLookups(9, 0);
+
+        assertThat(metrics.getDrawNanos().getCount()).isEqualTo(2);
+        assertThat(metrics.getDrawNanos().getMean()).isEqualTo(2000);
+        assertThat(metrics.getDrawNanos().getMax()).isEqualTo(3000);
+        assertThat(metrics.getCandlesDrawn().getTotal()).isEqualTo(121);
+        assertThat(metrics.getLiveTradeQueueDepth().getCount()).isEqualTo(1);
+        assertThat(metrics.getTileCacheHits().getTotal()).isEqualTo(16);
+        assertThat(metrics.getTileCacheMisses().getMax()).isEqualTo(2);
+        assertThat(metrics.getPageFetchNanos().getCount()).isZero();
+        assertThat(metrics.getPageFetchNanos().getMean()).isZero();
+
+        metrics.reset();
+        assertThat(metrics.getDrawNanos().getCount()).isZero();
+        assertThat(metrics.getDrawNanos().getMax()).isZero();
+    }
+}
@@ -0,0 +1,66 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import com.brcolow.candlefx.TradePair;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class TradePairTest {
+    @Test
+    public void tradePairsRegisteredConcurrentlyGetTheirOwnIds() throws InterruptedException {
+        String[] codes = {"AUD", "BRL", "CAD", "CHF", "CNY", "EUR", "GBP", "HKD", "INR", "JPY"};
+        List<String[]> currencyPairs = new ArrayList<>();
+        for (String baseCode : codes) {
+            for (String counterCode : codes) {
+                if (!baseCode.equals(counterCode)) {
+                    currencyPairs.add(new String[] {baseCode, counterCode});
+                }
+            }
+        }
+
+        int numThreads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            List<String[]> shuffled = new ArrayList<>(currencyPairs);
+            Collections.shuffle(shuffled, new Random(t));
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // New (equal) instances, so that every thread registers the trade pairs itself.
+                for (String[] currencyPair : shuffled) {
+                    TradePair.of(currencyPair[0], currencyPair[1]).getId();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (String[] currencyPair : currencyPairs) {
+            TradePair tradePair = TradePair.of(currencyPair[0], currencyPair[1]);
+            assertThat(TradePair.ofId(tradePair.getId())).isEqualTo(tradePair);
+            ids.add(tradePair.getId());
+        }
+        assertThat(ids).hasSize(currencyPairs.size());
+    }
+}
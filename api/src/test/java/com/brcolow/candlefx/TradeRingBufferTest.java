@@ -0,0 +1,136 @@
+package com.brcolow.candlefxtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.brcolow.candlefx.DefaultMoney;
+import com.brcolow.candlefx.FastMoney;
+import com.brcolow.candlefx.Side;
+import com.brcolow.candlefx.Trade;
+import com.brcolow.candlefx.TradePair;
+import com.brcolow.candlefx.TradeRingBuffer;
+import com.brcolow.candlefx.TradeSlot;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Michael Ennen
+ */
+public class TradeRingBufferTest {
+    @Test
+    public void fullRingDropsAndCountsTrades() {
+        TradeRingBuffer ringBuffer = new TradeRingBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            TradeSlot slot = ringBuffer.claim();
+            if (slot != null) {
+                slot.set(0, i, 0, 1, 0, Side.BUY, i, i, 0);
+                ringBuffer.publish();
+            }
+        }
+
+        assertThat(ringBuffer.size()).isEqualTo(4);
+        assertThat(ringBuffer.getDroppedCount()).isEqualTo(2);
+        List<Long> tradeIds = new ArrayList<>();
+        assertThat(ringBuffer.drain(slot -> tradeIds.add(slot.getTradeId()))).isEqualTo(4);
+        assertThat(tradeIds).containsExactly(0L, 1L, 2L, 3L);
+        assertThat(ringBuffer.size()).isZero();
+    }
+
+    @Test
+    public void consumerSeesEveryTradeInOrderAcrossThreads() throws InterruptedException {
+        TradeRingBuffer ringBuffer = new TradeRingBuffer(1024);
+        int numTrades = 50_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < numTrades; i++) {
+                TradeSlot slot;
+                while ((slot = ringBuffer.claim()) == null) {
+                    Thread.yield();
+                }
+                slot.set(0, i, 0, i * 2L, 0, Side.SELL, i, i, 0);
+                ringBuffer.publish();
+            }
+        });
+        producer.start();
+
+        long[] expected = new long[1];
+        boolean[] inOrder = {true};
+        while (expected[0] < numTrades) {
+            int drained = ringBuffer.drain(slot -> {
+                inOrder[0] &= slot.getTradeId() == expected[0] && slot.getAmount() == expected[0] * 2;
+                expected[0]++;
+            });
+            if (drained == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+
+        assertThat(inOrder[0]).isTrue();
+    }
+
+    @Test
+    public void tradesAreHeldInFixedPoint() {
+        TradePair tradePair = TradePair.of("BTC", "USD");
+        TradeRingBuffer ringBuffer = new TradeRingBuffer(4);
+        ringBuffer.claim().set(tradePair.getId(), "10432.17", "0.00100000", Side.BUY, 1, 1_600_000_000L, 0);
+        ringBuffer.publish();
+        ringBuffer.offer(new Trade(tradePair, FastMoney.parse("10432.1", tradePair.getCounterCurrency()),
+                FastMoney.parse("2", tradePair.getBaseCurrency()), Side.SELL, 2, 1_600_000_001L));
+
+        List<TradeSlot> slots = new ArrayList<>();
+        ringBuffer.drain(slot -> {
+            assertThat(TradePair.ofId(slot.getTradePairId())).isEqualTo(tradePair);
+            slots.add(slot);
+        });
+        assertThat(slots.get(0).getPriceUnits()).isEqualTo(1043217);
+        assertThat(slots.get(0).getPriceScale()).isEqualTo(2);
+        assertThat(slots.get(0).getAmountUnits()).isEqualTo(100000);
+        assertThat(slots.get(0).getAmountScale()).isEqualTo(8);
+        assertThat(slots.get(0).getPrice()).isEqualTo(10432.17);
+        assertThat(slots.get(0).getAmount()).isEqualTo(0.001);
+        assertThat(slots.get(1).getPrice()).isEqualTo(10432.1);
+        assertThat(slots.get(1).getAmount()).isEqualTo(2);
+    }
+
+    @Test
+    public void decimalTradesAreRoundedToFitInFixedPoint() {
+        TradePair tradePair = TradePair.of("BTC", "USD");
+        TradeRingBuffer ringBuffer = new TradeRingBuffer(4);
+        // 1234567890.123456789012300 has too many digits for a long, so it is rounded to 9 fractional digits.
+        assertThat(ringBuffer.offer(new Trade(tradePair,
+                new DefaultMoney(new BigDecimal("10432.17"), tradePair.getCounterCurrency()),
+                new DefaultMoney(new BigDecimal("1234567890.1234567890123"), tradePair.getBaseCurrency()),
+                Side.BUY, 1, 1_600_000_000L))).isTrue();
+
+        List<TradeSlot> slots = new ArrayList<>();
+        ringBuffer.drain(slots::add);
+        assertThat(slots).hasSize(1);
+        assertThat(slots.get(0).getPriceUnits()).isEqualTo(1043217);
+        assertThat(slots.get(0).getPriceScale()).isEqualTo(2);
+        assertThat(slots.get(0).getAmountUnits()).isEqualTo(1234567890123456789L);
+        assertThat(slots.get(0).getAmountScale()).isEqualTo(9);
+        assertThat(ringBuffer.getDroppedCount()).isZero();
+    }
+
+    @Test
+    public void tradeThatDoesNotFitInFixedPointIsDroppedWithoutClaimingSlot() {
+        TradePair tradePair = TradePair.of("BTC", "USD");
+        TradeRingBuffer ringBuffer = new TradeRingBuffer(4);
+        assertThat(ringBuffer.offer(new Trade(tradePair,
+                new DefaultMoney(new BigDecimal("10432.17"), tradePair.getCounterCurrency()),
+                new DefaultMoney(new BigDecimal("12345678901234567890.5"), tradePair.getBaseCurrency()),
+                Side.BUY, 1, 1_600_000_000L))).isFalse();
+        assertThat(ringBuffer.getDroppedCount()).isEqualTo(1);
+        assertThat(ringBuffer.size()).isZero();
+
+        // The next trade is published as usual.
+        assertThat(ringBuffer.offer(new Trade(tradePair, FastMoney.parse("10432.1", tradePair.getCounterCurrency()),
+                FastMoney.parse("2", tradePair.getBaseCurrency()), Side.SELL, 2, 1_600_000_001L))).isTrue();
+        List<TradeSlot> slots = new ArrayList<>();
+        ringBuffer.drain(slots::add);
+        assertThat(slots).hasSize(1);
+        assertThat(slots.get(0).getTradeId()).isEqualTo(2);
+    }
+}
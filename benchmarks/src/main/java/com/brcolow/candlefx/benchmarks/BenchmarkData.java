@@ -0,0 +1,56 @@
+package com.brcolow.candlefx.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import com.brcolow.candlefx.CandleData;
+
+/**
+ * Generates the (seeded, and thus repeatable) data the benchmarks run against.
+ *
+ * @author Michael Ennen
+ */
+final class BenchmarkData {
+    private BenchmarkData() {}
+
+    /**
+     * @return {@code count} consecutive candles following a random walk
+     */
+    static List<CandleData> randomCandles(Random random, int count, int secondsPerCandle) {
+        List<CandleData> candleData = new ArrayList<>(count);
+        double price = 10_000;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            double close = Math.max(1, open + (random.nextGaussian() * 20));
+            double high = Math.max(open, close) + (random.nextDouble() * 10);
+            double low = Math.max(0.5, Math.min(open, close) - (random.nextDouble() * 10));
+            double volume = random.nextDouble() * 500;
+            candleData.add(new CandleData(open, close, high, low, i * secondsPerCandle, volume));
+            price = close;
+        }
+        return candleData;
+    }
+
+    /**
+     * Writes {@code count} trades, in time order, in the raw trade data format ("timestamp,price,amount").
+     */
+    static void writeRawTradeData(Path rawTradeData, Random random, int count) throws IOException {
+        int timestamp = 1_500_000_000;
+        double price = 10_000;
+        try (BufferedWriter writer = Files.newBufferedWriter(rawTradeData, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < count; i++) {
+                timestamp += random.nextInt(3);
+                price = Math.max(1, price + (random.nextGaussian() * 2));
+                writer.write(String.format(Locale.US, "%d,%.12f,%.12f", timestamp, price, random.nextDouble()));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.brcolow.candlefx.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.ParallelTradeAggregator;
+import com.brcolow.candlefx.ReverseRawTradeDataProcessor;
+import com.brcolow.candlefx.TradePair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures building candles from a raw trade data file, both page by page (as the chart does when it is backed by
+ * a {@link ReverseRawTradeDataProcessor}) and all at once with a {@link ParallelTradeAggregator}.
+ *
+ * @author Michael Ennen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CandleBuildingBenchmark {
+    private static final TradePair TRADE_PAIR = TradePair.of("BTC", "USD");
+
+    @Param({"1000000"})
+    private int tradeCount;
+
+    @Param({"60", "3600"})
+    private int secondsPerCandle;
+
+    private Path rawTradeData;
+
+    @Setup
+    public void setup() throws IOException {
+        rawTradeData = Files.createTempFile("candlefx-benchmark-", ".csv");
+        BenchmarkData.writeRawTradeData(rawTradeData, new Random(42), tradeCount);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(rawTradeData);
+    }
+
+    @Benchmark
+    public void reverseRawTradeDataProcessor(Blackhole blackhole) throws IOException, ExecutionException,
+            InterruptedException {
+        ReverseRawTradeDataProcessor processor = new ReverseRawTradeDataProcessor(rawTradeData, secondsPerCandle,
+                TRADE_PAIR);
+        List<CandleData> page;
+        while (!(page = processor.get().get()).isEmpty()) {
+            blackhole.consume(page);
+        }
+    }
+
+    @Benchmark
+    public List<CandleData> parallelTradeAggregator() throws IOException {
+        return new ParallelTradeAggregator().aggregate(rawTradeData, secondsPerCandle);
+    }
+}
@@ -0,0 +1,91 @@
+package com.brcolow.candlefx.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.CandleSeries;
+import com.brcolow.candlefx.CandleStickChartUtils;
+import com.brcolow.candlefx.Extrema;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures computing the extrema of the candles visible at each scroll position, which happens whenever candle
+ * data is paged in or the zoom level changes.
+ *
+ * <p>The chart queries the extrema of the visible candles from its {@link CandleSeries}. The sliding window
+ * extrema of {@link CandleStickChartUtils}, which the chart used to precompute for every scroll position, are
+ * measured alongside it for comparison.
+ *
+ * <p>The window sizes are the number of visible candles at typical zoom levels of a full-screen chart.
+ *
+ * @author Michael Ennen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtremaBenchmark {
+    @Param({"1000", "10000"})
+    private int candleCount;
+
+    @Param({"50", "200", "800"})
+    private int windowSize;
+
+    private List<CandleData> candleData;
+    private List<CandleData> mostRecentCandleData;
+    private CandleSeries candleSeries;
+
+    @Setup
+    public void setup() {
+        candleData = BenchmarkData.randomCandles(new Random(42), candleCount, 60);
+        mostRecentCandleData = new ArrayList<>(candleData.subList(candleCount - windowSize, candleCount));
+        candleSeries = new CandleSeries(60, candleCount);
+        candleSeries.putAll(candleData);
+        // The extrema of a page of candles are indexed lazily, on the first query.
+        candleSeries.getPriceExtrema(0, windowSize);
+    }
+
+    /**
+     * Queries the price extrema of the window at every scroll position, like the sliding window extrema are
+     * computed for every scroll position.
+     */
+    @Benchmark
+    public void getPriceExtrema(Blackhole blackhole) {
+        for (int fromIndex = 0; fromIndex <= candleCount - windowSize; fromIndex++) {
+            blackhole.consume(candleSeries.getPriceExtrema(fromIndex, fromIndex + windowSize));
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Pair<Extrema<Integer>, Extrema<Integer>>> putSlidingWindowExtrema() {
+        Map<Integer, Pair<Extrema<Integer>, Extrema<Integer>>> extrema = new HashMap<>(candleCount);
+        CandleStickChartUtils.putSlidingWindowExtrema(extrema, candleData, windowSize);
+        return extrema;
+    }
+
+    @Benchmark
+    public Map<Integer, Pair<Extrema<Integer>, Extrema<Integer>>> putExtremaForRemainingElements() {
+        Map<Integer, Pair<Extrema<Integer>, Extrema<Integer>>> extrema = new HashMap<>(windowSize);
+        CandleStickChartUtils.putExtremaForRemainingElements(extrema, mostRecentCandleData);
+        return extrema;
+    }
+}
@@ -0,0 +1,87 @@
+package com.brcolow.candlefx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.brcolow.candlefx.DefaultMoney;
+import com.brcolow.candlefx.FastMoney;
+import com.brcolow.candlefx.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the arithmetic of {@link FastMoney} with that of {@link DefaultMoney} (which is backed by a
+ * {@code BigDecimal}), using the operations needed to total up trades: adding, multiplying by an amount and
+ * comparing.
+ *
+ * @author Michael Ennen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    private Money fastPrice;
+    private Money fastTotal;
+    private Money defaultPrice;
+    private Money defaultTotal;
+    private double amount;
+
+    @Setup
+    public void setup() {
+        fastPrice = FastMoney.ofFiat(10_432.17, "USD");
+        fastTotal = FastMoney.ofFiat(1_250_000.55, "USD");
+        defaultPrice = DefaultMoney.ofFiat(10_432.17, "USD");
+        defaultTotal = DefaultMoney.ofFiat(1_250_000.55, "USD");
+        amount = 0.125;
+    }
+
+    @Benchmark
+    public Money fastMoneyPlus() {
+        return fastTotal.plus(fastPrice);
+    }
+
+    @Benchmark
+    public Money defaultMoneyPlus() {
+        return defaultTotal.plus(defaultPrice);
+    }
+
+    @Benchmark
+    public Money fastMoneyMultipliedBy() {
+        return fastPrice.multipliedBy(amount);
+    }
+
+    @Benchmark
+    public Money defaultMoneyMultipliedBy() {
+        return defaultPrice.multipliedBy(amount);
+    }
+
+    @Benchmark
+    public Money fastMoneyDividedBy() {
+        return fastTotal.dividedBy(3L);
+    }
+
+    @Benchmark
+    public Money defaultMoneyDividedBy() {
+        return defaultTotal.dividedBy(3L);
+    }
+
+    @Benchmark
+    public boolean fastMoneyIsGreaterThan() {
+        return fastTotal.isGreaterThan(fastPrice);
+    }
+
+    @Benchmark
+    public boolean defaultMoneyIsGreaterThan() {
+        return defaultTotal.isGreaterThan(defaultPrice);
+    }
+}
@@ -0,0 +1,67 @@
+package com.brcolow.candlefx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.brcolow.candlefx.DefaultMoney;
+import com.brcolow.candlefx.DefaultMoneyFormatter;
+import com.brcolow.candlefx.FastMoney;
+import com.brcolow.candlefx.FastMoneyFormatter;
+import com.brcolow.candlefx.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures formatting money for display (for example in the tooltip of the candle under the mouse cursor).
+ *
+ * @author Michael Ennen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyFormatterBenchmark {
+    private FastMoneyFormatter fastMoneyFormatter;
+    private Money fastFiat;
+    private Money fastCrypto;
+    private Money defaultFiat;
+    private Money defaultCrypto;
+
+    @Setup
+    public void setup() {
+        fastMoneyFormatter = new FastMoneyFormatter();
+        fastFiat = FastMoney.ofFiat(10_432.17, "USD");
+        fastCrypto = FastMoney.ofCrypto(0.12345678, "BTC");
+        defaultFiat = DefaultMoney.ofFiat(10_432.17, "USD");
+        defaultCrypto = DefaultMoney.ofCrypto(0.12345678, "BTC");
+    }
+
+    @Benchmark
+    public String fastMoneyFormatterFiat() {
+        return fastMoneyFormatter.format(fastFiat);
+    }
+
+    @Benchmark
+    public String fastMoneyFormatterCrypto() {
+        return fastMoneyFormatter.format(fastCrypto);
+    }
+
+    @Benchmark
+    public String defaultMoneyFormatterFiat() {
+        return DefaultMoneyFormatter.DEFAULT_FIAT_FORMATTER.format(defaultFiat);
+    }
+
+    @Benchmark
+    public String defaultMoneyFormatterCrypto() {
+        return DefaultMoneyFormatter.DEFAULT_CRYPTO_FORMATTER.format(defaultCrypto);
+    }
+}
@@ -0,0 +1,517 @@
+package com.brcolow.candlefx.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.brcolow.candlefx.CandleData;
+import com.brcolow.candlefx.CandleDataSupplier;
+import com.brcolow.candlefx.CandlePyramid;
+import com.brcolow.candlefx.CandleSeriesDataSupplier;
+import com.brcolow.candlefx.CandleStickChart;
+import com.brcolow.candlefx.CandleStickChartContainer;
+import com.brcolow.candlefx.ChartMetrics;
+import com.brcolow.candlefx.Exchange;
+import com.brcolow.candlefx.ExchangeWebSocketClient;
+import com.brcolow.candlefx.FastMoney;
+import com.brcolow.candlefx.InProgressCandleData;
+import com.brcolow.candlefx.LiveTradesConsumer;
+import com.brcolow.candlefx.Side;
+import com.brcolow.candlefx.Trade;
+import com.brcolow.candlefx.TradePair;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the cost of rendering a {@link CandleStickChart} without a display, so that rendering changes can be
+ * compared objectively (for example on a CI Linux box).
+ *
+ * <p>The harness builds a live-syncing {@link CandleStickChartContainer} whose candles come from a synthetic random
+ * walk and whose live trades come from a stand-in {@link Exchange}, picks the one minute candles in its toolbar and
+ * then scripts a series of phases: panning (with the arrow keys), dragging the chart zoomed out far enough for its
+ * candles to be drawn from cached tiles, zooming (with ctrl +/-), resizing and bursts of live trades. For each
+ * phase it reports percentiles of the time the chart spent rendering each frame on the JavaFX application thread,
+ * percentiles of the time it spent building frame models in the background (see
+ * {@link ChartMetrics#recordFrameBuild(long, int)}), the hit rate of the tile cache (see
+ * {@link ChartMetrics#recordTileCacheLookups(int, int)}) and the rate at which the JavaFX application thread
+ * allocated.
+ *
+ * <p>The harness is run with {@link RenderHarnessLauncher}:
+ *
+ * <pre>{@code
+ * java -cp benchmarks/target/benchmarks.jar com.brcolow.candlefx.benchmarks.RenderHarnessLauncher
+ * }</pre>
+ *
+ * @author Michael Ennen
+ */
+public final class RenderHarness extends Application {
+    private static final TradePair TRADE_PAIR = TradePair.of("BTC", "USD");
+    private static final int SECONDS_PER_CANDLE = 60;
+    private static final int NUM_CANDLES = 20_000;
+    private static final int MAX_FRAMES_PER_PHASE = 100_000;
+    /**
+     * About one frame at 60 frames per second.
+     */
+    private static final long INPUT_INTERVAL_MILLIS = 16;
+    /**
+     * The number of times the chart is zoomed out (from candles 10 pixels wide) for its candles to be rasterized and
+     * drawn from cached tiles.
+     */
+    private static final int ZOOM_OUTS_TO_TILES = 7;
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderHarness.class);
+    private final Random random = new Random(42);
+    private SyntheticExchange exchange;
+    private CandleStickChart chart;
+    private CandleStickChartContainer chartContainer;
+    private long fxThreadId;
+    private volatile Phase currentPhase;
+
+    @Override
+    public void start(Stage stage) {
+        fxThreadId = Thread.currentThread().getId();
+        exchange = new SyntheticExchange(randomWalk());
+
+        chartContainer = new CandleStickChartContainer(exchange, TRADE_PAIR, true);
+        chartContainer.setPrefSize(1200, 800);
+        stage.setScene(new Scene(new Group(chartContainer), 2000, 1200));
+        stage.show();
+        // The container only creates a chart once a candle duration is picked in its toolbar.
+        getDurationButton("1m").fire();
+        chart = chartContainer.getCandleStickChart();
+        chart.getRenderScheduler().setRenderTimeListener(renderNanos -> {
+            Phase phase = currentPhase;
+            if (phase != null && phase.frames < MAX_FRAMES_PER_PHASE) {
+                phase.renderNanos[phase.frames++] = renderNanos;
+            }
+        });
+        // Frame models are built off the JavaFX application thread, so they are timed through the chart's metrics.
+        chart.setMetrics(new ChartMetrics() {
+            @Override
+            public void recordFrameBuild(long nanos, int candles) {
+                Phase phase = currentPhase;
+                if (phase != null) {
+                    phase.recordFrameBuild(nanos);
+                }
+            }
+
+            @Override
+            public void recordTileCacheLookups(int hits, int misses) {
+                Phase phase = currentPhase;
+                if (phase != null) {
+                    phase.recordTileCacheLookups(hits, misses);
+                }
+            }
+        });
+
+        Thread script = new Thread(this::runScript, "RENDER-HARNESS");
+        script.setDaemon(true);
+        script.start();
+    }
+
+    /**
+     * @return candles following a random walk, the last of which is the one before the current (in-progress) candle
+     */
+    private List<CandleData> randomWalk() {
+        int currentOpenTime = (int) (Instant.now().getEpochSecond() / SECONDS_PER_CANDLE) * SECONDS_PER_CANDLE;
+        List<CandleData> candleData = new ArrayList<>(NUM_CANDLES);
+        double price = 10_000;
+        for (int i = NUM_CANDLES; i > 0; i--) {
+            double open = price;
+            double close = Math.max(1, open + (random.nextGaussian() * 20));
+            double high = Math.max(open, close) + (random.nextDouble() * 10);
+            double low = Math.max(0.5, Math.min(open, close) - (random.nextDouble() * 10));
+            candleData.add(new CandleData(open, close, high, low, currentOpenTime - (i * SECONDS_PER_CANDLE),
+                    random.nextDouble() * 500));
+            price = close;
+        }
+        return candleData;
+    }
+
+    private void runScript() {
+        boolean failed = true;
+        try {
+            awaitFirstRender();
+            // Let the chart settle (and the JIT warm up) before measuring anything.
+            pan(KeyCode.LEFT, 200);
+            pan(KeyCode.RIGHT, 200);
+
+            List<Phase> phases = new ArrayList<>();
+            phases.add(measure("pan left", () -> pan(KeyCode.LEFT, 400)));
+            phases.add(measure("pan right", () -> pan(KeyCode.RIGHT, 400)));
+            zoom(KeyCode.MINUS, ZOOM_OUTS_TO_TILES);
+            phases.add(measure("drag (tiled)", () -> {
+                for (int i = 0; i < 5; i++) {
+                    drag(6, 150);
+                    drag(-6, 150);
+                }
+            }));
+            zoom(KeyCode.PLUS, ZOOM_OUTS_TO_TILES);
+            phases.add(measure("zoom out/in", () -> {
+                for (int i = 0; i < 10; i++) {
+                    zoom(KeyCode.MINUS, 4);
+                    zoom(KeyCode.PLUS, 4);
+                }
+            }));
+            phases.add(measure("resize", () -> {
+                double[][] sizes = {{1600, 1000}, {900, 600}, {1920, 1080}, {1200, 800}};
+                for (double[] size : sizes) {
+                    runOnFxThread(() -> chartContainer.setPrefSize(size[0], size[1]));
+                    // Resizes are only acted upon once the size has not changed for a while.
+                    sleep(1000);
+                }
+            }));
+            phases.add(measure("live trade bursts", () -> {
+                for (int i = 0; i < 300; i++) {
+                    exchange.publishTrades(200);
+                    sleep(INPUT_INTERVAL_MILLIS);
+                }
+            }));
+
+            report(phases);
+            failed = false;
+        } catch (Exception ex) {
+            logger.error("render harness failed: ", ex);
+        } finally {
+            Platform.exit();
+            System.exit(failed ? 1 : 0);
+        }
+    }
+
+    private void awaitFirstRender() throws TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (chart.getRenderScheduler().getRenderedFrameCount() == 0 || !exchange.isStreaming()) {
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("the chart was not rendered within 30 seconds");
+            }
+            sleep(100);
+        }
+        // Give the live-syncing chart time to catch up with the in-progress candle.
+        sleep(1000);
+    }
+
+    private Phase measure(String name, Runnable script) {
+        Phase phase = new Phase(name);
+        runOnFxThread(() -> {
+            phase.startNanos = System.nanoTime();
+            phase.startAllocatedBytes = getFxThreadAllocatedBytes();
+            currentPhase = phase;
+        });
+        script.run();
+        // Wait for the renders requested by the last input.
+        sleep(500);
+        runOnFxThread(() -> {
+            currentPhase = null;
+            phase.endNanos = System.nanoTime();
+            phase.endAllocatedBytes = getFxThreadAllocatedBytes();
+        });
+        return phase;
+    }
+
+    private void pan(KeyCode keyCode, int times) {
+        for (int i = 0; i < times; i++) {
+            pressKey(keyCode, false);
+        }
+    }
+
+    private void zoom(KeyCode keyCode, int times) {
+        for (int i = 0; i < times; i++) {
+            pressKey(keyCode, true);
+            sleep(100);
+        }
+    }
+
+    /**
+     * Drags the chart with the primary mouse button by {@code dx} pixels (positive to the right, back in time) per
+     * input interval, {@code times} times, and then releases it without flicking it.
+     */
+    private void drag(double dx, int times) {
+        double x = 600;
+        fireMouseEvent(MouseEvent.MOUSE_PRESSED, x);
+        for (int i = 0; i <= times; i++) {
+            // The first drag event only records where the drag started.
+            fireMouseEvent(MouseEvent.MOUSE_DRAGGED, x);
+            x += dx;
+            sleep(INPUT_INTERVAL_MILLIS);
+        }
+        // Hold the chart still for long enough that releasing it does not flick it.
+        sleep(200);
+        fireMouseEvent(MouseEvent.MOUSE_RELEASED, x - dx);
+    }
+
+    private void fireMouseEvent(EventType<MouseEvent> eventType, double x) {
+        Platform.runLater(() -> Event.fireEvent(getEventTarget(), new MouseEvent(eventType, x, 300, x, 300,
+                MouseButton.PRIMARY, 1, false, false, false, false, eventType != MouseEvent.MOUSE_RELEASED, false,
+                false, false, false, false, null)));
+    }
+
+    private void pressKey(KeyCode keyCode, boolean controlDown) {
+        Platform.runLater(() -> Event.fireEvent(getEventTarget(), new KeyEvent(KeyEvent.KEY_PRESSED, "", "", keyCode,
+                false, controlDown, false, false)));
+        sleep(INPUT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @return the node that the chart listens to input events on (the parent of its canvases)
+     */
+    private Node getEventTarget() {
+        for (Node child : chart.getChildrenUnmodifiable()) {
+            if (child instanceof StackPane) {
+                return child;
+            }
+        }
+        throw new IllegalStateException("the chart's canvases have not been created yet");
+    }
+
+    /**
+     * @return the button in the container's toolbar that picks the candle duration with the given label
+     */
+    private Button getDurationButton(String label) {
+        for (Node node : chartContainer.lookupAll(".button")) {
+            if (node instanceof Button && label.equals(((Button) node).getText())) {
+                return (Button) node;
+            }
+        }
+        throw new IllegalStateException("the toolbar has no button for the candle duration: " + label);
+    }
+
+    private long getFxThreadAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(fxThreadId);
+    }
+
+    private static void report(List<Phase> phases) {
+        System.out.println();
+        System.out.println("Rendering (JavaFX application thread):");
+        System.out.printf("%-20s %8s %10s %10s %10s %10s %14s %12s%n", "phase", "frames", "p50 (ms)", "p90 (ms)",
+                "p99 (ms)", "max (ms)", "alloc (MB/s)", "alloc/frame");
+        for (Phase phase : phases) {
+            long[] renderNanos = Arrays.copyOf(phase.renderNanos, phase.frames);
+            Arrays.sort(renderNanos);
+            double seconds = (phase.endNanos - phase.startNanos) / 1e9;
+            long allocatedBytes = phase.endAllocatedBytes - phase.startAllocatedBytes;
+            System.out.printf("%-20s %8d %10.3f %10.3f %10.3f %10.3f %14.2f %11dK%n", phase.name, phase.frames,
+                    percentile(renderNanos, 50), percentile(renderNanos, 90), percentile(renderNanos, 99),
+                    percentile(renderNanos, 100), (allocatedBytes / (1024d * 1024d)) / seconds,
+                    phase.frames == 0 ? 0 : allocatedBytes / phase.frames / 1024);
+        }
+
+        System.out.println();
+        System.out.println("Frame model building (FRAME-MODEL-BUILDER thread):");
+        System.out.printf("%-20s %8s %10s %10s %10s %10s %10s %10s %10s%n", "phase", "builds", "p50 (ms)",
+                "p90 (ms)", "p99 (ms)", "max (ms)", "tile hits", "tile miss", "hit rate");
+        for (Phase phase : phases) {
+            long[] frameBuildNanos = phase.getFrameBuildNanos();
+            Arrays.sort(frameBuildNanos);
+            long[] tileCacheLookups = phase.getTileCacheLookups();
+            long tileLookups = tileCacheLookups[0] + tileCacheLookups[1];
+            System.out.printf("%-20s %8d %10.3f %10.3f %10.3f %10.3f %10d %10d %10s%n", phase.name,
+                    frameBuildNanos.length, percentile(frameBuildNanos, 50), percentile(frameBuildNanos, 90),
+                    percentile(frameBuildNanos, 99), percentile(frameBuildNanos, 100), tileCacheLookups[0],
+                    tileCacheLookups[1], tileLookups == 0 ? "-" :
+                            String.format("%.1f%%", (100d * tileCacheLookups[0]) / tileLookups));
+        }
+    }
+
+    /**
+     * @return the given (nearest-rank) percentile of the sorted durations, in milliseconds
+     */
+    private static double percentile(long[] sortedNanos, int percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil((percentile / 100d) * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static void runOnFxThread(Runnable runnable) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            runnable.run();
+            future.complete(null);
+        });
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final long[] renderNanos = new long[MAX_FRAMES_PER_PHASE];
+        private int frames;
+        /**
+         * Recorded on the thread frame models are built on (as are the tile cache lookups), so guarded by this
+         * phase.
+         */
+        private final long[] frameBuildNanos = new long[MAX_FRAMES_PER_PHASE];
+        private int frameBuilds;
+        private long tileCacheHits;
+        private long tileCacheMisses;
+        private long startNanos;
+        private long endNanos;
+        private long startAllocatedBytes;
+        private long endAllocatedBytes;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        synchronized void recordFrameBuild(long nanos) {
+            if (frameBuilds < MAX_FRAMES_PER_PHASE) {
+                frameBuildNanos[frameBuilds++] = nanos;
+            }
+        }
+
+        synchronized long[] getFrameBuildNanos() {
+            return Arrays.copyOf(frameBuildNanos, frameBuilds);
+        }
+
+        synchronized void recordTileCacheLookups(int hits, int misses) {
+            tileCacheHits += hits;
+            tileCacheMisses += misses;
+        }
+
+        /**
+         * @return the number of tile cache hits and misses
+         */
+        synchronized long[] getTileCacheLookups() {
+            return new long[] {tileCacheHits, tileCacheMisses};
+        }
+    }
+
+    /**
+     * A stand-in for a real exchange whose candles are the given synthetic candles (and the coarser candles rolled up
+     * from them) and whose live trades are published by the harness.
+     */
+    private static final class SyntheticExchange extends Exchange {
+        private final Random random = new Random(7);
+        private final CandlePyramid candles;
+        private double lastPrice;
+        private long tradeId;
+
+        SyntheticExchange(List<CandleData> candleData) {
+            super(new SyntheticWebSocketClient());
+            candles = new CandlePyramid(SECONDS_PER_CANDLE, Set.of(300, 900, 3600, 21600, 86400));
+            candles.putAll(candleData);
+            lastPrice = candleData.get(candleData.size() - 1).getClosePrice();
+        }
+
+        boolean isStreaming() {
+            return !((SyntheticWebSocketClient) webSocketClient).getLiveTradeConsumers().isEmpty();
+        }
+
+        void publishTrades(int count) {
+            List<Trade> trades = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                lastPrice = Math.max(1, lastPrice + random.nextGaussian());
+                trades.add(new Trade(TRADE_PAIR, FastMoney.ofFiat(lastPrice, "USD"),
+                        FastMoney.ofCrypto(random.nextDouble(), "BTC"), Side.BUY, tradeId++, Instant.now()));
+            }
+            for (LiveTradesConsumer consumer : ((SyntheticWebSocketClient) webSocketClient).getLiveTradeConsumers()) {
+                consumer.acceptTrades(trades);
+            }
+        }
+
+        @Override
+        public CompletableFuture<List<Trade>> fetchRecentTradesUntil(TradePair tradePair, Instant stopAt) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        /**
+         * @throws IllegalArgumentException if the synthetic candles can not be rolled up into candles of the given
+         * duration
+         */
+        @Override
+        public CandleDataSupplier getCandleDataSupplier(int secondsPerCandle, TradePair tradePair) {
+            return new CandleSeriesDataSupplier(candles.getSeries(secondsPerCandle), tradePair);
+        }
+
+        @Override
+        public CompletableFuture<Optional<InProgressCandleData>> fetchCandleDataForInProgressCandle(
+                TradePair tradePair, Instant currentCandleStartedAt, long secondsIntoCurrentCandle,
+                int secondsPerCandle) {
+            return CompletableFuture.completedFuture(Optional.of(new InProgressCandleData(
+                    (int) currentCandleStartedAt.getEpochSecond(), lastPrice, lastPrice, lastPrice,
+                    (int) Instant.now().getEpochSecond(), lastPrice, 0)));
+        }
+    }
+
+    /**
+     * A web socket client that never connects, it just keeps track of the chart's live trades consumers.
+     */
+    private static final class SyntheticWebSocketClient extends ExchangeWebSocketClient {
+        SyntheticWebSocketClient() {
+            super(URI.create("ws://localhost"), new Draft_6455());
+            webSocketInitializedLatch.countDown();
+        }
+
+        Collection<LiveTradesConsumer> getLiveTradeConsumers() {
+            return liveTradeConsumers.values();
+        }
+
+        @Override
+        public void streamLiveTrades(TradePair tradePair, LiveTradesConsumer liveTradesConsumer) {
+            liveTradeConsumers.put(tradePair, liveTradesConsumer);
+        }
+
+        @Override
+        public void stopStreamLiveTrades(TradePair tradePair) {
+            liveTradeConsumers.remove(tradePair);
+        }
+
+        @Override
+        public boolean supportsStreamingTrades(TradePair tradePair) {
+            return true;
+        }
+
+        @Override
+        public void onOpen(ServerHandshake serverHandshake) {}
+
+        @Override
+        public void onMessage(String message) {}
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {}
+    }
+}
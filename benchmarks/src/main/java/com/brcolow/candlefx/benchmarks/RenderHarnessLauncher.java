@@ -0,0 +1,30 @@
+package com.brcolow.candlefx.benchmarks;
+
+import javafx.application.Application;
+
+/**
+ * Launches the {@link RenderHarness}:
+ *
+ * <pre>{@code
+ * java -cp benchmarks/target/benchmarks.jar com.brcolow.candlefx.benchmarks.RenderHarnessLauncher
+ * }</pre>
+ *
+ * <p>The harness can not be run as the main class itself: when the main class extends {@link Application} the
+ * JDK launcher requires JavaFX to be on the module path, which it is not when running from the shaded jar. Unless
+ * the {@code glass.platform} system property is set, the harness runs headless using Monocle and the software
+ * pipeline. The process exits with status 1 if the harness failed.
+ *
+ * @author Michael Ennen
+ */
+public final class RenderHarnessLauncher {
+    private RenderHarnessLauncher() {}
+
+    public static void main(String[] args) {
+        if (System.getProperty("glass.platform") == null) {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+        }
+        Application.launch(RenderHarness.class, args);
+    }
+}
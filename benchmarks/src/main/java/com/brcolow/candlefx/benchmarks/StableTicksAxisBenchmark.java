@@ -0,0 +1,79 @@
+package com.brcolow.candlefx.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.brcolow.candlefx.StableTicksAxis;
+import javafx.application.Platform;
+import javafx.geometry.Side;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures auto-ranging a {@link StableTicksAxis} (padding the range and calculating its tick spacing), which
+ * happens on every layout of the chart's axes.
+ *
+ * <p>Measuring the size of the tick labels needs the JavaFX toolkit, which is started headless (using Monocle and
+ * the software pipeline) unless the {@code glass.platform} system property is set. The labels are only measured
+ * once, while setting up.
+ *
+ * @author Michael Ennen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StableTicksAxisBenchmark {
+    /**
+     * The ranges of a price axis (small deltas) and of a time axis (large deltas).
+     */
+    @Param({"0.0042", "37.5", "86400", "31536000"})
+    private double delta;
+
+    @Param({"600"})
+    private double length;
+
+    private AutoRangingAxis axis;
+
+    @Setup
+    public void setup() {
+        if (System.getProperty("glass.platform") == null) {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+        }
+        try {
+            Platform.startup(() -> { });
+        } catch (IllegalStateException ex) {
+            // The toolkit has already been started.
+        }
+        axis = new AutoRangingAxis();
+        axis.setSide(Side.RIGHT);
+        axis.resize(60, length);
+        axis.autoRange(1000, 1000 + delta);
+    }
+
+    @Benchmark
+    public Object autoRange() {
+        return axis.autoRange(1000, 1000 + delta);
+    }
+
+    /**
+     * Exposes the range calculation that a {@code StableTicksAxis} does when it is laid out.
+     */
+    private static final class AutoRangingAxis extends StableTicksAxis {
+        Object autoRange(double minValue, double maxValue) {
+            return autoRange(minValue, maxValue, getLength(), 0);
+        }
+    }
+}
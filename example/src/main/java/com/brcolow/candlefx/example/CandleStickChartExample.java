@@ -1,11 +1,12 @@
 package com.brcolow.candlefx.example;
 
+import com.brcolow.candlefx.CachingCandleDataSupplier;
 import com.brcolow.candlefx.CandleData;
 import com.brcolow.candlefx.CandleDataSupplier;
 import com.brcolow.candlefx.CandleStickChartContainer;
 import com.brcolow.candlefx.Currency;
-import com.brcolow.candlefx.DefaultMoney;
 import com.brcolow.candlefx.Exchange;
+import com.brcolow.candlefx.FastMoney;
 import com.brcolow.candlefx.InProgressCandleData;
 import com.brcolow.candlefx.Side;
 import com.brcolow.candlefx.Trade;
@@ -32,6 +33,8 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -83,14 +86,26 @@ public class CandleStickChartExample extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        CachingCandleDataSupplier.closeCaches();
+    }
+
     public static class Coinbase extends Exchange {
+        /**
+         * Where the candles fetched from Coinbase are cached, so that they do not have to be fetched again.
+         */
+        private static final Path CANDLE_CACHE_DIRECTORY = Paths.get(System.getProperty("user.home"), ".candlefx",
+                "cache");
+
         Coinbase() {
             super(null); // This argument is for creating a WebSocket client for live trading data.
         }
 
         @Override
         public CandleDataSupplier getCandleDataSupplier(int secondsPerCandle, TradePair tradePair) {
-            return new CoinbaseCandleDataSupplier(secondsPerCandle, tradePair);
+            return new CachingCandleDataSupplier(new CoinbaseCandleDataSupplier(secondsPerCandle, tradePair),
+                    CANDLE_CACHE_DIRECTORY, "coinbase");
         }
 
         public static class CoinbaseCandleDataSupplier extends CandleDataSupplier {
@@ -242,8 +257,8 @@ public class CandleStickChartExample extends Application {
                                     break;
                                 } else {
                                     tradesBeforeStopTime.add(new Trade(tradePair,
-                                            DefaultMoney.ofFiat(trade.get("price").asText(), tradePair.getCounterCurrency()),
-                                            DefaultMoney.ofCrypto(trade.get("size").asText(), tradePair.getBaseCurrency()),
+                                            FastMoney.parse(trade.get("price").asText(), tradePair.getCounterCurrency()),
+                                            FastMoney.parse(trade.get("size").asText(), tradePair.getBaseCurrency()),
                                             Side.getSide(trade.get("side").asText()), trade.get("trade_id").asLong(), time));
                                 }
                             }
@@ -2,13 +2,15 @@ package com.brcolow.candlefx.example;
 
 import com.brcolow.candlefx.CryptoCurrency;
 import com.brcolow.candlefx.CurrencyNotFoundException;
-import com.brcolow.candlefx.DefaultMoney;
 import com.brcolow.candlefx.ExchangeWebSocketClient;
+import com.brcolow.candlefx.FastMoney;
 import com.brcolow.candlefx.FiatCurrency;
 import com.brcolow.candlefx.LiveTradesConsumer;
 import com.brcolow.candlefx.Side;
 import com.brcolow.candlefx.Trade;
 import com.brcolow.candlefx.TradePair;
+import com.brcolow.candlefx.TradeRingBuffer;
+import com.brcolow.candlefx.TradeSlot;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -21,7 +23,6 @@ import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
 import java.net.URI;
 import java.time.Instant;
 import java.util.Collections;
@@ -77,15 +78,37 @@ public class CoinbaseWebSocketClient extends ExchangeWebSocketClient {
                 send(OBJECT_MAPPER.createObjectNode().put("type", "heartbeat").put("on", "false").toPrettyString());
                 break;
             case "match":
-                if (liveTradeConsumers.containsKey(tradePair)) {
-                    Trade newTrade = new Trade(tradePair,
-                            DefaultMoney.of(new BigDecimal(messageJson.get("price").asText()),
-                                    tradePair.getCounterCurrency()),
-                            DefaultMoney.of(new BigDecimal(messageJson.get("size").asText()),
-                                    tradePair.getBaseCurrency()),
-                            side, messageJson.at("trade_id").asLong(),
-                            Instant.from(ISO_INSTANT.parse(messageJson.get("time").asText())));
-                    liveTradeConsumers.get(tradePair).acceptTrades(Collections.singletonList(newTrade));
+                LiveTradesConsumer liveTradesConsumer = liveTradeConsumers.get(tradePair);
+                if (liveTradesConsumer == null) {
+                    break;
+                }
+                TradeRingBuffer tradeRingBuffer = liveTradesConsumer.getTradeRingBuffer();
+                if (tradeRingBuffer != null) {
+                    // Publish the trade straight into the consumer's ring buffer without creating a Trade.
+                    TradeSlot slot = tradeRingBuffer.claim();
+                    if (slot == null) {
+                        logger.warn("coinbase websocket client: live trades ring buffer for " + tradePair +
+                                " is full, dropped trade: " + messageJson);
+                        break;
+                    }
+                    Instant timestamp = Instant.from(ISO_INSTANT.parse(messageJson.get("time").asText()));
+                    try {
+                        // The price and size are parsed from their decimal text straight into fixed-point.
+                        slot.set(tradePair.getId(), messageJson.get("price").asText(),
+                                messageJson.get("size").asText(), side, messageJson.at("trade_id").asLong(),
+                                timestamp.getEpochSecond(), timestamp.getNano());
+                    } catch (NumberFormatException ex) {
+                        // The price or size has too many (fractional) digits to be held in fixed-point as is. The
+                        // claimed slot is left unpublished (so it is claimed again by the next trade) and the trade
+                        // is passed on as a Trade instead, which the consumer rounds into its ring buffer.
+                        liveTradesConsumer.acceptTrades(Collections.singletonList(parseTrade(messageJson, tradePair,
+                                side)));
+                        break;
+                    }
+                    tradeRingBuffer.publish();
+                } else {
+                    liveTradesConsumer.acceptTrades(Collections.singletonList(parseTrade(messageJson, tradePair,
+                            side)));
                 }
                 break;
             case "error":
@@ -97,6 +120,14 @@ public class CoinbaseWebSocketClient extends ExchangeWebSocketClient {
         }
     }
 
+    private static Trade parseTrade(JsonNode messageJson, TradePair tradePair, Side side) {
+        return new Trade(tradePair,
+                FastMoney.parse(messageJson.get("price").asText(), tradePair.getCounterCurrency()),
+                FastMoney.parse(messageJson.get("size").asText(), tradePair.getBaseCurrency()),
+                side, messageJson.at("trade_id").asLong(),
+                Instant.from(ISO_INSTANT.parse(messageJson.get("time").asText())));
+    }
+
     private TradePair parseTradePair(JsonNode messageJson) throws CurrencyNotFoundException {
         final String productId = messageJson.get("product_id").asText();
         final String[] products = productId.split("-");